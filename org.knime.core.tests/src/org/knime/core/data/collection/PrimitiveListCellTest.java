@@ -0,0 +1,220 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataCellDataInput;
+import org.knime.core.data.DataCellDataOutput;
+import org.knime.core.data.DataCellSerializer;
+import org.knime.core.data.DataType;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests the primitive array backed list cells created by {@link CollectionCellFactory}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PrimitiveListCellTest {
+
+    private static final class TestOutput extends DataOutputStream implements DataCellDataOutput {
+        TestOutput(final ByteArrayOutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void writeDataCell(final DataCell cell) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class TestInput extends DataInputStream implements DataCellDataInput {
+        TestInput(final byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        public DataCell readDataCell() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static <T extends DataCell> T roundTrip(final T cell, final DataCellSerializer<T> serializer)
+        throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TestOutput out = new TestOutput(bytes)) {
+            serializer.serialize(cell, out);
+        }
+        try (TestInput in = new TestInput(bytes.toByteArray())) {
+            final T result = serializer.deserialize(in);
+            assertEquals("Bytes left after deserialization", 0, in.available());
+            return result;
+        }
+    }
+
+    /** Checks that a primitive list behaves exactly like a {@link ListCell} with the same elements. */
+    private static void assertSameAsListCell(final ListCell primitive, final List<DataCell> cells) {
+        final ListCell reference = new ListCell(BlobSupportDataCellList.create(cells));
+        assertEquals(reference.getType(), ListCell.getCollectionType(primitive.getElementType()));
+        assertTrue(reference.getType().isASuperTypeOf(primitive.getType()));
+        assertEquals(reference.size(), primitive.size());
+        assertEquals(reference.toString(), primitive.toString());
+        assertEquals(reference.hashCode(), primitive.hashCode());
+        assertEquals(reference, primitive);
+        assertEquals(primitive, reference);
+        final List<DataCell> iterated = new ArrayList<>();
+        primitive.forEach(iterated::add);
+        assertEquals(cells, iterated);
+        for (int i = 0; i < cells.size(); i++) {
+            assertEquals(cells.get(i), primitive.get(i));
+        }
+        assertEquals(reference.getList(), primitive.getList());
+    }
+
+    /**
+     * Tests that the factory creates the specialized cells and that they are equal to ordinary list cells.
+     *
+     * @throws IOException not expected
+     */
+    @Test
+    public void testDoubleList() throws IOException {
+        final Random random = new Random(1);
+        final double[] values = new double[20000];
+        final List<DataCell> cells = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 100 == 0 ? Double.NaN : random.nextGaussian();
+            cells.add(new DoubleCell(values[i]));
+        }
+        final ListCell cell = CollectionCellFactory.createListCell(cells);
+        assertTrue(cell instanceof DoubleListCell);
+        assertEquals(DoubleCell.TYPE, cell.getElementType());
+        assertSameAsListCell(cell, cells);
+        assertArrayEquals(values, ((DoubleListCell)cell).getDoubleArray(), 0.0);
+        assertEquals(cell, CollectionCellFactory.createDoubleListCell(values));
+
+        final DoubleListCell read = roundTrip((DoubleListCell)cell, new DoubleListCell.DoubleListCellSerializer());
+        assertEquals(cell, read);
+        assertEquals(values[42], read.getDouble(42), 0.0);
+    }
+
+    /**
+     * Tests int, long and string lists including their serialization.
+     *
+     * @throws IOException not expected
+     */
+    @Test
+    public void testOtherLists() throws IOException {
+        final List<DataCell> ints = new ArrayList<>();
+        final List<DataCell> longs = new ArrayList<>();
+        final List<DataCell> strings = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            ints.add(new IntCell(i * 31 - 5000));
+            longs.add(new LongCell(i * 1000000007L));
+            strings.add(new StringCell("s" + i + (i % 7 == 0 ? "\u00e4\u20ac" : "")));
+        }
+
+        final ListCell intList = CollectionCellFactory.createListCell(ints);
+        assertTrue(intList instanceof IntListCell);
+        assertSameAsListCell(intList, ints);
+        assertEquals(intList, roundTrip((IntListCell)intList, new IntListCell.IntListCellSerializer()));
+
+        final ListCell longList = CollectionCellFactory.createListCell(longs);
+        assertTrue(longList instanceof LongListCell);
+        assertSameAsListCell(longList, longs);
+        assertEquals(longList, roundTrip((LongListCell)longList, new LongListCell.LongListCellSerializer()));
+
+        final ListCell stringList = CollectionCellFactory.createListCell(strings);
+        assertTrue(stringList instanceof StringListCell);
+        assertSameAsListCell(stringList, strings);
+        assertEquals(stringList,
+            roundTrip((StringListCell)stringList, new StringListCell.StringListCellSerializer()));
+        assertEquals("s7\u00e4\u20ac", ((StringListCell)stringList).getString(7));
+
+        final ListCell fromRow = CollectionCellFactory.createListCell(
+            new DefaultRow("Row0", new IntCell(1), new StringCell("a"), new IntCell(2)), new int[]{0, 2});
+        assertTrue(fromRow instanceof IntListCell);
+        assertArrayEquals(new int[]{1, 2}, ((IntListCell)fromRow).getIntArray());
+    }
+
+    /**
+     * Tests that lists with missing values, mixed or other element types and empty lists stay ordinary
+     * {@link ListCell}s.
+     */
+    @Test
+    public void testFallback() {
+        assertEquals(ListCell.class, CollectionCellFactory.createListCell(new ArrayList<DataCell>()).getClass());
+        assertEquals(ListCell.class, CollectionCellFactory
+            .createListCell(Arrays.asList(new IntCell(1), DataType.getMissingCell())).getClass());
+        assertEquals(ListCell.class, CollectionCellFactory
+            .createListCell(Arrays.asList(new IntCell(1), new DoubleCell(1))).getClass());
+        final ListCell nested = CollectionCellFactory
+            .createListCell(Arrays.asList(CollectionCellFactory.createIntListCell(new int[]{1})));
+        assertEquals(ListCell.class, nested.getClass());
+
+        assertFalse(CollectionCellFactory.createIntListCell(new int[]{1, 2})
+            .equals(CollectionCellFactory.createLongListCell(new long[]{1, 2})));
+        assertFalse(CollectionCellFactory.createIntListCell(new int[]{1, 2})
+            .equals(CollectionCellFactory.createIntListCell(new int[]{2, 1})));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.container.BlobDataCell.BlobAddress;
+
+/**
+ * Test cases for the class {@link BlobCache}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class BlobCacheTest {
+
+    /** A minimal blob cell. */
+    @SuppressWarnings("serial")
+    private static final class TestBlobCell extends BlobDataCell {
+
+        private final int m_value;
+
+        TestBlobCell(final int value) {
+            m_value = value;
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(m_value);
+        }
+
+        @Override
+        protected boolean equalsDataCell(final DataCell dc) {
+            return ((TestBlobCell)dc).m_value == m_value;
+        }
+
+        @Override
+        public int hashCode() {
+            return m_value;
+        }
+    }
+
+    /** Loader creating a new cell per call and counting the calls. */
+    private static final class CountingLoader implements BlobCache.BlobLoader {
+
+        private final AtomicInteger m_count;
+
+        private final int m_value;
+
+        private final long m_weight;
+
+        CountingLoader(final AtomicInteger count, final int value, final long weight) {
+            m_count = count;
+            m_value = value;
+            m_weight = weight;
+        }
+
+        @Override
+        public BlobDataCell load() throws IOException {
+            m_count.incrementAndGet();
+            return new TestBlobCell(m_value);
+        }
+
+        @Override
+        public long getWeight() {
+            return m_weight;
+        }
+    }
+
+    private static BlobAddress address(final int index) {
+        final BlobAddress address = new BlobAddress(1, 0, false);
+        address.setIndexOfBlobInColumn(index);
+        return address;
+    }
+
+    /**
+     * Tests that blobs are served from the cache and that they are distinguished by their owning buffer.
+     *
+     * @throws IOException not expected
+     */
+    @Test
+    public void testCacheHits() throws IOException {
+        final BlobCache cache = new BlobCache(1L << 20);
+        final AtomicInteger loads = new AtomicInteger();
+        final BlobDataCell first = cache.get(1L, address(0), new CountingLoader(loads, 0, 100));
+        assertSame("Blob not served from cache", first, cache.get(1L, address(0), new CountingLoader(loads, 0, 100)));
+        assertEquals(1, loads.get());
+        cache.get(2L, address(0), new CountingLoader(loads, 0, 100));
+        assertEquals("Blobs of different buffers must not be mixed up", 2, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        cache.invalidate(1L);
+        cache.get(1L, address(0), new CountingLoader(loads, 0, 100));
+        assertEquals("Blob of invalidated buffer still cached", 3, loads.get());
+    }
+
+    /**
+     * Tests that the cache does not exceed its budget.
+     *
+     * @throws IOException not expected
+     */
+    @Test
+    public void testBudget() throws IOException {
+        final long budget = 1L << 20;
+        final BlobCache cache = new BlobCache(budget);
+        final AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            cache.get(1L, address(i), new CountingLoader(loads, i, 10_000));
+        }
+        assertTrue("Cache exceeds budget: " + cache.getWeight(), cache.getWeight() <= budget);
+        assertTrue("No blobs evicted", cache.getEvictionCount() > 0);
+        assertEquals(1000 - cache.getEvictionCount(), cache.size());
+
+        // blobs larger than a segment are only softly referenced
+        cache.clear();
+        loads.set(0);
+        final BlobDataCell large = cache.get(1L, address(0), new CountingLoader(loads, 0, budget));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.oversizedSize());
+        assertSame("Large blob not served from cache", large,
+            cache.get(1L, address(0), new CountingLoader(loads, 0, budget)));
+        assertEquals(1, loads.get());
+        cache.invalidate(1L);
+        assertEquals(0, cache.oversizedSize());
+
+        final BlobCache disabled = new BlobCache(0L);
+        disabled.get(1L, address(0), new CountingLoader(loads, 0, 1));
+        disabled.get(1L, address(1), new CountingLoader(loads, 1, budget));
+        assertEquals(0, disabled.size());
+        assertEquals(0, disabled.oversizedSize());
+    }
+}
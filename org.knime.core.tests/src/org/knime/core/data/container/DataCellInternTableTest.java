@@ -0,0 +1,178 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests the interning of cells read from disc (see {@link DataCellInternTable}) and the shared instances returned by
+ * the serializers of the default cell implementations.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DataCellInternTableTest {
+
+    private static final int ROW_COUNT = 2 * DataCellInternTable.CHECK_INTERVAL;
+
+    private static DataRow createRow(final int i) {
+        final DataCell missing = i % 2 == 0 ? new MissingCell("error " + (i % 3)) : DataType.getMissingCell();
+        return new DefaultRow(RowKey.createRowKey((long)i), new IntCell(i % 10), new LongCell(100000L + i % 10),
+            new DoubleCell(0.5 + i % 10), new DoubleCell(i), new IntCell(i), missing);
+    }
+
+    private static Buffer writeTable() {
+        final DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("small int", IntCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("large long", LongCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("fraction", DoubleCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("unique double", DoubleCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("unique int", IntCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("missing", IntCell.TYPE).createSpec());
+        final DataContainer cont = new DataContainer(spec,
+            DataContainerSettings.getDefault().withMaxCellsInMemory(0).withInitializedDomain(false));
+        for (int i = 0; i < ROW_COUNT; i++) {
+            cont.addRowToTable(createRow(i));
+        }
+        cont.close();
+        return cont.getBuffer();
+    }
+
+    /**
+     * Writes a table to disc and checks that it's read correctly and that repeated values are returned as the same
+     * instance.
+     */
+    @Test
+    public void testWriteRead() {
+        final Buffer buffer = writeTable();
+        assertTrue(buffer.isFlushedToDisk());
+        final DataCell[] firstCells = new DataCell[10];
+        final DataCell[] firstMissingCells = new DataCell[3];
+        try (final CloseableRowIterator it = buffer.iterator()) {
+            for (int i = 0; i < ROW_COUNT; i++) {
+                final DataRow expected = createRow(i);
+                final DataRow actual = it.next();
+                for (int c = 0; c < expected.getNumCells(); c++) {
+                    assertEquals("Unexpected cell in row " + i + ", column " + c, expected.getCell(c),
+                        actual.getCell(c));
+                    assertSame(expected.getCell(c).getClass(), actual.getCell(c).getClass());
+                }
+                if (i < 10) {
+                    firstCells[i] = actual.getCell(1);
+                } else {
+                    assertSame(firstCells[i % 10], actual.getCell(1));
+                }
+                if (i % 2 == 0) {
+                    if (i < 6) {
+                        firstMissingCells[i % 3] = actual.getCell(5);
+                    } else {
+                        assertSame(firstMissingCells[i % 3], actual.getCell(5));
+                    }
+                } else {
+                    assertSame(DataType.getMissingCell(), actual.getCell(5));
+                }
+            }
+        }
+    }
+
+    /** Tests the shared instances of small numbers returned by the serializers. */
+    @Test
+    public void testSharedNumbers() {
+        final Buffer buffer = writeTable();
+        try (final CloseableRowIterator it1 = buffer.iterator(); final CloseableRowIterator it2 = buffer.iterator()) {
+            // shared across iterators, i.e. not due to interning
+            final DataRow r1 = it1.next();
+            final DataRow r2 = it2.next();
+            assertSame(r1.getCell(0), r2.getCell(0));
+            assertSame(r1.getCell(4), r2.getCell(4));
+            assertSame(r1.getCell(3), r2.getCell(3));
+            assertNotSame(r1.getCell(2), r2.getCell(2));
+        }
+    }
+
+    /** Tests interning of cells and that the table disables itself if most cells are distinct. */
+    @Test
+    public void testIntern() {
+        final DataCellInternTable table = new DataCellInternTable(4);
+        final DataCell first = new StringCell("a");
+        assertSame(first, table.intern(first));
+        assertSame(first, table.intern(new StringCell("a")));
+        // equal but of different class
+        final DataCell intCell = new IntCell(5000);
+        final DataCell longCell = new LongCell(5000);
+        assertSame(intCell, table.intern(intCell));
+        assertSame(longCell, table.intern(longCell));
+        assertSame(intCell, table.intern(new IntCell(5000)));
+        // missing cells are never interned
+        final DataCell missing = new MissingCell("x");
+        assertSame(missing, table.intern(missing));
+
+        for (int i = 0; i < DataCellInternTable.CHECK_INTERVAL; i++) {
+            final DataCell cell = new DoubleCell(0.5 + i);
+            assertSame(cell, table.intern(cell));
+        }
+        assertTrue(table.isDisabled());
+        assertEquals(0, table.size());
+        final DataCell cell = new IntCell(5000);
+        assertSame(cell, table.intern(cell));
+        assertFalse(new DataCellInternTable(4).isDisabled());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests the dictionary encoding of string cells in tables written to disc (see {@link StringCellDictionary}).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class StringCellDictionaryTest {
+
+    private static final int ROW_COUNT = 3000;
+
+    private static final String[] CATEGORIES = {"red", "green", "blue", "", "\u00e4\u00f6\u00fc"};
+
+    private static DataRow createRow(final int i) {
+        final char[] longString = new char[StringCellDictionary.MAX_STRING_LENGTH + 1];
+        Arrays.fill(longString, (char)('a' + i % 3));
+        final DataCell category = i % 7 == 0 ? DataType.getMissingCell() : new StringCell(CATEGORIES[i % 5]);
+        final DataCell list = CollectionCellFactory.createListCell(
+            Arrays.asList(new StringCell(CATEGORIES[i % 5]), new StringCell(CATEGORIES[(i + 1) % 5])));
+        return new DefaultRow(RowKey.createRowKey((long)i), category, new StringCell("unique" + i),
+            new StringCell(new String(longString)), list, new IntCell(i));
+    }
+
+    private static Buffer writeTable() {
+        final DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("category", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("unique", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("long", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("list", ListCell.getCollectionType(StringCell.TYPE)).createSpec(),
+            new DataColumnSpecCreator("int", IntCell.TYPE).createSpec());
+        final DataContainer cont = new DataContainer(spec,
+            DataContainerSettings.getDefault().withMaxCellsInMemory(0).withInitializedDomain(false));
+        for (int i = 0; i < ROW_COUNT; i++) {
+            cont.addRowToTable(createRow(i));
+        }
+        cont.close();
+        return cont.getBuffer();
+    }
+
+    /**
+     * Writes a table with low and high cardinality string columns to disc and checks that it's read correctly and that
+     * repeated strings are returned as the same instance.
+     */
+    @Test
+    public void testWriteRead() {
+        final Buffer buffer = writeTable();
+        assertTrue(buffer.isFlushedToDisk());
+        final List<DataCell> categories = new ArrayList<>();
+        try (final CloseableRowIterator it = buffer.iterator()) {
+            for (int i = 0; i < ROW_COUNT; i++) {
+                final DataRow expected = createRow(i);
+                final DataRow actual = it.next();
+                assertEquals(expected.getKey(), actual.getKey());
+                for (int c = 0; c < expected.getNumCells(); c++) {
+                    assertEquals("Row " + i + ", column " + c, expected.getCell(c), actual.getCell(c));
+                }
+                if (i < 5) {
+                    categories.add(actual.getCell(0));
+                } else if (i % 7 != 0) {
+                    assertSame(categories.get(i % 5), actual.getCell(0));
+                }
+            }
+            assertFalse(it.hasNext());
+        }
+    }
+
+    /**
+     * Checks that iterators have their own dictionaries and that long strings are not shared.
+     */
+    @Test
+    public void testMultipleIterators() {
+        final Buffer buffer = writeTable();
+        try (final CloseableRowIterator it1 = buffer.iterator(); final CloseableRowIterator it2 = buffer.iterator()) {
+            final DataRow first = it1.next();
+            it1.next();
+            it1.next();
+            DataRow row1 = it1.next();
+            DataRow row2 = null;
+            for (int i = 0; i < 4; i++) {
+                row2 = it2.next();
+            }
+            assertEquals(row1.getCell(2), row2.getCell(2));
+            assertEquals(first.getCell(2), row1.getCell(2));
+            assertNotSame(first.getCell(2), row1.getCell(2));
+            assertEquals(row1.getCell(0), row2.getCell(0));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.filestore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FileStorePackWriter}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class FileStorePackWriterTest {
+
+    private static byte[] payload(final int i) {
+        return ("payload-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that appended payloads can be read back and that segments are rolled over.
+     *
+     * @throws IOException not expected
+     */
+    @Test
+    public void testAppendAndRead() throws IOException {
+        final FileStoreFactory factory = FileStoreFactory.createNotInWorkflowFileStoreFactory();
+        final List<FileStorePackWriter.Entry> entries = new ArrayList<>();
+        try (FileStorePackWriter writer = new FileStorePackWriter(factory, "test", 1000, 100)) {
+            for (int i = 0; i < 1000; i++) {
+                entries.add(writer.append(payload(i)));
+            }
+        }
+        final Set<String> segments = new HashSet<>();
+        for (int i = 0; i < entries.size(); i++) {
+            final FileStorePackWriter.Entry entry = entries.get(i);
+            assertArrayEquals(payload(i), entry.read());
+            assertTrue("Segment too large", entry.getOffset() + entry.getLength() <= 1000);
+            segments.add(entry.getFileStore().getFile().getName());
+        }
+        assertTrue("Expected multiple segments: " + segments.size(), segments.size() > 10);
+
+        final FileStorePackWriter.Entry restored = new FileStorePackWriter.Entry(entries.get(5).getFileStore(),
+            entries.get(5).getOffset(), entries.get(5).getLength());
+        assertArrayEquals(payload(5), restored.read());
+        factory.close();
+    }
+
+    /**
+     * Tests concurrent appends from multiple threads.
+     *
+     * @throws Exception not expected
+     */
+    @Test(timeout = 20000)
+    public void testConcurrentAppends() throws Exception {
+        final FileStoreFactory factory = FileStoreFactory.createNotInWorkflowFileStoreFactory();
+        final int nrThreads = 4;
+        final int perThread = 2000;
+        final ExecutorService executor = Executors.newFixedThreadPool(nrThreads);
+        final List<Future<List<FileStorePackWriter.Entry>>> futures = new ArrayList<>();
+        try (FileStorePackWriter writer = new FileStorePackWriter(factory, "concurrent", 10000, 0)) {
+            for (int t = 0; t < nrThreads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    final List<FileStorePackWriter.Entry> result = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        result.add(writer.append(payload(thread * perThread + i)));
+                    }
+                    return result;
+                }));
+            }
+            for (int t = 0; t < nrThreads; t++) {
+                assertEquals(perThread, futures.get(t).get().size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int t = 0; t < nrThreads; t++) {
+            final List<FileStorePackWriter.Entry> entries = futures.get(t).get();
+            for (int i = 0; i < perThread; i++) {
+                assertArrayEquals(payload(t * perThread + i), entries.get(i).read());
+            }
+        }
+        factory.close();
+    }
+
+    /**
+     * Tests that flushing while appends seal segments does not fail.
+     *
+     * @throws Exception not expected
+     */
+    @Test(timeout = 20000)
+    public void testFlushWhileSealing() throws Exception {
+        final FileStoreFactory factory = FileStoreFactory.createNotInWorkflowFileStoreFactory();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (FileStorePackWriter writer = new FileStorePackWriter(factory, "flush", 100, 0)) {
+            final AtomicBoolean done = new AtomicBoolean();
+            final Future<?> flusher = executor.submit(() -> {
+                while (!done.get()) {
+                    writer.flush();
+                }
+                return null;
+            });
+            for (int i = 0; i < 5000; i++) {
+                writer.append(payload(i));
+            }
+            done.set(true);
+            flusher.get();
+        } finally {
+            executor.shutdown();
+        }
+        factory.close();
+    }
+}
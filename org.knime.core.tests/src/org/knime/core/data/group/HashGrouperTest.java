@@ -0,0 +1,234 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.group;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests {@link HashGrouper}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class HashGrouperTest {
+
+    private static final int ROW_COUNT = 3000;
+
+    private static final int GROUP_COUNT = 250;
+
+    private ExecutionContext m_exec;
+
+    private BufferedDataTable m_table;
+
+    /**
+     * Creates the execution context and a table with columns "Index" (unique), "Group" (string, every 17th value
+     * missing) and "Value".
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Before
+    public void setUp() {
+        NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+            SingleNodeContainer.MemoryPolicy.CacheOnDisc, new HashMap<Integer, ContainerTable>());
+        DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("Index", IntCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Group", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Value", LongCell.TYPE).createSpec());
+        BufferedDataContainer container = m_exec.createDataContainer(spec);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i), new IntCell(i), group(i),
+                new LongCell(i)));
+        }
+        container.close();
+        m_table = container.getTable();
+    }
+
+    private static DataCell group(final int i) {
+        final int g = (i * 7) % GROUP_COUNT;
+        return g % 17 == 0 ? DataType.getMissingCell() : new StringCell("G" + g);
+    }
+
+    /**
+     * Tests {@link HashGrouper#distinct(ExecutionContext)} keeps the first row of each group.
+     *
+     * @throws CanceledExecutionException not expected
+     */
+    @Test
+    public void testDistinct() throws CanceledExecutionException {
+        HashGrouper grouper = new HashGrouper(m_table, Collections.singletonList("Group"));
+        assertDistinct(grouper.distinct(m_exec));
+    }
+
+    /**
+     * Tests distinct when all partitions get spilled to disk.
+     *
+     * @throws CanceledExecutionException not expected
+     */
+    @Test
+    public void testDistinctWithSpilling() throws CanceledExecutionException {
+        HashGrouper grouper = new HashGrouper(m_table, Collections.singletonList("Group"));
+        grouper.setNumPartitions(8);
+        grouper.setParallelism(2);
+        grouper.setMemActionIndicator(() -> true);
+        assertDistinct(grouper.distinct(m_exec));
+    }
+
+    /**
+     * Tests aggregation (count and sum per group) with a single and with many partitions.
+     *
+     * @throws CanceledExecutionException not expected
+     */
+    @Test
+    public void testAggregate() throws CanceledExecutionException {
+        Map<DataCell, long[]> expected = new HashMap<>();
+        for (DataRow row : m_table) {
+            long[] countAndSum = expected.computeIfAbsent(row.getCell(1), k -> new long[2]);
+            countAndSum[0]++;
+            countAndSum[1] += ((LongCell)row.getCell(2)).getLongValue();
+        }
+
+        DataTableSpec outSpec = new DataTableSpec(new DataColumnSpecCreator("Group", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Count", LongCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Sum", LongCell.TYPE).createSpec());
+        HashAggregator<long[]> countAndSum = new HashAggregator<long[]>() {
+            @Override
+            public long[] createState(final DataCell[] groupKey) {
+                return new long[2];
+            }
+
+            @Override
+            public void update(final long[] state, final DataRow row) {
+                state[0]++;
+                state[1] += ((LongCell)row.getCell(2)).getLongValue();
+            }
+
+            @Override
+            public DataCell[] finish(final DataCell[] groupKey, final long[] state) {
+                return new DataCell[]{groupKey[0], new LongCell(state[0]), new LongCell(state[1])};
+            }
+        };
+
+        for (int numPartitions : new int[]{1, 16}) {
+            HashGrouper grouper = new HashGrouper(m_table, Collections.singletonList("Group"));
+            grouper.setNumPartitions(numPartitions);
+            grouper.setMemActionIndicator(() -> true);
+            BufferedDataTable result = grouper.aggregate(outSpec, countAndSum, m_exec);
+            assertEquals("Wrong number of groups", expected.size(), result.size());
+            long rowIndex = 0;
+            for (DataRow row : result) {
+                assertEquals(RowKey.createRowKey(rowIndex++), row.getKey());
+                long[] exp = expected.get(row.getCell(0));
+                assertEquals("Wrong count for " + row.getCell(0), exp[0], ((LongCell)row.getCell(1)).getLongValue());
+                assertEquals("Wrong sum for " + row.getCell(0), exp[1], ((LongCell)row.getCell(2)).getLongValue());
+            }
+        }
+    }
+
+    /**
+     * Tests that grouping by a unique column and by no column at all yields all rows and a single row, respectively.
+     *
+     * @throws CanceledExecutionException not expected
+     */
+    @Test
+    public void testUniqueAndEmptyKeys() throws CanceledExecutionException {
+        assertEquals(ROW_COUNT, new HashGrouper(m_table, Arrays.asList("Index", "Group")).distinct(m_exec).size());
+        assertEquals(1, new HashGrouper(m_table, Collections.<String> emptyList()).distinct(m_exec).size());
+    }
+
+    /**
+     * Tests that unknown key columns are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownColumn() {
+        new HashGrouper(m_table, Collections.singletonList("Foo"));
+    }
+
+    private static void assertDistinct(final BufferedDataTable result) {
+        Map<DataCell, Integer> firstIndex = new HashMap<>();
+        for (int i = ROW_COUNT - 1; i >= 0; i--) {
+            firstIndex.put(group(i), i);
+        }
+        assertEquals("Wrong number of groups", firstIndex.size(), result.size());
+        Set<DataCell> seen = new HashSet<>();
+        for (DataRow row : result) {
+            DataCell group = row.getCell(1);
+            assertTrue("Duplicate group " + group, seen.add(group));
+            assertEquals("Not the first row of group " + group, firstIndex.get(group).intValue(),
+                ((IntCell)row.getCell(0)).getIntValue());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.image.png;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link PNGImageCache} and the thumbnail access via {@link PNGImageValue#getImage(int, int)}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PNGImageCacheTest {
+
+    private static PNGImageCell createCell(final int width, final int height) throws IOException {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, width / 2, height);
+        g.dispose();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new PNGImageCell(new PNGImageContent(out.toByteArray()));
+    }
+
+    /**
+     * Checks the computation of the thumbnail size.
+     */
+    @Test
+    public void testFitInto() {
+        assertEquals(new Dimension(100, 50), PNGImageCache.fitInto(new Dimension(100, 50), 200, 200));
+        assertEquals(new Dimension(20, 10), PNGImageCache.fitInto(new Dimension(100, 50), 20, 20));
+        assertEquals(new Dimension(40, 20), PNGImageCache.fitInto(new Dimension(100, 50), 200, 20));
+    }
+
+    /**
+     * Checks that the image size is read from the PNG header.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testImageSize() throws Exception {
+        final PNGImageCell cell = createCell(120, 30);
+        assertEquals(new Dimension(120, 30), cell.getImageContent().getImageSize());
+        assertEquals(new Dimension(120, 30), cell.getImageContent().getPreferredSize());
+    }
+
+    /**
+     * Checks that thumbnails are scaled, cached and shared between synchronous and asynchronous access.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testThumbnails() throws Exception {
+        final PNGImageCache cache = new PNGImageCache(1L << 20);
+        final PNGImageCell cell = createCell(400, 200);
+        final Image thumbnail = cache.get(cell, 40, 40);
+        assertEquals(40, thumbnail.getWidth(null));
+        assertEquals(20, thumbnail.getHeight(null));
+        assertSame(thumbnail, cache.get(cell, 40, 40));
+        assertSame(thumbnail, cache.getAsync(cell, 40, 40).get(10, TimeUnit.SECONDS));
+
+        final Image other = cache.getAsync(cell, 100, 100).get(10, TimeUnit.SECONDS);
+        assertEquals(100, other.getWidth(null));
+        assertSame(other, cache.get(cell, 100, 100));
+        assertEquals(2, cache.size());
+
+        // images are not enlarged, the full size image is the content's image
+        assertSame(cell.getImageContent().getImage(), cache.get(cell, 1000, 1000));
+        // a different cell with the same content size isn't mixed up
+        assertNotSame(thumbnail, cache.get(createCell(400, 200), 40, 40));
+    }
+
+    /**
+     * Checks that the byte budget is respected.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testEviction() throws Exception {
+        // room for about two 50x50 images
+        final PNGImageCache cache = new PNGImageCache(2 * 4 * 50 * 50 + 1000);
+        final PNGImageCell cell1 = createCell(100, 100);
+        final PNGImageCell cell2 = createCell(100, 100);
+        final PNGImageCell cell3 = createCell(100, 100);
+        final Image image1 = cache.get(cell1, 50, 50);
+        cache.get(cell2, 50, 50);
+        assertSame(image1, cache.get(cell1, 50, 50));
+        cache.get(cell3, 50, 50);
+        assertEquals(2, cache.size());
+        assertTrue(cache.getWeight() <= 2 * 4 * 50 * 50 + 1000);
+        // cell 2 was least recently used
+        assertSame(image1, cache.get(cell1, 50, 50));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getWeight());
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests {@link BufferedDataTableShuffler}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class BufferedDataTableShufflerTest {
+
+    private static final int ROW_COUNT = 5000;
+
+    private ExecutionContext m_exec;
+
+    private BufferedDataTable m_table;
+
+    /**
+     * Creates the execution context and the input table.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Before
+    public void setUp() {
+        NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+            SingleNodeContainer.MemoryPolicy.CacheOnDisc, new HashMap<Integer, ContainerTable>());
+        DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("Index", IntCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Square", LongCell.TYPE).createSpec());
+        BufferedDataContainer container = m_exec.createDataContainer(spec);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            container.addRowToTable(
+                new DefaultRow(RowKey.createRowKey((long)i), new IntCell(i), new LongCell((long)i * i)));
+        }
+        container.close();
+        m_table = container.getTable();
+    }
+
+    /**
+     * Tests shuffling entirely in memory (single bucket).
+     *
+     * @throws CanceledExecutionException not expected
+     */
+    @Test
+    public void testInMemoryShuffle() throws CanceledExecutionException {
+        BufferedDataTableShuffler shuffler = new BufferedDataTableShuffler(m_table, 42);
+        assertPermutation(shuffler.shuffle(m_exec));
+    }
+
+    /**
+     * Tests shuffling with many buckets, including buckets that are shuffled recursively.
+     *
+     * @throws CanceledExecutionException not expected
+     */
+    @Test
+    public void testBucketShuffle() throws CanceledExecutionException {
+        BufferedDataTableShuffler shuffler = new BufferedDataTableShuffler(m_table, 42);
+        shuffler.setMaxRowsPerBucket(500);
+        shuffler.setParallelism(3);
+        assertPermutation(shuffler.shuffle(m_exec));
+
+        // fewer buckets than necessary -> oversized buckets are shuffled recursively
+        shuffler.setMaxOpenContainers(4);
+        shuffler.setMaxRowsPerBucket(100);
+        assertPermutation(shuffler.shuffle(m_exec));
+    }
+
+    /**
+     * Tests that the same seed yields the same result, independent of the parallelism, and that a different seed
+     * yields a different result.
+     *
+     * @throws CanceledExecutionException not expected
+     */
+    @Test
+    public void testReproducibility() throws CanceledExecutionException {
+        BufferedDataTableShuffler shuffler = new BufferedDataTableShuffler(m_table, 7);
+        shuffler.setMaxRowsPerBucket(300);
+        shuffler.setParallelism(1);
+        List<Integer> first = indices(shuffler.shuffle(m_exec));
+        shuffler.setParallelism(4);
+        assertEquals("Different results for same seed", first, indices(shuffler.shuffle(m_exec)));
+
+        BufferedDataTableShuffler other = new BufferedDataTableShuffler(m_table, 8);
+        other.setMaxRowsPerBucket(300);
+        assertNotEquals("Same results for different seed", first, indices(other.shuffle(m_exec)));
+    }
+
+    /**
+     * Tests shuffling an empty table.
+     *
+     * @throws CanceledExecutionException not expected
+     */
+    @Test
+    public void testEmptyTable() throws CanceledExecutionException {
+        BufferedDataContainer container = m_exec.createDataContainer(m_table.getDataTableSpec());
+        container.close();
+        BufferedDataTableShuffler shuffler = new BufferedDataTableShuffler(container.getTable(), 1);
+        shuffler.setMaxRowsPerBucket(1);
+        assertEquals(0, shuffler.shuffle(m_exec).size());
+    }
+
+    private static void assertPermutation(final BufferedDataTable shuffled) {
+        assertEquals("Wrong row count", ROW_COUNT, shuffled.size());
+        List<Integer> indices = indices(shuffled);
+        Set<Integer> unique = new HashSet<>(indices);
+        assertEquals("Rows lost or duplicated", ROW_COUNT, unique.size());
+        int inPlace = 0;
+        for (int i = 0; i < ROW_COUNT; i++) {
+            if (indices.get(i) == i) {
+                inPlace++;
+            }
+        }
+        // expected number of fixed points of a random permutation is 1
+        assertTrue("Too many rows kept their position: " + inPlace, inPlace < 20);
+    }
+
+    private static List<Integer> indices(final BufferedDataTable table) {
+        List<Integer> result = new ArrayList<>();
+        for (DataRow row : table) {
+            int index = ((IntCell)row.getCell(0)).getIntValue();
+            assertEquals("Row key and content don't match", RowKey.createRowKey((long)index), row.getKey());
+            assertEquals("Cells of a row got mixed up", (long)index * index, ((LongCell)row.getCell(1)).getLongValue());
+            result.add(index);
+        }
+        return result;
+    }
+}
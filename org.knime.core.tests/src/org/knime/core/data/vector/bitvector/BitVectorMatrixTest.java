@@ -0,0 +1,194 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.vector.bitvector;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.core.data.vector.bitvector.BitVectorMatrix.Hit;
+import org.knime.core.data.vector.bitvector.BitVectorMatrix.Similarity;
+import org.knime.core.node.CanceledExecutionException;
+
+/**
+ * Tests {@link BitVectorMatrix} against the pairwise computations in {@link BitVectorUtil}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class BitVectorMatrixTest {
+
+    private static final int LENGTH = 1024;
+
+    /** Random dense and sparse vectors, every 50th is <code>null</code> (missing). */
+    private static List<BitVectorValue> createVectors(final int count, final long seed) {
+        final Random random = new Random(seed);
+        final List<BitVectorValue> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 50 == 0) {
+                vectors.add(null);
+                continue;
+            }
+            final int bits = random.nextInt(200);
+            if (i % 2 == 0) {
+                DenseBitVectorCellFactory fac = new DenseBitVectorCellFactory(LENGTH);
+                for (int j = 0; j < bits; j++) {
+                    fac.set(random.nextInt(LENGTH));
+                }
+                vectors.add(fac.createDataCell());
+            } else {
+                SparseBitVectorCellFactory fac = new SparseBitVectorCellFactory(LENGTH);
+                for (int j = 0; j < bits; j++) {
+                    fac.set(random.nextInt(LENGTH));
+                }
+                vectors.add(fac.createDataCell());
+            }
+        }
+        return vectors;
+    }
+
+    private static double expected(final BitVectorValue a, final BitVectorValue b, final Similarity similarity) {
+        return similarity.compute(BitVectorUtil.cardinalityOfIntersection(a, b), a.cardinality(), b.cardinality());
+    }
+
+    /**
+     * Tests similarities of a query against all rows.
+     */
+    @Test
+    public void testSimilarities() {
+        List<BitVectorValue> vectors = createVectors(3000, 1);
+        BitVectorMatrix matrix = BitVectorMatrix.create(vectors);
+        assertEquals(3000, matrix.getRowCount());
+        assertEquals(LENGTH, matrix.length());
+        BitVectorValue query = vectors.get(7);
+        for (Similarity similarity : Similarity.values()) {
+            double[] result = matrix.similarities(query, similarity);
+            for (int i = 0; i < vectors.size(); i++) {
+                if (vectors.get(i) == null) {
+                    assertTrue(matrix.isMissing(i));
+                    assertTrue(Double.isNaN(result[i]));
+                } else {
+                    assertEquals(vectors.get(i).cardinality(), matrix.cardinality(i));
+                    assertEquals("Row " + i, expected(query, vectors.get(i), similarity), result[i], 1e-12);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests top-k search against sorting all similarities.
+     */
+    @Test
+    public void testTopK() {
+        List<BitVectorValue> vectors = createVectors(3000, 2);
+        BitVectorMatrix matrix = BitVectorMatrix.create(vectors);
+        matrix.setParallelism(3);
+        BitVectorValue query = vectors.get(11);
+        double[] all = matrix.similarities(query, Similarity.TANIMOTO);
+        double[] sorted = Arrays.stream(all).filter(d -> !Double.isNaN(d)).sorted().toArray();
+
+        Hit[] hits = matrix.topK(query, 10, Similarity.TANIMOTO);
+        assertEquals(10, hits.length);
+        assertEquals("Query itself must be the best hit", 11, hits[0].getRow());
+        for (int i = 0; i < hits.length; i++) {
+            assertEquals(sorted[sorted.length - 1 - i], hits[i].getSimilarity(), 0.0);
+            assertEquals(all[hits[i].getRow()], hits[i].getSimilarity(), 0.0);
+        }
+    }
+
+    /**
+     * Tests the all-pairs nearest neighbor search.
+     *
+     * @throws CanceledExecutionException not expected
+     */
+    @Test
+    public void testAllPairsTopK() throws CanceledExecutionException {
+        List<BitVectorValue> vectors = createVectors(300, 3);
+        BitVectorMatrix matrix = BitVectorMatrix.create(vectors);
+        Hit[][] neighbors = matrix.allPairsTopK(3, Similarity.COSINE, null);
+        assertEquals(vectors.size(), neighbors.length);
+        for (int i = 0; i < vectors.size(); i++) {
+            if (vectors.get(i) == null) {
+                assertEquals(0, neighbors[i].length);
+                continue;
+            }
+            assertEquals(3, neighbors[i].length);
+            double best = -1;
+            for (int j = 0; j < vectors.size(); j++) {
+                if (j != i && vectors.get(j) != null) {
+                    best = Math.max(best, expected(vectors.get(i), vectors.get(j), Similarity.COSINE));
+                }
+            }
+            assertTrue("Row must not be its own neighbor", neighbors[i][0].getRow() != i);
+            assertEquals(best, neighbors[i][0].getSimilarity(), 1e-12);
+            assertTrue(neighbors[i][1].getSimilarity() <= neighbors[i][0].getSimilarity());
+        }
+    }
+
+    /**
+     * Tests the similarity measures for empty vectors.
+     */
+    @Test
+    public void testEmptyVectors() {
+        assertArrayEquals(new double[]{1.0, 0.0},
+            new double[]{Similarity.TANIMOTO.compute(0, 0, 0), Similarity.TANIMOTO.compute(0, 0, 5)}, 0.0);
+        assertArrayEquals(new double[]{1.0, 0.0},
+            new double[]{Similarity.COSINE.compute(0, 0, 0), Similarity.COSINE.compute(0, 5, 0)}, 0.0);
+    }
+
+    /**
+     * Tests that vectors of different length are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentLengths() {
+        BitVectorMatrix.create(Arrays.<BitVectorValue> asList(new DenseBitVectorCellFactory(10).createDataCell(),
+            new DenseBitVectorCellFactory(11).createDataCell()));
+    }
+}
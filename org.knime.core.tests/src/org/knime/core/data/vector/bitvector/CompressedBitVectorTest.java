@@ -0,0 +1,241 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.vector.bitvector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link CompressedBitVector} against {@link DenseBitVector} for random, clustered and full vectors.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CompressedBitVectorTest {
+
+    private static void assertSameBits(final String context, final DenseBitVector expected,
+        final CompressedBitVector actual) {
+        assertEquals(context, expected.length(), actual.length());
+        assertEquals(context, expected.cardinality(), actual.cardinality());
+        assertEquals(context, expected.isEmpty(), actual.isEmpty());
+        long e = expected.nextSetBit(0);
+        long a = actual.nextSetBit(0);
+        while (e >= 0 || a >= 0) {
+            assertEquals(context, e, a);
+            e = expected.nextSetBit(e + 1);
+            a = actual.nextSetBit(a + 1);
+        }
+        assertEquals(context, expected.hashCode(), actual.hashCode());
+        assertEquals(context, expected.toHexString(), actual.toHexString());
+        assertEquals(context, expected.toBinaryString(), actual.toBinaryString());
+        assertEquals(context, expected, actual.toDenseBitVector());
+    }
+
+    /** Creates a pair of equal vectors whose bits are distributed according to the mode. */
+    private static void fill(final Random random, final int mode, final DenseBitVector dense,
+        final CompressedBitVector compressed) {
+        final long length = dense.length();
+        final int ops = random.nextInt(30000);
+        for (int i = 0; i < ops; i++) {
+            long idx;
+            switch (mode) {
+                case 0: // uniform
+                    idx = (long)(random.nextDouble() * length);
+                    break;
+                case 1: // clustered
+                    idx = (long)(random.nextGaussian() * 2000 + length / 2);
+                    break;
+                default: // runs
+                    idx = (i / 50) * 70000L + i % 50;
+            }
+            idx = Math.max(0, Math.min(length - 1, idx));
+            if (random.nextInt(10) == 0) {
+                dense.clear(idx);
+                compressed.clear(idx);
+            } else {
+                dense.set(idx);
+                compressed.set(idx);
+            }
+        }
+    }
+
+    /**
+     * Tests set/clear/get/nextSetBit/nextClearBit, also after run optimization.
+     */
+    @Test
+    public void testBasicOperations() {
+        Random random = new Random(42);
+        for (int iter = 0; iter < 30; iter++) {
+            long length = 1 + random.nextInt(400000);
+            DenseBitVector dense = new DenseBitVector(length);
+            CompressedBitVector compressed = new CompressedBitVector(length);
+            fill(random, iter % 3, dense, compressed);
+            assertSameBits("Iteration " + iter, dense, compressed);
+
+            CompressedBitVector optimized = new CompressedBitVector(compressed);
+            optimized.runOptimize();
+            assertSameBits("Optimized " + iter, dense, optimized);
+            assertEquals(compressed, optimized);
+            for (int i = 0; i < 200; i++) {
+                long idx = (long)(random.nextDouble() * length);
+                assertEquals(dense.get(idx), optimized.get(idx));
+                assertEquals(dense.nextClearBit(idx), optimized.nextClearBit(idx));
+            }
+            // modifying an optimized vector
+            for (int i = 0; i < 1000; i++) {
+                long idx = (long)(random.nextDouble() * length);
+                dense.set(idx, i % 2 == 0);
+                optimized.set(idx, i % 2 == 0);
+            }
+            assertSameBits("Modified " + iter, dense, optimized);
+        }
+    }
+
+    /**
+     * Tests AND, OR, XOR and intersection cardinality, also for vectors of different lengths.
+     */
+    @Test
+    public void testSetOperations() {
+        Random random = new Random(7);
+        for (int iter = 0; iter < 30; iter++) {
+            DenseBitVector d1 = new DenseBitVector(1 + random.nextInt(400000));
+            CompressedBitVector c1 = new CompressedBitVector(d1.length());
+            fill(random, iter % 3, d1, c1);
+            DenseBitVector d2 = new DenseBitVector(1 + random.nextInt(400000));
+            CompressedBitVector c2 = new CompressedBitVector(d2.length());
+            fill(random, (iter + 1) % 3, d2, c2);
+            if (iter % 2 == 0) {
+                c2.runOptimize();
+            }
+            if (iter % 3 == 0) {
+                c1.runOptimize();
+            }
+            assertSameBits("AND " + iter, d1.and(d2), c1.and(c2));
+            assertSameBits("OR " + iter, d1.or(d2), c1.or(c2));
+            assertSameBits("XOR " + iter, d1.xor(d2), c1.xor(c2));
+            assertEquals(d1.and(d2).cardinality(), c1.cardinalityOfIntersection(c2));
+            assertEquals(d1.cardinality() - d1.and(d2).cardinality(), c1.cardinalityOfRelativeComplement(c2));
+        }
+    }
+
+    /**
+     * Tests the binary serialization and that runs are stored compactly.
+     *
+     * @throws IOException not expected
+     */
+    @Test
+    public void testSerialization() throws IOException {
+        Random random = new Random(3);
+        for (int iter = 0; iter < 10; iter++) {
+            DenseBitVector dense = new DenseBitVector(1 + random.nextInt(400000));
+            CompressedBitVector compressed = new CompressedBitVector(dense.length());
+            fill(random, iter % 3, dense, compressed);
+            compressed.runOptimize();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            compressed.writeTo(new DataOutputStream(bytes));
+            assertEquals(compressed.getSizeInBytes(), bytes.size());
+            CompressedBitVector read =
+                CompressedBitVector.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertSameBits("Iteration " + iter, dense, read);
+        }
+
+        CompressedBitVector full = new CompressedBitVector(1000000);
+        for (long i = 0; i < full.length(); i++) {
+            full.set(i);
+        }
+        full.runOptimize();
+        assertTrue("Runs not compressed: " + full.getSizeInBytes(), full.getSizeInBytes() < 500);
+        assertEquals(-1, full.nextClearBit(0));
+    }
+
+    /**
+     * Tests conversion from and to the other vector types and cells.
+     */
+    @Test
+    public void testConversion() {
+        Random random = new Random(11);
+        DenseBitVector dense = new DenseBitVector(250000);
+        CompressedBitVector compressed = new CompressedBitVector(dense.length());
+        fill(random, 0, dense, compressed);
+
+        assertEquals(compressed, new CompressedBitVector(dense.getAllBits(), dense.length()));
+        SparseBitVector sparse = compressed.toSparseBitVector();
+        assertEquals(new SparseBitVector(dense.length(), sparse.getAllOneIndices()), sparse);
+        assertEquals(compressed, new CompressedBitVector(sparse.length(), sparse.getAllOneIndices()));
+
+        CompressedBitVectorCell fromDense =
+            new CompressedBitVectorCellFactory(new DenseBitVectorCellFactory(dense).createDataCell()).createDataCell();
+        CompressedBitVectorCell fromSparse =
+            new CompressedBitVectorCellFactory(new SparseBitVectorCellFactory(sparse).createDataCell())
+                .createDataCell();
+        assertEquals(fromDense, fromSparse);
+        assertEquals(compressed, fromDense.getBitVectorCopy());
+        assertTrue(BitVectorValue.equalContent(fromDense, new DenseBitVectorCellFactory(dense).createDataCell()));
+        assertEquals(dense.toHexString(), fromSparse.toHexString());
+    }
+
+    /**
+     * Tests vectors with a length beyond the range of the dense implementation.
+     */
+    @Test
+    public void testHugeLength() {
+        CompressedBitVector huge = new CompressedBitVector(Long.MAX_VALUE);
+        huge.set(3);
+        huge.set(Long.MAX_VALUE - 1);
+        assertEquals(2, huge.cardinality());
+        assertEquals(Long.MAX_VALUE - 1, huge.nextSetBit(4));
+        assertEquals(4, huge.nextClearBit(3));
+        assertTrue(huge.get(Long.MAX_VALUE - 1));
+        assertTrue(huge.toHexString().startsWith("..."));
+    }
+}
@@ -50,6 +50,7 @@
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 import org.hamcrest.CoreMatchers;
@@ -127,4 +128,51 @@ public void testCompare() throws Exception {
             DoubleVectorCellFactory.createCell(new double[0]), cell2), OrderingComparison.lessThan(0));
     }
 
+    @Test
+    public void testFloatCreation() throws Exception {
+        float[] f = new float[1000];
+        IntStream.range(0, f.length).forEach(i -> f[i] = i / 10.0f);
+        DenseFloatVectorCell cell = DoubleVectorCellFactory.createCell(f);
+        Assert.assertEquals("length mismatch", 1000, cell.getLength());
+        IntStream.range(0, 1000).forEach(i -> Assert.assertEquals("value, index " + i, f[i], cell.getValue(i), 0.0));
+        Assert.assertEquals(f[5], cell.asFloatBuffer().get(5), 0.0f);
+        Assert.assertArrayEquals(f, cell.copyTo(new float[1000], 0), 0.0f);
+
+        double[] d = cell.copyTo(new double[1002], 2);
+        Assert.assertEquals(f[999], d[1001], 0.0);
+        DataCell doubleCell = DoubleVectorCellFactory.createCell(Arrays.copyOfRange(d, 2, 1002));
+        Assert.assertEquals("float and double vectors with same values", doubleCell, cell);
+        Assert.assertEquals("float and double vectors with same values", cell, doubleCell);
+        Assert.assertEquals(doubleCell.hashCode(), cell.hashCode());
+        Assert.assertTrue("float vectors fit into double vector columns",
+            DoubleVectorCellFactory.TYPE.isASuperTypeOf(DoubleVectorCellFactory.FLOAT_TYPE));
+    }
+
+    @Test
+    public void testFloatSerialization() throws Exception {
+        float[] f = new float[768];
+        IntStream.range(0, f.length).forEach(i -> f[i] = (float)Math.sin(i));
+        f[3] = Float.NaN;
+        f[4] = Float.NEGATIVE_INFINITY;
+        DataCell cell = DoubleVectorCellFactory.createCell(f);
+        DataContainer c = new DataContainer(
+            new DataTableSpec(new DataColumnSpecCreator("foo", DoubleVectorCellFactory.FLOAT_TYPE).createSpec()));
+        c.addRowToTable(new DefaultRow("row", cell));
+        c.close();
+        byte[] bytes;
+        try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            DataContainer.writeToStream(c.getTable(), output, new ExecutionMonitor());
+            output.close();
+            bytes = output.toByteArray();
+        }
+
+        ContainerTable containerTable;
+        try (ByteArrayInputStream input = new ByteArrayInputStream(bytes)) {
+            containerTable = DataContainer.readFromStream(input);
+        }
+        DataCell cell2 = containerTable.iterator().next().getCell(0);
+        Assert.assertTrue(cell2 instanceof DenseFloatVectorCell);
+        Assert.assertEquals(cell, cell2);
+    }
+
 }
@@ -0,0 +1,135 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.vector.doublevector;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+
+/**
+ * Tests {@link DoubleVectorUtil}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DoubleVectorUtilTest {
+
+    /** A {@link DoubleVectorValue} that is neither a dense double nor float cell. */
+    private static DoubleVectorValue generic(final double[] values) {
+        return new DoubleVectorValue() {
+            @Override
+            public int getLength() {
+                return values.length;
+            }
+
+            @Override
+            public double getValue(final int index) {
+                return values[index];
+            }
+        };
+    }
+
+    private static double naiveDot(final DoubleVectorValue v1, final DoubleVectorValue v2) {
+        double sum = 0;
+        for (int i = 0; i < v1.getLength(); i++) {
+            sum += v1.getValue(i) * v2.getValue(i);
+        }
+        return sum;
+    }
+
+    @Test
+    public void testDotAndNorm() {
+        Random r = new Random(3);
+        for (int length : new int[]{0, 1, 3, 4, 5, 768, 1001}) {
+            double[] d1 = r.doubles(length).toArray();
+            double[] d2 = r.doubles(length).toArray();
+            float[] f1 = new float[length];
+            float[] f2 = new float[length];
+            for (int i = 0; i < length; i++) {
+                f1[i] = (float)d1[i];
+                f2[i] = (float)d2[i];
+            }
+            DoubleVectorValue dc1 = DoubleVectorCellFactory.createCell(d1);
+            DoubleVectorValue dc2 = DoubleVectorCellFactory.createCell(d2);
+            DoubleVectorValue fc1 = DoubleVectorCellFactory.createCell(f1);
+            DoubleVectorValue fc2 = DoubleVectorCellFactory.createCell(f2);
+
+            Assert.assertEquals(naiveDot(dc1, dc2), DoubleVectorUtil.dot(dc1, dc2), 1e-10);
+            Assert.assertEquals(naiveDot(fc1, fc2), DoubleVectorUtil.dot(fc1, fc2), 1e-10);
+            Assert.assertEquals(naiveDot(dc1, fc2), DoubleVectorUtil.dot(dc1, fc2), 1e-10);
+            Assert.assertEquals(naiveDot(dc1, dc2), DoubleVectorUtil.dot(generic(d1), dc2), 1e-10);
+            Assert.assertEquals(Math.sqrt(naiveDot(dc1, dc1)), DoubleVectorUtil.norm(dc1), 1e-10);
+        }
+    }
+
+    @Test
+    public void testAddAndScale() {
+        double[] d = {1, 2, 3};
+        float[] f = {0.5f, -1f, 2f};
+        DoubleVectorValue dc = DoubleVectorCellFactory.createCell(d);
+        DoubleVectorValue fc = DoubleVectorCellFactory.createCell(f);
+
+        DataCell sum = DoubleVectorUtil.add(fc, fc);
+        Assert.assertTrue(sum instanceof DenseFloatVectorCell);
+        Assert.assertEquals(DoubleVectorCellFactory.createCell(new float[]{1f, -2f, 4f}), sum);
+
+        sum = DoubleVectorUtil.add(dc, fc);
+        Assert.assertTrue(sum instanceof DenseDoubleVectorCell);
+        Assert.assertEquals(DoubleVectorCellFactory.createCell(new double[]{1.5, 1, 5}), sum);
+        Assert.assertEquals(sum, DoubleVectorUtil.add(generic(d), fc));
+
+        DataCell scaled = DoubleVectorUtil.scale(fc, 2);
+        Assert.assertTrue(scaled instanceof DenseFloatVectorCell);
+        Assert.assertEquals(DoubleVectorCellFactory.createCell(new float[]{1f, -2f, 4f}), scaled);
+        Assert.assertEquals(DoubleVectorCellFactory.createCell(new double[]{-1, -2, -3}), DoubleVectorUtil.scale(dc, -1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLengthMismatch() {
+        DoubleVectorUtil.dot(DoubleVectorCellFactory.createCell(new double[2]),
+            DoubleVectorCellFactory.createCell(new float[3]));
+    }
+}
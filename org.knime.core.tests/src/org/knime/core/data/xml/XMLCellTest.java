@@ -49,11 +49,22 @@
 package org.knime.core.data.xml;
 
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 import org.junit.Test;
+import org.knime.core.data.xml.io.LimitedXPathMatcher;
+import org.knime.core.data.xml.io.XMLCellReader;
+import org.knime.core.data.xml.util.DefaultNamespaceContext;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -122,4 +133,76 @@ public void testEqualsAndHashcodeEqual() throws Exception {
         assertThat("equals and hashcode are not compatible", eq && hc || !eq , is(true));
     }
 
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+        + "<root xmlns:a=\"http://a\"><a:item id=\"1\">one</a:item><other/><a:item id=\"2\">two</a:item></root>";
+
+    /**
+     * Checks that the parsed document is kept and not parsed again on every access.
+     *
+     * @throws Exception if an error occurs
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testDocumentIsCached() throws Exception {
+        XMLCellContent content = new XMLCellContent(XML, false);
+        Document doc = content.getDocument();
+        assertSame("document parsed again", doc, content.getDocument());
+        assertEquals("root", doc.getDocumentElement().getLocalName());
+        assertEquals(content.hashCode(), new XMLCellContent(XML, true).hashCode());
+    }
+
+    /**
+     * Checks streaming access to the content.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testStreamReader() throws Exception {
+        XMLCellContent content = new XMLCellContent(XML, true);
+        List<String> elements = new ArrayList<>();
+        XMLStreamReader reader = content.createXMLStreamReader();
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    elements.add(reader.getLocalName());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals("[root, item, other, item]", elements.toString());
+    }
+
+    /**
+     * Checks evaluation of a limited XPath on the content.
+     *
+     * @throws Exception if an error occurs
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testXPathReader() throws Exception {
+        XMLCellContent content = new XMLCellContent(XML, true);
+        LimitedXPathMatcher matcher = new LimitedXPathMatcher("/root/a:item",
+            new DefaultNamespaceContext(new String[]{"a"}, new String[]{"http://a"}));
+        List<String> values = new ArrayList<>();
+        XMLCellReader reader = content.createXPathReader(matcher);
+        try {
+            for (XMLValue<Document> v = reader.readXML(); v != null; v = reader.readXML()) {
+                Element e = v.getDocument().getDocumentElement();
+                values.add(e.getAttribute("id") + "=" + e.getTextContent());
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals("[1=one, 2=two]", values.toString());
+
+        LimitedXPathMatcher noMatch = new LimitedXPathMatcher("/root/missing",
+            new DefaultNamespaceContext(new String[0], new String[0]));
+        reader = content.createXPathReader(noMatch);
+        try {
+            assertNull(reader.readXML());
+        } finally {
+            reader.close();
+        }
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Tests {@link XMLDocumentCache}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class XMLDocumentCacheTest {
+
+    private static Document newDocument() throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    }
+
+    /**
+     * Checks that least recently used documents are evicted once the budget is exceeded.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testEviction() throws Exception {
+        XMLDocumentCache cache = new XMLDocumentCache(1000);
+        Object owner = new Object();
+        Document d1 = newDocument();
+        Document d2 = newDocument();
+        Document d3 = newDocument();
+        cache.put(1, owner, d1, 400);
+        cache.put(2, owner, d2, 400);
+        assertSame(d1, cache.get(1)); // 2 is now the least recently used
+        cache.put(3, owner, d3, 400);
+        assertNull(cache.get(2));
+        assertSame(d1, cache.get(1));
+        assertSame(d3, cache.get(3));
+        assertEquals(800, cache.getWeight());
+        assertEquals(2, cache.size());
+
+        // replacing an entry updates the weight
+        cache.put(3, owner, d3, 100);
+        assertEquals(500, cache.getWeight());
+
+        cache.clear();
+        assertNull(cache.get(1));
+        assertEquals(0, cache.getWeight());
+    }
+
+    /**
+     * Checks that documents exceeding the budget and disabled caches don't hold documents.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testOversizedAndDisabled() throws Exception {
+        XMLDocumentCache cache = new XMLDocumentCache(1000);
+        Object owner = new Object();
+        cache.put(1, owner, newDocument(), 500);
+        cache.put(2, owner, newDocument(), 1001);
+        assertNull(cache.get(2));
+        assertEquals(1, cache.size());
+
+        XMLDocumentCache disabled = new XMLDocumentCache(0);
+        disabled.put(1, owner, newDocument(), 1);
+        assertNull(disabled.get(1));
+        assertEquals(0, disabled.size());
+    }
+
+    /**
+     * Checks that entries are removed once their owner has been garbage collected.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCollectedOwner() throws Exception {
+        XMLDocumentCache cache = new XMLDocumentCache(1000);
+        Object owner = new Object();
+        cache.put(1, owner, newDocument(), 100);
+        cache.put(2, new Object(), newDocument(), 200);
+        for (int i = 0; i < 100 && cache.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, cache.size());
+        assertEquals(100, cache.getWeight());
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(1));
+        assertNotNull(owner);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link AsyncLogDispatcher} used by the {@link NodeLogger} for asynchronous logging.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class AsyncLogDispatcherTest {
+
+    private static final long SHUTDOWN_TIMEOUT = 10000;
+
+    private static int getCapacity(final int capacity) {
+        final AsyncLogDispatcher<String> dispatcher = new AsyncLogDispatcher<>("test", capacity, l -> {});
+        try {
+            return dispatcher.getCapacity();
+        } finally {
+            assertTrue("Dispatcher thread not terminated", dispatcher.shutdown(SHUTDOWN_TIMEOUT));
+        }
+    }
+
+    /** Tests that the capacity is rounded up to a power of two. */
+    @Test
+    public void testCapacity() {
+        assertEquals(2, getCapacity(1));
+        assertEquals(8, getCapacity(5));
+        assertEquals(8, getCapacity(8));
+    }
+
+    /** Tests that no events are lost and that the order of the events of each thread is retained. */
+    @Test(timeout = 30000)
+    public void testConcurrentDispatch() throws Exception {
+        final int threadCount = 4;
+        final int eventCount = 20000;
+        final List<int[]> received = new ArrayList<>();
+        // small buffer so that the logging threads have to wait for the dispatcher
+        final AsyncLogDispatcher<int[]> dispatcher = new AsyncLogDispatcher<>("test", 16, received::addAll);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < eventCount; i++) {
+                    dispatcher.dispatch(new int[]{thread, i});
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue("Events not dispatched in time", dispatcher.flush(10000));
+        assertTrue("Dispatcher thread not terminated", dispatcher.shutdown(SHUTDOWN_TIMEOUT));
+        assertEquals(threadCount * eventCount, received.size());
+        final int[] next = new int[threadCount];
+        for (int[] event : received) {
+            assertEquals("Wrong order of events of thread " + event[0], next[event[0]]++, event[1]);
+        }
+    }
+
+    /** Tests that events dispatched by the sink itself (e.g. an appender that logs) are not lost. */
+    @SuppressWarnings("unchecked")
+    @Test(timeout = 30000)
+    public void testDispatchFromSink() throws Exception {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final AsyncLogDispatcher<String>[] dispatcher = new AsyncLogDispatcher[1];
+        dispatcher[0] = new AsyncLogDispatcher<>("test", 1, events -> {
+            for (String e : events) {
+                received.add(e);
+                if (!e.startsWith("nested")) {
+                    // buffer might be full, which must not block the dispatcher thread
+                    dispatcher[0].dispatch("nested " + e);
+                    dispatcher[0].dispatch("nested2 " + e);
+                }
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            dispatcher[0].dispatch(Integer.toString(i));
+        }
+        assertTrue(dispatcher[0].flush(10000));
+        // nested events added to the buffer might still be pending
+        long deadline = System.currentTimeMillis() + 10000;
+        while (received.size() < 300 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(300, received.size());
+        assertTrue("Dispatcher thread not terminated", dispatcher[0].shutdown(SHUTDOWN_TIMEOUT));
+    }
+
+    /**
+     * Tests that shutting down passes the pending events to the sink and stops the dispatcher thread, and that later
+     * events are passed to the sink by the logging thread.
+     */
+    @Test(timeout = 30000)
+    public void testShutdown() throws Exception {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final List<Thread> sinkThreads = new CopyOnWriteArrayList<>();
+        final AsyncLogDispatcher<String> dispatcher = new AsyncLogDispatcher<>("test-shutdown", 16, events -> {
+            received.addAll(events);
+            sinkThreads.add(Thread.currentThread());
+        });
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch(Integer.toString(i));
+        }
+        assertTrue("Dispatcher thread not terminated", dispatcher.shutdown(SHUTDOWN_TIMEOUT));
+        assertEquals(100, received.size());
+        assertTrue("Dispatcher thread still running",
+            Thread.getAllStackTraces().keySet().stream().noneMatch(t -> "test-shutdown".equals(t.getName())));
+
+        sinkThreads.clear();
+        dispatcher.dispatch("after shutdown");
+        assertEquals(101, received.size());
+        assertEquals("after shutdown", received.get(100));
+        assertEquals(Thread.currentThread(), sinkThreads.get(0));
+        assertTrue(dispatcher.flush(0));
+    }
+}
@@ -56,6 +56,9 @@
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import org.apache.commons.lang3.mutable.MutableLong;
@@ -166,6 +169,81 @@ private void internalTestManyMessageEvents(final NodeProgressMonitor toMonitor,
         }
     }
 
+    /** Many threads reporting progress via (nested) sub progress monitors of the same monitor. */
+    @Test(timeout=10000L)
+    public void testConcurrentSubProgress() throws Exception {
+        final DefaultNodeProgressMonitor m = new DefaultNodeProgressMonitor();
+        m.setProgress(0.1);
+        final int threadCount = 8;
+        final int parts = 100000;
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final SubNodeProgressMonitor outer = new SubNodeProgressMonitor(m, 0.9 / threadCount);
+            final SubNodeProgressMonitor inner = new SubNodeProgressMonitor(outer, 0.5);
+            threads.add(new Thread(() -> {
+                for (int i = 1; i <= parts; i++) {
+                    final int index = i;
+                    inner.setProgress(i / (double)parts, () -> "Row " + index);
+                    outer.setProgress(0.5 + 0.5 * i / parts);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertThat(m.getProgress(), is(closeTo(1.0, PROG_EPSILON)));
+        assertThat(m.getMessage(), is(equalTo(null)));
+    }
+
+    /** The progress never decreases while threads start reporting sub progress on a monitor without progress. */
+    @Test(timeout=10000L)
+    public void testConcurrentSubProgressIsMonotonic() throws Exception {
+        final DefaultNodeProgressMonitor m = new DefaultNodeProgressMonitor();
+        final int threadCount = 8;
+        final int parts = 100000;
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final SubNodeProgressMonitor sub = new SubNodeProgressMonitor(m, 1.0 / threadCount);
+            threads.add(new Thread(() -> {
+                for (int i = 1; i <= parts; i++) {
+                    sub.setProgress(i / (double)parts);
+                }
+            }));
+        }
+        final AtomicBoolean isDone = new AtomicBoolean();
+        final List<String> errors = new ArrayList<>();
+        final Thread reader = new Thread(() -> {
+            double last = 0.0;
+            while (!isDone.get()) {
+                final Double progress = m.getProgress();
+                if (progress != null) {
+                    if (progress < last) {
+                        errors.add("Progress decreased from " + last + " to " + progress);
+                    }
+                    last = progress;
+                }
+            }
+        });
+        reader.start();
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        isDone.set(true);
+        reader.join();
+        assertThat(errors, is(equalTo(new ArrayList<>())));
+        assertThat(m.getProgress(), is(closeTo(1.0, PROG_EPSILON)));
+    }
+
+    /** A sub progress monitor reporting 0 progress still sets the progress of the parent to 0. */
+    @Test
+    public void testZeroSubProgress() throws Exception {
+        final DefaultNodeProgressMonitor m = new DefaultNodeProgressMonitor();
+        new SubNodeProgressMonitor(new SubNodeProgressMonitor(m, 0.5), 0.5).setProgress(0.0);
+        assertThat(m.getProgress(), is(equalTo(0.0)));
+    }
+
     private static NodeProgressListener createListener(final Pointer<NodeProgress> progressPointer,
         final Function<NodeProgress, Boolean> notificationFunction) {
         return new NodeProgressListener() {
@@ -0,0 +1,183 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.knime.core.node.port.database.aggregation.DBAggregationFunctionFactory;
+import org.knime.core.node.port.database.connection.DBDriverFactory;
+
+/**
+ * A fake database for tests. While open, a utility for the database identifier {@link #DATABASE_IDENTIFIER} is
+ * registered with the {@link DatabaseUtilityRegistry}, whose driver returns the connections created by the test.
+ * Only one fake database can be open at a time.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class FakeDatabase implements AutoCloseable {
+
+    /** The identifier of the fake database. */
+    public static final String DATABASE_IDENTIFIER = "knimetestfake";
+
+    /** The class name of the fake driver. */
+    public static final String DRIVER_NAME = FakeDatabase.class.getName();
+
+    private final DatabaseUtility m_utility;
+
+    /**
+     * Creates the fake database and registers its utility.
+     *
+     * @param connectionFactory creates a new connection to the database, called whenever the driver connects
+     */
+    public FakeDatabase(final Callable<Connection> connectionFactory) {
+        m_utility = new DatabaseUtility(DATABASE_IDENTIFIER, null, new FakeDriverFactory(connectionFactory),
+            (DBAggregationFunctionFactory[])null);
+        getUtilityMap().put(DATABASE_IDENTIFIER, m_utility);
+    }
+
+    /**
+     * Creates settings for a new database, i.e. with a new url, so that connections aren't shared between tests.
+     *
+     * @return new connection settings for the fake database
+     */
+    public DatabaseConnectionSettings createConnectionSettings() {
+        return new DatabaseConnectionSettings(DATABASE_IDENTIFIER, DRIVER_NAME,
+            "jdbc:" + DATABASE_IDENTIFIER + ":" + UUID.randomUUID(), "user", "", null, "none");
+    }
+
+    /** Unregisters the utility of the fake database. */
+    @Override
+    public void close() {
+        getUtilityMap().remove(DATABASE_IDENTIFIER, m_utility);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, DatabaseUtility> getUtilityMap() {
+        try {
+            final Field field = DatabaseUtilityRegistry.class.getDeclaredField("m_utilityMap");
+            field.setAccessible(true);
+            return (Map<String, DatabaseUtility>)field.get(DatabaseUtilityRegistry.getInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to access the database utility registry: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a proxy that handles the methods of {@link Object} by identity and returns the default value of the
+     * return type if the handler returns <code>null</code>. Used to fake the JDBC interfaces.
+     *
+     * @param type the interface to implement
+     * @param handler handles all other methods
+     * @return the proxy
+     */
+    public static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeDatabase.class.getClassLoader(), new Class<?>[]{type},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                    default:
+                        final Object result = handler.invoke(proxy, method, args);
+                        final Class<?> returnType = method.getReturnType();
+                        if (result == null && returnType.isPrimitive() && returnType != void.class) {
+                            return Array.get(Array.newInstance(returnType, 1), 0);
+                        }
+                        return result;
+                }
+            }));
+    }
+
+    private static final class FakeDriverFactory implements DBDriverFactory {
+
+        private final Callable<Connection> m_connectionFactory;
+
+        FakeDriverFactory(final Callable<Connection> connectionFactory) {
+            m_connectionFactory = connectionFactory;
+        }
+
+        @Override
+        public Set<String> getDriverNames() {
+            return Collections.singleton(DRIVER_NAME);
+        }
+
+        @Override
+        public Driver getDriver(final DatabaseConnectionSettings settings) throws Exception {
+            if (!DRIVER_NAME.equals(settings.getDriver())) {
+                return null;
+            }
+            return proxy(Driver.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "acceptsURL":
+                        return true;
+                    case "connect":
+                        return m_connectionFactory.call();
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        @Override
+        public Collection<File> getDriverFiles(final DatabaseConnectionSettings settings) {
+            return Collections.emptyList();
+        }
+    }
+}
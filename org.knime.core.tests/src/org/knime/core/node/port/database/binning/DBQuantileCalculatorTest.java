@@ -0,0 +1,86 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.binning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.knime.core.node.port.database.StatementManipulator;
+
+/**
+ * Tests the quantile statements of the {@link BinningStatementGenerator}s and the {@link DBQuantileCalculator}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DBQuantileCalculatorTest {
+
+    private static final double[] QUARTILES = {0, 0.25, 0.5, 0.75, 1};
+
+    /** Tests that the quantiles estimated from a sample match the definition used by the database statements. */
+    @Test
+    public void testQuantiles() {
+        final double[] values = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        assertArrayEquals(new double[]{1, 3, 5, 8, 10}, DBQuantileCalculator.quantiles(values, QUARTILES), 0);
+        assertArrayEquals(new double[]{7, 7}, DBQuantileCalculator.quantiles(new double[]{7}, new double[]{0, 1}), 0);
+        assertEquals(0, DBQuantileCalculator.quantiles(new double[0], QUARTILES).length);
+    }
+
+    /** Tests the statements generated for the different databases. */
+    @Test
+    public void testQuantileStatement() {
+        assertNull("Databases without CASE should fall back to sampling",
+            new StatementManipulator().getQuantileStatement("SELECT * FROM t", "x", QUARTILES));
+        final StatementManipulator sm = new StatementManipulator(true);
+        assertEquals("SELECT MIN(CASE WHEN rn >= 0.0 * cnt THEN x END) q0, MIN(CASE WHEN rn >= 0.5 * cnt THEN x END) q1"
+            + " FROM (SELECT x, ROW_NUMBER() OVER (ORDER BY x) rn, COUNT(*) OVER () cnt FROM (SELECT * FROM t) T"
+            + " WHERE x IS NOT NULL) T2",
+            sm.getQuantileStatement("SELECT * FROM t", "x", new double[]{0, 0.5}));
+        assertEquals("SELECT PERCENTILE_DISC(0.25) WITHIN GROUP (ORDER BY x) q0 FROM (SELECT * FROM t) T",
+            PercentileBinningStatementGenerator.getINSTANCE().getQuantileStatement(sm, "SELECT * FROM t", "x",
+                new double[]{0.25}));
+    }
+}
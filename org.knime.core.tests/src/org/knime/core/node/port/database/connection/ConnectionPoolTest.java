@@ -0,0 +1,262 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ConnectionPool} used by the {@link CachedConnectionFactory}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ConnectionPoolTest {
+
+    private final AtomicInteger m_openCount = new AtomicInteger();
+
+    /** Creates a connection that only supports isClosed, close and clearWarnings. */
+    private Connection openConnection() {
+        m_openCount.incrementAndGet();
+        final AtomicBoolean isClosed = new AtomicBoolean();
+        return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "isClosed":
+                        return isClosed.get();
+                    case "close":
+                        isClosed.set(true);
+                        return null;
+                    case "clearWarnings":
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    /** Borrows a connection on a new thread, as a thread that already holds a connection gets the same one again. */
+    private PooledConnection borrowOnOtherThread(final ConnectionPool pool, final int maxSize) throws Exception {
+        final FutureTask<PooledConnection> task =
+            new FutureTask<>(() -> pool.borrow(maxSize, this::openConnection, c -> true));
+        new Thread(task).start();
+        return task.get(5, TimeUnit.SECONDS);
+    }
+
+    /** Tests that connections are reused and that invalid connections are replaced. */
+    @Test
+    public void testReuseAndValidation() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(null);
+        final Connection first;
+        try (PooledConnection pooledConn = pool.borrow(2, this::openConnection, c -> true)) {
+            first = pooledConn.getConnection();
+        }
+        try (PooledConnection pooledConn = pool.borrow(2, this::openConnection, c -> true)) {
+            assertSame(first, pooledConn.getConnection());
+        }
+        assertEquals(1, m_openCount.get());
+
+        try (PooledConnection pooledConn = pool.borrow(2, this::openConnection, c -> false)) {
+            assertNotSame(first, pooledConn.getConnection());
+        }
+        assertTrue(first.isClosed());
+        assertEquals(1, pool.size());
+
+        try (PooledConnection pooledConn = pool.borrow(2, this::openConnection, c -> true)) {
+            pooledConn.invalidate();
+            assertTrue(pooledConn.getConnection() != first);
+        }
+        assertEquals(0, pool.size());
+    }
+
+    /** Tests that the pool size limits the number of concurrent borrowers. */
+    @Test(timeout = 10000)
+    public void testConcurrencyLimit() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(null);
+        final PooledConnection first = pool.borrow(2, this::openConnection, c -> true);
+        final PooledConnection second = borrowOnOtherThread(pool, 2);
+        assertNotSame(first.getConnection(), second.getConnection());
+        assertEquals(2, pool.size());
+
+        final CountDownLatch borrowed = new CountDownLatch(1);
+        final Thread t = new Thread(() -> {
+            try (PooledConnection third = pool.borrow(2, this::openConnection, c -> true)) {
+                assertSame(first.getConnection(), third.getConnection());
+                borrowed.countDown();
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        t.start();
+        assertFalse("Borrowed connection from full pool", borrowed.await(200, TimeUnit.MILLISECONDS));
+        first.close();
+        // closing again has no effect
+        first.close();
+        assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+        t.join();
+        second.close();
+        assertEquals(2, pool.size());
+        assertEquals(2, pool.idleCount());
+        assertEquals(2, m_openCount.get());
+    }
+
+    /** Tests that idle connections are closed, except for one. */
+    @Test
+    public void testIdleEviction() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(null);
+        final PooledConnection first = pool.borrow(3, this::openConnection, c -> true);
+        final PooledConnection second = borrowOnOtherThread(pool, 3);
+        final PooledConnection third = borrowOnOtherThread(pool, 3);
+        second.close();
+        third.close();
+        Thread.sleep(20);
+        pool.housekeeping(10, Long.MAX_VALUE);
+        // the borrowed connection is kept, the idle connections are closed
+        assertEquals(1, pool.size());
+        assertEquals(0, pool.idleCount());
+        assertTrue(second.getConnection().isClosed());
+        assertTrue(third.getConnection().isClosed());
+        first.close();
+        Thread.sleep(20);
+        pool.housekeeping(10, Long.MAX_VALUE);
+        // the last connection is kept
+        assertEquals(1, pool.size());
+        assertFalse(first.getConnection().isClosed());
+    }
+
+    /** Tests that a thread borrowing again while it holds a connection gets the same one, also from a full pool. */
+    @Test(timeout = 10000)
+    public void testNestedBorrow() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(null);
+        try (PooledConnection outer = pool.borrow(1, this::openConnection, c -> true)) {
+            try (PooledConnection inner = pool.borrow(1, this::openConnection, c -> true)) {
+                assertSame(outer.getConnection(), inner.getConnection());
+            }
+            // the connection is still borrowed by the outer borrower
+            assertEquals(0, pool.idleCount());
+            final CountDownLatch borrowed = new CountDownLatch(1);
+            final Thread t = new Thread(() -> {
+                try (PooledConnection other = pool.borrow(1, this::openConnection, c -> true)) {
+                    borrowed.countDown();
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            });
+            t.start();
+            assertFalse("Borrowed connection from full pool", borrowed.await(200, TimeUnit.MILLISECONDS));
+            outer.close();
+            assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+            t.join();
+        }
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.idleCount());
+        assertEquals(1, m_openCount.get());
+
+        // invalidating the nested connection closes it once the outer borrower returns it
+        final Connection conn;
+        try (PooledConnection outer = pool.borrow(1, this::openConnection, c -> true)) {
+            conn = outer.getConnection();
+            try (PooledConnection inner = pool.borrow(1, this::openConnection, c -> true)) {
+                inner.invalidate();
+            }
+            assertFalse(conn.isClosed());
+        }
+        assertTrue(conn.isClosed());
+        assertEquals(0, pool.size());
+    }
+    /** Tests that tryBorrow doesn't wait for a connection if the pool is full. */
+    @Test(timeout = 10000)
+    public void testTryBorrow() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(null);
+        final PooledConnection first = pool.borrow(1, this::openConnection, c -> true);
+        final FutureTask<PooledConnection> task =
+            new FutureTask<>(() -> pool.tryBorrow(1, null, this::openConnection, c -> true));
+        new Thread(task).start();
+        assertNull("Borrowed connection from full pool", task.get(5, TimeUnit.SECONDS));
+        first.close();
+        try (PooledConnection pooledConn = pool.tryBorrow(1, null, this::openConnection, c -> true)) {
+            assertSame(first.getConnection(), pooledConn.getConnection());
+        }
+        assertEquals(1, m_openCount.get());
+    }
+
+    /** Tests that the shared connection is the first connection of the pool and is kept when idle. */
+    @Test
+    public void testSharedConnection() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(null);
+        final Connection shared = openConnection();
+        final PooledConnection first = pool.borrow(2, () -> shared, this::openConnection, c -> true);
+        assertSame(shared, first.getConnection());
+        final PooledConnection second = borrowOnOtherThread(pool, 2);
+        assertNotSame(shared, second.getConnection());
+        first.close();
+        second.close();
+        Thread.sleep(20);
+        pool.housekeeping(10, Long.MAX_VALUE);
+        assertEquals(1, pool.size());
+        assertFalse(shared.isClosed());
+        assertTrue(second.getConnection().isClosed());
+        try (PooledConnection pooledConn = pool.borrow(2, () -> shared, this::openConnection, c -> true)) {
+            assertSame(shared, pooledConn.getConnection());
+        }
+    }
+}
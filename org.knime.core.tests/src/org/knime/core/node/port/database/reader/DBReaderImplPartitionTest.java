@@ -0,0 +1,369 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.knime.core.node.port.database.FakeDatabase.proxy;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.port.database.FakeDatabase;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests {@link DBReaderImpl#createPartitionedTable(ExecutionContext, org.knime.core.node.workflow.CredentialsProvider,
+ * String, int)} against a fake database, which evaluates the range conditions of the partition queries.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DBReaderImplPartitionTest {
+
+    /** The number of rows with a (non-NULL) id, the ids are 0 to NR_ROWS - 1. */
+    private static final int NR_ROWS = 100;
+
+    /** The number of rows whose id is NULL. */
+    private static final int NR_NULL_ROWS = 3;
+
+    private static final Pattern LOWER_BOUND = Pattern.compile("id >= (\\d+)");
+
+    private static final Pattern UPPER_BOUND = Pattern.compile("id < (\\d+)");
+
+    /** The queries executed against the database. */
+    private final List<String> m_queries = Collections.synchronizedList(new ArrayList<>());
+
+    /** The tables of all containers created by the reader. */
+    private final List<BufferedDataContainer> m_containers = Collections.synchronizedList(new ArrayList<>());
+
+    /** The tables cleared by the reader. */
+    private final Set<BufferedDataTable> m_clearedTables = Collections.synchronizedSet(new HashSet<>());
+
+    /** Partition queries containing this string fail, null if no query fails. */
+    private volatile String m_failingCondition;
+
+    private FakeDatabase m_database;
+
+    private ExecutionContext m_exec;
+
+    /** Registers the fake database and creates the execution context, which records created and cleared tables. */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Before
+    public void setUp() {
+        m_database = new FakeDatabase(this::openConnection);
+        final NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+            SingleNodeContainer.MemoryPolicy.CacheOnDisc, new HashMap<Integer, ContainerTable>()) {
+            @Override
+            public BufferedDataContainer createDataContainer(final DataTableSpec spec) {
+                final BufferedDataContainer container = super.createDataContainer(spec);
+                m_containers.add(container);
+                return container;
+            }
+
+            @Override
+            public void clearTable(final BufferedDataTable table) {
+                m_clearedTables.add(table);
+                super.clearTable(table);
+            }
+        };
+    }
+
+    /** Unregisters the fake database. */
+    @After
+    public void tearDown() {
+        m_database.close();
+    }
+
+    /**
+     * Creates a connection to a table with the columns "id" and "name". The ids are 0 to {@link #NR_ROWS} - 1 and
+     * NULL, the name is derived from the id. Queries with a WHERE clause only return the rows matching the range
+     * condition on the id.
+     */
+    private Connection openConnection() {
+        final ResultSetMetaData meta = proxy(ResultSetMetaData.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return 2;
+                case "getColumnType":
+                    return (Integer)args[0] == 1 ? Types.INTEGER : Types.VARCHAR;
+                case "getColumnName":
+                case "getColumnLabel":
+                    return (Integer)args[0] == 1 ? "id" : "name";
+                default:
+                    return null;
+            }
+        });
+        final Statement stmt = proxy(Statement.class, (proxy, method, args) -> {
+            if (!"executeQuery".equals(method.getName())) {
+                return null;
+            }
+            final String query = (String)args[0];
+            m_queries.add(query);
+            final String failingCondition = m_failingCondition;
+            if (failingCondition != null && query.contains(failingCondition)) {
+                throw new SQLException("Query failed: " + query);
+            }
+            if (query.contains("MIN(")) {
+                return createResultSet(meta, Collections.singletonList(new Object[]{BigDecimal.ZERO,
+                    BigDecimal.valueOf(NR_ROWS - 1)}));
+            }
+            return createResultSet(meta, selectRows(query));
+        });
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "createStatement":
+                    return stmt;
+                case "getAutoCommit":
+                case "isValid":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /** @return the rows (id, name) matching the WHERE clause of the query */
+    private static List<Object[]> selectRows(final String query) {
+        final List<Object[]> rows = new ArrayList<>();
+        final int where = query.lastIndexOf(" WHERE ");
+        final String condition = where < 0 ? "" : query.substring(where);
+        if (condition.contains("1 = 0")) {
+            // meta data only
+            return rows;
+        }
+        final Matcher lower = LOWER_BOUND.matcher(condition);
+        final Matcher upper = UPPER_BOUND.matcher(condition);
+        final int min = lower.find() ? Integer.parseInt(lower.group(1)) : Integer.MIN_VALUE;
+        final int max = upper.find() ? Integer.parseInt(upper.group(1)) : Integer.MAX_VALUE;
+        for (int i = 0; i < NR_ROWS; i++) {
+            if (i >= min && i < max) {
+                rows.add(new Object[]{i, "row" + i});
+            }
+        }
+        if (where < 0 || condition.contains("IS NULL")) {
+            for (int i = 0; i < NR_NULL_ROWS; i++) {
+                rows.add(new Object[]{null, "null" + i});
+            }
+        }
+        return rows;
+    }
+
+    private static ResultSet createResultSet(final ResultSetMetaData meta, final List<Object[]> rows) {
+        final int[] row = {0};
+        final boolean[] wasNull = {false};
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] <= rows.size();
+                case "getMetaData":
+                    return meta;
+                case "wasNull":
+                    return wasNull[0];
+                case "getInt":
+                case "getString":
+                case "getBigDecimal":
+                    final Object value = rows.get(row[0] - 1)[(Integer)args[0] - 1];
+                    wasNull[0] = value == null;
+                    return value;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private DBReaderImpl createReader(final String query) {
+        return new DBReaderImpl(new DatabaseQueryConnectionSettings(m_database.createConnectionSettings(), query));
+    }
+
+    private List<String> getPartitionQueries() {
+        synchronized (m_queries) {
+            return m_queries.stream().filter(q -> q.contains(" WHERE ") && !q.contains("1 = 0"))
+                .collect(Collectors.toList());
+        }
+    }
+
+    /** @return the names of the rows in the table, asserting that the row ids are unique */
+    private static List<String> getNames(final BufferedDataTable table) {
+        final Set<String> rowIds = new HashSet<>();
+        final List<String> names = new ArrayList<>();
+        for (DataRow row : table) {
+            assertTrue("Duplicate row id " + row.getKey(), rowIds.add(row.getKey().getString()));
+            names.add(row.getCell(1).toString());
+        }
+        return names;
+    }
+
+    private static Set<String> getExpectedNames() {
+        final Set<String> names = new HashSet<>();
+        for (int i = 0; i < NR_ROWS; i++) {
+            names.add("row" + i);
+        }
+        for (int i = 0; i < NR_NULL_ROWS; i++) {
+            names.add("null" + i);
+        }
+        return names;
+    }
+
+    /**
+     * Tests that the query is split into ranges between the minimum and maximum of the column, that each row is read
+     * exactly once and that rows with a NULL value in the column are read (with the first range).
+     *
+     * @throws Exception not expected
+     */
+    @Test(timeout = 30000)
+    public void testRangesAndNullKeys() throws Exception {
+        final BufferedDataTable table = createReader("SELECT * FROM source").createPartitionedTable(m_exec, null,
+            "id", 4);
+
+        final List<String> partitionQueries = getPartitionQueries();
+        assertEquals("Wrong number of partitions: " + partitionQueries, 4, partitionQueries.size());
+        final Set<String> conditions = partitionQueries.stream()
+            .map(q -> q.substring(q.lastIndexOf(" WHERE ") + 7)).collect(Collectors.toSet());
+        final Set<String> expectedConditions = new HashSet<>();
+        expectedConditions.add("(id < 24 OR id IS NULL)");
+        expectedConditions.add("id >= 24 AND id < 49");
+        expectedConditions.add("id >= 49 AND id < 74");
+        expectedConditions.add("id >= 74");
+        assertEquals(expectedConditions, conditions);
+
+        final List<String> names = getNames(table);
+        assertEquals("Rows read more than once", new HashSet<>(names).size(), names.size());
+        assertEquals(getExpectedNames(), new HashSet<>(names));
+        long nullKeys = 0;
+        for (DataRow row : table) {
+            final DataCell id = row.getCell(0);
+            if (id.isMissing()) {
+                nullKeys++;
+            } else {
+                assertEquals("row" + ((IntValue)id).getIntValue(), row.getCell(1).toString());
+            }
+        }
+        assertEquals("Rows with NULL key not read", NR_NULL_ROWS, nullKeys);
+        assertTrue("Tables of successful read cleared", m_clearedTables.isEmpty());
+    }
+
+    /**
+     * Tests that a single query is executed if the query has an ORDER BY clause, so that the order is retained.
+     *
+     * @throws Exception not expected
+     */
+    @Test(timeout = 30000)
+    public void testOrderByFallback() throws Exception {
+        final String query = "SELECT * FROM source ORDER BY name";
+        final BufferedDataTable table = createReader(query).createPartitionedTable(m_exec, null, "id", 4);
+
+        assertFalse("Bounds of partition column queried: " + m_queries,
+            m_queries.stream().anyMatch(q -> q.contains("MIN(")));
+        assertTrue("Partitions queried: " + m_queries, getPartitionQueries().isEmpty());
+        assertTrue("Query not executed: " + m_queries, m_queries.contains(query));
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < NR_ROWS; i++) {
+            expected.add("row" + i);
+        }
+        for (int i = 0; i < NR_NULL_ROWS; i++) {
+            expected.add("null" + i);
+        }
+        assertEquals("Order of query result not retained", expected, getNames(table));
+    }
+
+    /**
+     * Tests that the tables of all partitions are cleared if reading a partition fails.
+     *
+     * @throws Exception not expected
+     */
+    @Test(timeout = 30000)
+    public void testClearPartitionsOnFailure() throws Exception {
+        m_failingCondition = "id >= 49";
+        try {
+            createReader("SELECT * FROM source").createPartitionedTable(m_exec, null, "id", 4);
+            fail("Failing partition not reported");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("id >= 49"));
+        }
+        assertEquals("Wrong number of partitions: " + getPartitionQueries(), 4, getPartitionQueries().size());
+        synchronized (m_containers) {
+            assertFalse("No partition read", m_containers.isEmpty());
+            for (BufferedDataContainer container : m_containers) {
+                assertTrue("Table of partition not cleared", m_clearedTables.contains(container.getTable()));
+            }
+        }
+    }
+}
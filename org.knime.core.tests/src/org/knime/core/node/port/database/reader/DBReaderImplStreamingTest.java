@@ -0,0 +1,261 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.knime.core.node.port.database.FakeDatabase.proxy;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.port.database.FakeDatabase;
+import org.knime.core.node.port.database.writer.DBWriterImpl;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests {@link DBReaderImpl#streamTable(ExecutionContext, org.knime.core.node.workflow.CredentialsProvider,
+ * RowOutput, boolean)} against a fake database, whose rows are streamed into a {@link DBWriterImpl} on the same
+ * connection settings.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DBReaderImplStreamingTest {
+
+    private static final int NR_ROWS = 100;
+
+    /** Marks the end of the rows in the queue between reader and writer. */
+    private static final DataRow END = new DefaultRow("end", new IntCell(-1));
+
+    private final List<Integer> m_written = Collections.synchronizedList(new ArrayList<>());
+
+    /** The number of connections that executed the query and are not closed yet. */
+    private final AtomicInteger m_openReadConnections = new AtomicInteger();
+
+    private ExecutionContext m_exec;
+
+    private FakeDatabase m_database;
+
+    /**
+     * Creates a connection, on which queries return the rows 1 to {@link #NR_ROWS} and inserted values are added to
+     * {@link #m_written}.
+     */
+    private Connection openConnection() {
+        final boolean[] state = {true, false}; // auto-commit, has executed a query
+        final ResultSetMetaData meta = proxy(ResultSetMetaData.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return 1;
+                case "getColumnType":
+                    return Types.INTEGER;
+                case "getColumnName":
+                case "getColumnLabel":
+                    return "i";
+                case "getColumnTypeName":
+                    return "INTEGER";
+                default:
+                    return null;
+            }
+        });
+        final Statement stmt = proxy(PreparedStatement.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeQuery":
+                    state[1] = true;
+                    m_openReadConnections.incrementAndGet();
+                    final int[] row = {0};
+                    return proxy(ResultSet.class, (rsProxy, rsMethod, rsArgs) -> {
+                        switch (rsMethod.getName()) {
+                            case "next":
+                                return ++row[0] <= NR_ROWS;
+                            case "getInt":
+                                return row[0];
+                            case "getMetaData":
+                                return meta;
+                            default:
+                                return null;
+                        }
+                    });
+                case "setInt":
+                    m_written.add((Integer)args[1]);
+                    return null;
+                case "executeBatch":
+                    return new int[0];
+                default:
+                    return null;
+            }
+        });
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "createStatement":
+                case "prepareStatement":
+                    return stmt;
+                case "getAutoCommit":
+                    return state[0];
+                case "setAutoCommit":
+                    state[0] = (Boolean)args[0];
+                    return null;
+                case "isValid":
+                    return true;
+                case "close":
+                    if (state[1]) {
+                        state[1] = false;
+                        m_openReadConnections.decrementAndGet();
+                    }
+                    return null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /** Registers the fake database and creates the execution context for the reader. */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Before
+    public void setUp() {
+        m_database = new FakeDatabase(this::openConnection);
+        final NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+            SingleNodeContainer.MemoryPolicy.CacheOnDisc, new HashMap<Integer, ContainerTable>());
+    }
+
+    /** Unregisters the fake database. */
+    @After
+    public void tearDown() {
+        m_database.close();
+    }
+
+    /**
+     * Tests that a writer on the same database can write the rows while the reader waits for it, i.e. that the reader
+     * doesn't hold the connection that is used by the writer.
+     */
+    @Test(timeout = 30000)
+    public void testStreamIntoWriter() throws Exception {
+        final DatabaseQueryConnectionSettings settings =
+            new DatabaseQueryConnectionSettings(m_database.createConnectionSettings(), "SELECT i FROM source");
+        final DBReaderImpl reader = new DBReaderImpl(settings);
+        final DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("i", IntCell.TYPE).createSpec());
+        // the queue is smaller than the table, so that the reader has to wait for the writer
+        final BlockingQueue<DataRow> queue = new ArrayBlockingQueue<>(1);
+        final FutureTask<Void> read = new FutureTask<>(() -> {
+            reader.streamTable(m_exec, null, new RowOutput() {
+                @Override
+                public void push(final DataRow row) throws InterruptedException {
+                    queue.put(row);
+                }
+
+                @Override
+                public void close() throws InterruptedException {
+                    queue.put(END);
+                }
+            }, false);
+            return null;
+        });
+        new Thread(read, "Database-Reader").start();
+
+        final String error = new DBWriterImpl(settings).writeData("target", new RowInput() {
+            @Override
+            public DataTableSpec getDataTableSpec() {
+                return spec;
+            }
+
+            @Override
+            public DataRow poll() throws InterruptedException {
+                DataRow row;
+                while ((row = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                    if (read.isDone()) {
+                        // the reader failed, which is reported below
+                        return null;
+                    }
+                }
+                return row == END ? null : row;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, -1, false, new ExecutionMonitor(), Collections.singletonMap("i", "integer"), null, 10, false, true);
+        read.get();
+
+        assertNull(error);
+        assertEquals(IntStream.rangeClosed(1, NR_ROWS).boxed().collect(Collectors.toList()), m_written);
+        assertEquals("Connection of the reader not closed", 0, m_openReadConnections.get());
+    }
+}
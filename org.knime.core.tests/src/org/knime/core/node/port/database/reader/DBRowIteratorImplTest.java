@@ -0,0 +1,250 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.knime.core.node.port.database.FakeDatabase.proxy;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTable;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowIterator;
+import org.knime.core.data.blob.BinaryObjectCellFactory;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.port.database.DatabaseConnectionSettings;
+import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.port.database.FakeDatabase;
+
+/**
+ * Tests that {@link DBRowIteratorImpl} reads each column with the reader matching its JDBC type, handles NULL values
+ * and calls the read methods overridden by subclasses. The rows are read by a {@link DBReaderImpl} from a
+ * {@link FakeDatabase}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DBRowIteratorImplTest {
+
+    /** The label of each column. */
+    private static final String[] COLUMNS =
+        {"bool", "tinyint", "smallint", "integer", "bigint", "real", "double", "varchar", "nvarchar"};
+
+    /** The JDBC type of each column. */
+    private static final int[] TYPES = {Types.BIT, Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT,
+        Types.REAL, Types.DOUBLE, Types.VARCHAR, Types.NVARCHAR};
+
+    /** The getter of the result set expected to be called for each column. */
+    private static final String[] GETTERS = {"getBoolean", "getByte", "getShort", "getInt", "getLong", "getFloat",
+        "getDouble", "getString", "getNString"};
+
+    /** The values returned by the result set, the second row is all NULL. */
+    private static final Object[][] VALUES = {
+        {true, (byte)1, (short)2, 3, 4L, 5.5f, 6.5, "seven", "eight"},
+        new Object[COLUMNS.length]};
+
+    /** The cells expected for the first row. */
+    private static final DataCell[] EXPECTED = {BooleanCell.TRUE, new IntCell(1), new IntCell(2), new IntCell(3),
+        new LongCell(4L), new DoubleCell(5.5), new DoubleCell(6.5), new StringCell("seven"), new StringCell("eight")};
+
+    /** The getters called per column, in the order of the calls. */
+    private final List<List<String>> m_calledGetters = new ArrayList<>();
+
+    private FakeDatabase m_database;
+
+    /** Registers the fake database. */
+    @Before
+    public void setUp() {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            m_calledGetters.add(new ArrayList<>());
+        }
+        m_database = new FakeDatabase(this::openConnection);
+    }
+
+    /** Unregisters the fake database. */
+    @After
+    public void tearDown() {
+        m_database.close();
+    }
+
+    /** Creates a connection, on which queries return {@link #VALUES}. */
+    private Connection openConnection() {
+        final ResultSetMetaData meta = proxy(ResultSetMetaData.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return COLUMNS.length;
+                case "getColumnType":
+                    return TYPES[(Integer)args[0] - 1];
+                case "getColumnName":
+                case "getColumnLabel":
+                    return COLUMNS[(Integer)args[0] - 1];
+                default:
+                    return null;
+            }
+        });
+        final Statement stmt = proxy(Statement.class, (proxy, method, args) -> {
+            if (!"executeQuery".equals(method.getName())) {
+                return null;
+            }
+            final int[] row = {0};
+            final boolean[] wasNull = {false};
+            return proxy(ResultSet.class, (rsProxy, rsMethod, rsArgs) -> {
+                final String name = rsMethod.getName();
+                switch (name) {
+                    case "next":
+                        return ++row[0] <= VALUES.length;
+                    case "getMetaData":
+                        return meta;
+                    case "wasNull":
+                        return wasNull[0];
+                    default:
+                        if (name.startsWith("get") && rsArgs != null && rsArgs.length == 1
+                            && rsArgs[0] instanceof Integer) {
+                            final int column = (Integer)rsArgs[0] - 1;
+                            m_calledGetters.get(column).add(name);
+                            final Object value = VALUES[row[0] - 1][column];
+                            wasNull[0] = value == null;
+                            return value;
+                        }
+                        return null;
+                }
+            });
+        });
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "createStatement":
+                    return stmt;
+                case "getAutoCommit":
+                case "isValid":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private List<DataRow> readRows(final DBReaderImpl reader) throws SQLException {
+        final DataTable table = reader.createTable(false, -1, null);
+        final List<DataRow> rows = new ArrayList<>();
+        for (DataRow row : table) {
+            rows.add(row);
+        }
+        assertEquals(VALUES.length, rows.size());
+        return rows;
+    }
+
+    /**
+     * Tests that each column is read with the getter of its JDBC type and converted to the cell of its KNIME type and
+     * that NULL values are read as missing cells.
+     *
+     * @throws SQLException not expected
+     */
+    @Test
+    public void testTypesAndNulls() throws SQLException {
+        final List<DataRow> rows = readRows(new DBReaderImpl(
+            new DatabaseQueryConnectionSettings(m_database.createConnectionSettings(), "SELECT * FROM source")));
+
+        final DataRow first = rows.get(0);
+        final DataRow second = rows.get(1);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            assertEquals("Wrong getter for column " + COLUMNS[i], Arrays.asList(GETTERS[i], GETTERS[i]),
+                m_calledGetters.get(i));
+            assertEquals("Wrong cell in column " + COLUMNS[i], EXPECTED[i], first.getCell(i));
+            assertEquals("Wrong type of column " + COLUMNS[i], EXPECTED[i].getType(), first.getCell(i).getType());
+            assertTrue("NULL not read as missing cell in column " + COLUMNS[i], second.getCell(i).isMissing());
+        }
+    }
+
+    /**
+     * Tests that the read methods overridden by a subclass of {@link DBRowIteratorImpl} are used.
+     *
+     * @throws SQLException not expected
+     */
+    @Test
+    public void testOverriddenReader() throws SQLException {
+        final DBReaderImpl reader = new DBReaderImpl(
+            new DatabaseQueryConnectionSettings(m_database.createConnectionSettings(), "SELECT * FROM source")) {
+            @Override
+            protected RowIterator createDBRowIterator(final DataTableSpec spec,
+                final DatabaseConnectionSettings conn, final BinaryObjectCellFactory blobFactory,
+                final boolean useDbRowId, final ResultSet result, final long startCounter) throws SQLException {
+                return new DBRowIteratorImpl(spec, conn, blobFactory, result, useDbRowId, startCounter) {
+                    @Override
+                    protected DataCell readString(final int i) throws SQLException {
+                        final DataCell cell = super.readString(i);
+                        return cell.isMissing() ? cell : new StringCell(cell.toString().toUpperCase());
+                    }
+                };
+            }
+        };
+        final List<DataRow> rows = readRows(reader);
+
+        final int varchar = Arrays.asList(COLUMNS).indexOf("varchar");
+        assertEquals("Overridden reader not used", new StringCell("SEVEN"), rows.get(0).getCell(varchar));
+        assertTrue(rows.get(1).getCell(varchar).isMissing());
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i != varchar) {
+                assertEquals("Wrong cell in column " + COLUMNS[i], EXPECTED[i], rows.get(0).getCell(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.port.database.DatabaseConnectionSettings;
+
+/**
+ * Tests the query normalization and the invalidation of the {@link QueryResultCache}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class QueryResultCacheTest {
+
+    /** Tests that whitespace and trailing semicolons are normalized, but not inside quotes. */
+    @Test
+    public void testNormalize() {
+        assertEquals("SELECT * FROM t WHERE a = 1", QueryResultCache.normalize("  SELECT *\n\tFROM t\r\n WHERE a = 1;\n"));
+        assertEquals("SELECT 'a  b', \"c\n d\" FROM t",
+            QueryResultCache.normalize("SELECT   'a  b',  \"c\n d\"  FROM t"));
+        assertEquals("SELECT `x  y` FROM t", QueryResultCache.normalize("SELECT `x  y`\nFROM t ;"));
+        assertEquals("SELECT ';'", QueryResultCache.normalize("SELECT ';'"));
+        assertEquals("", QueryResultCache.normalize("   "));
+    }
+
+    /** Tests that clearing the results of a database keeps the results of other databases. */
+    @Test
+    public void testClearDatabase() {
+        final QueryResultCache cache = QueryResultCache.getInstance();
+        cache.setTimeToLive(60);
+        try {
+            final String key1 = "jdbc:db1\0user\0UTC\0false\0SELECT 1";
+            final String key2 = "jdbc:db10\0user\0UTC\0false\0SELECT 1";
+            cache.putSpec(key1, new DataTableSpec());
+            cache.putSpec(key2, new DataTableSpec());
+            cache.clear(new DatabaseConnectionSettings("driver", "jdbc:db1", "user", "", null));
+            assertNull(cache.getSpec(key1));
+            assertNotNull(cache.getSpec(key2));
+        } finally {
+            cache.setTimeToLive(0);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.port.database.writer.ParallelBatchWriter.ConnectionProvider;
+import org.knime.core.node.port.database.writer.ParallelBatchWriter.RowSupplier;
+
+/**
+ * Tests the {@link ParallelBatchWriter} against a fake database, in which the rows written by a connection become
+ * visible when the connection commits.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ParallelBatchWriterTest {
+
+    private static final int NR_ROWS = 1000;
+
+    private final Set<Integer> m_committed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger m_openCount = new AtomicInteger();
+
+    private final AtomicInteger m_closeCount = new AtomicInteger();
+
+    private volatile boolean m_isCommitFailing;
+
+    /** Creates a connection whose statements store the values of the rows, which are committed on commit. */
+    private Connection openConnection() {
+        m_openCount.incrementAndGet();
+        final List<Integer> uncommitted = new ArrayList<>();
+        final List<Integer> batch = new ArrayList<>();
+        final PreparedStatement stmt = (PreparedStatement)Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setInt":
+                        batch.add((Integer)args[1]);
+                        return null;
+                    case "executeBatch":
+                        // the update count is the value of the row, which allows to check the order
+                        final int[] status = batch.stream().mapToInt(Integer::intValue).toArray();
+                        synchronized (uncommitted) {
+                            uncommitted.addAll(batch);
+                        }
+                        batch.clear();
+                        return status;
+                    case "clearBatch":
+                        batch.clear();
+                        return null;
+                    case "addBatch":
+                    case "close":
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getAutoCommit":
+                        return false;
+                    case "setAutoCommit":
+                        return null;
+                    case "prepareStatement":
+                        return stmt;
+                    case "commit":
+                        if (m_isCommitFailing) {
+                            throw new SQLException("Commit failed");
+                        }
+                        synchronized (uncommitted) {
+                            m_committed.addAll(uncommitted);
+                            uncommitted.clear();
+                        }
+                        return null;
+                    case "rollback":
+                        synchronized (uncommitted) {
+                            uncommitted.clear();
+                        }
+                        return null;
+                    case "close":
+                        m_closeCount.incrementAndGet();
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    /** @return a writer that fails binding the row with the given value */
+    private static ParallelBatchWriter createWriter(final int failingRow) {
+        return new ParallelBatchWriter("INSERT", (stmt, firstParameterIndex, row) -> {
+            final int value = ((IntValue)row.getCell(0)).getIntValue();
+            if (value == failingRow) {
+                throw new SQLException("Row " + value + " is invalid");
+            }
+            stmt.setInt(firstParameterIndex, value);
+        }, "adding", 10, 4);
+    }
+
+    private static RowSupplier rows(final ExecutionMonitor exec, final int cancelAfter) {
+        final AtomicInteger counter = new AtomicInteger();
+        return () -> {
+            final int value = counter.incrementAndGet();
+            if (value == cancelAfter) {
+                exec.getProgressMonitor().setExecuteCanceled();
+            }
+            return value > NR_ROWS ? null : new DefaultRow(RowKey.createRowKey((long)value), new IntCell(value));
+        };
+    }
+
+    /**
+     * @param nrConnections the number of connections provided, the other writers get none
+     * @param brokenCount counts the connections released as broken
+     * @return provides at most the given number of connections
+     */
+    private ConnectionProvider connections(final int nrConnections, final AtomicInteger brokenCount) {
+        final AtomicInteger acquired = new AtomicInteger();
+        return new ConnectionProvider() {
+            @Override
+            public Connection acquire() {
+                return acquired.incrementAndGet() > nrConnections ? null : openConnection();
+            }
+
+            @Override
+            public void release(final Connection conn, final boolean isBroken) throws SQLException {
+                if (isBroken) {
+                    brokenCount.incrementAndGet();
+                }
+                conn.close();
+            }
+        };
+    }
+
+    private static Set<Integer> range(final int from, final int to) {
+        return IntStream.rangeClosed(from, to).boxed().collect(Collectors.toSet());
+    }
+
+    /** Tests that all rows are written and that the update counts are reported in the order of the rows. */
+    @Test(timeout = 10000)
+    public void testOrder() throws Exception {
+        final ExecutionMonitor exec = new ExecutionMonitor();
+        final int[] status = new int[NR_ROWS];
+        final long nrFailed = createWriter(-1).withStatus(status).withTransactions(false, false)
+            .write(exec, rows(exec, -1), NR_ROWS, this::openConnection);
+        assertEquals(0, nrFailed);
+        assertEquals(range(1, NR_ROWS), m_committed);
+        assertArrayEquals(IntStream.rangeClosed(1, NR_ROWS).toArray(), status);
+        assertEquals(4, m_openCount.get());
+        assertEquals(4, m_closeCount.get());
+    }
+
+    /** Tests that all rows are written if only some of the writers get a connection. */
+    @Test(timeout = 10000)
+    public void testFewerConnections() throws Exception {
+        final ExecutionMonitor exec = new ExecutionMonitor();
+        final AtomicInteger brokenCount = new AtomicInteger();
+        final int[] status = new int[NR_ROWS];
+        final long nrFailed = createWriter(-1).withStatus(status).withTransactions(false, false)
+            .write(exec, rows(exec, -1), NR_ROWS, connections(2, brokenCount));
+        assertEquals(0, nrFailed);
+        assertEquals(range(1, NR_ROWS), m_committed);
+        assertArrayEquals(IntStream.rangeClosed(1, NR_ROWS).toArray(), status);
+        assertEquals(2, m_openCount.get());
+        assertEquals(2, m_closeCount.get());
+        assertEquals(0, brokenCount.get());
+    }
+
+    /** Tests that writing fails if none of the writers gets a connection. */
+    @Test(timeout = 10000)
+    public void testNoConnection() throws Exception {
+        final ExecutionMonitor exec = new ExecutionMonitor();
+        try {
+            createWriter(-1).withTransactions(false, false).write(exec, rows(exec, -1), NR_ROWS,
+                connections(0, new AtomicInteger()));
+            fail("Missing connections not reported");
+        } catch (SQLException ex) {
+            assertEquals("No database connection available for writing", ex.getMessage());
+        }
+        assertTrue(m_committed.isEmpty());
+    }
+
+    /** Tests that only the failing batch is skipped, or that nothing is written if writing should fail on errors. */
+    @Test(timeout = 10000)
+    public void testFailingBatch() throws Exception {
+        final ExecutionMonitor exec = new ExecutionMonitor();
+        assertEquals(1, createWriter(555).withTransactions(false, false).write(exec, rows(exec, -1), NR_ROWS,
+            this::openConnection));
+        final Set<Integer> expected = range(1, NR_ROWS);
+        expected.removeAll(range(551, 560));
+        assertEquals(expected, m_committed);
+
+        m_committed.clear();
+        try {
+            createWriter(555).withTransactions(true, false).write(exec, rows(exec, -1), NR_ROWS,
+                this::openConnection);
+            fail("Failing batch not reported");
+        } catch (Exception ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("rows #551 - #560"));
+            assertTrue(ex.getCause() instanceof SQLException);
+        }
+        assertTrue("Changes not rolled back: " + m_committed, m_committed.isEmpty());
+        assertEquals(m_openCount.get(), m_closeCount.get());
+    }
+
+    /** Tests that the failure of a batch is reported if the commit after it fails, too. */
+    @Test(timeout = 10000)
+    public void testFailingCommit() throws Exception {
+        final ExecutionMonitor exec = new ExecutionMonitor();
+        m_isCommitFailing = true;
+        final AtomicInteger brokenCount = new AtomicInteger();
+        try {
+            createWriter(555).withTransactions(false, false).write(exec, rows(exec, -1), NR_ROWS,
+                connections(4, brokenCount));
+            fail("Failing batch not reported");
+        } catch (SQLException ex) {
+            assertEquals("Row 555 is invalid", ex.getMessage());
+            assertEquals(1, ex.getSuppressed().length);
+            assertEquals("Commit failed", ex.getSuppressed()[0].getMessage());
+        }
+        assertEquals(m_openCount.get(), m_closeCount.get());
+        assertTrue("Connection with failed commit not released as broken", brokenCount.get() >= 1);
+    }
+
+    /** Tests that canceling stops writing and rolls back all changes. */
+    @Test(timeout = 10000)
+    public void testCancel() throws Exception {
+        final ExecutionMonitor exec = new ExecutionMonitor();
+        try {
+            createWriter(-1).withTransactions(false, false).write(exec, rows(exec, 300), NR_ROWS,
+                this::openConnection);
+            fail("Writing not canceled");
+        } catch (CanceledExecutionException ex) {
+            assertSame(CanceledExecutionException.class, ex.getClass());
+        }
+        assertTrue("Changes not rolled back: " + m_committed, m_committed.isEmpty());
+        assertEquals(4, m_openCount.get());
+        assertEquals(4, m_closeCount.get());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.dmg.pmml.TransformationDictionaryDocument.TransformationDictionary;
+import org.junit.Test;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.def.DoubleCell;
+
+/**
+ * Tests {@link SharedPMMLDocument} and the copy-on-write sharing of documents between {@link PMMLPortObject}s.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class SharedPMMLDocumentTest {
+
+    private static final String PMML = "<PMML xmlns=\"http://www.dmg.org/PMML-4_2\" version=\"4.2\"><Header/>"
+        + "<DataDictionary numberOfFields=\"1\">"
+        + "<DataField name=\"x\" optype=\"continuous\" dataType=\"double\"/></DataDictionary></PMML>";
+
+    private static final PMMLPortObjectSpec SPEC = new PMMLPortObjectSpecCreator(
+        new DataTableSpec(new String[]{"x"}, new DataType[]{DoubleCell.TYPE})).createSpec();
+
+    /**
+     * Checks the version probe.
+     */
+    @Test
+    public void testIsCurrentVersion() {
+        assertTrue(SharedPMMLDocument.isCurrentVersion(PMML.getBytes(StandardCharsets.UTF_8)));
+        assertFalse(SharedPMMLDocument.isCurrentVersion(
+            PMML.replace("4_2", "4_0").replace("4.2", "4.0").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Checks that a loaded document is written unchanged if it has not been accessed and parsed on access.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testLazyLoading() throws Exception {
+        final byte[] bytes = PMML.getBytes(StandardCharsets.UTF_8);
+        final PMMLPortObject port = new PMMLPortObject();
+        port.loadFrom(SPEC, new ByteArrayInputStream(bytes));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        port.save(out);
+        assertArrayEquals(bytes, out.toByteArray());
+
+        assertEquals(0, port.getDerivedFields().length);
+        final PMMLPortObject copy = new PMMLPortObject();
+        final ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+        port.save(out2);
+        copy.loadFrom(SPEC, new ByteArrayInputStream(out2.toByteArray()));
+        assertEquals(port, copy);
+    }
+
+    /**
+     * Checks that a derived port object shares the document until it is modified.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCopyOnWrite() throws Exception {
+        final PMMLPortObject port = new PMMLPortObject();
+        port.loadFrom(SPEC, new ByteArrayInputStream(PMML.getBytes(StandardCharsets.UTF_8)));
+        final PMMLPortObject derived = new PMMLPortObject(SPEC, port);
+        assertEquals(port, derived);
+
+        final TransformationDictionary dict = TransformationDictionary.Factory.newInstance();
+        dict.addNewDerivedField().setName("y");
+        derived.addGlobalTransformations(dict);
+        assertEquals(1, derived.getDerivedFields().length);
+        assertEquals(0, port.getDerivedFields().length);
+        assertFalse(port.equals(derived));
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.dmg.pmml.PMMLDocument;
+import org.dmg.pmml.TransformationDictionaryDocument.TransformationDictionary;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CellFactory;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.port.pmml.PMMLPortObject;
+import org.knime.core.node.port.pmml.PMMLPortObjectSpecCreator;
+
+/**
+ * Tests {@link PMMLEvaluator}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PMMLEvaluatorTest {
+
+    private static final String HEAD = "<PMML xmlns=\"http://www.dmg.org/PMML-4_2\" version=\"4.2\"><Header/>"
+        + "<DataDictionary numberOfFields=\"3\">"
+        + "<DataField name=\"x\" optype=\"continuous\" dataType=\"double\"/>"
+        + "<DataField name=\"color\" optype=\"categorical\" dataType=\"string\"/>"
+        + "<DataField name=\"class\" optype=\"categorical\" dataType=\"string\"/>"
+        + "</DataDictionary>";
+
+    private static final String MINING_SCHEMA = "<MiningSchema><MiningField name=\"x\"/>"
+        + "<MiningField name=\"color\"/><MiningField name=\"class\" usageType=\"predicted\"/></MiningSchema>";
+
+    private static final DataTableSpec SPEC = new DataTableSpec(new String[]{"x", "color"},
+        new DataType[]{DoubleCell.TYPE, StringCell.TYPE});
+
+    /** x &lt; 5 and color red: A, x &lt; 5 otherwise: B, x &gt;= 5: C. */
+    private static String tree(final String missingValueStrategy) {
+        return "<TreeModel functionName=\"classification\" missingValueStrategy=\"" + missingValueStrategy + "\">"
+            + MINING_SCHEMA + "<Node score=\"B\"><True/>"
+            + "<Node score=\"B\"><SimplePredicate field=\"x\" operator=\"lessThan\" value=\"5\"/>"
+            + "<Node score=\"A\"><SimpleSetPredicate field=\"color\" booleanOperator=\"isIn\">"
+            + "<Array n=\"2\" type=\"string\">red \"dark red\"</Array></SimpleSetPredicate></Node>"
+            + "<Node score=\"B\"><True/></Node></Node>"
+            + "<Node score=\"C\"><SimplePredicate field=\"x\" operator=\"greaterOrEqual\" value=\"5\"/></Node>"
+            + "</Node></TreeModel>";
+    }
+
+    private static PMMLEvaluator compile(final String body) throws Exception {
+        return PMMLEvaluator.compile(PMMLDocument.Factory.parse(HEAD + body + "</PMML>"));
+    }
+
+    private static DataCell score(final CellFactory factory, final DataCell x, final DataCell color) {
+        return factory.getCells(new DefaultRow(RowKey.createRowKey(0L), x, color))[0];
+    }
+
+    /**
+     * Checks tree traversal, set predicates and the missing value strategies.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testTreeModel() throws Exception {
+        PMMLEvaluator evaluator = compile(tree("lastPrediction"));
+        assertTrue(evaluator.isClassification());
+        assertEquals("class", evaluator.getTargetName());
+        DataColumnSpec predictionSpec = evaluator.getPredictionColumnSpec();
+        assertEquals("Prediction (class)", predictionSpec.getName());
+        assertEquals(StringCell.TYPE, predictionSpec.getType());
+        assertEquals(3, predictionSpec.getDomain().getValues().size());
+
+        CellFactory factory = evaluator.createCellFactory(SPEC);
+        assertEquals(new StringCell("A"), score(factory, new DoubleCell(1), new StringCell("red")));
+        assertEquals(new StringCell("A"), score(factory, new DoubleCell(1), new StringCell("dark red")));
+        assertEquals(new StringCell("B"), score(factory, new DoubleCell(1), new StringCell("blue")));
+        assertEquals(new StringCell("C"), score(factory, new DoubleCell(7), new StringCell("red")));
+        // x is missing: the prediction of the root node
+        assertEquals(new StringCell("B"), score(factory, DataType.getMissingCell(), new StringCell("red")));
+
+        factory = compile(tree("nullPrediction")).createCellFactory(SPEC);
+        assertTrue(score(factory, DataType.getMissingCell(), new StringCell("red")).isMissing());
+        assertEquals(new StringCell("C"), score(factory, new DoubleCell(7), DataType.getMissingCell()));
+    }
+
+    /**
+     * Checks a regression model operating on a derived field of the transformation dictionary.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRegressionModelWithTransformations() throws Exception {
+        PMMLEvaluator evaluator = compile("<TransformationDictionary>"
+            + "<DerivedField name=\"x*\" optype=\"continuous\" dataType=\"double\">"
+            + "<NormContinuous field=\"x\"><LinearNorm orig=\"0\" norm=\"0\"/><LinearNorm orig=\"10\" norm=\"1\"/>"
+            + "</NormContinuous></DerivedField></TransformationDictionary>"
+            + "<RegressionModel functionName=\"regression\">" + MINING_SCHEMA
+            + "<RegressionTable intercept=\"1\"><NumericPredictor name=\"x*\" coefficient=\"4\"/>"
+            + "<CategoricalPredictor name=\"color\" value=\"red\" coefficient=\"10\"/></RegressionTable>"
+            + "</RegressionModel>");
+        assertFalse(evaluator.isClassification());
+        CellFactory factory = evaluator.createCellFactory(SPEC);
+        assertEquals(new DoubleCell(3), score(factory, new DoubleCell(5), new StringCell("blue")));
+        assertEquals(new DoubleCell(13), score(factory, new DoubleCell(5), new StringCell("red")));
+        assertTrue(score(factory, DataType.getMissingCell(), new StringCell("red")).isMissing());
+    }
+
+    /**
+     * Checks a majority vote of tree segments.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testMiningModel() throws Exception {
+        String segment = "<Segment><True/>" + tree("none") + "</Segment>";
+        String alwaysC = "<Segment><True/><TreeModel functionName=\"classification\">" + MINING_SCHEMA
+            + "<Node score=\"C\"><True/></Node></TreeModel></Segment>";
+        PMMLEvaluator evaluator = compile("<MiningModel functionName=\"classification\">" + MINING_SCHEMA
+            + "<Segmentation multipleModelMethod=\"majorityVote\">" + segment + segment + alwaysC
+            + "</Segmentation></MiningModel>");
+        CellFactory factory = evaluator.createCellFactory(SPEC);
+        assertEquals(new StringCell("A"), score(factory, new DoubleCell(1), new StringCell("red")));
+        assertEquals(new StringCell("C"), score(factory, new DoubleCell(9), new StringCell("red")));
+        // the trees make no prediction, only the last segment votes
+        assertEquals(new StringCell("C"), score(factory, DataType.getMissingCell(), new StringCell("red")));
+    }
+
+    /**
+     * Checks that unsupported models and missing input columns are reported.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testUnsupported() throws Exception {
+        try {
+            compile("<ClusteringModel functionName=\"clustering\" modelClass=\"centerBased\" numberOfClusters=\"0\">"
+                + MINING_SCHEMA + "</ClusteringModel>");
+            throw new AssertionError("Clustering models are not supported");
+        } catch (InvalidSettingsException e) {
+            // expected
+        }
+        try {
+            compile(tree("none")).createCellFactory(new DataTableSpec(new String[]{"x"},
+                new DataType[]{DoubleCell.TYPE}));
+            throw new AssertionError("Column \"color\" is missing");
+        } catch (InvalidSettingsException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Checks that the port object caches the compiled evaluator until it is modified.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCachedOnPortObject() throws Exception {
+        PMMLPortObject port = new PMMLPortObject(new PMMLPortObjectSpecCreator(SPEC).createSpec(),
+            PMMLDocument.Factory.parse(HEAD + tree("none") + "</PMML>"));
+        PMMLEvaluator evaluator = port.getEvaluator();
+        assertSame(evaluator, port.getEvaluator());
+        // nothing to move, the document is unchanged
+        port.moveGlobalTransformationsToModel();
+        assertSame(evaluator, port.getEvaluator());
+
+        PMMLPortObject derived = new PMMLPortObject(port.getSpec(), port);
+        assertSame(evaluator, derived.getEvaluator());
+        derived.addGlobalTransformations(TransformationDictionary.Factory.newInstance());
+        assertNotSame(evaluator, derived.getEvaluator());
+        assertSame(evaluator, port.getEvaluator());
+    }
+}
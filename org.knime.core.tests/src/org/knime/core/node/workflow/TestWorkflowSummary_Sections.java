@@ -0,0 +1,136 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.workflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.util.workflowsummary.WorkflowSummaryConfiguration;
+import org.knime.core.util.workflowsummary.WorkflowSummaryConfiguration.SummaryFormat;
+import org.knime.core.util.workflowsummary.WorkflowSummaryConfiguration.SummarySection;
+import org.knime.core.util.workflowsummary.WorkflowSummaryGenerator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Tests that the workflow summary only contains the selected sections and that these are the same as in the full
+ * summary. Uses the workflow of {@link TestSubnode_ErrorMessages}, which contains components and metanodes.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TestWorkflowSummary_Sections extends WorkflowTestCase {
+
+    /**
+     * Loads the workflow.
+     *
+     * @throws Exception if the workflow can't be loaded
+     */
+    @Before
+    public void setUp() throws Exception {
+        loadAndSetWorkflow(getWorkflowDirectory("testSubnode_ErrorMessages"));
+    }
+
+    /** @return the summary without the creation time */
+    private JsonNode generateSummary(final SummarySection... sections) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorkflowSummaryGenerator.generate(getManager(), out,
+            WorkflowSummaryConfiguration.builder(SummaryFormat.JSON).sections(sections).build());
+        final JsonNode summary = new ObjectMapper().readTree(out.toByteArray());
+        ((ObjectNode)summary).remove("summaryCreationDateTime");
+        return summary;
+    }
+
+    /** Removes all sections but the node settings from the summary of the workflow and its sub-workflows. */
+    private static void removeOtherSections(final JsonNode workflow) {
+        ((ObjectNode)workflow).remove("annotations");
+        ((ObjectNode)workflow).remove("metadata");
+        for (JsonNode node : workflow.path("nodes")) {
+            ((ObjectNode)node).remove("annotation");
+            ((ObjectNode)node).remove("nodeMessage");
+            ((ObjectNode)node).remove("outputs");
+            ((ObjectNode)node).remove("jobManager");
+            if (node.has("subWorkflow")) {
+                removeOtherSections(node.get("subWorkflow"));
+            }
+        }
+    }
+
+    private void assertSettingsOnly() throws Exception {
+        final JsonNode expected = generateSummary(SummarySection.values());
+        assertNotNull(expected.get("workflow"));
+        assertTrue(expected.toString().contains("\"settings\""));
+        removeOtherSections(expected.get("workflow"));
+        assertEquals(expected, generateSummary(SummarySection.NODE_SETTINGS));
+    }
+
+    /**
+     * Compares the summaries of the configured workflow, for which the settings of the nodes are summarized.
+     *
+     * @throws Exception if the summary can't be generated
+     */
+    @Test
+    public void testConfiguredWorkflow() throws Exception {
+        assertSettingsOnly();
+    }
+
+    /**
+     * Compares the summaries of the executed workflow, for which the settings with the values of the flow variables
+     * are summarized.
+     *
+     * @throws Exception if the summary can't be generated
+     */
+    @Test
+    public void testExecutedWorkflow() throws Exception {
+        executeAllAndWait();
+        assertSettingsOnly();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link OrderedTaskWindow}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class OrderedTaskWindowTest {
+
+    /**
+     * Tests that the results are returned in order, that no more tasks than the window size are submitted ahead and
+     * that tasks that are not run yield <code>null</code>.
+     *
+     * @throws Exception not expected
+     */
+    @Test(timeout = 10000)
+    public void testOrderAndWindow() throws Exception {
+        final AtomicInteger submitted = new AtomicInteger();
+        try (OrderedTaskWindow<Integer> window = new OrderedTaskWindow<>(new ThreadPool(4), 3, 20, i -> {
+            submitted.incrementAndGet();
+            if (i % 5 == 0) {
+                return null;
+            }
+            return () -> {
+                Thread.sleep(20 - i);
+                return i;
+            };
+        }, "computing")) {
+            assertEquals(3, submitted.get());
+            for (int i = 0; i < 20; i++) {
+                assertTrue(window.hasNext());
+                final Integer result = window.next();
+                if (i % 5 == 0) {
+                    assertNull(result);
+                } else {
+                    assertEquals(i, result.intValue());
+                }
+                // the task of the previous result is replaced once the next result is taken
+                assertEquals(Math.min(20, i + 3), submitted.get());
+            }
+            assertFalse(window.hasNext());
+        }
+    }
+
+    /**
+     * Tests that failures of tasks are rethrown by the consumer.
+     *
+     * @throws Exception not expected
+     */
+    @Test(timeout = 10000)
+    public void testFailure() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("failed");
+        try (OrderedTaskWindow<Integer> window = new OrderedTaskWindow<>(new ThreadPool(2), 2, 3, i -> () -> {
+            if (i == 1) {
+                throw failure;
+            }
+            return i;
+        }, "computing")) {
+            assertEquals(0, window.next().intValue());
+            window.next();
+            fail("Failure not rethrown");
+        } catch (IllegalStateException ex) {
+            assertSame(failure, ex);
+        }
+
+        try (OrderedTaskWindow<Integer> window = new OrderedTaskWindow<>(new ThreadPool(2), 2, 1, i -> () -> {
+            throw new Exception("checked");
+        }, "computing")) {
+            window.next();
+            fail("Failure not rethrown");
+        } catch (RuntimeException ex) {
+            assertEquals("Computing failed: checked", ex.getMessage());
+        }
+    }
+
+    /**
+     * Tests that closing the window cancels the tasks whose results haven't been taken.
+     *
+     * @throws Exception not expected
+     */
+    @Test(timeout = 10000)
+    public void testClose() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Callable<Integer> blocking = () -> {
+            started.countDown();
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return 0;
+        };
+        try (OrderedTaskWindow<Integer> window =
+            new OrderedTaskWindow<>(new ThreadPool(2), 2, 2, i -> blocking, "computing")) {
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        }
+        assertTrue("Running task not interrupted", interrupted.await(5, TimeUnit.SECONDS));
+    }
+}
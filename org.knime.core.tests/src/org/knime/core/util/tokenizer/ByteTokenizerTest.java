@@ -0,0 +1,208 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util.tokenizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ByteTokenizer}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ByteTokenizerTest {
+
+    /** Temporary folder for test files. */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+
+    private static List<String> tokenize(final ByteTokenizer tokenizer) {
+        List<String> result = new ArrayList<>();
+        while (tokenizer.next()) {
+            result.add(tokenizer.getToken(StandardCharsets.UTF_8) + (tokenizer.isEndOfRecord() ? "|" : ""));
+        }
+        return result;
+    }
+
+    private static ByteBuffer wrap(final String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TokenizerSettings csvSettings() {
+        TokenizerSettings settings = new TokenizerSettings();
+        settings.addDelimiterPattern(",", false, false, false);
+        settings.addDelimiterPattern("\n", false, true, false);
+        settings.addQuotePattern("\"", "\"", '\\');
+        settings.addWhiteSpaceCharacter(' ');
+        return settings;
+    }
+
+    /**
+     * Tests plain tokens, empty tokens, and record ends (including long
+     * tokens crossing the eight byte scan words and CR/LF line ends).
+     */
+    @Test
+    public void testSimpleTokens() {
+        ByteTokenizer t =
+            new ByteTokenizer(wrap("a,bb,,0123456789abcdefghij\r\nxyz,\n\nlast"), ',', -1, -1, false);
+        assertEquals("[a, bb, , 0123456789abcdefghij|, xyz, |, |, last|]", tokenize(t).toString());
+    }
+
+    /**
+     * Tests quoted tokens with delimiters and escaped quotes inside.
+     */
+    @Test
+    public void testQuotes() {
+        ByteTokenizer t = ByteTokenizer.create(wrap("\"a,b\", \"c\\\"d\" ,x\"y\"z\n"), csvSettings());
+        assertTrue(t.next());
+        assertTrue(t.isQuoted());
+        assertEquals("a,b", t.getToken(StandardCharsets.UTF_8));
+        assertEquals(0, t.getTokenStart());
+        assertEquals(5, t.getTokenEnd());
+        assertTrue(t.next());
+        assertTrue(t.hasEscapedChars());
+        assertEquals("c\"d", t.getToken(StandardCharsets.UTF_8));
+        assertTrue(t.next());
+        assertEquals("xyz", t.getToken(StandardCharsets.UTF_8));
+        assertTrue(t.isEndOfRecord());
+        assertFalse(t.next());
+    }
+
+    /**
+     * Tests that new lines in quotes are rejected unless allowed.
+     */
+    @Test
+    public void testNewLineInQuotes() {
+        ByteTokenizer t = new ByteTokenizer(wrap("\"a\nb\",c\n"), ',', '"', -1, true);
+        assertEquals("[a\nb, c|]", tokenize(t).toString());
+        ByteTokenizer t2 = new ByteTokenizer(wrap("\"a\nb\",c\n"), ',', '"', -1, false);
+        try {
+            t2.next();
+            throw new AssertionError("New line in quotes not detected");
+        } catch (TokenizerException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that an escape character identical to the quote is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testEscapeEqualsQuote() {
+        new ByteTokenizer(wrap("\"a\"\"b\"\n"), ',', '"', '"', false);
+    }
+
+    /**
+     * Tests the detection of settings supported by the byte tokenizer.
+     */
+    @Test
+    public void testIsApplicable() {
+        assertTrue(ByteTokenizer.isApplicable(csvSettings()));
+        TokenizerSettings multiChar = csvSettings();
+        multiChar.addDelimiterPattern("::", false, false, false);
+        assertFalse(ByteTokenizer.isApplicable(multiChar));
+        TokenizerSettings comments = csvSettings();
+        comments.addSingleLineCommentPattern("#", false, false);
+        assertFalse(ByteTokenizer.isApplicable(comments));
+        TokenizerSettings escapeIsQuote = new TokenizerSettings();
+        escapeIsQuote.addDelimiterPattern(",", false, false, false);
+        escapeIsQuote.addDelimiterPattern("\n", false, true, false);
+        escapeIsQuote.addQuotePattern("\"", "\"", '"');
+        assertFalse(ByteTokenizer.isApplicable(escapeIsQuote));
+        // the line feed must end the records
+        TokenizerSettings noLineFeed = new TokenizerSettings();
+        noLineFeed.addDelimiterPattern(",", false, false, false);
+        assertFalse(ByteTokenizer.isApplicable(noLineFeed));
+        TokenizerSettings lineFeedNotReturned = new TokenizerSettings();
+        lineFeedNotReturned.addDelimiterPattern(",", false, false, false);
+        lineFeedNotReturned.addDelimiterPattern("\n", false, false, false);
+        assertFalse(ByteTokenizer.isApplicable(lineFeedNotReturned));
+    }
+
+    /**
+     * Tests that splitting a file into ranges and tokenizing them
+     * independently returns the same tokens as tokenizing the entire file.
+     *
+     * @throws IOException if the test file can't be written
+     */
+    @Test
+    public void testSplitIntoRanges() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            content.append("Row").append(i).append(',').append(i * 0.5).append(",\"text ").append(i).append("\"\n");
+        }
+        File file = m_tempFolder.newFile("test.csv");
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        List<String> expected = tokenize(new ByteTokenizer(wrap(content.toString()), ',', '"', -1, false));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<ByteTokenizer.Range> ranges = ByteTokenizer.splitIntoRanges(channel, 7);
+            assertEquals(7, ranges.size());
+            List<String> actual = new ArrayList<>();
+            long pos = 0;
+            for (ByteTokenizer.Range range : ranges) {
+                assertEquals(pos, range.getStart());
+                pos = range.getEnd();
+                actual.addAll(tokenize(new ByteTokenizer(ByteTokenizer.mapRange(channel, range), ',', '"', -1, false)));
+            }
+            assertEquals(channel.size(), pos);
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -47,6 +47,7 @@
 package org.knime.core.data;
 
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** Cell implementation to {@linkplain MissingValue}.
  *
@@ -57,6 +58,15 @@
 public final class MissingCell extends DataCell implements MissingValue {
     static final MissingCell INSTANCE = new MissingCell(null);
 
+    /** Maximum number of shared cells with an error message (see {@link MissingSerializer}). */
+    private static final int MAX_SHARED_ERROR_CELLS = 1024;
+
+    /** Maximum length of the error message of a shared cell. */
+    private static final int MAX_SHARED_ERROR_LENGTH = 256;
+
+    /** Shared cells per error message, which are returned when reading tables. Bounded, entries are never removed. */
+    private static final ConcurrentHashMap<String, MissingCell> SHARED_ERROR_CELLS = new ConcurrentHashMap<>();
+
     /**
      * Returns the factory to read/write DataCells of this class from/to a
      * DataInput/DataOutput. This method is called via reflection.
@@ -144,6 +154,24 @@ public int hashCode() {
         return 42;
     }
 
+    /**
+     * Returns a shared cell for the error message unless too many different messages have been encountered (or the
+     * message is too long), in which case a new cell is returned.
+     */
+    private static MissingCell getSharedErrorCell(final String error) {
+        MissingCell cell = SHARED_ERROR_CELLS.get(error);
+        if (cell == null) {
+            cell = new MissingCell(error);
+            if (error.length() <= MAX_SHARED_ERROR_LENGTH && SHARED_ERROR_CELLS.size() < MAX_SHARED_ERROR_CELLS) {
+                final MissingCell existing = SHARED_ERROR_CELLS.putIfAbsent(error, cell);
+                if (existing != null) {
+                    cell = existing;
+                }
+            }
+        }
+        return cell;
+    }
+
     /**
      * Factory for (de-)serializing a MissingCell.
      *
@@ -168,7 +196,7 @@ public void serialize(final MissingCell cell, final DataCellDataOutput output) t
         public MissingCell deserialize(final DataCellDataInput input) throws IOException {
             byte mask = input.readByte();
             if ((mask & ERROR_SET_BIT) != (byte)0) {
-                return new MissingCell(input.readUTF());
+                return getSharedErrorCell(input.readUTF());
             } else {
                 return MissingCell.INSTANCE;
             }
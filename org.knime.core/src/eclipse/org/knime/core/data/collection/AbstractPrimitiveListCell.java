@@ -0,0 +1,250 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.collection;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Iterator;
+
+import org.knime.core.data.DataCell;
+
+/**
+ * Base class of the list cells that keep their elements in a primitive array instead of a list of {@link DataCell}
+ * objects. Elements are materialized as cells only when they are accessed through the {@link ListDataValue}
+ * interface. Hash code and string representation are identical to the ones of a {@link ListCell} with the same
+ * elements, and both compare equal.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+abstract class AbstractPrimitiveListCell extends ListCell {
+
+    /** Number of elements converted per bulk read or write. */
+    private static final int IO_CHUNK_SIZE = 8192;
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterator<DataCell> iterator() {
+        return asList().iterator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsBlobWrapperCells() {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        final int size = size();
+        final StringBuilder b = new StringBuilder(size * 8 + 2);
+        b.append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                b.append(", ");
+            }
+            appendElement(b, i);
+        }
+        return b.append(']').toString();
+    }
+
+    /**
+     * Appends the string representation of the element at the given index as returned by the corresponding cell's
+     * <code>toString()</code>.
+     *
+     * @param b to append to
+     * @param index the element index
+     */
+    abstract void appendElement(StringBuilder b, int index);
+
+    /**
+     * Creates a {@link BlobSupportDataCellList} with the materialized elements. Only used by subclasses of
+     * {@link ListCell} that access the list directly; the list is not cached.
+     */
+    @Override
+    protected BlobSupportDataCellList getList() {
+        return BlobSupportDataCellList.create(asList());
+    }
+
+    private AbstractList<DataCell> asList() {
+        return new AbstractList<DataCell>() {
+            @Override
+            public DataCell get(final int index) {
+                return AbstractPrimitiveListCell.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return AbstractPrimitiveListCell.this.size();
+            }
+        };
+    }
+
+    /**
+     * Reads and validates the number of elements as written by the serializers.
+     *
+     * @param input to read from
+     * @return the non-negative size
+     * @throws IOException if reading fails or the size is invalid
+     */
+    static int readSize(final DataInput input) throws IOException {
+        final int size = input.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid size: " + size);
+        }
+        return size;
+    }
+
+    /**
+     * Writes the values in big-endian order (i.e. the format of {@link DataOutput#writeDouble(double)}), converting chunks
+     * of values at once instead of writing them one by one.
+     *
+     * @param output to write to
+     * @param values to write
+     * @throws IOException if writing fails
+     */
+    static void writeDoubles(final DataOutput output, final double[] values) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.min(values.length, IO_CHUNK_SIZE) * Double.BYTES);
+        for (int start = 0; start < values.length; start += IO_CHUNK_SIZE) {
+            final int length = Math.min(IO_CHUNK_SIZE, values.length - start);
+            buffer.asDoubleBuffer().put(values, start, length);
+            output.write(buffer.array(), 0, length * Double.BYTES);
+        }
+    }
+
+    /**
+     * Reads values as written by {@link #writeDoubles(DataOutput, double[])}.
+     *
+     * @param input to read from
+     * @param size the number of values to read
+     * @return the values
+     * @throws IOException if reading fails
+     */
+    static double[] readDoubles(final DataInput input, final int size) throws IOException {
+        final double[] values = new double[size];
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.min(size, IO_CHUNK_SIZE) * Double.BYTES);
+        for (int start = 0; start < size; start += IO_CHUNK_SIZE) {
+            final int length = Math.min(IO_CHUNK_SIZE, size - start);
+            input.readFully(buffer.array(), 0, length * Double.BYTES);
+            buffer.asDoubleBuffer().get(values, start, length);
+        }
+        return values;
+    }
+
+    /**
+     * Writes the values in big-endian order (i.e. the format of {@link DataOutput#writeInt(int)}), converting chunks
+     * of values at once instead of writing them one by one.
+     *
+     * @param output to write to
+     * @param values to write
+     * @throws IOException if writing fails
+     */
+    static void writeInts(final DataOutput output, final int[] values) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.min(values.length, IO_CHUNK_SIZE) * Integer.BYTES);
+        for (int start = 0; start < values.length; start += IO_CHUNK_SIZE) {
+            final int length = Math.min(IO_CHUNK_SIZE, values.length - start);
+            buffer.asIntBuffer().put(values, start, length);
+            output.write(buffer.array(), 0, length * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Reads values as written by {@link #writeInts(DataOutput, int[])}.
+     *
+     * @param input to read from
+     * @param size the number of values to read
+     * @return the values
+     * @throws IOException if reading fails
+     */
+    static int[] readInts(final DataInput input, final int size) throws IOException {
+        final int[] values = new int[size];
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.min(size, IO_CHUNK_SIZE) * Integer.BYTES);
+        for (int start = 0; start < size; start += IO_CHUNK_SIZE) {
+            final int length = Math.min(IO_CHUNK_SIZE, size - start);
+            input.readFully(buffer.array(), 0, length * Integer.BYTES);
+            buffer.asIntBuffer().get(values, start, length);
+        }
+        return values;
+    }
+
+    /**
+     * Writes the values in big-endian order (i.e. the format of {@link DataOutput#writeLong(long)}), converting chunks
+     * of values at once instead of writing them one by one.
+     *
+     * @param output to write to
+     * @param values to write
+     * @throws IOException if writing fails
+     */
+    static void writeLongs(final DataOutput output, final long[] values) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.min(values.length, IO_CHUNK_SIZE) * Long.BYTES);
+        for (int start = 0; start < values.length; start += IO_CHUNK_SIZE) {
+            final int length = Math.min(IO_CHUNK_SIZE, values.length - start);
+            buffer.asLongBuffer().put(values, start, length);
+            output.write(buffer.array(), 0, length * Long.BYTES);
+        }
+    }
+
+    /**
+     * Reads values as written by {@link #writeLongs(DataOutput, long[])}.
+     *
+     * @param input to read from
+     * @param size the number of values to read
+     * @return the values
+     * @throws IOException if reading fails
+     */
+    static long[] readLongs(final DataInput input, final int size) throws IOException {
+        final long[] values = new long[size];
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.min(size, IO_CHUNK_SIZE) * Long.BYTES);
+        for (int start = 0; start < size; start += IO_CHUNK_SIZE) {
+            final int length = Math.min(IO_CHUNK_SIZE, size - start);
+            input.readFully(buffer.array(), 0, length * Long.BYTES);
+            buffer.asLongBuffer().get(values, start, length);
+        }
+        return values;
+    }
+}
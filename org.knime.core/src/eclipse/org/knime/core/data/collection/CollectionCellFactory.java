@@ -53,11 +53,16 @@
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
 import org.knime.core.data.container.BlobSupportDataRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
 import org.knime.core.node.BufferedDataTable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 
 /**
  * Factory class used to create {@link DataCell}s that contain a collection of
@@ -78,6 +83,10 @@ private CollectionCellFactory() {
      * If the underlying collection stems from a {@link DataRow} (as read from a
      * any table), consider to use {@link #createListCell(DataRow, int[])} in
      * order to minimize cell access.
+     * <p>
+     * If the collection is not empty and all its elements are {@link DoubleCell}s, {@link IntCell}s,
+     * {@link LongCell}s or {@link StringCell}s (but not subclasses thereof), the returned cell is a
+     * {@link DoubleListCell}, {@link IntListCell}, {@link LongListCell} or {@link StringListCell}, respectively.
      *
      * @param coll The underlying collection.
      * @return The newly created {@link ListCell}.
@@ -86,10 +95,125 @@ private CollectionCellFactory() {
      */
     public static ListCell createListCell(
             final Collection<? extends DataCell> coll) {
+        final ListCell primitiveList = createPrimitiveListCell(coll);
+        if (primitiveList != null) {
+            return primitiveList;
+        }
         final BlobSupportDataCellList l = BlobSupportDataCellList.create(coll);
         return new ListCell(l);
     }
 
+    /**
+     * Creates a primitive array backed list cell if all elements are of the same supported cell class.
+     *
+     * @return the new cell or null if the elements don't allow for it
+     */
+    private static ListCell createPrimitiveListCell(final Collection<? extends DataCell> coll) {
+        final Iterator<? extends DataCell> it = coll.iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        final DataCell first = it.next();
+        if (first == null) {
+            throw new NullPointerException("List element must not be null");
+        }
+        final Class<? extends DataCell> cellClass = first.getClass();
+        if (cellClass != DoubleCell.class && cellClass != IntCell.class && cellClass != LongCell.class
+            && cellClass != StringCell.class) {
+            return null;
+        }
+        while (it.hasNext()) {
+            final DataCell c = it.next();
+            if (c == null) {
+                throw new NullPointerException("List element must not be null");
+            }
+            if (c.getClass() != cellClass) {
+                return null;
+            }
+        }
+        final int size = coll.size();
+        int i = 0;
+        if (cellClass == DoubleCell.class) {
+            final double[] values = new double[size];
+            for (DataCell c : coll) {
+                values[i++] = ((DoubleCell)c).getDoubleValue();
+            }
+            return new DoubleListCell(values);
+        } else if (cellClass == IntCell.class) {
+            final int[] values = new int[size];
+            for (DataCell c : coll) {
+                values[i++] = ((IntCell)c).getIntValue();
+            }
+            return new IntListCell(values);
+        } else if (cellClass == LongCell.class) {
+            final long[] values = new long[size];
+            for (DataCell c : coll) {
+                values[i++] = ((LongCell)c).getLongValue();
+            }
+            return new LongListCell(values);
+        } else {
+            final String[] values = new String[size];
+            for (DataCell c : coll) {
+                values[i++] = ((StringCell)c).getStringValue();
+            }
+            return new StringListCell(values);
+        }
+    }
+
+    /**
+     * Creates a list of {@link DoubleCell}s backed by a copy of the given array.
+     *
+     * @param values the values
+     * @return a new {@link DoubleListCell}
+     * @throws NullPointerException if the argument is null
+     * @since 4.2
+     */
+    public static DoubleListCell createDoubleListCell(final double[] values) {
+        return new DoubleListCell(values.clone());
+    }
+
+    /**
+     * Creates a list of {@link IntCell}s backed by a copy of the given array.
+     *
+     * @param values the values
+     * @return a new {@link IntListCell}
+     * @throws NullPointerException if the argument is null
+     * @since 4.2
+     */
+    public static IntListCell createIntListCell(final int[] values) {
+        return new IntListCell(values.clone());
+    }
+
+    /**
+     * Creates a list of {@link LongCell}s backed by a copy of the given array.
+     *
+     * @param values the values
+     * @return a new {@link LongListCell}
+     * @throws NullPointerException if the argument is null
+     * @since 4.2
+     */
+    public static LongListCell createLongListCell(final long[] values) {
+        return new LongListCell(values.clone());
+    }
+
+    /**
+     * Creates a list of {@link StringCell}s backed by a copy of the given array.
+     *
+     * @param values the values
+     * @return a new {@link StringListCell}
+     * @throws NullPointerException if the argument or one of its elements is null
+     * @since 4.2
+     */
+    public static StringListCell createStringListCell(final String[] values) {
+        final String[] copy = values.clone();
+        for (String v : copy) {
+            if (v == null) {
+                throw new NullPointerException("List element must not be null");
+            }
+        }
+        return new StringListCell(copy);
+    }
+
     /**
      * Creates a new {@link ListCell} based on selected cells from a
      * {@link DataRow}. Using this method will check if the row is returned by
@@ -102,9 +226,15 @@ public static ListCell createListCell(
      * @throws IndexOutOfBoundsException If the indices are invalid.
      */
     public static ListCell createListCell(final DataRow row, final int[] cols) {
-        final BlobSupportDataCellList l =
-            BlobSupportDataCellList.create(row, cols);
-        return new ListCell(l);
+        final ArrayList<DataCell> coll = new ArrayList<DataCell>(cols.length);
+        for (int i = 0; i < cols.length; i++) {
+            if (row instanceof BlobSupportDataRow) {
+                coll.add(((BlobSupportDataRow)row).getRawCell(cols[i]));
+            } else {
+                coll.add(row.getCell(cols[i]));
+            }
+        }
+        return createListCell(coll);
     }
 
     /**
@@ -58,6 +58,7 @@
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataType;
 import org.knime.core.data.DataTypeRegistry;
+import org.knime.core.data.DataValue;
 
 /**
  * Default implementation of a {@link CollectionDataValue}, whereby the
@@ -102,6 +103,15 @@ protected ListCell(final BlobSupportDataCellList list) {
         m_list = list;
     }
 
+    /**
+     * Constructor for the primitive array backed subclasses, which override all methods accessing the list.
+     *
+     * @see AbstractPrimitiveListCell
+     */
+    ListCell() {
+        m_list = null;
+    }
+
     /** {@inheritDoc} */
     @Override
     public DataType getElementType() {
@@ -143,6 +153,30 @@ protected boolean equalsDataCell(final DataCell dc) {
         return m_list.equals(((ListCell)dc).m_list);
     }
 
+    /**
+     * Compares the elements with the elements of another list, e.g. to compare a {@link ListCell} with a
+     * {@link DoubleListCell} containing the same values.
+     *
+     * @since 4.2
+     */
+    @Override
+    protected boolean equalContent(final DataValue otherValue) {
+        if (!(otherValue instanceof ListDataValue)) {
+            return false;
+        }
+        final ListDataValue other = (ListDataValue)otherValue;
+        final int size = size();
+        if (size != other.size()) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!get(i).equals(other.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
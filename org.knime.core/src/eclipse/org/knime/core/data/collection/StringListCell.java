@@ -0,0 +1,159 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.collection;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataCellDataInput;
+import org.knime.core.data.DataCellDataOutput;
+import org.knime.core.data.DataCellSerializer;
+import org.knime.core.data.DataType;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * A {@link ListCell} of {@link StringCell}s that keeps its elements in a <code>String[]</code>. It is created by the
+ * {@link CollectionCellFactory} whenever all elements of a new list are {@link StringCell}s and is equal to a
+ * {@link ListCell} with the same elements. Its serializer writes the strings directly instead of one cell per
+ * element.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class StringListCell extends AbstractPrimitiveListCell {
+
+    private final String[] m_values;
+
+    /**
+     * Rather use one of the factory methods.
+     *
+     * @param values the non-null values, not copied
+     * @see CollectionCellFactory#createStringListCell(String[])
+     */
+    StringListCell(final String[] values) {
+        m_values = values;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataType getElementType() {
+        return StringCell.TYPE;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataCell get(final int index) {
+        return new StringCell(m_values[index]);
+    }
+
+    /**
+     * Returns the value at the given position without creating a cell.
+     *
+     * @param index the position of the element
+     * @return the value at that position
+     * @throws ArrayIndexOutOfBoundsException if the index is invalid
+     */
+    public String getString(final int index) {
+        return m_values[index];
+    }
+
+    /**
+     * @return a copy of all values
+     */
+    public String[] getStringArray() {
+        return m_values.clone();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return m_values.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean equalsDataCell(final DataCell dc) {
+        return Arrays.equals(m_values, ((StringListCell)dc).m_values);
+    }
+
+    /** Same as the hash code of a {@link ListCell} containing the corresponding {@link StringCell}s. */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(m_values);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    void appendElement(final StringBuilder b, final int index) {
+        b.append(m_values[index]);
+    }
+
+    /**
+     * Serializer for {@link StringListCell}s.
+     *
+     * @noreference This class is not intended to be referenced by clients.
+     */
+    public static final class StringListCellSerializer implements DataCellSerializer<StringListCell> {
+        /** {@inheritDoc} */
+        @Override
+        public StringListCell deserialize(final DataCellDataInput input) throws IOException {
+            final String[] values = new String[readSize(input)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = input.readUTF();
+            }
+            return new StringListCell(values);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void serialize(final StringListCell cell, final DataCellDataOutput output) throws IOException {
+            output.writeInt(cell.m_values.length);
+            for (final String value : cell.m_values) {
+                output.writeUTF(value);
+            }
+        }
+    }
+}
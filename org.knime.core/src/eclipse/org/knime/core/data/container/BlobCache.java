@@ -0,0 +1,401 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.knime.core.data.container.BlobDataCell.BlobAddress;
+import org.knime.core.data.util.memory.MemoryAlert;
+import org.knime.core.data.util.memory.MemoryAlertListener;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * A cache for {@link BlobDataCell BlobDataCells} read from disk that is shared by all {@link Buffer Buffers}. It
+ * replaces the per-buffer LRU map of soft references, which was guarded by a single lock and bounded by the number of
+ * entries only.
+ * <p>
+ * The cache is split into a number of segments, each guarded by its own lock and each holding an access ordered map
+ * of (hard-referenced) blobs. Entries are weighted by the decoded size of the blob and each segment evicts least
+ * recently used entries once its share of the global byte budget is exceeded. Blobs that are too large for a segment
+ * are only softly referenced. The entire cache is cleared when memory becomes scarce (see {@link MemoryAlertSystem}).
+ * <p>
+ * Blobs are loaded when first accessed, on the accessing thread.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class BlobCache {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(BlobCache.class);
+
+    /** See {@link KNIMEConstants#PROPERTY_BLOB_CACHE_SIZE}. */
+    static final String PROPERTY_BLOB_CACHE_SIZE = KNIMEConstants.PROPERTY_BLOB_CACHE_SIZE;
+
+    /** Default budget: 5% of the heap, but no more than 512MB. */
+    static final long DEF_BLOB_CACHE_SIZE = Math.min(Runtime.getRuntime().maxMemory() / 20, 512L << 20);
+
+    /** The number of segments, must be a power of 2. */
+    private static final int NR_SEGMENTS = 16;
+
+    /** Size overhead assumed for each entry (object headers, map entry). */
+    private static final long ENTRY_OVERHEAD = 64;
+
+    /** Reads a blob from disk. */
+    @FunctionalInterface
+    interface BlobLoader {
+        /**
+         * @return the blob cell, not null
+         * @throws IOException if reading fails
+         */
+        BlobDataCell load() throws IOException;
+
+        /**
+         * Called after {@link #load()}.
+         *
+         * @return the (estimated) decoded size of the blob in bytes, i.e. its size in memory
+         */
+        default long getWeight() {
+            return 0L;
+        }
+    }
+
+    private final Segment[] m_segments;
+
+    private final long m_budget;
+
+    /** Blobs too large to be held by a segment, only softly referenced. */
+    private final Map<Key, SoftEntry> m_oversized = new ConcurrentHashMap<>();
+
+    /** Queue of cleared {@link #m_oversized} entries, drained when entries are added. */
+    private final ReferenceQueue<BlobDataCell> m_oversizedQueue = new ReferenceQueue<>();
+
+    private final LongAdder m_hits = new LongAdder();
+
+    private final LongAdder m_misses = new LongAdder();
+
+    private final LongAdder m_evictions = new LongAdder();
+
+    /** Creates the cache with the budget as per {@link #PROPERTY_BLOB_CACHE_SIZE}. */
+    BlobCache() {
+        this(readBudgetFromProperty());
+        MemoryAlertSystem.getInstanceUncollected().addListener(new MemoryAlertListener() {
+            @Override
+            protected boolean memoryAlert(final MemoryAlert alert) {
+                LOGGER.debug("Clearing blob cache in order to free memory.");
+                clear();
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Creates a cache with a custom budget, not registered with the memory alert system.
+     *
+     * @param budget the maximum total size of cached blobs in bytes, 0 to disable caching
+     */
+    BlobCache(final long budget) {
+        m_budget = Math.max(0L, budget);
+        m_segments = new Segment[NR_SEGMENTS];
+        for (int i = 0; i < NR_SEGMENTS; i++) {
+            m_segments[i] = new Segment(m_budget / NR_SEGMENTS);
+        }
+    }
+
+    private static long readBudgetFromProperty() {
+        final String value = System.getProperty(PROPERTY_BLOB_CACHE_SIZE);
+        if (value != null) {
+            try {
+                final long sizeInMB = Long.parseLong(value.trim());
+                if (sizeInMB >= 0) {
+                    return sizeInMB << 20;
+                }
+            } catch (NumberFormatException nfe) {
+                // handled below
+            }
+            LOGGER.warn("Invalid setting for blob cache size (\"" + PROPERTY_BLOB_CACHE_SIZE + "\"): " + value
+                + ". Using default: " + (DEF_BLOB_CACHE_SIZE >> 20) + "MB.");
+        }
+        return DEF_BLOB_CACHE_SIZE;
+    }
+
+    private Segment segmentFor(final Key key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return m_segments[h & (NR_SEGMENTS - 1)];
+    }
+
+    /**
+     * Returns the blob from the cache or loads it (and adds it to the cache).
+     *
+     * @param ownerID the unique ID of the buffer owning the blob (see {@link Buffer#getUniqueID()})
+     * @param address the blob's address
+     * @param loader reads the blob if it's not cached
+     * @return the blob
+     * @throws IOException if the blob can't be read
+     */
+    BlobDataCell get(final long ownerID, final BlobAddress address, final BlobLoader loader) throws IOException {
+        final Key key = new Key(ownerID, address);
+        final Segment segment = segmentFor(key);
+        BlobDataCell result = segment.get(key);
+        if (result == null) {
+            final SoftEntry softEntry = m_oversized.get(key);
+            result = softEntry != null ? softEntry.get() : null;
+        }
+        if (result != null) {
+            m_hits.increment();
+            return result;
+        }
+        m_misses.increment();
+        result = loader.load();
+        put(key, segment, result, loader.getWeight());
+        return result;
+    }
+
+    /** Adds the blob to its segment or, if it is too large, to the softly referenced blobs. */
+    private void put(final Key key, final Segment segment, final BlobDataCell cell, final long blobSize) {
+        if (m_budget == 0L) {
+            return;
+        }
+        if (!segment.put(key, cell, blobSize)) {
+            drainOversizedQueue();
+            m_oversized.put(key, new SoftEntry(key, cell, m_oversizedQueue));
+        }
+    }
+
+    private void drainOversizedQueue() {
+        Reference<? extends BlobDataCell> ref;
+        while ((ref = m_oversizedQueue.poll()) != null) {
+            final SoftEntry entry = (SoftEntry)ref;
+            m_oversized.remove(entry.m_key, entry);
+        }
+    }
+
+    /**
+     * Removes all blobs of the argument buffer from the cache, called when the buffer is cleared.
+     *
+     * @param ownerID the unique ID of the buffer
+     */
+    void invalidate(final long ownerID) {
+        for (Segment segment : m_segments) {
+            segment.removeOwner(ownerID);
+        }
+        m_oversized.keySet().removeIf(key -> key.m_ownerID == ownerID);
+    }
+
+    /** Removes all entries from the cache. */
+    void clear() {
+        for (Segment segment : m_segments) {
+            segment.clear();
+        }
+        m_oversized.clear();
+        drainOversizedQueue();
+    }
+
+    /** @return the total size of all cached blobs in bytes (as estimated by their weight) */
+    long getWeight() {
+        long weight = 0L;
+        for (Segment segment : m_segments) {
+            weight += segment.getWeight();
+        }
+        return weight;
+    }
+
+    /** @return the number of (hard-referenced) blobs held by the segments */
+    int size() {
+        int size = 0;
+        for (Segment segment : m_segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /** @return the number of softly referenced blobs that are too large for a segment and not yet collected */
+    int oversizedSize() {
+        drainOversizedQueue();
+        return (int)m_oversized.values().stream().filter(e -> e.get() != null).count();
+    }
+
+    /** @return number of requests that were served from the cache */
+    long getHitCount() {
+        return m_hits.sum();
+    }
+
+    /** @return number of requests that required reading the blob from disk */
+    long getMissCount() {
+        return m_misses.sum();
+    }
+
+    /** @return number of blobs evicted because the budget was exceeded */
+    long getEvictionCount() {
+        return m_evictions.sum();
+    }
+
+    /** Cache key: a blob address is only unique within a workflow, hence the buffer's unique ID is added. */
+    private static final class Key {
+
+        private final long m_ownerID;
+
+        private final BlobAddress m_address;
+
+        Key(final long ownerID, final BlobAddress address) {
+            m_ownerID = ownerID;
+            m_address = address;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key k = (Key)obj;
+            return k.m_ownerID == m_ownerID && k.m_address.equals(m_address);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(m_ownerID) + m_address.hashCode();
+        }
+    }
+
+    /** A cache entry, remembering the weight it was added with. */
+    private static final class Entry {
+
+        private final BlobDataCell m_cell;
+
+        private final long m_weight;
+
+        Entry(final BlobDataCell cell, final long weight) {
+            m_cell = cell;
+            m_weight = weight;
+        }
+    }
+
+    /** A softly referenced blob that is too large to be held by a segment. */
+    private static final class SoftEntry extends SoftReference<BlobDataCell> {
+
+        private final Key m_key;
+
+        SoftEntry(final Key key, final BlobDataCell cell, final ReferenceQueue<BlobDataCell> queue) {
+            super(cell, queue);
+            m_key = key;
+        }
+    }
+
+    /** A part of the cache, guarded by its own lock. */
+    private final class Segment {
+
+        private final long m_maxWeight;
+
+        private final LinkedHashMap<Key, Entry> m_map = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long m_weight;
+
+        Segment(final long maxWeight) {
+            m_maxWeight = maxWeight;
+        }
+
+        synchronized BlobDataCell get(final Key key) {
+            final Entry entry = m_map.get(key);
+            return entry != null ? entry.m_cell : null;
+        }
+
+        /** @return false if the blob is too large for this segment and therefore not added */
+        synchronized boolean put(final Key key, final BlobDataCell cell, final long blobSize) {
+            final long weight = blobSize + ENTRY_OVERHEAD;
+            if (weight > m_maxWeight) {
+                return false;
+            }
+            final Entry old = m_map.put(key, new Entry(cell, weight));
+            if (old != null) {
+                m_weight -= old.m_weight;
+            }
+            m_weight += weight;
+            final Iterator<Entry> it = m_map.values().iterator();
+            while (m_weight > m_maxWeight && it.hasNext()) {
+                m_weight -= it.next().m_weight;
+                it.remove();
+                m_evictions.increment();
+            }
+            return true;
+        }
+
+        synchronized void removeOwner(final long ownerID) {
+            final Iterator<Map.Entry<Key, Entry>> it = m_map.entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<Key, Entry> e = it.next();
+                if (e.getKey().m_ownerID == ownerID) {
+                    m_weight -= e.getValue().m_weight;
+                    it.remove();
+                }
+            }
+        }
+
+        synchronized void clear() {
+            m_map.clear();
+            m_weight = 0L;
+        }
+
+        synchronized long getWeight() {
+            return m_weight;
+        }
+
+        synchronized int size() {
+            return m_map.size();
+        }
+    }
+}
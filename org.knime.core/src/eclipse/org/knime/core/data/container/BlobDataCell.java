@@ -122,6 +122,21 @@ BlobAddress getBlobAddress() {
         return m_blobAddress;
     }
 
+    /**
+     * Get the location of the blob if it has been stored in a table. The address identifies the blob across repeated
+     * reads from disc, which allows caching data derived from the blob's content (e.g. decoded images). It is only
+     * unique within a workflow.
+     *
+     * @return This blob's address or <code>null</code> if it hasn't been stored in a table just yet.
+     * @since 4.2
+     * @noreference This method is not intended to be referenced by clients.
+     */
+    public final BlobAddress getStoredBlobAddress() {
+        final BlobAddress address = m_blobAddress;
+        return address != null && address.getBufferID() != -1 && address.getIndexOfBlobInColumn() >= 0 ? address
+            : null;
+    }
+
     /**
      * Set Blob address (which can't be <code>null</code>).
      * @param blobAddress The blob address object.
@@ -56,7 +56,6 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.text.NumberFormat;
@@ -66,10 +65,8 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
@@ -271,11 +268,15 @@ public class Buffer implements KNIMEStreamConstants {
      */
     private static final String CFG_SIZE_L = "table.size.long";
 
-    /** Current version string. */
-    public static final String VERSION = "container_12";
+    /**
+     * Current version string. The table format is versioned independently of the workflow load version; older
+     * versions of KNIME can't read the dictionary encoded strings of version 13 and warn about the unknown version
+     * (see {@link #validateVersion(String)}).
+     */
+    public static final String VERSION = "container_13";
 
     /** The version number corresponding to {@link #VERSION}. */
-    public static final int IVERSION = 12;
+    public static final int IVERSION = 13;
 
     private static final HashMap<String, Integer> COMPATIBILITY_MAP;
 
@@ -292,7 +293,8 @@ public class Buffer implements KNIMEStreamConstants {
         COMPATIBILITY_MAP.put("container_9", 9); // never released - some workflow tests contain it (BW used a nightly)
         COMPATIBILITY_MAP.put("container_10", 10); // version 3.6 (multiple table formats)
         COMPATIBILITY_MAP.put("container_11", 11); // version 3.7 - add FileStoreCell support for multiple FileStores
-        COMPATIBILITY_MAP.put(VERSION, IVERSION); // version 3.8 - changed default compression to Snappy
+        COMPATIBILITY_MAP.put("container_12", 12); // version 3.8 - changed default compression to Snappy
+        COMPATIBILITY_MAP.put(VERSION, IVERSION); // version 4.2 - dictionary encoded string cells
         // NOTE consider to also
         // - increment the workflow.knime version number when updating this list
         // - update list in NoKeyBuffer
@@ -412,11 +414,11 @@ public Thread newThread(final Runnable r) {
     });
 
     /**
-     * Hash used to reduce the overhead of reading a blob cell over and over again. Useful in cases where a blob is
+     * Cache used to reduce the overhead of reading a blob cell over and over again. Useful in cases where a blob is
      * added multiple times to a table... the iterator will read the blob address, treat it as unseen and then ask the
-     * owning Buffer to restore the blob.
+     * owning Buffer to restore the blob. Shared by all buffers, entries are keyed by the buffer's unique ID.
      */
-    private final BlobLRUCache m_blobLRUCache = new BlobLRUCache();
+    private static final BlobCache BLOB_CACHE = new BlobCache();
 
     static boolean isUseCompressionForBlobs(final CellClassInfo cellClassInfo) {
         @SuppressWarnings("unchecked")
@@ -1478,18 +1480,41 @@ BlobDataCell readBlobDataCell(final BlobAddress blobAddress, final CellClassInfo
             Buffer blobBuffer = cnTbl.getBuffer();
             return blobBuffer.readBlobDataCell(blobAddress, cl);
         }
-        SoftReference<BlobDataCell> softRef = m_blobLRUCache.get(blobAddress);
-        BlobDataCell result = softRef != null ? softRef.get() : null;
-        if (result != null) {
-            return result;
+        return BLOB_CACHE.get(m_uniqueID, blobAddress, new BufferBlobLoader(this, blobAddress, cl));
+    }
+
+    /** Reads a blob of a buffer from disk, weighted by the number of bytes it was decoded from. */
+    private static final class BufferBlobLoader implements BlobCache.BlobLoader {
+
+        private final Buffer m_buffer;
+
+        private final BlobAddress m_address;
+
+        private final CellClassInfo m_cellClassInfo;
+
+        private long m_decodedSize;
+
+        BufferBlobLoader(final Buffer buffer, final BlobAddress address, final CellClassInfo cl) {
+            m_buffer = buffer;
+            m_address = address;
+            m_cellClassInfo = cl;
         }
-        if (getReadVersion() <= 5) { // 2.0 TechPreview and earlier
-            result = BufferFromFileIteratorVersion1x.readBlobDataCell(this, blobAddress, cl);
-        } else {
-            result = BufferFromFileIteratorVersion20.readBlobDataCell(blobAddress, cl, this);
+
+        @Override
+        public BlobDataCell load() throws IOException {
+            if (m_buffer.getReadVersion() <= 5) { // 2.0 TechPreview and earlier
+                return BufferFromFileIteratorVersion1x.readBlobDataCell(m_buffer, m_address, m_cellClassInfo,
+                    size -> m_decodedSize = size);
+            } else {
+                return BufferFromFileIteratorVersion20.readBlobDataCell(m_address, m_cellClassInfo, m_buffer,
+                    size -> m_decodedSize = size);
+            }
+        }
+
+        @Override
+        public long getWeight() {
+            return m_decodedSize;
         }
-        m_blobLRUCache.put(blobAddress, new SoftReference<BlobDataCell>(result));
-        return result;
     }
 
     private void ensureBlobDirExists() throws IOException {
@@ -2003,9 +2028,7 @@ synchronized void clear() {
                 if (m_fileStoreHandler instanceof NotInWorkflowWriteFileStoreHandler) {
                     m_fileStoreHandler.clearAndDispose();
                 }
-                if (m_blobLRUCache != null) {
-                    m_blobLRUCache.clear();
-                }
+                BLOB_CACHE.invalidate(m_uniqueID);
                 m_binFile = null;
                 m_blobDir = null;
             }
@@ -2078,37 +2101,6 @@ private void writeList(final List<BlobSupportDataRow> list) {
         }
     }
 
-    /** Last recently used cache for blobs. */
-    private static final class BlobLRUCache extends LinkedHashMap<BlobAddress, SoftReference<BlobDataCell>> {
-
-        private static final long serialVersionUID = 1L;
-
-        /** Default constructor, instructs for access order. */
-        BlobLRUCache() {
-            super(16, 0.75f, true); // args copied from HashMap implementation
-        }
-
-        /** {@inheritDoc} */
-        @Override
-        protected synchronized boolean removeEldestEntry(final Entry<BlobAddress, SoftReference<BlobDataCell>> eldest) {
-            return size() >= 100;
-        }
-
-        /** {@inheritDoc} */
-        @Override
-        public synchronized SoftReference<BlobDataCell> get(final Object key) {
-            return super.get(key);
-        }
-
-        /** {@inheritDoc} */
-        @Override
-        public synchronized SoftReference<BlobDataCell> put(final BlobAddress key,
-            final SoftReference<BlobDataCell> value) {
-            return super.put(key, value);
-        }
-
-    }
-
     /**
      * The BackIntoMemoryIterator holds lists of datarows read from a file. It is strongly referenced only by the
      * FromListIterators and is only weak-referenced in the outer Buffer class. This way, we make sure that the
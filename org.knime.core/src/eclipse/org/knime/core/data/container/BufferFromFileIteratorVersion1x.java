@@ -55,8 +55,11 @@
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
 import java.util.zip.GZIPInputStream;
 
+import org.apache.commons.io.input.CountingInputStream;
+
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataCellDataInput;
 import org.knime.core.data.DataCellSerializer;
@@ -319,12 +322,14 @@ protected void finalize() throws Throwable {
      * @param buffer The owning buffer.
      * @param blobAddress The address to read from.
      * @param cl The expected class.
+     * @param decodedSize Receives the number of (uncompressed) bytes the
+     * blob was decoded from.
      * @return The blob cell being read.
      * @throws IOException If that fails.
      */
     static BlobDataCell readBlobDataCell(final Buffer buffer,
-            final BlobAddress blobAddress,
-            final CellClassInfo cl) throws IOException {
+            final BlobAddress blobAddress, final CellClassInfo cl,
+            final LongConsumer decodedSize) throws IOException {
         assert buffer.getBufferID() == blobAddress.getBufferID()
             : "Buffer IDs don't match: " + buffer.getBufferID() + " vs. "
             + blobAddress.getBufferID();
@@ -338,6 +343,8 @@ static BlobDataCell readBlobDataCell(final Buffer buffer,
         if (isCompress) {
             in = new GZIPInputStream(in);
         }
+        CountingInputStream countingIn = new CountingInputStream(in);
+        in = countingIn;
         Class<? extends DataCell> cellClass = cl.getCellClass();
         DataCellSerializer<? extends DataCell> ser = cl.getSerializer();
         InputStream inStream = null;
@@ -366,6 +373,7 @@ static BlobDataCell readBlobDataCell(final Buffer buffer,
                     throw e;
                 }
             }
+            decodedSize.accept(countingIn.getByteCount());
             return result;
         } finally {
             // do the best to minimize the number of open streams.
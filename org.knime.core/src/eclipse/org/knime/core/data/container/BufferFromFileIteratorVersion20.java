@@ -54,8 +54,11 @@
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
 import java.util.zip.GZIPInputStream;
 
+import org.apache.commons.io.input.CountingInputStream;
+
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataCellSerializer;
 import org.knime.core.data.DataType;
@@ -64,6 +67,7 @@
 import org.knime.core.data.container.DCObjectInputVersion2.BlockableDCObjectInputVersion2;
 import org.knime.core.data.container.DefaultTableStoreReader.FromFileIterator;
 import org.knime.core.data.container.storage.AbstractTableStoreReader;
+import org.knime.core.data.def.StringCell;
 import org.knime.core.data.filestore.FileStoreCell;
 import org.knime.core.data.filestore.FileStoreKey;
 import org.knime.core.data.filestore.FileStoreUtil;
@@ -101,6 +105,13 @@ public final class BufferFromFileIteratorVersion20 extends FromFileIterator {
     /** Utility object with designated functionality to deserialize datacell. */
     private DataCellStreamReader m_dataCellStreamReader;
 
+    /** The string dictionaries of the columns, null for tables written prior version 13 (see
+     * {@link StringCellDictionary}). */
+    private final StringCellDictionary.Decoder[] m_stringDictionaries;
+
+    /** Intern tables per column (lazily created), null if interning is disabled. */
+    private final DataCellInternTable[] m_internTables;
+
     /** Inits iterator, opens input stream.
      * @param tableFormatReader The associated buffer.
      * @throws IOException If stream reading fails.
@@ -122,6 +133,10 @@ public final class BufferFromFileIteratorVersion20 extends FromFileIterator {
         // open the input stream
         m_dataCellStreamReader = new DataCellStreamReader(tableFormatReader);
         m_inStream = new BlockableDCObjectInputVersion2(getInputStream(tableFormatReader), m_dataCellStreamReader);
+        m_stringDictionaries = tableFormatReader.getReadVersion() >= 13
+            ? new StringCellDictionary.Decoder[tableFormatReader.getTableSpec().getNumColumns()] : null;
+        m_internTables = DataCellInternTable.isEnabled()
+            ? new DataCellInternTable[tableFormatReader.getTableSpec().getNumColumns()] : null;
     }
 
 
@@ -169,7 +184,7 @@ public synchronized BlobSupportDataRow next() {
             DataCell nextCell;
             try {
                 try {
-                    nextCell = m_dataCellStreamReader.readDataCell(m_inStream);
+                    nextCell = m_dataCellStreamReader.readDataCell(m_inStream, getStringDictionary(i));
                 } finally {
                     m_inStream.endBlock();
                 }
@@ -177,7 +192,7 @@ public synchronized BlobSupportDataRow next() {
                 handleReadThrowable(e);
                 nextCell = DataType.getMissingCell();
             }
-            cells[i] = nextCell;
+            cells[i] = intern(i, nextCell);
         }
         try {
             byte eoRow = inStream.readControlByte();
@@ -192,6 +207,33 @@ public synchronized BlobSupportDataRow next() {
         return new BlobSupportDataRow(key, cells);
     }
 
+    /** @return an equal, previously read cell of the column, or the argument (see {@link DataCellInternTable}) */
+    private DataCell intern(final int column, final DataCell cell) {
+        // string cells are already shared by the dictionary, if any
+        if (m_internTables == null || (m_stringDictionaries != null && cell.getClass() == StringCell.class)) {
+            return cell;
+        }
+        DataCellInternTable internTable = m_internTables[column];
+        if (internTable == null) {
+            internTable = new DataCellInternTable();
+            m_internTables[column] = internTable;
+        }
+        return internTable.intern(cell);
+    }
+
+    /** @return the string dictionary of the column, null if the table isn't dictionary encoded */
+    private StringCellDictionary.Decoder getStringDictionary(final int column) {
+        if (m_stringDictionaries == null) {
+            return null;
+        }
+        StringCellDictionary.Decoder dictionary = m_stringDictionaries[column];
+        if (dictionary == null) {
+            dictionary = new StringCellDictionary.Decoder();
+            m_stringDictionaries[column] = dictionary;
+        }
+        return dictionary;
+    }
+
     /** Reads a row key from the stream and ends the block. In case of buffers
      * that don't persist their row keys ({@link NoKeyBuffer}), it returns
      * a static key.
@@ -262,11 +304,12 @@ protected void finalize() throws Throwable {
      * Reads the blob from the given blob address.
      * @param blobAddress The address to read from.
      * @param cl The expected class.
+     * @param decodedSize Receives the number of (uncompressed) bytes the blob was decoded from.
      * @return The blob cell being read.
      * @throws IOException If that fails.
      */
-    static BlobDataCell readBlobDataCell(final BlobAddress blobAddress, final CellClassInfo cl, final Buffer buffer)
-        throws IOException {
+    static BlobDataCell readBlobDataCell(final BlobAddress blobAddress, final CellClassInfo cl, final Buffer buffer,
+        final LongConsumer decodedSize) throws IOException {
         assert buffer.getBufferID() == blobAddress.getBufferID() : "Buffer IDs don't match: " + buffer.getBufferID()
             + " vs. " + blobAddress.getBufferID();
         int column = blobAddress.getColumn();
@@ -281,7 +324,8 @@ static BlobDataCell readBlobDataCell(final BlobAddress blobAddress, final CellCl
         }
         Class<? extends DataCell> cellClass = cl.getCellClass();
         DataCellSerializer<? extends DataCell> ser = cl.getSerializer();
-        BlockableDCObjectInputVersion2 inStream = new BlockableDCObjectInputVersion2(in);
+        CountingInputStream countingIn = new CountingInputStream(in);
+        BlockableDCObjectInputVersion2 inStream = new BlockableDCObjectInputVersion2(countingIn);
         BlobDataCell result;
         try {
             if (ser != null) {
@@ -293,6 +337,7 @@ static BlobDataCell readBlobDataCell(final BlobAddress blobAddress, final CellCl
                 result = (BlobDataCell)inStream.readDataCellPerJavaSerialization();
             }
             result.setBlobAddress(blobAddress);
+            decodedSize.accept(countingIn.getByteCount());
             return result;
         } finally {
             inStream.close();
@@ -319,6 +364,20 @@ public DataCellStreamReader(final AbstractTableStoreReader tableFormatReader) {
          * @throws IOException If exceptions occur.
          */
         public DataCell readDataCell(final DCObjectInputVersion2 inStream) throws IOException {
+            return readDataCell(inStream, null);
+        }
+
+        /**
+         * Reads a data cell of a column from the argument stream, decoding string cells using the column's
+         * dictionary. Does not exception handling, nor stream blocking.
+         *
+         * @param inStream To read from.
+         * @param stringDictionary The dictionary of the column or null if the column isn't dictionary encoded.
+         * @return the data cell being read
+         * @throws IOException If exceptions occur.
+         */
+        DataCell readDataCell(final DCObjectInputVersion2 inStream,
+            final StringCellDictionary.Decoder stringDictionary) throws IOException {
             inStream.setCurrentClassLoader(null);
 
             byte identifier = inStream.readControlByte();
@@ -363,7 +422,11 @@ public DataCell readDataCell(final DCObjectInputVersion2 inStream) throws IOExce
                 // deserialize using KNIME deserialization
                 DataCellSerializer<? extends DataCell> serializer = type.getSerializer();
                 assert serializer != null;
-                result = inStream.readDataCellPerKNIMESerializer(serializer);
+                if (stringDictionary != null && cellClass == StringCell.class) {
+                    result = stringDictionary.read(serializer, inStream);
+                } else {
+                    result = inStream.readDataCellPerKNIMESerializer(serializer);
+                }
             }
 
             if (fileStoreKeys != null) {
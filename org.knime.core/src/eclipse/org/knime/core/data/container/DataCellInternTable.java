@@ -0,0 +1,176 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Interns the cells of a column while a table is read from disk so that equal cells share the same instance, which
+ * reduces the memory footprint of tables that are read back into memory (see {@link Buffer}).
+ * <p>
+ * Only cells of a few immutable classes are interned ({@link StringCell}, {@link IntCell}, {@link LongCell},
+ * {@link DoubleCell}), and only if their class matches exactly. The table is limited in size (see
+ * {@link KNIMEConstants#PROPERTY_TABLE_INTERN_SIZE}); it disables itself if it's full and most of the lookups fail,
+ * which is the case for columns with many distinct values. Instances are used by a single iterator, they are not
+ * thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class DataCellInternTable {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(DataCellInternTable.class);
+
+    /** See {@link KNIMEConstants#PROPERTY_TABLE_INTERN_SIZE}. */
+    static final String PROPERTY_TABLE_INTERN_SIZE = KNIMEConstants.PROPERTY_TABLE_INTERN_SIZE;
+
+    /** Default maximum number of cells per column. */
+    static final int DEF_MAX_SIZE = 256;
+
+    /** Maximum number of cells per column, 0 if interning is disabled. */
+    static final int MAX_SIZE = readMaxSizeFromProperty();
+
+    /** Number of lookups after which the hit rate is checked. */
+    static final int CHECK_INTERVAL = 4096;
+
+    private final Map<DataCell, DataCell> m_cells = new HashMap<>();
+
+    private final int m_maxSize;
+
+    private int m_lookups;
+
+    private int m_hits;
+
+    private boolean m_isDisabled;
+
+    /** Creates a table with the size as per {@link #PROPERTY_TABLE_INTERN_SIZE}. */
+    DataCellInternTable() {
+        this(MAX_SIZE);
+    }
+
+    /** @param maxSize maximum number of interned cells, must be &gt; 0 */
+    DataCellInternTable(final int maxSize) {
+        m_maxSize = maxSize;
+    }
+
+    private static int readMaxSizeFromProperty() {
+        final String value = System.getProperty(PROPERTY_TABLE_INTERN_SIZE);
+        if (value != null) {
+            try {
+                final int size = Integer.parseInt(value.trim());
+                if (size >= 0) {
+                    return size;
+                }
+            } catch (NumberFormatException nfe) {
+                // handled below
+            }
+            LOGGER.warn("Invalid setting for table intern size (\"" + PROPERTY_TABLE_INTERN_SIZE + "\"): " + value
+                + ". Using default: " + DEF_MAX_SIZE + ".");
+        }
+        return DEF_MAX_SIZE;
+    }
+
+    /** @return whether interning is enabled at all, i.e. {@link #MAX_SIZE} is &gt; 0 */
+    static boolean isEnabled() {
+        return MAX_SIZE > 0;
+    }
+
+    /** @return whether cells of the class are interned */
+    static boolean isInternable(final Class<? extends DataCell> cellClass) {
+        return cellClass == StringCell.class || cellClass == IntCell.class || cellClass == LongCell.class
+            || cellClass == DoubleCell.class;
+    }
+
+    /**
+     * Returns an equal cell of the same class that has been interned before, or the argument itself (which is interned
+     * if there is room left).
+     *
+     * @param cell the cell just read, not null
+     * @return the interned cell or the argument
+     */
+    DataCell intern(final DataCell cell) {
+        if (m_isDisabled || !isInternable(cell.getClass())) {
+            return cell;
+        }
+        final DataCell existing = m_cells.get(cell);
+        m_lookups++;
+        // equal cells may be of a different class (e.g. IntCell and LongCell), which must not be replaced
+        if (existing != null && existing.getClass() == cell.getClass()) {
+            m_hits++;
+            return existing;
+        }
+        if (existing == null && m_cells.size() < m_maxSize) {
+            m_cells.put(cell, cell);
+        }
+        if (m_lookups >= CHECK_INTERVAL) {
+            if (m_cells.size() >= m_maxSize && 2 * m_hits < m_lookups) {
+                // full and most cells are not found -- not worth it
+                m_isDisabled = true;
+                m_cells.clear();
+            }
+            m_lookups = 0;
+            m_hits = 0;
+        }
+        return cell;
+    }
+
+    /** @return whether the table has disabled itself due to a low hit rate */
+    boolean isDisabled() {
+        return m_isDisabled;
+    }
+
+    /** @return the number of interned cells */
+    int size() {
+        return m_cells.size();
+    }
+}
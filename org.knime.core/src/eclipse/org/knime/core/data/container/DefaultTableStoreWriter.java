@@ -50,14 +50,17 @@
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 import org.knime.core.data.DataCell;
+import org.knime.core.data.DataCellSerializer;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.container.DCObjectOutputVersion2.BlockableDCObjectOutputVersion2;
 import org.knime.core.data.container.DefaultTableStoreFormat.CompressionFormat;
 import org.knime.core.data.container.storage.AbstractTableStoreWriter;
+import org.knime.core.data.def.StringCell;
 import org.knime.core.node.NodeSettingsWO;
 
 /**
@@ -75,6 +78,9 @@ final class DefaultTableStoreWriter extends AbstractTableStoreWriter implements
     /** The compression format. */
     private final CompressionFormat m_compFormat;
 
+    /** The string dictionaries of the columns, lazily initialized (see {@link StringCellDictionary}). */
+    private StringCellDictionary.Encoder[] m_stringDictionaries;
+
     /**
      * Constructs a writer for writing KNIME tables to disk using the given compression format.
      *
@@ -103,12 +109,39 @@ public void writeRow(final DataRow row) throws IOException {
         for (int i = 0; i < row.getNumCells(); i++) {
             DataCell cell =
                 row instanceof BlobSupportDataRow ? ((BlobSupportDataRow)row).getRawCell(i) : row.getCell(i);
-            writeDataCell(cell, m_outStream);
+            if (cell.getClass() == StringCell.class) {
+                writeStringCell((StringCell)cell, i);
+            } else {
+                writeDataCell(cell, m_outStream);
+            }
             m_outStream.endBlock();
         }
         m_outStream.endRow();
     }
 
+    /**
+     * Writes a string cell of a column using the column's dictionary.
+     *
+     * @param cell The cell to write.
+     * @param column The index of the column.
+     * @throws IOException If that fails.
+     */
+    private void writeStringCell(final StringCell cell, final int column) throws IOException {
+        final CellClassInfo cellClass = CellClassInfo.get(cell);
+        final DataCellSerializer<DataCell> ser = getSerializerForDataCell(cellClass);
+        m_outStream.writeControlByte(getTypeShortCut(cellClass));
+        if (m_stringDictionaries == null || m_stringDictionaries.length <= column) {
+            m_stringDictionaries = m_stringDictionaries == null ? new StringCellDictionary.Encoder[column + 1]
+                : Arrays.copyOf(m_stringDictionaries, column + 1);
+        }
+        StringCellDictionary.Encoder dictionary = m_stringDictionaries[column];
+        if (dictionary == null) {
+            dictionary = new StringCellDictionary.Encoder();
+            m_stringDictionaries[column] = dictionary;
+        }
+        dictionary.write(cell, ser, m_outStream);
+    }
+
     /**
      * Writes the row key to the out stream. This method is overridden in {@link NoKeyBuffer} in order to skip the row
      * key.
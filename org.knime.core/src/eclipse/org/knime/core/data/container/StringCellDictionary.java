@@ -0,0 +1,186 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.container;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataCellSerializer;
+import org.knime.core.data.DataType;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Dictionary encoding of {@link StringCell StringCells} in the columns of tables written by the
+ * {@link DefaultTableStoreWriter} (since table version 13).
+ * <p>
+ * Each column has its own dictionary that is built while the table is written: The first occurrence of a string is
+ * written as is and added to the dictionary, all further occurrences are written as a (variable length) code, which
+ * takes a single byte for the first 126 dictionary entries. As the dictionary is implicitly defined by the order of
+ * the cells in the stream, readers rebuild it while reading the table (which is always read sequentially) and return
+ * the same {@link StringCell} instance for all occurrences of a string.
+ * <p>
+ * Dictionaries are limited in size (and in the length of the strings they contain) so that columns with many distinct
+ * values, for which the encoding does not pay off, don't consume much memory; strings that don't fit into the
+ * dictionary are written as is. Only cells in the columns of the table are encoded, not cells nested in collections.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class StringCellDictionary {
+
+    /** Maximum number of entries in the dictionary of a column. */
+    static final int MAX_ENTRIES = 1024;
+
+    /** Maximum length of a string to be added to the dictionary. */
+    static final int MAX_STRING_LENGTH = 128;
+
+    /** Code for a string that follows and is added to the dictionary. */
+    private static final int CODE_NEW = 0;
+
+    /** Code for a string that follows and is not added to the dictionary. */
+    private static final int CODE_PLAIN = 1;
+
+    /** Code of the first dictionary entry. */
+    private static final int CODE_FIRST_ENTRY = 2;
+
+    private StringCellDictionary() {
+    }
+
+    /** Writes the code as unsigned variable length integer (7 bits per byte, least significant first). */
+    private static void writeCode(final DCObjectOutputVersion2 out, final int code) throws IOException {
+        int value = code;
+        while ((value & ~0x7F) != 0) {
+            out.writeControlByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeControlByte(value);
+    }
+
+    private static int readCode(final DCObjectInputVersion2 in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.readControlByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid string dictionary code");
+    }
+
+    /** The dictionary of a column, used when writing a table. */
+    static final class Encoder {
+
+        private final Map<String, Integer> m_codes = new HashMap<>();
+
+        /**
+         * Writes the cell (except for the type identifier, which is written by the caller).
+         *
+         * @param cell the cell to write
+         * @param serializer the serializer for string cells
+         * @param out the stream to write to
+         * @throws IOException if writing fails
+         */
+        void write(final StringCell cell, final DataCellSerializer<DataCell> serializer,
+            final DCObjectOutputVersion2 out) throws IOException {
+            final String value = cell.getStringValue();
+            final Integer code = m_codes.get(value);
+            if (code != null) {
+                writeCode(out, code);
+                return;
+            }
+            if (m_codes.size() < MAX_ENTRIES && value.length() <= MAX_STRING_LENGTH) {
+                m_codes.put(value, m_codes.size() + CODE_FIRST_ENTRY);
+                writeCode(out, CODE_NEW);
+            } else {
+                writeCode(out, CODE_PLAIN);
+            }
+            out.writeDataCellPerKNIMESerializer(serializer, cell);
+        }
+    }
+
+    /** The dictionary of a column, used when reading a table. */
+    static final class Decoder {
+
+        private final List<DataCell> m_cells = new ArrayList<>();
+
+        /**
+         * Reads a cell written by {@link Encoder#write(StringCell, DataCellSerializer, DCObjectOutputVersion2)}.
+         *
+         * @param serializer the serializer for string cells
+         * @param in the stream to read from
+         * @return the cell, shared by all occurrences of the same dictionary entry
+         * @throws IOException if reading fails
+         */
+        DataCell read(final DataCellSerializer<? extends DataCell> serializer, final DCObjectInputVersion2 in)
+            throws IOException {
+            final int code = readCode(in);
+            if (code >= CODE_FIRST_ENTRY) {
+                final int index = code - CODE_FIRST_ENTRY;
+                if (index >= m_cells.size()) {
+                    throw new IOException(
+                        "Invalid string dictionary code " + index + " (dictionary size " + m_cells.size() + ")");
+                }
+                return m_cells.get(index);
+            }
+            if (code != CODE_NEW && code != CODE_PLAIN) {
+                throw new IOException("Invalid string dictionary code " + code);
+            }
+            DataCell result = null;
+            try {
+                result = in.readDataCellPerKNIMESerializer(serializer);
+                return result;
+            } finally {
+                if (code == CODE_NEW) {
+                    // keep the following codes aligned even if the cell can't be read
+                    m_cells.add(result != null ? result : DataType.getMissingCell());
+                }
+            }
+        }
+    }
+}
@@ -219,6 +219,18 @@ public String toString() {
     public static final class DoubleSerializer
         implements DataCellSerializer<DoubleCell> {
 
+        /** Smallest value of the shared instances. */
+        private static final int SHARED_LOW = -128;
+
+        /** Shared (immutable) instances for small integral values, which are returned when reading tables. */
+        private static final DoubleCell[] SHARED = new DoubleCell[1024 - SHARED_LOW];
+
+        static {
+            for (int i = 0; i < SHARED.length; i++) {
+                SHARED[i] = new DoubleCell(i + SHARED_LOW);
+            }
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -236,6 +248,13 @@ public void serialize(
         public DoubleCell deserialize(final DataCellDataInput input)
             throws IOException {
             double d = input.readDouble();
+            final int i = (int)d;
+            final int index = i - SHARED_LOW;
+            // compare bits to distinguish -0.0 from 0.0
+            if (index >= 0 && index < SHARED.length
+                && Double.doubleToRawLongBits(d) == Double.doubleToRawLongBits(i)) {
+                return SHARED[index];
+            }
             return new DoubleCell(d);
         }
     }
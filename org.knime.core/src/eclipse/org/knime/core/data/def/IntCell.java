@@ -229,6 +229,18 @@ public String toString() {
      */
     public static final class IntCellSerializer implements DataCellSerializer<IntCell> {
 
+        /** Smallest value of the shared instances. */
+        private static final int SHARED_LOW = -128;
+
+        /** Shared (immutable) instances for small values, which are returned when reading tables. */
+        private static final IntCell[] SHARED = new IntCell[1024 - SHARED_LOW];
+
+        static {
+            for (int i = 0; i < SHARED.length; i++) {
+                SHARED[i] = new IntCell(i + SHARED_LOW);
+            }
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -245,7 +257,8 @@ public void serialize(final IntCell cell,
         public IntCell deserialize(
                 final DataCellDataInput input) throws IOException {
             int i = input.readInt();
-            return new IntCell(i);
+            final int index = i - SHARED_LOW;
+            return index >= 0 && index < SHARED.length ? SHARED[index] : new IntCell(i);
         }
     }
 
@@ -292,6 +292,19 @@ public static DataCell create(final long l) {
      * @noreference This class is not intended to be referenced by clients.
      */
     public static final class LongSerializer implements DataCellSerializer<LongCell> {
+
+        /** Smallest value of the shared instances. */
+        private static final int SHARED_LOW = -128;
+
+        /** Shared (immutable) instances for small values, which are returned when reading tables. */
+        private static final LongCell[] SHARED = new LongCell[1024 - SHARED_LOW];
+
+        static {
+            for (int i = 0; i < SHARED.length; i++) {
+                SHARED[i] = new LongCell(i + SHARED_LOW);
+            }
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -308,7 +321,8 @@ public void serialize(final LongCell cell,
         public LongCell deserialize(final DataCellDataInput input)
                 throws IOException {
             long l = input.readLong();
-            return new LongCell(l);
+            final long index = l - SHARED_LOW;
+            return index >= 0 && index < SHARED.length ? SHARED[(int)index] : new LongCell(l);
         }
     }
 }
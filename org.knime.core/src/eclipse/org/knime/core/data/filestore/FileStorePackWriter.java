@@ -0,0 +1,423 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.filestore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.knime.core.node.util.CheckUtils;
+
+/**
+ * Appends many small payloads into few large "segment" file stores instead of creating one file store (and hence one
+ * file plus directory lookups) per payload. Each {@link #append(ByteBuffer) append} returns an {@link Entry} that
+ * records the segment's {@link FileStore} along with offset and length; the entry is the index record of the payload
+ * and is meant to be kept by the {@link FileStoreCell} referencing the data (the cell is constructed with
+ * {@link Entry#getFileStore()} and serializes offset and length itself).
+ * <p>
+ * The writer is thread-safe. Concurrent appends only synchronize to reserve a range in the current segment, the data
+ * itself is written with positional writes outside any lock. Segments are not synced to disk after each append but
+ * only every {@link #getSyncInterval()} bytes, when a segment is completed, and on {@link #flush()} and
+ * {@link #close()}.
+ *
+ * <pre>
+ * try (FileStorePackWriter writer = new FileStorePackWriter(FileStoreFactory.createWorkflowFileStoreFactory(exec),
+ *     "images")) {
+ *     for (...) {
+ *         FileStorePackWriter.Entry entry = writer.append(imageBytes);
+ *         container.addRowToTable(new DefaultRow(key, new MyImageCell(entry)));
+ *     }
+ * }
+ * </pre>
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ * @noreference Pending API. Feel free to use the class but keep in mind that it might change in a future version of
+ *              KNIME.
+ */
+public final class FileStorePackWriter implements AutoCloseable {
+
+    /** Default maximum size of a segment file, 64MB. */
+    public static final long DEF_MAX_SEGMENT_SIZE = 64L << 20;
+
+    /** Default number of bytes written before a segment is synced to disk, 16MB. */
+    public static final long DEF_SYNC_INTERVAL = 16L << 20;
+
+    private final FileStoreFactory m_factory;
+
+    private final String m_namePrefix;
+
+    private final long m_maxSegmentSize;
+
+    private final long m_syncInterval;
+
+    /** Appends hold the read lock, {@link #close()} the write lock - waits for pending appends. */
+    private final ReadWriteLock m_closeLock = new ReentrantReadWriteLock();
+
+    /** All segments that are not yet closed, guarded by this. */
+    private final List<Segment> m_openSegments = new ArrayList<>();
+
+    /** The segment new data is appended to, guarded by this. */
+    private Segment m_currentSegment;
+
+    /** Position of the next append in the current segment, guarded by this. */
+    private long m_currentPosition;
+
+    private int m_segmentCount;
+
+    private boolean m_isClosed;
+
+    /**
+     * Creates a writer with default segment size and sync interval.
+     *
+     * @param factory creates the segment file stores
+     * @param namePrefix the name prefix of the segment file stores, must be unique within the file store factory
+     */
+    public FileStorePackWriter(final FileStoreFactory factory, final String namePrefix) {
+        this(factory, namePrefix, DEF_MAX_SEGMENT_SIZE, DEF_SYNC_INTERVAL);
+    }
+
+    /**
+     * Creates a new writer.
+     *
+     * @param factory creates the segment file stores
+     * @param namePrefix the name prefix of the segment file stores, must be unique within the file store factory
+     * @param maxSegmentSize the size in bytes after which a new segment is started. Payloads larger than this are
+     *            written into a segment of their own.
+     * @param syncInterval number of bytes after which a segment is synced to disk, 0 to sync only when a segment is
+     *            completed or the writer is flushed or closed
+     */
+    public FileStorePackWriter(final FileStoreFactory factory, final String namePrefix, final long maxSegmentSize,
+        final long syncInterval) {
+        m_factory = CheckUtils.checkArgumentNotNull(factory, "Factory must not be null");
+        m_namePrefix = CheckUtils.checkArgumentNotNull(namePrefix, "Name prefix must not be null");
+        CheckUtils.checkArgument(maxSegmentSize > 0, "Segment size must be positive: %d", maxSegmentSize);
+        CheckUtils.checkArgument(syncInterval >= 0, "Sync interval must not be negative: %d", syncInterval);
+        m_maxSegmentSize = maxSegmentSize;
+        m_syncInterval = syncInterval;
+    }
+
+    /** @return the number of bytes after which a segment is synced to disk (0 if only synced when completed) */
+    public long getSyncInterval() {
+        return m_syncInterval;
+    }
+
+    /** @return the maximum size of a segment in bytes */
+    public long getMaxSegmentSize() {
+        return m_maxSegmentSize;
+    }
+
+    /**
+     * Appends the argument data.
+     *
+     * @param data the data to write
+     * @return the entry locating the data
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public Entry append(final byte[] data) throws IOException {
+        return append(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Appends the remaining bytes of the argument buffer.
+     *
+     * @param data the data to write, its position is advanced to the limit
+     * @return the entry locating the data
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public Entry append(final ByteBuffer data) throws IOException {
+        final int length = data.remaining();
+        m_closeLock.readLock().lock();
+        try {
+            final Segment segment;
+            final long offset;
+            Segment completedSegment = null;
+            synchronized (this) {
+                CheckUtils.checkState(!m_isClosed, "File store pack writer has been closed");
+                if (m_currentSegment == null
+                    || (m_currentPosition > 0 && m_currentPosition + length > m_maxSegmentSize)) {
+                    completedSegment = startNewSegment();
+                }
+                segment = m_currentSegment;
+                offset = m_currentPosition;
+                m_currentPosition += length;
+                segment.m_activeWriters.incrementAndGet();
+            }
+            if (completedSegment != null) {
+                // sync outside the lock
+                completedSegment.seal();
+            }
+            try {
+                segment.write(data, offset);
+            } finally {
+                segment.onWriteFinished();
+            }
+            return new Entry(segment.m_fileStore, offset, length);
+        } finally {
+            m_closeLock.readLock().unlock();
+        }
+    }
+
+    /** Creates a new current segment and returns the previous one (which needs to be sealed), if any. */
+    private Segment startNewSegment() throws IOException {
+        assert Thread.holdsLock(this);
+        final FileStore fileStore = m_factory.createFileStore(m_namePrefix + "-segment-" + (m_segmentCount++));
+        final Segment newSegment = new Segment(fileStore);
+        final Segment oldSegment = m_currentSegment;
+        m_openSegments.add(newSegment);
+        m_currentSegment = newSegment;
+        m_currentPosition = 0L;
+        return oldSegment;
+    }
+
+    /**
+     * Syncs all data written so far to disk.
+     *
+     * @throws IOException if syncing fails
+     */
+    public void flush() throws IOException {
+        final List<Segment> segments;
+        synchronized (this) {
+            segments = new ArrayList<>(m_openSegments);
+        }
+        for (Segment segment : segments) {
+            segment.sync();
+        }
+    }
+
+    /**
+     * Waits for pending appends, then syncs and closes all segments. Further appends will fail.
+     *
+     * @throws IOException if syncing or closing a segment fails
+     */
+    @Override
+    public void close() throws IOException {
+        m_closeLock.writeLock().lock();
+        try {
+            final List<Segment> segments;
+            synchronized (this) {
+                if (m_isClosed) {
+                    return;
+                }
+                m_isClosed = true;
+                segments = new ArrayList<>(m_openSegments);
+                m_currentSegment = null;
+            }
+            IOException exception = null;
+            for (Segment segment : segments) {
+                try {
+                    segment.closeChannel();
+                } catch (IOException ioe) {
+                    if (exception == null) {
+                        exception = ioe;
+                    } else {
+                        exception.addSuppressed(ioe);
+                    }
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        } finally {
+            m_closeLock.writeLock().unlock();
+        }
+    }
+
+    private synchronized void onSegmentClosed(final Segment segment) {
+        m_openSegments.remove(segment);
+    }
+
+    /**
+     * A segment file store and its channel. Syncing and closing the channel are synchronized on the segment so that a
+     * {@link FileStorePackWriter#flush() flush} does not fail on a segment that is sealed concurrently.
+     */
+    private final class Segment {
+
+        private final FileStore m_fileStore;
+
+        private final FileChannel m_channel;
+
+        /** Appends currently writing to this segment. */
+        private final AtomicInteger m_activeWriters = new AtomicInteger();
+
+        /** Bytes written since the last sync. */
+        private final AtomicLong m_unsyncedBytes = new AtomicLong();
+
+        private final AtomicBoolean m_isChannelClosed = new AtomicBoolean();
+
+        /** Set once no more appends will be assigned to this segment. */
+        private volatile boolean m_isSealed;
+
+        Segment(final FileStore fileStore) throws IOException {
+            m_fileStore = fileStore;
+            m_channel = FileChannel.open(fileStore.getFile().toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        void write(final ByteBuffer data, final long offset) throws IOException {
+            final int length = data.remaining();
+            long position = offset;
+            while (data.hasRemaining()) {
+                position += m_channel.write(data, position);
+            }
+            if (m_unsyncedBytes.addAndGet(length) >= m_syncInterval && m_syncInterval > 0) {
+                sync();
+            }
+        }
+
+        void onWriteFinished() throws IOException {
+            if (m_activeWriters.decrementAndGet() == 0 && m_isSealed) {
+                closeChannel();
+            }
+        }
+
+        void seal() throws IOException {
+            m_isSealed = true;
+            if (m_activeWriters.get() == 0) {
+                closeChannel();
+            }
+        }
+
+        synchronized void sync() throws IOException {
+            if (!m_isChannelClosed.get() && m_unsyncedBytes.getAndSet(0L) > 0L) {
+                m_channel.force(false);
+            }
+        }
+
+        synchronized void closeChannel() throws IOException {
+            if (m_isChannelClosed.compareAndSet(false, true)) {
+                try {
+                    m_unsyncedBytes.set(0L);
+                    m_channel.force(false);
+                } finally {
+                    m_channel.close();
+                    onSegmentClosed(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Location of a payload in a segment file store. Clients typically keep the file store (as part of a
+     * {@link FileStoreCell}) and persist offset and length, which can later be used to restore an entry using
+     * {@link #Entry(FileStore, long, int)}.
+     */
+    public static final class Entry {
+
+        private final FileStore m_fileStore;
+
+        private final long m_offset;
+
+        private final int m_length;
+
+        /**
+         * Creates an entry, for instance when restoring a file store cell.
+         *
+         * @param fileStore the segment file store
+         * @param offset the offset of the payload in the segment
+         * @param length the length of the payload in bytes
+         */
+        public Entry(final FileStore fileStore, final long offset, final int length) {
+            m_fileStore = CheckUtils.checkArgumentNotNull(fileStore, "File store must not be null");
+            CheckUtils.checkArgument(offset >= 0 && length >= 0, "Invalid offset or length: %d/%d", offset, length);
+            m_offset = offset;
+            m_length = length;
+        }
+
+        /** @return the segment file store containing the payload */
+        public FileStore getFileStore() {
+            return m_fileStore;
+        }
+
+        /** @return the offset of the payload in the segment */
+        public long getOffset() {
+            return m_offset;
+        }
+
+        /** @return the length of the payload in bytes */
+        public int getLength() {
+            return m_length;
+        }
+
+        /**
+         * Reads the payload from the segment file.
+         *
+         * @return the payload
+         * @throws IOException if reading fails
+         */
+        public byte[] read() throws IOException {
+            final byte[] result = new byte[m_length];
+            final ByteBuffer buffer = ByteBuffer.wrap(result);
+            try (FileChannel channel = FileChannel.open(m_fileStore.getFile().toPath(), StandardOpenOption.READ)) {
+                long position = m_offset;
+                while (buffer.hasRemaining()) {
+                    final int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of file store segment \"" + m_fileStore
+                            + "\" at position " + position + " (expected " + m_length + " bytes at " + m_offset + ")");
+                    }
+                    position += read;
+                }
+            }
+            return result;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return m_fileStore + " [" + m_offset + ", " + m_length + " bytes]";
+        }
+    }
+}
@@ -49,7 +49,10 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.knime.core.data.IDataRepository;
 import org.knime.core.data.filestore.FileStore;
@@ -85,11 +88,15 @@ public class WriteFileStoreHandler implements IWriteFileStoreHandler {
     private final String m_name;
     private final UUID m_storeUUID;
     private File m_baseDirInWorkflowFolder;
-    private File m_baseDir;
-    private InternalDuplicateChecker m_duplicateChecker;
+    private volatile File m_baseDir;
+    private volatile InternalDuplicateChecker m_duplicateChecker;
     private IDataRepository m_dataRepository;
     private LRUCache<FileStoreKey, FileStoreKey> m_createdFileStoreKeys;
-    private int m_nextIndex = 0;
+    /** Index of the next file store, incremented without holding the lock on this handler. */
+    private final AtomicInteger m_nextIndex = new AtomicInteger();
+    /** Indices of the leaf folders (index / {@value #FILES_PER_FOLDER}) known to exist - saves a file system
+     * lookup for each new file store. */
+    private final Set<Integer> m_createdLeafFolders = ConcurrentHashMap.newKeySet();
 
 
     /**
@@ -111,6 +118,7 @@ public void setBaseDir(final File baseDir) {
         CheckUtils.checkState(baseDir.isDirectory(), "Base directory of file store to node %s does not exist: %s",
             m_name, baseDir.getAbsolutePath());
         m_baseDir = baseDir;
+        m_createdLeafFolders.clear();
     }
 
     /** {@inheritDoc} */
@@ -126,6 +134,7 @@ public void clearAndDispose() {
             m_dataRepository.removeFileStoreHandler(this);
             m_dataRepository = null;
         }
+        m_createdLeafFolders.clear();
         if (m_baseDir != null) {
             StringBuilder b = new StringBuilder("Disposing file store \"");
             b.append(toString()).append("\"");
@@ -255,8 +264,13 @@ public String toString() {
         return b.toString();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This method does not lock the handler and can be called concurrently by multiple threads.
+     */
     @Override
-    public synchronized FileStore createFileStore(final String name) throws IOException {
+    public FileStore createFileStore(final String name) throws IOException {
         addToDuplicateChecker(name);
         return createFileStoreInternal(name, null, -1);
     }
@@ -265,13 +279,13 @@ public synchronized FileStore createFileStore(final String name) throws IOExcept
      * @param name
      * @throws IOException */
     void addToDuplicateChecker(final String name) throws IOException {
-        CheckUtils.checkState(m_duplicateChecker != null, "File store on node %s is read only/closed", m_name);
-        m_duplicateChecker.add(name);
+        final InternalDuplicateChecker duplicateChecker = m_duplicateChecker;
+        CheckUtils.checkState(duplicateChecker != null, "File store on node %s is read only/closed", m_name);
+        duplicateChecker.add(name);
     }
 
     FileStore createFileStoreInternal(final String name,
             final int[] nestedLoopPath, final int iterationIndex) throws IOException {
-        assert Thread.holdsLock(this);
         CheckUtils.checkArgumentNotNull(name, "Argument must not be null.");
         if (name.startsWith(".")) {
             throw new IOException("Name must not start with a dot: \"" + name + "\"");
@@ -279,24 +293,25 @@ FileStore createFileStoreInternal(final String name,
         if (name.contains("/") || name.contains("\\")) {
             throw new IOException("Invalid file name, must not contain (back) slash: \"" + name + "\"");
         }
-        FileStoreKey key = new FileStoreKey(m_storeUUID, m_nextIndex, nestedLoopPath, iterationIndex, name);
         ensureInitBaseDirectory();
-        if (m_nextIndex > MAX_NR_FILES) {
+        final int index = m_nextIndex.getAndIncrement();
+        if (index > MAX_NR_FILES) {
             throw new IOException("Maximum number of files stores reached: " + MAX_NR_FILES);
         }
-        getParentDir(m_nextIndex, true);
-        m_nextIndex++;
+        FileStoreKey key = new FileStoreKey(m_storeUUID, index, nestedLoopPath, iterationIndex, name);
+        getParentDir(index, true);
         FileStore fs = FileStoreUtil.createFileStore(this, key);
         return fs;
     }
 
     /** @return the nextIndex */
     public int getNextIndex() {
-        return m_nextIndex;
+        return m_nextIndex.get();
     }
 
     public File getParentDir(final int indexArg, final boolean create) {
         int index = indexArg / FILES_PER_FOLDER; // bottom most dir also contains many files
+        final int leafFolderIndex = index;
         File parentDir = m_baseDir;
         String[] subFolderNames = new String[FOLDER_LEVEL];
         for (int level = 0; level < FOLDER_LEVEL; level++) {
@@ -307,8 +322,10 @@ public File getParentDir(final int indexArg, final boolean create) {
         for (int level = 0; level < FOLDER_LEVEL; level++) {
             parentDir = new File(parentDir, subFolderNames[level]);
         }
-        if (create && !parentDir.isDirectory()) {
-            if (!parentDir.mkdirs()) {
+        if (create && !m_createdLeafFolders.contains(leafFolderIndex)) {
+            if (parentDir.isDirectory() || parentDir.mkdirs() || parentDir.isDirectory()) {
+                m_createdLeafFolders.add(leafFolderIndex);
+            } else {
                 LOGGER.error("Failed to create directory \"" + parentDir.getAbsolutePath() + "\"");
             }
         }
@@ -317,6 +334,15 @@ public File getParentDir(final int indexArg, final boolean create) {
 
 
     private void ensureInitBaseDirectory() throws IOException {
+        if (m_baseDir != null) {
+            return;
+        }
+        synchronized (this) {
+            initBaseDirectory();
+        }
+    }
+
+    private void initBaseDirectory() throws IOException {
         assert Thread.holdsLock(this);
         if (m_baseDir == null) {
             StringBuilder baseDirName = new StringBuilder("fs-");
@@ -0,0 +1,145 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.group;
+
+import java.util.Arrays;
+
+import org.knime.core.data.DataCell;
+
+/**
+ * Open-addressing (linear probing) hash table that maps group keys to consecutive group indices. Indices are assigned
+ * in order of first insertion, which lets callers keep per-group state in a plain list and emit groups in order of
+ * their first occurrence. Not thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class GroupKeyTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Slot contents; <code>null</code> marks an empty slot. */
+    private DataCell[][] m_keys;
+
+    /** Cached (spread) hash codes of the keys in {@link #m_keys}. */
+    private int[] m_hashes;
+
+    /** Group index of the key in the respective slot. */
+    private int[] m_groups;
+
+    private int m_size;
+
+    GroupKeyTable() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /** @return number of distinct keys in the table */
+    int size() {
+        return m_size;
+    }
+
+    /**
+     * Returns the group index of the argument key, adding it as new group if not present.
+     *
+     * @param key the group key, not to be modified afterwards
+     * @param hash the hash of the key as per {@link #hash(DataCell[])}
+     * @return the group index, if it is equal to {@link #size()} - 1 after the call the key was new
+     */
+    int putIfAbsent(final DataCell[] key, final int hash) {
+        final int mask = m_keys.length - 1;
+        int slot = hash & mask;
+        while (m_keys[slot] != null) {
+            if (m_hashes[slot] == hash && Arrays.equals(m_keys[slot], key)) {
+                return m_groups[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        final int group = m_size++;
+        m_keys[slot] = key;
+        m_hashes[slot] = hash;
+        m_groups[slot] = group;
+        // keep load factor below 1/2 so probe sequences stay short
+        if (m_size * 2 > m_keys.length) {
+            rehash();
+        }
+        return group;
+    }
+
+    private void rehash() {
+        final DataCell[][] keys = m_keys;
+        final int[] hashes = m_hashes;
+        final int[] groups = m_groups;
+        allocate(keys.length * 2);
+        final int mask = m_keys.length - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                int slot = hashes[i] & mask;
+                while (m_keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                m_keys[slot] = keys[i];
+                m_hashes[slot] = hashes[i];
+                m_groups[slot] = groups[i];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        m_keys = new DataCell[capacity][];
+        m_hashes = new int[capacity];
+        m_groups = new int[capacity];
+    }
+
+    /**
+     * Hash code of a group key with the bits spread so that both the low bits (used for the slot) and the high bits
+     * (used for partitioning) are well distributed.
+     *
+     * @param key the key
+     * @return its hash code
+     */
+    static int hash(final DataCell[] key) {
+        final int h = Arrays.hashCode(key) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
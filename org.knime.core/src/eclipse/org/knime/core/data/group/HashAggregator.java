@@ -0,0 +1,92 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.group;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+
+/**
+ * Aggregation function used by {@link HashGrouper#aggregate(org.knime.core.node.BufferedDataTable,
+ * org.knime.core.data.DataTableSpec, HashAggregator, org.knime.core.node.ExecutionContext)}. For each distinct group
+ * key a state is created, updated with all rows of that group (in input order) and finally converted into the cells
+ * of one output row.
+ *
+ * <p>
+ * Groups of different partitions are processed concurrently, hence implementations must not keep mutable data outside
+ * of the state objects (or must synchronize access to it). A single state is only ever accessed by one thread.
+ *
+ * @param <S> the type of the per-group aggregation state
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public interface HashAggregator<S> {
+
+    /**
+     * Creates the state for a new group.
+     *
+     * @param groupKey the cells of the key columns of the group (in the order the key columns were specified), must
+     *            not be modified
+     * @return a new state, which is subsequently passed to {@link #update(Object, DataRow)} for each row of the group
+     *         (including the first one)
+     */
+    S createState(DataCell[] groupKey);
+
+    /**
+     * Adds a row to the state of its group.
+     *
+     * @param state the state of the group as returned by {@link #createState(DataCell[])}
+     * @param row the input row
+     */
+    void update(S state, DataRow row);
+
+    /**
+     * Creates the cells of the output row for a group once all its rows have been added.
+     *
+     * @param groupKey the cells of the key columns of the group
+     * @param state the state of the group
+     * @return the cells of the output row, compatible with the output spec passed to the grouper
+     */
+    DataCell[] finish(DataCell[] groupKey, S state);
+}
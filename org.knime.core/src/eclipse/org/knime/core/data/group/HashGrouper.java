@@ -0,0 +1,371 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.group;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.data.util.memory.MemoryAlertSystem.MemoryActionIndicator;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.util.CheckUtils;
+import org.knime.core.util.OrderedTaskWindow;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Groups the rows of a {@link BufferedDataTable} by a set of key columns using hashing instead of sorting, which
+ * requires time linear in the number of rows.
+ *
+ * <p>
+ * The input is read once and hash-partitioned by the group key into {@link #setNumPartitions(int) a number of
+ * partitions}. Partitions are held in memory; whenever the {@link MemoryAlertSystem} reports low memory the largest
+ * in-memory partition is spilled to a temporary container. Afterwards the partitions are processed independently, up to
+ * {@link #setParallelism(int) parallelism} of them concurrently, each by means of an open-addressing hash table on the
+ * group keys. Only the groups (not the rows) of a partition need to fit into memory during that step.
+ *
+ * <p>
+ * The output contains the groups partition by partition and, within a partition, in order of their first occurrence
+ * in the input. It is deterministic for a given input and number of partitions but, unlike the output of a sort-based
+ * grouping, not ordered by key. Missing cells in key columns are considered equal to each other.
+ *
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * HashGrouper grouper = new HashGrouper(table, Arrays.asList("Customer", "Product"));
+ * BufferedDataTable distinct = grouper.distinct(exec);
+ * BufferedDataTable counts = grouper.aggregate(countSpec, countAggregator, exec);
+ * </pre>
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class HashGrouper {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(HashGrouper.class);
+
+    /** The default number of partitions. See {@link #setNumPartitions(int)}. */
+    public static final int DEF_NUM_PARTITIONS = 64;
+
+    private final BufferedDataTable m_table;
+
+    private final int[] m_keyIndices;
+
+    private int m_numPartitions = DEF_NUM_PARTITIONS;
+
+    private int m_parallelism = Runtime.getRuntime().availableProcessors();
+
+    private MemoryActionIndicator m_memActionIndicator = MemoryAlertSystem.getInstance().newIndicator();
+
+    /**
+     * Creates a new grouper.
+     *
+     * @param table the table to group
+     * @param keyColumns the names of the columns that form the group key; if empty all rows form a single group
+     * @throws IllegalArgumentException if any of the columns doesn't exist in the table
+     */
+    public HashGrouper(final BufferedDataTable table, final Collection<String> keyColumns) {
+        m_table = CheckUtils.checkArgumentNotNull(table, "Table must not be null.");
+        CheckUtils.checkArgumentNotNull(keyColumns, "Key columns must not be null.");
+        final DataTableSpec spec = table.getDataTableSpec();
+        m_keyIndices = new int[keyColumns.size()];
+        int i = 0;
+        for (String name : keyColumns) {
+            m_keyIndices[i] = spec.findColumnIndex(name);
+            CheckUtils.checkArgument(m_keyIndices[i] >= 0, "Column \"%s\" does not exist in input table.", name);
+            i++;
+        }
+    }
+
+    /**
+     * Sets the number of hash partitions. More partitions make spilling more fine-grained and reduce the number of
+     * groups that need to be held in memory at the same time. The default is {@value #DEF_NUM_PARTITIONS}.
+     *
+     * @param value the number of partitions, a power of two between 1 and 4096
+     */
+    public void setNumPartitions(final int value) {
+        CheckUtils.checkArgument(value >= 1 && value <= 4096 && Integer.bitCount(value) == 1,
+            "Number of partitions must be a power of two between 1 and 4096: %d", value);
+        m_numPartitions = value;
+    }
+
+    /**
+     * Sets the number of partitions that are processed concurrently. The default is the number of available
+     * processors.
+     *
+     * @param value the parallelism, must be &gt;= 1
+     */
+    public void setParallelism(final int value) {
+        CheckUtils.checkArgument(value >= 1, "Parallelism must be at least 1: %d", value);
+        m_parallelism = value;
+    }
+
+    /**
+     * Sets the memory indicator used to decide when to spill partitions. Only changed in unit tests.
+     *
+     * @param memActionIndicator the indicator
+     */
+    void setMemActionIndicator(final MemoryActionIndicator memActionIndicator) {
+        m_memActionIndicator = memActionIndicator;
+    }
+
+    /**
+     * Removes duplicates with respect to the key columns, keeping the first row (in input order) of each group.
+     *
+     * @param exec execution context used for creating tables and reporting progress
+     * @return a table with the same spec as the input containing one row per distinct key
+     * @throws CanceledExecutionException if execution is canceled
+     */
+    public BufferedDataTable distinct(final ExecutionContext exec) throws CanceledExecutionException {
+        return run(m_table.getDataTableSpec(), rows -> {
+            final GroupKeyTable groups = new GroupKeyTable();
+            final List<DataRow> result = new ArrayList<>();
+            for (DataRow row : rows) {
+                final DataCell[] key = extractKey(row);
+                if (groups.putIfAbsent(key, GroupKeyTable.hash(key)) == result.size()) {
+                    result.add(row);
+                }
+            }
+            return result;
+        }, Function.identity(), exec);
+    }
+
+    /**
+     * Aggregates the rows of each group into one output row. The output rows get new, consecutive row keys.
+     *
+     * @param outSpec the spec of the output table, the cells returned by
+     *            {@link HashAggregator#finish(DataCell[], Object)} must comply with it
+     * @param aggregator the aggregation function
+     * @param exec execution context used for creating tables and reporting progress
+     * @param <S> the type of the aggregation state
+     * @return a table containing one row per group
+     * @throws CanceledExecutionException if execution is canceled
+     */
+    public <S> BufferedDataTable aggregate(final DataTableSpec outSpec, final HashAggregator<S> aggregator,
+        final ExecutionContext exec) throws CanceledExecutionException {
+        CheckUtils.checkArgumentNotNull(outSpec, "Output spec must not be null.");
+        CheckUtils.checkArgumentNotNull(aggregator, "Aggregator must not be null.");
+        final long[] rowIndex = new long[1];
+        return run(outSpec, rows -> {
+            final GroupKeyTable groups = new GroupKeyTable();
+            final List<DataCell[]> keys = new ArrayList<>();
+            final List<S> states = new ArrayList<>();
+            for (DataRow row : rows) {
+                final DataCell[] key = extractKey(row);
+                final int group = groups.putIfAbsent(key, GroupKeyTable.hash(key));
+                if (group == states.size()) {
+                    keys.add(key);
+                    states.add(aggregator.createState(key));
+                }
+                aggregator.update(states.get(group), row);
+            }
+            final List<DataCell[]> result = new ArrayList<>(states.size());
+            for (int i = 0; i < states.size(); i++) {
+                result.add(aggregator.finish(keys.get(i), states.get(i)));
+                // release the state as early as possible
+                states.set(i, null);
+            }
+            return result;
+        }, cells -> new DefaultRow(RowKey.createRowKey(rowIndex[0]++), cells), exec);
+    }
+
+    /**
+     * Partitions the input and then processes the partitions concurrently, appending the results in partition order.
+     *
+     * @param processor computes the result of one partition, called concurrently
+     * @param toRow converts a result element into an output row, called by the calling thread in output order
+     */
+    private <T> BufferedDataTable run(final DataTableSpec outSpec, final Function<Iterable<DataRow>, List<T>> processor,
+        final Function<T, DataRow> toRow, final ExecutionContext exec) throws CanceledExecutionException {
+        final Partition[] partitions = partition(exec.createSubExecutionContext(0.5));
+        final ExecutionContext processExec = exec.createSubExecutionContext(0.5);
+        processExec.setMessage("Processing partitions");
+        final ThreadPool executor = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(m_parallelism);
+        final BufferedDataContainer out = processExec.createDataContainer(outSpec);
+        try (OrderedTaskWindow<List<T>> window = new OrderedTaskWindow<>(executor, m_parallelism, m_numPartitions,
+            i -> createTask(partitions[i], processor), "processing hash partition")) {
+            for (int i = 0; i < m_numPartitions; i++) {
+                for (T t : window.next()) {
+                    processExec.checkCanceled();
+                    out.addRowToTable(toRow.apply(t));
+                }
+                partitions[i].clear(processExec);
+                processExec.setProgress((i + 1) / (double)m_numPartitions);
+            }
+        } finally {
+            out.close();
+            for (Partition p : partitions) {
+                p.clear(processExec);
+            }
+        }
+        return out.getTable();
+    }
+
+    /** Phase 1: hash-partition the input, spilling partitions on low memory. */
+    private Partition[] partition(final ExecutionContext exec) throws CanceledExecutionException {
+        exec.setMessage("Partitioning rows");
+        final Partition[] partitions = new Partition[m_numPartitions];
+        for (int i = 0; i < m_numPartitions; i++) {
+            partitions[i] = new Partition();
+        }
+        final int shift = Integer.SIZE - Integer.numberOfTrailingZeros(m_numPartitions);
+        final double size = m_table.size();
+        boolean success = false;
+        try {
+            long rowIndex = 0;
+            for (DataRow row : m_table) {
+                exec.checkCanceled();
+                // use the high bits, the low bits determine the slot in the hash table
+                final int p = shift == Integer.SIZE ? 0 : GroupKeyTable.hash(extractKey(row)) >>> shift;
+                partitions[p].add(row);
+                if (m_memActionIndicator.lowMemoryActionRequired()) {
+                    spillLargest(partitions, exec);
+                }
+                exec.setProgress(++rowIndex / size);
+            }
+            for (Partition p : partitions) {
+                p.closeSpill();
+            }
+            success = true;
+            return partitions;
+        } finally {
+            if (!success) {
+                for (Partition p : partitions) {
+                    p.clear(exec);
+                }
+            }
+        }
+    }
+
+    private void spillLargest(final Partition[] partitions, final ExecutionContext exec) {
+        Partition largest = null;
+        for (Partition p : partitions) {
+            if (p.m_spill == null && (largest == null || p.m_rows.size() > largest.m_rows.size())) {
+                largest = p;
+            }
+        }
+        if (largest == null || largest.m_rows.isEmpty()) {
+            return;
+        }
+        LOGGER.debugWithFormat("Low memory, spilling hash partition with %d rows to disk", largest.m_rows.size());
+        largest.spill(exec.createDataContainer(m_table.getDataTableSpec(), true, 0));
+    }
+
+    private DataCell[] extractKey(final DataRow row) {
+        final DataCell[] key = new DataCell[m_keyIndices.length];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = row.getCell(m_keyIndices[i]);
+        }
+        return key;
+    }
+
+    private static <T> Callable<List<T>> createTask(final Partition partition,
+        final Function<Iterable<DataRow>, List<T>> processor) {
+        final Iterable<DataRow> rows = partition.rows();
+        return () -> processor.apply(rows);
+    }
+
+    /** The rows of one hash partition, either in memory or in a (spilled) temporary table. */
+    private static final class Partition {
+
+        private List<DataRow> m_rows = new ArrayList<>();
+
+        private BufferedDataContainer m_spill;
+
+        private BufferedDataTable m_spilledTable;
+
+        void add(final DataRow row) {
+            if (m_spill != null) {
+                m_spill.addRowToTable(row);
+            } else {
+                m_rows.add(row);
+            }
+        }
+
+        /** Writes the in-memory rows to the container, subsequent rows are added to it directly. */
+        void spill(final BufferedDataContainer container) {
+            m_spill = container;
+            for (DataRow row : m_rows) {
+                m_spill.addRowToTable(row);
+            }
+            m_rows = Collections.emptyList();
+        }
+
+        void closeSpill() {
+            if (m_spill != null && m_spilledTable == null) {
+                m_spill.close();
+                m_spilledTable = m_spill.getTable();
+            }
+        }
+
+        Iterable<DataRow> rows() {
+            return m_spilledTable != null ? m_spilledTable : m_rows;
+        }
+
+        void clear(final ExecutionContext exec) {
+            m_rows = Collections.emptyList();
+            closeSpill();
+            if (m_spilledTable != null) {
+                exec.clearTable(m_spilledTable);
+                m_spilledTable = null;
+                m_spill = null;
+            }
+        }
+    }
+}
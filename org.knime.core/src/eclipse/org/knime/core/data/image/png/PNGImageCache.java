@@ -0,0 +1,510 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.image.png;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.knime.core.data.container.BlobDataCell.BlobAddress;
+import org.knime.core.data.util.memory.MemoryAlert;
+import org.knime.core.data.util.memory.MemoryAlertListener;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * A cache of decoded and downscaled images of {@link PNGImageValue PNGImageValues}, shared by all renderers and views
+ * (see {@link PNGImageValue#getImage(int, int)}).
+ * <p>
+ * Entries are keyed by the identity of the cell's content and the size of the image, blob cells that have been stored
+ * in a table are keyed by their blob address (plus a hash of their content) so that the image is found again when the
+ * blob is read from disc once more. Entries are weighted by the size of the decoded image and least recently used
+ * entries are evicted once the byte budget is exceeded. The cache is cleared when memory becomes scarce (see
+ * {@link MemoryAlertSystem}).
+ * <p>
+ * Images can be decoded asynchronously on a small thread pool. Pending requests are processed in LIFO order and the
+ * oldest requests are dropped if too many are pending, so that the images of the rows that were scrolled to last are
+ * decoded first. Large images are subsampled while decoding if only a thumbnail is requested.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class PNGImageCache {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(PNGImageCache.class);
+
+    /** Default budget: 5% of the heap, but no more than 256MB. */
+    static final long DEF_CACHE_SIZE = Math.min(Runtime.getRuntime().maxMemory() / 20, 256L << 20);
+
+    /** Size overhead assumed for each entry (object headers, map entry, key). */
+    private static final long ENTRY_OVERHEAD = 128;
+
+    /** Maximum number of pending decode requests, the oldest requests are dropped if exceeded. */
+    private static final int MAX_PENDING_REQUESTS = 256;
+
+    /** Lazily created singleton. */
+    private static final class InstanceHolder {
+        private static final PNGImageCache INSTANCE = createInstance();
+    }
+
+    private final long m_budget;
+
+    /** Access ordered map, guarded by itself. */
+    private final LinkedHashMap<Key, Entry> m_map = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Total weight of the entries in {@link #m_map}, guarded by {@link #m_map}. */
+    private long m_weight;
+
+    /** Images currently decoded by a background task. */
+    private final Map<Key, CompletableFuture<Image>> m_inFlight = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor m_executor;
+
+    /**
+     * Creates a cache with a custom budget, not registered with the memory alert system.
+     *
+     * @param budget the maximum total size of cached images in bytes, 0 to disable caching
+     */
+    PNGImageCache(final long budget) {
+        m_budget = Math.max(0L, budget);
+        final AtomicInteger threadCount = new AtomicInteger();
+        final int nrThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        m_executor = new ThreadPoolExecutor(nrThreads, nrThreads, 10, TimeUnit.SECONDS,
+            new LifoQueue(MAX_PENDING_REQUESTS), r -> {
+                Thread t = new Thread(r, "KNIME-PNG-Decoder-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }, (r, executor) -> {
+                // drop the oldest request in favor of the new one
+                final Runnable oldest = ((LifoQueue)executor.getQueue()).pollLast();
+                if (oldest != null) {
+                    ((DecodeTask)oldest).drop();
+                }
+                if (executor.isShutdown() || !executor.getQueue().offer(r)) {
+                    ((DecodeTask)r).drop();
+                }
+            });
+        m_executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** @return the instance shared by all cells */
+    static PNGImageCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    private static PNGImageCache createInstance() {
+        final PNGImageCache cache = new PNGImageCache(readBudgetFromProperty());
+        MemoryAlertSystem.getInstanceUncollected().addListener(new MemoryAlertListener() {
+            @Override
+            protected boolean memoryAlert(final MemoryAlert alert) {
+                LOGGER.debug("Clearing PNG image cache in order to free memory.");
+                cache.clear();
+                return false;
+            }
+        });
+        return cache;
+    }
+
+    private static long readBudgetFromProperty() {
+        final String property = KNIMEConstants.PROPERTY_PNG_IMAGE_CACHE_SIZE;
+        final String value = System.getProperty(property);
+        if (value != null) {
+            try {
+                final long sizeInMB = Long.parseLong(value.trim());
+                if (sizeInMB >= 0) {
+                    return sizeInMB << 20;
+                }
+            } catch (NumberFormatException nfe) {
+                // handled below
+            }
+            LOGGER.warn("Invalid setting for PNG image cache size (\"" + property + "\"): " + value
+                + ". Using default: " + (DEF_CACHE_SIZE >> 20) + "MB.");
+        }
+        return DEF_CACHE_SIZE;
+    }
+
+    /**
+     * Returns the image of the value scaled down to fit into the given size, from the cache or decoded by the calling
+     * thread (and added to the cache).
+     *
+     * @param value the value whose image to return
+     * @param width the maximum width
+     * @param height the maximum height
+     * @return the image
+     * @throws IllegalStateException if the image can't be decoded
+     */
+    Image get(final PNGImageValue value, final int width, final int height) {
+        final PNGImageContent content = value.getImageContent();
+        final Dimension size = fitInto(content.getImageSize(), width, height);
+        final Key key = new Key(value, content, size);
+        Image image = getCached(key);
+        if (image != null) {
+            return image;
+        }
+        final CompletableFuture<Image> pending = m_inFlight.get(key);
+        if (pending != null) {
+            try {
+                return pending.get();
+            } catch (ExecutionException | CancellationException e) {
+                // decode again to report the problem to the caller
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        image = decode(content, size);
+        put(key, image);
+        return image;
+    }
+
+    /**
+     * Returns a future for the image of the value scaled down to fit into the given size. The future is completed
+     * already if the image is cached, otherwise the image is decoded on a background thread.
+     *
+     * @param value the value whose image to return
+     * @param width the maximum width
+     * @param height the maximum height
+     * @return the future, which is completed exceptionally if the image can't be decoded and cancelled if the request
+     *         was dropped because too many requests were pending
+     */
+    CompletableFuture<Image> getAsync(final PNGImageValue value, final int width, final int height) {
+        final PNGImageContent content = value.getImageContent();
+        final Dimension size;
+        try {
+            size = fitInto(content.getImageSize(), width, height);
+        } catch (IllegalStateException ise) {
+            final CompletableFuture<Image> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ise);
+            return failed;
+        }
+        final Key key = new Key(value, content, size);
+        final Image image = getCached(key);
+        if (image != null) {
+            return CompletableFuture.completedFuture(image);
+        }
+        final CompletableFuture<Image> future = new CompletableFuture<>();
+        final CompletableFuture<Image> pending = m_inFlight.putIfAbsent(key, future);
+        if (pending != null) {
+            return pending;
+        }
+        m_executor.execute(new DecodeTask(key, content, size, future));
+        return future;
+    }
+
+    private Image getCached(final Key key) {
+        synchronized (m_map) {
+            final Entry entry = m_map.get(key);
+            return entry != null ? entry.m_image : null;
+        }
+    }
+
+    private void put(final Key key, final Image image) {
+        final long weight = 4L * image.getWidth(null) * image.getHeight(null) + ENTRY_OVERHEAD;
+        if (weight > m_budget) {
+            // too large to be cached (or caching disabled)
+            return;
+        }
+        synchronized (m_map) {
+            final Entry old = m_map.put(key, new Entry(image, weight));
+            if (old != null) {
+                m_weight -= old.m_weight;
+            }
+            m_weight += weight;
+            final Iterator<Entry> it = m_map.values().iterator();
+            while (m_weight > m_budget && it.hasNext()) {
+                m_weight -= it.next().m_weight;
+                it.remove();
+            }
+        }
+    }
+
+    /** Removes all entries from the cache. */
+    void clear() {
+        synchronized (m_map) {
+            m_map.clear();
+            m_weight = 0L;
+        }
+    }
+
+    /** @return the number of cached images */
+    int size() {
+        synchronized (m_map) {
+            return m_map.size();
+        }
+    }
+
+    /** @return the total size of all cached images in bytes (as estimated by their weight) */
+    long getWeight() {
+        synchronized (m_map) {
+            return m_weight;
+        }
+    }
+
+    /**
+     * Computes the size of an image scaled down to fit into the given bounds, keeping its aspect ratio. Images are not
+     * enlarged, equivalent to {@link org.knime.core.node.util.ImageViewPanel.ScaleType#ShrinkAsNeeded}.
+     *
+     * @param imageSize the size of the image
+     * @param width the maximum width
+     * @param height the maximum height
+     * @return the size of the scaled image
+     */
+    static Dimension fitInto(final Dimension imageSize, final int width, final int height) {
+        final double scale = Math.max(1.0,
+            Math.max(imageSize.width / (double)Math.max(1, width), imageSize.height / (double)Math.max(1, height)));
+        if (scale == 1.0) {
+            return new Dimension(imageSize);
+        }
+        return new Dimension(Math.max(1, (int)(imageSize.width / scale)), Math.max(1, (int)(imageSize.height / scale)));
+    }
+
+    /**
+     * Decodes the image and scales it to the given size. The full size image is the (soft referenced) image of the
+     * content.
+     */
+    private static Image decode(final PNGImageContent content, final Dimension size) {
+        final Dimension imageSize = content.getImageSize();
+        if (imageSize.equals(size)) {
+            return content.getImage();
+        }
+        // subsample while decoding but leave at least a factor of two for the (smoothing) downscaling
+        final int subsampling = Math.max(1, Math.min(imageSize.width / size.width, imageSize.height / size.height) / 2);
+        final BufferedImage decoded;
+        try {
+            decoded = read(content.getByteArrayReference(), subsampling);
+        } catch (IOException e) {
+            throw new IllegalStateException("Image can't be read", e);
+        }
+        return scale(decoded, size.width, size.height);
+    }
+
+    private static BufferedImage read(final byte[] bytes, final int subsampling) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("No reader available for image bytes");
+            }
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                final ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Scales the image down by repeatedly halving its size with bilinear interpolation (fast and smooth). */
+    private static BufferedImage scale(final BufferedImage image, final int width, final int height) {
+        BufferedImage current = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        while (w != width || h != height) {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            final BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /** Decodes an image in the background and adds it to the cache. */
+    private final class DecodeTask implements Runnable {
+
+        private final Key m_key;
+
+        private final PNGImageContent m_content;
+
+        private final Dimension m_size;
+
+        private final CompletableFuture<Image> m_future;
+
+        DecodeTask(final Key key, final PNGImageContent content, final Dimension size,
+            final CompletableFuture<Image> future) {
+            m_key = key;
+            m_content = content;
+            m_size = size;
+            m_future = future;
+        }
+
+        @Override
+        public void run() {
+            try {
+                final Image image = decode(m_content, m_size);
+                put(m_key, image);
+                m_future.complete(image);
+            } catch (RuntimeException e) {
+                LOGGER.debug("Unable to decode PNG image: " + e.getMessage(), e);
+                m_future.completeExceptionally(e);
+            } finally {
+                m_inFlight.remove(m_key, m_future);
+            }
+        }
+
+        /** Called if the request is dropped without being processed. */
+        void drop() {
+            m_inFlight.remove(m_key, m_future);
+            m_future.cancel(false);
+        }
+    }
+
+    /** A queue handing out the most recently added element first. */
+    @SuppressWarnings("serial")
+    private static final class LifoQueue extends LinkedBlockingDeque<Runnable> {
+
+        LifoQueue(final int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        public boolean offer(final Runnable r) {
+            return offerFirst(r);
+        }
+    }
+
+    /**
+     * Cache key. Blob cells stored in a table are identified by their blob address, which is only unique within a
+     * workflow, hence the content's hash is added. Other cells are identified by their content's identity, which is
+     * referenced weakly so that the cache doesn't keep the (possibly large) bytes in memory; entries of collected
+     * content are never found again and eventually evicted.
+     */
+    private static final class Key {
+
+        private final BlobAddress m_address;
+
+        private final WeakReference<PNGImageContent> m_contentRef;
+
+        private final int m_hash;
+
+        private final int m_width;
+
+        private final int m_height;
+
+        Key(final PNGImageValue value, final PNGImageContent content, final Dimension size) {
+            m_address = value instanceof PNGImageBlobCell ? ((PNGImageBlobCell)value).getStoredBlobAddress() : null;
+            if (m_address != null) {
+                m_contentRef = null;
+                m_hash = content.hashCode();
+            } else {
+                m_contentRef = new WeakReference<>(content);
+                m_hash = System.identityHashCode(content);
+            }
+            m_width = size.width;
+            m_height = size.height;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key k = (Key)obj;
+            if (k.m_hash != m_hash || k.m_width != m_width || k.m_height != m_height) {
+                return false;
+            }
+            if (m_address != null) {
+                return m_address.equals(k.m_address);
+            }
+            if (k.m_address != null) {
+                return false;
+            }
+            final PNGImageContent content = m_contentRef.get();
+            return content != null && content == k.m_contentRef.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * m_hash + m_width) + m_height;
+        }
+    }
+
+    /** A cache entry, remembering the weight it was added with. */
+    private static final class Entry {
+
+        private final Image m_image;
+
+        private final long m_weight;
+
+        Entry(final Image image, final long weight) {
+            m_image = image;
+            m_weight = weight;
+        }
+    }
+}
@@ -86,6 +86,12 @@ public class PNGImageContent implements ImageContent {
 
     private SoftReference<Image> m_imageRef;
 
+    /** Size of the image as per the PNG header, lazily initialized (see {@link #getImageSize()}). */
+    private volatile Dimension m_imageSize;
+
+    /** Cached hash code of the content, 0 if not computed yet. */
+    private int m_hashCode;
+
     /** Framework constructor for restoring content. <b>Do not use!</b> */
     public PNGImageContent() {
         // no-arg, required by ImageContent
@@ -98,11 +104,23 @@ public PNGImageContent() {
      * valid png byte stream (according to {@link ImageIO#read(InputStream)}.
      */
     public PNGImageContent(final byte[] imageBytes) {
+        this(imageBytes, true);
+    }
+
+    /** Creates PNG image content from byte array, optionally without decoding
+     * (and thereby validating) the image.
+     * @param imageBytes The image bytes.
+     * @param decode Whether to decode the image, false if the bytes have been
+     * validated before (i.e. when read from a table).
+     */
+    private PNGImageContent(final byte[] imageBytes, final boolean decode) {
         if (imageBytes == null) {
             throw new NullPointerException("Argument must not be null.");
         }
         m_imageBytes = imageBytes;
-        m_imageRef = new SoftReference<Image>(getImageInternal(imageBytes));
+        if (decode) {
+            m_imageRef = new SoftReference<Image>(getImageInternal(imageBytes));
+        }
     }
 
     /** Reads image content from a stream. The reader will read content
@@ -151,7 +169,7 @@ public byte[] getByteArray() {
      *         as part of this cell but kept in a SoftReference)
      */
     public Image getImage() {
-        Image image = m_imageRef.get();
+        Image image = m_imageRef != null ? m_imageRef.get() : null;
         if (image != null) {
             return image;
         }
@@ -182,26 +200,56 @@ private static Image getImageInternal(final byte[] array) {
         }
     }
 
+    /** Get the size of the image as declared in the PNG header, which does
+     * not require decoding the image.
+     * @return The size of the image, not to be modified.
+     * @throws IllegalStateException If the size can't be determined.
+     */
+    Dimension getImageSize() {
+        Dimension size = m_imageSize;
+        if (size == null) {
+            size = readSizeFromHeader(m_imageBytes);
+            if (size == null) {
+                Image image = getImage();
+                size = new Dimension(image.getWidth(null), image.getHeight(null));
+            }
+            m_imageSize = size;
+        }
+        return size;
+    }
+
+    /** Reads the image size from the IHDR chunk, which is mandatory and the
+     * first chunk following the 8 byte PNG signature.
+     * @return The size or null if the bytes do not start with a PNG header.
+     */
+    private static Dimension readSizeFromHeader(final byte[] bytes) {
+        if (bytes.length < 24 || (bytes[0] & 0xFF) != 0x89 || bytes[1] != 'P' || bytes[2] != 'N' || bytes[3] != 'G'
+            || bytes[12] != 'I' || bytes[13] != 'H' || bytes[14] != 'D' || bytes[15] != 'R') {
+            return null;
+        }
+        final int width = readInt(bytes, 16);
+        final int height = readInt(bytes, 20);
+        return width > 0 && height > 0 ? new Dimension(width, height) : null;
+    }
+
+    private static int readInt(final byte[] bytes, final int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+            | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void paint(final Graphics2D g, final int width, final int height) {
-        BufferedImage image = null;
-        String error = null;
+        Image image;
         try {
-            image = ImageIO.read(new ByteArrayInputStream(m_imageBytes));
-            if (image == null) {
-                error = "ImageIO returned null";
-            }
-        } catch (IOException e) {
-            error = e.getMessage();
-        }
-        if (error != null) {
-            g.drawString(error, 0, 0);
-        } else {
-            ImageViewPanel.drawInto(g, image, image.getWidth(), image.getHeight(),
-                new Rectangle(width, height), ScaleType.ShrinkAsNeeded);
-//            g.drawImage(image, 0, 0, width, height, null);
+            image = getImage();
+        } catch (IllegalStateException ise) {
+            Throwable cause = ise.getCause() != null ? ise.getCause() : ise;
+            g.drawString(cause.getMessage(), 0, 0);
+            return;
         }
+        ImageViewPanel.drawInto(g, image, image.getWidth(null), image.getHeight(null),
+            new Rectangle(width, height), ScaleType.ShrinkAsNeeded);
     }
 
     /** {@inheritDoc} */
@@ -220,7 +268,9 @@ static PNGImageContent deserialize(final DataCellDataInput input)
         int length = input.readInt();
         byte[] bytes = new byte[length];
         input.readFully(bytes);
-        return new PNGImageContent(bytes);
+        // the bytes were validated when the cell was created, the image is
+        // only decoded when needed (e.g. when a row is rendered)
+        return new PNGImageContent(bytes, false);
     }
 
     /** Serialize method for image content.
@@ -251,13 +301,11 @@ public DataCell toImageCell() {
     /** {@inheritDoc} */
     @Override
     public Dimension getPreferredSize() {
-        Image image;
         try {
-            image = getImage();
+            return new Dimension(getImageSize());
         } catch (IllegalStateException ise) {
             return new Dimension(16, 16);
         }
-        return new Dimension(image.getWidth(null), image.getHeight(null));
     }
 
     /** {@inheritDoc} */
@@ -278,6 +326,11 @@ public String getSummary() {
      */
     @Override
     public int hashCode() {
-        return Arrays.hashCode(m_imageBytes);
+        int hashCode = m_hashCode;
+        if (hashCode == 0) {
+            hashCode = Arrays.hashCode(m_imageBytes);
+            m_hashCode = hashCode;
+        }
+        return hashCode;
     }
 }
@@ -45,7 +45,9 @@
  */
 package org.knime.core.data.image.png;
 
+import java.awt.Image;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.Icon;
 
@@ -66,6 +68,36 @@ public interface PNGImageValue extends ImageValue {
     @Override
     public PNGImageContent getImageContent();
 
+    /** Get the image of this value scaled down to fit into the given size,
+     * keeping its aspect ratio (it is not enlarged). The image is taken from a
+     * cache shared by all PNG values or decoded by the calling thread and added
+     * to the cache. Use this method instead of
+     * {@link PNGImageContent#getImage()} to show thumbnails of images.
+     * @param width The maximum width of the image.
+     * @param height The maximum height of the image.
+     * @return The (possibly shared) image, which must not be modified.
+     * @throws IllegalStateException If the image can't be decoded.
+     * @since 4.2
+     */
+    default Image getImage(final int width, final int height) {
+        return PNGImageCache.getInstance().get(this, width, height);
+    }
+
+    /** Asynchronous variant of {@link #getImage(int, int)}. The returned future
+     * is already completed if the image is cached, otherwise the image is decoded
+     * on a background thread, which avoids blocking the UI thread while rendering
+     * many images (e.g. when scrolling a table).
+     * @param width The maximum width of the image.
+     * @param height The maximum height of the image.
+     * @return A future for the image. It is completed exceptionally if the image
+     * can't be decoded and cancelled if the request was dropped because too many
+     * requests are pending (it may be requested again).
+     * @since 4.2
+     */
+    default CompletableFuture<Image> getImageAsync(final int width, final int height) {
+        return PNGImageCache.getInstance().getAsync(this, width, height);
+    }
+
     /** Meta information to this value type.
      * @see DataValue#UTILITY
      */
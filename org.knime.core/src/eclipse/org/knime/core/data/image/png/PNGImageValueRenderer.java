@@ -0,0 +1,187 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.image.png;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+
+import org.knime.core.data.image.ImageDataValueRenderer;
+import org.knime.core.node.util.ImageViewPanel;
+import org.knime.core.node.util.ImageViewPanel.ScaleType;
+
+/**
+ * Renderer for {@link PNGImageValue PNGImageValues} that paints images scaled to the size of the cell, taken from the
+ * shared image cache (see {@link PNGImageValue#getImage(int, int)}). When rendering table or list cells, images that
+ * are not cached yet are decoded in the background and the cell is repainted once the image is available, so that
+ * scrolling through many images does not block the UI thread.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+@SuppressWarnings("serial")
+final class PNGImageValueRenderer extends ImageDataValueRenderer {
+
+    private PNGImageValue m_value;
+
+    /** The table or list the renderer is currently used for, null if used standalone. */
+    private JComponent m_repaintTarget;
+
+    /** The bounds of the rendered cell within {@link #m_repaintTarget}. */
+    private Rectangle m_repaintBounds;
+
+    /**
+     * @param name Name of the renderer, e.g. "PNG Image".
+     */
+    PNGImageValueRenderer(final String name) {
+        super(name);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void setValue(final Object value) {
+        if (value instanceof PNGImageValue) {
+            m_value = (PNGImageValue)value;
+            // painted by this class, the parent only paints the background
+            super.setValue(null);
+        } else {
+            m_value = null;
+            super.setValue(value);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Component getRendererComponent(final Object val) {
+        m_repaintTarget = null;
+        m_repaintBounds = null;
+        return super.getRendererComponent(val);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Component getTableCellRendererComponent(final JTable table, final Object value, final boolean isSelected,
+        final boolean hasFocus, final int row, final int column) {
+        m_repaintTarget = table;
+        m_repaintBounds = table.getCellRect(row, column, false);
+        return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Component getListCellRendererComponent(final JList list, final Object value, final int index,
+        final boolean isSelected, final boolean cellHasFocus) {
+        m_repaintTarget = list;
+        m_repaintBounds = list.getCellBounds(index, index);
+        return super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void paintComponent(final Graphics g) {
+        super.paintComponent(g);
+        if (m_value == null) {
+            return;
+        }
+        final int width = getWidth();
+        final int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        Image image = null;
+        if (m_repaintTarget == null) {
+            try {
+                image = m_value.getImage(width, height);
+            } catch (IllegalStateException ise) {
+                // paints the error message
+            }
+        } else {
+            final CompletableFuture<Image> future = m_value.getImageAsync(width, height);
+            if (!future.isDone()) {
+                final JComponent target = m_repaintTarget;
+                final Rectangle bounds = m_repaintBounds;
+                future.whenComplete((i, e) -> SwingUtilities.invokeLater(() -> {
+                    if (bounds != null) {
+                        target.repaint(bounds);
+                    } else {
+                        target.repaint();
+                    }
+                }));
+                return;
+            }
+            if (future.isCancelled()) {
+                return;
+            }
+            image = future.isCompletedExceptionally() ? null : future.join();
+        }
+        if (image == null) {
+            m_value.getImageContent().paint((Graphics2D)g, width, height);
+        } else {
+            ImageViewPanel.drawInto(g, image, image.getWidth(null), image.getHeight(null),
+                new Rectangle(width, height), ScaleType.ShrinkAsNeeded);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Dimension getPreferredSize() {
+        if (m_value == null) {
+            return super.getPreferredSize();
+        }
+        // the size is read from the PNG header, the image is not decoded
+        final Dimension contentPrefSize = m_value.getImageContent().getPreferredSize();
+        // increment by one due border in super class (see AP-6534)
+        return new Dimension(contentPrefSize.width + 1, contentPrefSize.height + 1);
+    }
+}
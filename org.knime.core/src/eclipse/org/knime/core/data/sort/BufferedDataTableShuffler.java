@@ -0,0 +1,294 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.util.CheckUtils;
+import org.knime.core.util.OrderedTaskWindow;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Shuffles a {@link BufferedDataTable} of arbitrary (<code>long</code>) size without sorting it. The algorithm is the
+ * external-memory variant of the Rao-Sandelius shuffle:
+ * <ol>
+ * <li>In a single pass over the input each row is assigned to one of <i>N</i> temporary on-disk buckets, chosen
+ * uniformly at random.</li>
+ * <li>The buckets are then read back one after another, each is shuffled in memory using Fisher-Yates and appended to
+ * the output. Up to {@link #setParallelism(int) parallelism} buckets are loaded and shuffled concurrently ahead of the
+ * bucket that is currently written.</li>
+ * </ol>
+ * The buckets are sized for half of {@link #setMaxRowsPerBucket(int) the in-memory limit}, so that random
+ * fluctuations of their sizes practically never exceed the limit. Buckets that are larger nevertheless (mostly because
+ * the number of buckets is bounded by {@link #setMaxOpenContainers(int)}) are shuffled recursively the same way. Every
+ * permutation of the input is equally likely and the result is fully determined by the seed (and the settings).
+ *
+ * <p>
+ * Compared to {@link Shuffler#shuffle(BufferedDataTable, ExecutionContext, long)} each row is written to disk only
+ * once (unless the number of buckets is bounded) and no comparisons are needed, which makes shuffling about as expensive as copying the table twice.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class BufferedDataTableShuffler {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(BufferedDataTableShuffler.class);
+
+    /** The default number of rows shuffled in memory at once. See {@link #setMaxRowsPerBucket(int)}. */
+    public static final int DEF_MAX_ROWS_PER_BUCKET = 100000;
+
+    /** The default maximum number of temporary buckets. See {@link #setMaxOpenContainers(int)}. */
+    public static final int DEF_MAX_OPENCONTAINER = 256;
+
+    private final BufferedDataTable m_table;
+
+    private final long m_seed;
+
+    private int m_maxRowsPerBucket = DEF_MAX_ROWS_PER_BUCKET;
+
+    private int m_maxOpenContainers = DEF_MAX_OPENCONTAINER;
+
+    private int m_parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a new shuffler for the given table.
+     *
+     * @param table the table to shuffle
+     * @param seed random seed for the permutation, the same seed (and settings) yields the same output
+     */
+    public BufferedDataTableShuffler(final BufferedDataTable table, final long seed) {
+        m_table = CheckUtils.checkArgumentNotNull(table, "Table must not be null.");
+        m_seed = seed;
+    }
+
+    /**
+     * Sets the maximum number of rows that are held and shuffled in memory at once (per bucket). Tables not larger
+     * than this value are shuffled entirely in memory. The default is {@value #DEF_MAX_ROWS_PER_BUCKET}.
+     *
+     * @param value the maximum number of rows per bucket, must be &gt;= 1
+     */
+    public void setMaxRowsPerBucket(final int value) {
+        CheckUtils.checkArgument(value >= 1, "Rows per bucket must be at least 1: %d", value);
+        m_maxRowsPerBucket = value;
+    }
+
+    /**
+     * Sets the maximum number of temporary buckets (and hence containers) that are open at the same time while the
+     * input is scattered. The default is {@value #DEF_MAX_OPENCONTAINER}.
+     *
+     * @param value the maximum number of open containers, must be &gt;= 2
+     */
+    public void setMaxOpenContainers(final int value) {
+        CheckUtils.checkArgument(value >= 2, "Number of open containers must be at least 2: %d", value);
+        m_maxOpenContainers = value;
+    }
+
+    /**
+     * Sets the number of buckets that are loaded and shuffled concurrently. The default is the number of available
+     * processors.
+     *
+     * @param value the parallelism, must be &gt;= 1
+     */
+    public void setParallelism(final int value) {
+        CheckUtils.checkArgument(value >= 1, "Parallelism must be at least 1: %d", value);
+        m_parallelism = value;
+    }
+
+    /**
+     * Shuffles the table.
+     *
+     * @param exec execution context used for creating tables and reporting progress
+     * @return the shuffled table
+     * @throws CanceledExecutionException if execution is canceled
+     */
+    public BufferedDataTable shuffle(final ExecutionContext exec) throws CanceledExecutionException {
+        CheckUtils.checkArgumentNotNull(exec, "Execution context must not be null.");
+        ThreadPool executor = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(m_parallelism);
+        BufferedDataContainer out = exec.createDataContainer(m_table.getDataTableSpec(), true);
+        try {
+            shuffle(m_table, m_seed, exec, out, executor);
+        } finally {
+            out.close();
+        }
+        return out.getTable();
+    }
+
+    private void shuffle(final BufferedDataTable table, final long seed, final ExecutionContext exec,
+        final BufferedDataContainer out, final ThreadPool executor) throws CanceledExecutionException {
+        final long size = table.size();
+        if (size <= m_maxRowsPerBucket) {
+            for (DataRow row : loadAndShuffle(table, new Random(seed))) {
+                exec.checkCanceled();
+                out.addRowToTable(row);
+            }
+            exec.setProgress(1.0);
+            return;
+        }
+        final Random random = new Random(seed);
+        // expected bucket size of half the limit, otherwise about half of the buckets would exceed it
+        final long rowsPerBucket = Math.max(1, m_maxRowsPerBucket / 2);
+        final int numBuckets = (int)Math.min(m_maxOpenContainers, (size - 1) / rowsPerBucket + 1);
+        final long[] bucketSeeds = new long[numBuckets];
+        for (int i = 0; i < numBuckets; i++) {
+            bucketSeeds[i] = random.nextLong();
+        }
+        LOGGER.debugWithFormat("Shuffling %d rows using %d temporary buckets", size, numBuckets);
+        final BufferedDataTable[] buckets = scatter(table, random, numBuckets, exec.createSubExecutionContext(0.5));
+        try {
+            gather(buckets, bucketSeeds, exec.createSubExecutionContext(0.5), out, executor);
+        } finally {
+            for (BufferedDataTable bucket : buckets) {
+                if (bucket != null) {
+                    exec.clearTable(bucket);
+                }
+            }
+        }
+    }
+
+    /** Phase 1: assign each row to a random bucket. */
+    private static BufferedDataTable[] scatter(final BufferedDataTable table, final Random random,
+        final int numBuckets, final ExecutionContext exec) throws CanceledExecutionException {
+        exec.setMessage("Distributing rows to temporary buckets");
+        final DataTableSpec spec = table.getDataTableSpec();
+        final BufferedDataContainer[] containers = new BufferedDataContainer[numBuckets];
+        final BufferedDataTable[] buckets = new BufferedDataTable[numBuckets];
+        boolean success = false;
+        try {
+            for (int i = 0; i < numBuckets; i++) {
+                containers[i] = exec.createDataContainer(spec, true, 0);
+            }
+            final double size = table.size();
+            long rowIndex = 0;
+            for (DataRow row : table) {
+                exec.checkCanceled();
+                containers[random.nextInt(numBuckets)].addRowToTable(row);
+                exec.setProgress(++rowIndex / size);
+            }
+            for (int i = 0; i < numBuckets; i++) {
+                containers[i].close();
+                buckets[i] = containers[i].getTable();
+            }
+            success = true;
+            return buckets;
+        } finally {
+            if (!success) {
+                for (int i = 0; i < numBuckets; i++) {
+                    if (buckets[i] != null) {
+                        exec.clearTable(buckets[i]);
+                    } else if (containers[i] != null) {
+                        containers[i].close();
+                        exec.clearTable(containers[i].getTable());
+                    }
+                }
+            }
+        }
+    }
+
+    /** Phase 2: shuffle the buckets in memory (in parallel, in order) and append them to the output. */
+    private void gather(final BufferedDataTable[] buckets, final long[] bucketSeeds, final ExecutionContext exec,
+        final BufferedDataContainer out, final ThreadPool executor) throws CanceledExecutionException {
+        exec.setMessage("Shuffling temporary buckets");
+        final int numBuckets = buckets.length;
+        final double totalRows = sizeOf(buckets);
+        try (OrderedTaskWindow<List<DataRow>> window = new OrderedTaskWindow<>(executor, m_parallelism, numBuckets,
+            i -> createShuffleTask(buckets[i], bucketSeeds[i]), "shuffling temporary bucket")) {
+            long rowsDone = 0;
+            for (int i = 0; i < numBuckets; i++) {
+                final List<DataRow> rows = window.next();
+                if (rows == null) {
+                    // bucket too large to be shuffled in memory (more rows than buckets allowed)
+                    shuffle(buckets[i], bucketSeeds[i], exec.createSubExecutionContext(buckets[i].size() / totalRows),
+                        out, executor);
+                } else {
+                    for (DataRow row : rows) {
+                        exec.checkCanceled();
+                        out.addRowToTable(row);
+                    }
+                }
+                rowsDone += buckets[i].size();
+                exec.clearTable(buckets[i]);
+                buckets[i] = null;
+                exec.setProgress(rowsDone / totalRows);
+            }
+        }
+    }
+
+    /** @return the in-memory shuffle of the bucket or null if it is too large to be held in memory */
+    private Callable<List<DataRow>> createShuffleTask(final BufferedDataTable bucket, final long seed) {
+        if (bucket.size() > m_maxRowsPerBucket) {
+            return null;
+        }
+        return () -> loadAndShuffle(bucket, new Random(seed));
+    }
+
+    private static List<DataRow> loadAndShuffle(final BufferedDataTable table, final Random random) {
+        final List<DataRow> rows = new ArrayList<>((int)table.size());
+        for (DataRow row : table) {
+            rows.add(row);
+        }
+        Collections.shuffle(rows, random);
+        return rows;
+    }
+
+    private static long sizeOf(final BufferedDataTable[] tables) {
+        long size = 0;
+        for (BufferedDataTable t : tables) {
+            size += t.size();
+        }
+        return size;
+    }
+}
@@ -83,6 +83,10 @@ private Shuffler() {
     /**
      * Shuffles the <b>table</b> using <b>exec</b> for table creations and progress report.
      * The <b>seed</b> is used to enable reproducibility.
+     * <p>
+     * For backward compatibility (same seed, same result) tables that can be indexed by an <code>int</code> are
+     * shuffled by sorting on a random column; larger tables are delegated to {@link BufferedDataTableShuffler}, which
+     * new code should use directly as it doesn't require a full sort.
      *
      * @param table the table to shuffle
      * @param exec execution context use for creating tables and reporting progress
@@ -93,8 +97,9 @@ private Shuffler() {
      * @since 3.6
      */
     public static BufferedDataTable shuffle(final BufferedDataTable table, final ExecutionContext exec, final long seed) throws CanceledExecutionException {
-        CheckUtils.checkArgument(table.size() <= Integer.MAX_VALUE,
-                "It's currently not possible to shuffle tables with more than Integer.MAX_VALUE rows.");
+        if (table.size() > Integer.MAX_VALUE) {
+            return new BufferedDataTableShuffler(table, seed).shuffle(exec);
+        }
 
         RandomNumberAppendFactory randomnumfac =
                 RandomNumberAppendFactory.create(seed, table);
@@ -169,7 +174,7 @@ private static RandomNumberAppendFactory create(final Long seed,
                 final BufferedDataTable inData) {
             final DataTableSpec spec = inData.getDataTableSpec();
             final long tableSize = inData.size();
-            CheckUtils.checkArgument(tableSize < Integer.MAX_VALUE,
+            CheckUtils.checkArgument(tableSize <= Integer.MAX_VALUE,
                 "It's currently not possible to shuffle tables with more than Integer.MAX_VALUE rows.");
             final int rowCount = (int) tableSize;
             String appendName = "random_row_number";
@@ -0,0 +1,609 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.vector.bitvector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTable;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.util.CheckUtils;
+import org.knime.core.util.OrderedTaskWindow;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Immutable, packed representation of a column of bit vectors (e.g. chemical fingerprints) for bulk similarity
+ * computations. All vectors are stored row after row in one contiguous <code>long[]</code> (bit <i>i</i> of a row in
+ * word <i>i / 64</i>, same layout as {@link DenseBitVector#getAllBits()}), together with their cardinalities. The
+ * similarity of a query against all rows is computed word by word using {@link Long#bitCount(long)} (which the JIT
+ * compiles into a single <code>POPCNT</code> instruction) without creating any intermediate vectors, split into chunks
+ * that are processed in parallel.
+ *
+ * <p>
+ * All vectors in the matrix must have the same length. Missing cells are allowed; their similarity is
+ * {@link Double#NaN} and they never appear in top-k results.
+ *
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * BitVectorMatrix fingerprints = BitVectorMatrix.create(table, colIndex, exec);
+ * BitVectorMatrix.Hit[] hits = fingerprints.topK(query, 10, BitVectorMatrix.Similarity.TANIMOTO);
+ * </pre>
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class BitVectorMatrix {
+
+    /** Similarity measures based on the cardinalities of two vectors and of their intersection. */
+    public enum Similarity {
+        /** Tanimoto (Jaccard) coefficient |A &amp; B| / |A | B|. Two empty vectors have similarity 1. */
+        TANIMOTO {
+            @Override
+            public double compute(final long intersection, final long cardinalityA, final long cardinalityB) {
+                final long union = cardinalityA + cardinalityB - intersection;
+                return union == 0 ? 1.0 : intersection / (double)union;
+            }
+        },
+        /** Cosine (Ochiai) coefficient |A &amp; B| / sqrt(|A| * |B|). Two empty vectors have similarity 1. */
+        COSINE {
+            @Override
+            public double compute(final long intersection, final long cardinalityA, final long cardinalityB) {
+                if (cardinalityA == 0 || cardinalityB == 0) {
+                    return cardinalityA == cardinalityB ? 1.0 : 0.0;
+                }
+                return intersection / Math.sqrt((double)cardinalityA * cardinalityB);
+            }
+        };
+
+        /**
+         * Computes the similarity.
+         *
+         * @param intersection cardinality of the intersection of both vectors
+         * @param cardinalityA cardinality of the first vector
+         * @param cardinalityB cardinality of the second vector
+         * @return the similarity in [0, 1]
+         */
+        public abstract double compute(long intersection, long cardinalityA, long cardinalityB);
+    }
+
+    /** A row of the matrix together with its similarity to a query, as returned by the top-k methods. */
+    public static final class Hit {
+        private final int m_row;
+
+        private final double m_similarity;
+
+        private Hit(final int row, final double similarity) {
+            m_row = row;
+            m_similarity = similarity;
+        }
+
+        /** @return the index of the row in the matrix */
+        public int getRow() {
+            return m_row;
+        }
+
+        /** @return the similarity of the row to the query */
+        public double getSimilarity() {
+            return m_similarity;
+        }
+
+        @Override
+        public String toString() {
+            return m_row + ": " + m_similarity;
+        }
+    }
+
+    /** Number of chunks per thread, more chunks balance the load better if rows differ in density. */
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private final long[] m_words;
+
+    private final int m_wordsPerRow;
+
+    private final long m_length;
+
+    private final int m_rowCount;
+
+    /** Cardinality of each row, -1 for missing rows. */
+    private final int[] m_cardinalities;
+
+    private int m_parallelism = Runtime.getRuntime().availableProcessors();
+
+    private BitVectorMatrix(final long[] words, final int wordsPerRow, final long length, final int rowCount,
+        final int[] cardinalities) {
+        m_words = words;
+        m_wordsPerRow = wordsPerRow;
+        m_length = length;
+        m_rowCount = rowCount;
+        m_cardinalities = cardinalities;
+    }
+
+    /**
+     * Packs a bit vector column of a table.
+     *
+     * @param table the table
+     * @param column the index of a column compatible with {@link BitVectorValue}
+     * @param exec for progress and cancellation, may be <code>null</code>
+     * @return the packed column
+     * @throws CanceledExecutionException if canceled
+     * @throws IllegalArgumentException if the column is not a bit vector column or the vectors differ in length
+     */
+    public static BitVectorMatrix create(final DataTable table, final int column, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        CheckUtils.checkArgumentNotNull(table, "Table must not be null.");
+        CheckUtils.checkArgument(
+            table.getDataTableSpec().getColumnSpec(column).getType().isCompatible(BitVectorValue.class),
+            "Column %d is not a bit vector column.", column);
+        final long size = table instanceof BufferedDataTable ? ((BufferedDataTable)table).size() : -1;
+        final Packer packer = new Packer(size >= 0 ? size : 1024);
+        long rowIndex = 0;
+        for (DataRow row : table) {
+            if (exec != null) {
+                exec.checkCanceled();
+                if (size > 0) {
+                    exec.setProgress(rowIndex / (double)size);
+                }
+            }
+            final DataCell cell = row.getCell(column);
+            packer.add(cell.isMissing() ? null : (BitVectorValue)cell);
+            rowIndex++;
+        }
+        return packer.build();
+    }
+
+    /**
+     * Packs a collection of bit vectors.
+     *
+     * @param vectors the vectors, <code>null</code> elements are treated as missing
+     * @return the packed vectors
+     * @throws IllegalArgumentException if the vectors differ in length
+     */
+    public static BitVectorMatrix create(final Collection<? extends BitVectorValue> vectors) {
+        final Packer packer = new Packer(vectors.size());
+        for (BitVectorValue v : vectors) {
+            packer.add(v);
+        }
+        return packer.build();
+    }
+
+    /**
+     * Sets the number of threads used for the bulk computations. The default is the number of available processors.
+     *
+     * @param value the parallelism, must be &gt;= 1
+     */
+    public void setParallelism(final int value) {
+        CheckUtils.checkArgument(value >= 1, "Parallelism must be at least 1: %d", value);
+        m_parallelism = value;
+    }
+
+    /** @return the number of rows */
+    public int getRowCount() {
+        return m_rowCount;
+    }
+
+    /** @return the length of the vectors (0 if all rows are missing) */
+    public long length() {
+        return m_length;
+    }
+
+    /**
+     * @param row a row index
+     * @return whether the row is missing
+     */
+    public boolean isMissing(final int row) {
+        return m_cardinalities[row] < 0;
+    }
+
+    /**
+     * @param row a row index
+     * @return the cardinality of the row's vector, -1 if missing
+     */
+    public int cardinality(final int row) {
+        return m_cardinalities[row];
+    }
+
+    /**
+     * Computes the similarity of the query to all rows.
+     *
+     * @param query the query vector, bits beyond the length of the matrix vectors never intersect
+     * @param similarity the similarity measure
+     * @return the similarity for each row, {@link Double#NaN} for missing rows
+     */
+    public double[] similarities(final BitVectorValue query, final Similarity similarity) {
+        final Query q = new Query(query);
+        final double[] result = new double[m_rowCount];
+        runChunked(m_rowCount, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                result[row] = m_cardinalities[row] < 0 ? Double.NaN : q.similarity(row, similarity);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Finds the rows most similar to the query.
+     *
+     * @param query the query vector
+     * @param k the maximum number of rows to return
+     * @param similarity the similarity measure
+     * @return the (at most) k most similar non-missing rows, most similar first, ties broken by row index
+     */
+    public Hit[] topK(final BitVectorValue query, final int k, final Similarity similarity) {
+        CheckUtils.checkArgument(k >= 1, "k must be at least 1: %d", k);
+        final Query q = new Query(query);
+        final TopK result = new TopK(k);
+        for (TopK chunk : runChunked(m_rowCount, (from, to) -> {
+            final TopK top = new TopK(k);
+            for (int row = from; row < to; row++) {
+                if (m_cardinalities[row] >= 0) {
+                    top.offer(row, q.similarity(row, similarity));
+                }
+            }
+            return top;
+        })) {
+            result.addAll(chunk);
+        }
+        return result.toHits();
+    }
+
+    /**
+     * Finds for each row the k most similar other rows. The cost is quadratic in the number of rows.
+     *
+     * @param k the maximum number of neighbors per row
+     * @param similarity the similarity measure
+     * @param exec for progress and cancellation, may be <code>null</code>
+     * @return for each row its (at most) k most similar other non-missing rows, most similar first; an empty array
+     *         for missing rows
+     * @throws CanceledExecutionException if canceled
+     */
+    public Hit[][] allPairsTopK(final int k, final Similarity similarity, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        CheckUtils.checkArgument(k >= 1, "k must be at least 1: %d", k);
+        final Hit[][] result = new Hit[m_rowCount][];
+        final ChunkTask<Void> task = (from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (m_cardinalities[i] < 0) {
+                    result[i] = new Hit[0];
+                    continue;
+                }
+                final int offset = i * m_wordsPerRow;
+                final int[] range = nonZeroRange(m_words, offset, m_wordsPerRow);
+                final TopK top = new TopK(k);
+                for (int row = 0; row < m_rowCount; row++) {
+                    if (row != i && m_cardinalities[row] >= 0) {
+                        final long intersection = intersection(m_words, offset, row * m_wordsPerRow, range);
+                        top.offer(row, similarity.compute(intersection, m_cardinalities[i], m_cardinalities[row]));
+                    }
+                }
+                result[i] = top.toHits();
+            }
+            return null;
+        };
+        // more, smaller chunks than for a single query to be able to report progress and cancel
+        final int chunkCount = Math.max(1, Math.min(m_rowCount, m_parallelism * CHUNKS_PER_THREAD * 16));
+        try (OrderedTaskWindow<Void> window = createChunks(m_rowCount, chunkCount, task)) {
+            for (int i = 0; i < chunkCount; i++) {
+                window.next();
+                if (exec != null) {
+                    exec.checkCanceled();
+                    exec.setProgress((i + 1) / (double)chunkCount);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** A unit of work on the rows [from, to). */
+    @FunctionalInterface
+    private interface ChunkTask<T> {
+        T run(int from, int to);
+    }
+
+    private <T> List<T> runChunked(final int rowCount, final ChunkTask<T> task) {
+        final int chunkCount = Math.max(1, Math.min(rowCount / 1024, m_parallelism * CHUNKS_PER_THREAD));
+        if (chunkCount == 1) {
+            return Arrays.asList(task.run(0, rowCount));
+        }
+        final List<T> result = new ArrayList<>(chunkCount);
+        try (OrderedTaskWindow<T> window = createChunks(rowCount, chunkCount, task)) {
+            while (window.hasNext()) {
+                result.add(window.next());
+            }
+        } catch (CanceledExecutionException e) {
+            throw new RuntimeException("Interrupted while computing similarities", e);
+        }
+        return result;
+    }
+
+    /** @return the chunks, all of which are submitted at once (the pool limits the number of running chunks) */
+    private <T> OrderedTaskWindow<T> createChunks(final int rowCount, final int chunkCount, final ChunkTask<T> task) {
+        final ThreadPool executor = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(m_parallelism);
+        return new OrderedTaskWindow<>(executor, chunkCount, chunkCount, c -> {
+            final int from = (int)((long)rowCount * c / chunkCount);
+            final int to = (int)((long)rowCount * (c + 1) / chunkCount);
+            return () -> task.run(from, to);
+        }, "computing similarities");
+    }
+
+    /**
+     * Popcount of the intersection of two rows, restricted to the word range [range[0], range[1]) of the first.
+     */
+    private static long intersection(final long[] words, final int offsetA, final int offsetB, final int[] range) {
+        long result = 0;
+        for (int i = range[0]; i < range[1]; i++) {
+            result += Long.bitCount(words[offsetA + i] & words[offsetB + i]);
+        }
+        return result;
+    }
+
+    /** @return the range [first non-zero word, last non-zero word + 1) relative to offset */
+    private static int[] nonZeroRange(final long[] words, final int offset, final int length) {
+        int from = 0;
+        while (from < length && words[offset + from] == 0) {
+            from++;
+        }
+        int to = length;
+        while (to > from && words[offset + to - 1] == 0) {
+            to--;
+        }
+        return new int[]{from, to};
+    }
+
+    /** The query vector, packed the same way as the rows and restricted to its non-zero words. */
+    private final class Query {
+        private final long[] m_queryWords;
+
+        private final long m_cardinality;
+
+        private final int m_from;
+
+        private final int m_to;
+
+        Query(final BitVectorValue query) {
+            CheckUtils.checkArgumentNotNull(query, "Query must not be null.");
+            m_queryWords = new long[m_wordsPerRow];
+            m_cardinality = query.cardinality();
+            for (long i = query.nextSetBit(0); i >= 0 && i < m_length; i = query.nextSetBit(i + 1)) {
+                m_queryWords[(int)(i >>> 6)] |= 1L << i;
+            }
+            final int[] range = nonZeroRange(m_queryWords, 0, m_wordsPerRow);
+            m_from = range[0];
+            m_to = range[1];
+        }
+
+        double similarity(final int row, final Similarity similarity) {
+            final long[] words = m_words;
+            final long[] query = m_queryWords;
+            final int offset = row * m_wordsPerRow;
+            long intersection = 0;
+            for (int i = m_from; i < m_to; i++) {
+                intersection += Long.bitCount(words[offset + i] & query[i]);
+            }
+            return similarity.compute(intersection, m_cardinality, m_cardinalities[row]);
+        }
+    }
+
+    /** Bounded min-heap keeping the k best (highest similarity, then lowest row index) hits. */
+    private static final class TopK {
+        private final int m_k;
+
+        private final int[] m_rows;
+
+        private final double[] m_similarities;
+
+        private int m_size;
+
+        TopK(final int k) {
+            m_k = k;
+            m_rows = new int[k];
+            m_similarities = new double[k];
+        }
+
+        void offer(final int row, final double similarity) {
+            if (m_size < m_k) {
+                m_rows[m_size] = row;
+                m_similarities[m_size] = similarity;
+                siftUp(m_size++);
+            } else if (isBetter(similarity, row, m_similarities[0], m_rows[0])) {
+                m_rows[0] = row;
+                m_similarities[0] = similarity;
+                siftDown(0);
+            }
+        }
+
+        void addAll(final TopK other) {
+            for (int i = 0; i < other.m_size; i++) {
+                offer(other.m_rows[i], other.m_similarities[i]);
+            }
+        }
+
+        Hit[] toHits() {
+            final Hit[] hits = new Hit[m_size];
+            for (int i = 0; i < m_size; i++) {
+                hits[i] = new Hit(m_rows[i], m_similarities[i]);
+            }
+            Arrays.sort(hits, (a, b) -> isBetter(a.m_similarity, a.m_row, b.m_similarity, b.m_row) ? -1
+                : (isBetter(b.m_similarity, b.m_row, a.m_similarity, a.m_row) ? 1 : 0));
+            return hits;
+        }
+
+        /** The root holds the worst element, i.e. no parent is better than its children. */
+        private void siftUp(final int index) {
+            int i = index;
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (!isBetter(m_similarities[parent], m_rows[parent], m_similarities[i], m_rows[i])) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(final int index) {
+            int i = index;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= m_size) {
+                    break;
+                }
+                final int right = child + 1;
+                if (right < m_size
+                    && isBetter(m_similarities[child], m_rows[child], m_similarities[right], m_rows[right])) {
+                    child = right;
+                }
+                if (!isBetter(m_similarities[i], m_rows[i], m_similarities[child], m_rows[child])) {
+                    break;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(final int i, final int j) {
+            final int row = m_rows[i];
+            m_rows[i] = m_rows[j];
+            m_rows[j] = row;
+            final double similarity = m_similarities[i];
+            m_similarities[i] = m_similarities[j];
+            m_similarities[j] = similarity;
+        }
+
+        private static boolean isBetter(final double similarity1, final int row1, final double similarity2,
+            final int row2) {
+            return similarity1 > similarity2 || (similarity1 == similarity2 && row1 < row2);
+        }
+    }
+
+    /** Packs vectors one by one into a growing word array. */
+    private static final class Packer {
+        private long[] m_words = new long[0];
+
+        private int[] m_cardinalities;
+
+        private int m_rowCount;
+
+        private long m_length = -1;
+
+        private int m_wordsPerRow;
+
+        Packer(final long expectedRows) {
+            CheckUtils.checkArgument(expectedRows < Integer.MAX_VALUE,
+                "Can't pack more than %d bit vectors.", Integer.MAX_VALUE - 1);
+            m_cardinalities = new int[(int)Math.max(1, expectedRows)];
+        }
+
+        void add(final BitVectorValue vector) {
+            if (vector != null && m_length < 0) {
+                initLength(vector.length());
+            }
+            if (vector != null) {
+                CheckUtils.checkArgument(vector.length() == m_length,
+                    "All bit vectors must have the same length (row %d has length %d, expected %d).", m_rowCount,
+                    vector.length(), m_length);
+            }
+            ensureCapacity(m_rowCount + 1);
+            final int offset = m_rowCount * m_wordsPerRow;
+            if (vector == null) {
+                m_cardinalities[m_rowCount] = -1;
+            } else {
+                if (vector instanceof DenseBitVectorCell) {
+                    ((DenseBitVectorCell)vector).copyAllBits(m_words, offset);
+                } else {
+                    for (long i = vector.nextSetBit(0); i >= 0; i = vector.nextSetBit(i + 1)) {
+                        m_words[offset + (int)(i >>> 6)] |= 1L << i;
+                    }
+                }
+                long cardinality = 0;
+                for (int i = 0; i < m_wordsPerRow; i++) {
+                    cardinality += Long.bitCount(m_words[offset + i]);
+                }
+                m_cardinalities[m_rowCount] = (int)cardinality;
+            }
+            m_rowCount++;
+        }
+
+        private void initLength(final long length) {
+            final long wordsPerRow = (length + 63) >>> 6;
+            CheckUtils.checkArgument(wordsPerRow <= Integer.MAX_VALUE / 2, "Bit vectors too long: %d", length);
+            m_length = length;
+            m_wordsPerRow = (int)wordsPerRow;
+            // rows added so far are all missing and hence zero
+            m_words = new long[(int)Math.min(Integer.MAX_VALUE - 8, (long)m_cardinalities.length * m_wordsPerRow)];
+        }
+
+        private void ensureCapacity(final int rows) {
+            if (rows > m_cardinalities.length) {
+                final long newRows = Math.max(rows, Math.min(Integer.MAX_VALUE - 8, m_cardinalities.length * 3L / 2));
+                m_cardinalities = Arrays.copyOf(m_cardinalities, (int)newRows);
+            }
+            final long words = (long)rows * m_wordsPerRow;
+            CheckUtils.checkArgument(words <= Integer.MAX_VALUE - 8,
+                "Too many bit vectors to pack into a single matrix: %d", rows);
+            if (words > m_words.length) {
+                m_words = Arrays.copyOf(m_words, (int)Math.max(words,
+                    Math.min(Integer.MAX_VALUE - 8, (long)m_cardinalities.length * m_wordsPerRow)));
+            }
+        }
+
+        BitVectorMatrix build() {
+            final long length = Math.max(0, m_length);
+            final int words = m_rowCount * m_wordsPerRow;
+            return new BitVectorMatrix(m_words.length == words ? m_words : Arrays.copyOf(m_words, words),
+                m_wordsPerRow, length, m_rowCount,
+                m_cardinalities.length == m_rowCount ? m_cardinalities : Arrays.copyOf(m_cardinalities, m_rowCount));
+        }
+    }
+}
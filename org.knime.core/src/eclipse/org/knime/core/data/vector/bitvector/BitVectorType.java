@@ -64,7 +64,14 @@ public enum BitVectorType implements ButtonGroupEnumInterface {
         DenseBitVectorCell.TYPE),
     /**Sparse bit vector type.*/
     SPARSE("Sparse", "Option recommended for sparse vectors e.g. less than 10% set bits", false,
-        SparseBitVectorCell.TYPE);
+        SparseBitVectorCell.TYPE),
+    /**
+     * Compressed bit vector type.
+     *
+     * @since 4.2
+     */
+    COMPRESSED("Compressed", "Option recommended for long vectors of any density, especially with clustered set bits",
+        false, CompressedBitVectorCell.TYPE);
 
     private final String m_label;
     private final String m_tooltip;
@@ -156,6 +163,8 @@ public BitVectorCellFactory<? extends DataCell> getCellFactory(final String hexS
                 return new DenseBitVectorCellFactory(hexString);
             case SPARSE:
                 return new SparseBitVectorCellFactory(hexString);
+            case COMPRESSED:
+                return new CompressedBitVectorCellFactory(hexString);
         }
         //use the dense bit vector as default
         return new DenseBitVectorCellFactory(hexString);
@@ -173,6 +182,8 @@ public BitVectorCellFactory<? extends DataCell> getCellFactory(final long length
                 return new DenseBitVectorCellFactory(length);
             case SPARSE:
                 return new SparseBitVectorCellFactory(length);
+            case COMPRESSED:
+                return new CompressedBitVectorCellFactory(length);
         }
         //use the dense bit vector as default
         return new DenseBitVectorCellFactory(length);
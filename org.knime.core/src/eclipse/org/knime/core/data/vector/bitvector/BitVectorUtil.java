@@ -75,6 +75,8 @@ private BitVectorUtil() { /*empty*/
      * {@link SparseBitVectorCellFactory#and(BitVectorValue, BitVectorValue)}, or the dense implementation
      * {@link DenseBitVectorCellFactory#and(BitVectorValue, BitVectorValue)} is called.
      *
+     * If both operands are {@link CompressedBitVectorCell}s, the result is a compressed cell, too (since 4.2).
+     *
      * @param bv1 the first operand to AND with the other
      * @param bv2 the other operand to AND with the first one
      * @return the result of the AND operation
@@ -83,6 +85,9 @@ public static BitVectorValue and(final BitVectorValue bv1, final BitVectorValue
         if (bv1 == null || bv2 == null) {
             throw new NullPointerException(NPE_MESSAGE);
         }
+        if (bv1 instanceof CompressedBitVectorCell && bv2 instanceof CompressedBitVectorCell) {
+            return CompressedBitVectorCellFactory.and(bv1, bv2);
+        }
 
         int noSparseBVC = sparseBitVectorCellCount(bv1, bv2);
         if (noSparseBVC >= 1) {
@@ -103,6 +108,8 @@ public static BitVectorValue and(final BitVectorValue bv1, final BitVectorValue
      * {@link SparseBitVectorCellFactory#or(BitVectorValue, BitVectorValue)}, or the dense implementation
      * {@link DenseBitVectorCellFactory#or(BitVectorValue, BitVectorValue)} is called.
      *
+     * If both operands are {@link CompressedBitVectorCell}s, the result is a compressed cell, too (since 4.2).
+     *
      * @param bv1 the first operand to OR with the other
      * @param bv2 the other operand to OR with the first one
      * @return the result of the OR operation
@@ -111,6 +118,9 @@ public static BitVectorValue or(final BitVectorValue bv1, final BitVectorValue b
         if (bv1 == null || bv2 == null) {
             throw new NullPointerException(NPE_MESSAGE);
         }
+        if (bv1 instanceof CompressedBitVectorCell && bv2 instanceof CompressedBitVectorCell) {
+            return CompressedBitVectorCellFactory.or(bv1, bv2);
+        }
 
         int noSparseBVC = sparseBitVectorCellCount(bv1, bv2);
         if (noSparseBVC == 2) {
@@ -131,6 +141,8 @@ public static BitVectorValue or(final BitVectorValue bv1, final BitVectorValue b
      * {@link SparseBitVectorCellFactory#xor(BitVectorValue, BitVectorValue)}, or the dense implementation
      * {@link DenseBitVectorCellFactory#xor(BitVectorValue, BitVectorValue)} is called.
      *
+     * If both operands are {@link CompressedBitVectorCell}s, the result is a compressed cell, too (since 4.2).
+     *
      * @param bv1 the first operand to XOR with the other
      * @param bv2 the other operand to XOR with the first one
      * @return the result of the XOR operation
@@ -139,6 +151,9 @@ public static BitVectorValue xor(final BitVectorValue bv1, final BitVectorValue
         if (bv1 == null || bv2 == null) {
             throw new NullPointerException(NPE_MESSAGE);
         }
+        if (bv1 instanceof CompressedBitVectorCell && bv2 instanceof CompressedBitVectorCell) {
+            return CompressedBitVectorCellFactory.xor(bv1, bv2);
+        }
 
         int noSparseBVC = sparseBitVectorCellCount(bv1, bv2);
         if (noSparseBVC == 2) {
@@ -169,6 +184,8 @@ public static long cardinalityOfIntersection(final BitVectorValue bv1, final Bit
             return ((DenseBitVectorCell)bv1).cardinalityOfIntersection((DenseBitVectorCell)bv2);
         } else if (bv1 instanceof SparseBitVectorCell && bv2 instanceof SparseBitVectorCell) {
             return ((SparseBitVectorCell)bv1).cardinalityOfIntersection((SparseBitVectorCell)bv2);
+        } else if (bv1 instanceof CompressedBitVectorCell && bv2 instanceof CompressedBitVectorCell) {
+            return ((CompressedBitVectorCell)bv1).cardinalityOfIntersection((CompressedBitVectorCell)bv2);
         }
 
         // we have to go into the loop
@@ -203,6 +220,8 @@ public static long cardinalityOfRelativeComplement(final BitVectorValue bv1, fin
             return ((DenseBitVectorCell)bv1).cardinalityOfRelativeComplement((DenseBitVectorCell)bv2);
         } else if (bv1 instanceof SparseBitVectorCell && bv2 instanceof SparseBitVectorCell) {
             return ((SparseBitVectorCell)bv1).cardinalityOfRelativeComplement((SparseBitVectorCell)bv2);
+        } else if (bv1 instanceof CompressedBitVectorCell && bv2 instanceof CompressedBitVectorCell) {
+            return ((CompressedBitVectorCell)bv1).cardinalityOfRelativeComplement((CompressedBitVectorCell)bv2);
         }
 
         long bv1Idx = bv1.nextSetBit(0);
@@ -0,0 +1,1407 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.vector.bitvector;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Stores Zeros and Ones in a vector, i.e. with fixed positions. The vector has a fixed length.<br>
+ * The implementation uses container-based compression (as in "Roaring bitmaps"): the index space is divided into
+ * chunks of 2<sup>16</sup> bits, and only chunks that contain at least one '1' are stored, each in the most compact of
+ * three representations:
+ * <ul>
+ * <li>a sorted array of the (16 bit) offsets of the ones, if the chunk contains at most 4096 ones,</li>
+ * <li>a bitmap of 1024 longs, if it contains more ones,</li>
+ * <li>a list of runs of consecutive ones, if this is smaller than the other two (only after
+ * {@link #runOptimize()}).</li>
+ * </ul>
+ * Hence the vector is suitable for sparse, mid-density and clustered data alike, and set operations work chunk by
+ * chunk on the compressed representation. Its length is restricted to {@link Long#MAX_VALUE}.<br>
+ * The implementation is not thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public class CompressedBitVector implements BitVector {
+
+    /** Number of bits of an index that address the bit within a chunk. */
+    private static final int CHUNK_BITS = 16;
+
+    /** Number of bits per chunk. */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /** Number of long words of a bitmap container. */
+    private static final int BITMAP_WORDS = CHUNK_SIZE >>> 6;
+
+    /** Maximum cardinality of an array container (above it a bitmap is smaller). */
+    private static final int MAX_ARRAY_CARDINALITY = 4096;
+
+    private static final byte ARRAY_CONTAINER = 0;
+
+    private static final byte BITMAP_CONTAINER = 1;
+
+    private static final byte RUN_CONTAINER = 2;
+
+    private final long m_length;
+
+    /** Sorted chunk keys (index &gt;&gt;&gt; 16) of the non-empty chunks. */
+    private long[] m_keys;
+
+    /** The containers of the chunks in {@link #m_keys}, never empty. */
+    private Container[] m_containers;
+
+    private int m_size;
+
+    /**
+     * Creates a new vector of the specified length, with no bits set.
+     *
+     * @param length the length of the new bit vector.
+     */
+    public CompressedBitVector(final long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Bit vector length must not be negative");
+        }
+        m_length = length;
+        m_keys = new long[4];
+        m_containers = new Container[4];
+    }
+
+    /**
+     * Creates a new vector initialized by the passed bits. The layout is the one of {@link DenseBitVector#getAllBits()}
+     * (bit i in word i / 64 at position i % 64). Bits beyond the length are ignored.
+     *
+     * @param bits the bits to initialize the vector with
+     * @param length the length of the vector, at most bits.length * 64
+     */
+    public CompressedBitVector(final long[] bits, final long length) {
+        this(length);
+        if (length > ((long)bits.length << 6)) {
+            throw new IllegalArgumentException("Bit vector length (" + length + ") exceeds number of bits provided ("
+                + ((long)bits.length << 6) + ")");
+        }
+        long[] words = new long[BITMAP_WORDS];
+        for (int start = 0; start < bits.length; start += BITMAP_WORDS) {
+            final int count = Math.min(BITMAP_WORDS, bits.length - start);
+            System.arraycopy(bits, start, words, 0, count);
+            Arrays.fill(words, count, BITMAP_WORDS, 0L);
+            final long key = start / BITMAP_WORDS;
+            maskAfterLength(words, key);
+            final Container c = Container.fromWords(words);
+            if (c != null) {
+                append(key, c);
+                if (c instanceof BitmapContainer) {
+                    // the container owns the buffer now
+                    words = new long[BITMAP_WORDS];
+                }
+            }
+        }
+    }
+
+    /**
+     * Initializes the created bit vector from the hex representation in the passed string, see
+     * {@link DenseBitVector#DenseBitVector(String)}. The length of the vector created is the length of the string
+     * times 4.
+     *
+     * @param hexString containing the hex value to initialize the vector with
+     * @throws IllegalArgumentException if <code>hexString</code> contains characters other then the hex characters
+     */
+    public CompressedBitVector(final String hexString) {
+        this(new DenseBitVector(hexString).getAllBits(), (long)hexString.length() << 2);
+    }
+
+    /**
+     * Creates a new vector with the specified length and the ones at the indices in the array.
+     *
+     * @param length the length of the vector
+     * @param oneIdxs the indices of the ones, sorted in ascending order
+     * @throws IllegalArgumentException if the indices are not sorted
+     * @throws ArrayIndexOutOfBoundsException if an index is negative or not smaller than the length
+     */
+    public CompressedBitVector(final long length, final long[] oneIdxs) {
+        this(length);
+        long last = -1;
+        for (long idx : oneIdxs) {
+            if (idx < last) {
+                throw new IllegalArgumentException("Indices of ones must be sorted in ascending order");
+            }
+            set(idx);
+            last = idx;
+        }
+    }
+
+    /**
+     * Creates a new instance as copy of the passed argument.
+     *
+     * @param clone the vector to copy
+     */
+    public CompressedBitVector(final CompressedBitVector clone) {
+        m_length = clone.m_length;
+        m_size = clone.m_size;
+        m_keys = Arrays.copyOf(clone.m_keys, Math.max(4, m_size));
+        m_containers = new Container[m_keys.length];
+        for (int i = 0; i < m_size; i++) {
+            m_containers[i] = clone.m_containers[i].copy();
+        }
+    }
+
+    /**
+     * Creates a compressed copy of an arbitrary bit vector value.
+     *
+     * @param value the value to copy
+     * @return a new compressed vector with the same length and bits
+     */
+    static CompressedBitVector copyOf(final BitVectorValue value) {
+        if (value instanceof CompressedBitVectorCell) {
+            return ((CompressedBitVectorCell)value).getBitVectorCopy();
+        }
+        if (value instanceof DenseBitVectorCell && value.length() > 0) {
+            final long[] words = new long[(int)(((value.length() - 1) >>> 6) + 1)];
+            ((DenseBitVectorCell)value).copyAllBits(words, 0);
+            return new CompressedBitVector(words, value.length());
+        }
+        final CompressedBitVector result = new CompressedBitVector(value.length());
+        for (long i = value.nextSetBit(0); i >= 0; i = value.nextSetBit(i + 1)) {
+            result.set(i);
+        }
+        return result;
+    }
+
+    private void maskAfterLength(final long[] words, final long key) {
+        final long chunkStart = key << CHUNK_BITS;
+        if (chunkStart + CHUNK_SIZE > m_length) {
+            final int valid = (int)Math.max(0, m_length - chunkStart);
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                final int wordStart = w << 6;
+                if (wordStart >= valid) {
+                    words[w] = 0;
+                } else if (wordStart + 64 > valid) {
+                    words[w] &= -1L >>> (64 - (valid - wordStart));
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long length() {
+        return m_length;
+    }
+
+    private void checkIndex(final long bitIdx) {
+        if (bitIdx >= m_length) {
+            throw new ArrayIndexOutOfBoundsException(
+                "Index ('" + bitIdx + "') too large for vector of length " + m_length);
+        }
+        if (bitIdx < 0) {
+            throw new ArrayIndexOutOfBoundsException("Index must not be negative");
+        }
+    }
+
+    /** @return the position of the key, or (-(insertion point) - 1) if not contained */
+    private int findKey(final long key) {
+        // fast path for sequential access
+        if (m_size > 0 && m_keys[m_size - 1] == key) {
+            return m_size - 1;
+        }
+        return Arrays.binarySearch(m_keys, 0, m_size, key);
+    }
+
+    private void insert(final int pos, final long key, final Container container) {
+        if (m_size == m_keys.length) {
+            final int newLength = m_keys.length * 2;
+            m_keys = Arrays.copyOf(m_keys, newLength);
+            m_containers = Arrays.copyOf(m_containers, newLength);
+        }
+        System.arraycopy(m_keys, pos, m_keys, pos + 1, m_size - pos);
+        System.arraycopy(m_containers, pos, m_containers, pos + 1, m_size - pos);
+        m_keys[pos] = key;
+        m_containers[pos] = container;
+        m_size++;
+    }
+
+    private void append(final long key, final Container container) {
+        insert(m_size, key, container);
+    }
+
+    private void removeAt(final int pos) {
+        System.arraycopy(m_keys, pos + 1, m_keys, pos, m_size - pos - 1);
+        System.arraycopy(m_containers, pos + 1, m_containers, pos, m_size - pos - 1);
+        m_size--;
+        m_containers[m_size] = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(final long bitIdx, final boolean value) {
+        if (value) {
+            set(bitIdx);
+        } else {
+            clear(bitIdx);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(final long bitIdx) {
+        checkIndex(bitIdx);
+        final long key = bitIdx >>> CHUNK_BITS;
+        final int low = (int)(bitIdx & (CHUNK_SIZE - 1));
+        final int pos = findKey(key);
+        if (pos >= 0) {
+            m_containers[pos] = m_containers[pos].add(low);
+        } else {
+            insert(-pos - 1, key, new ArrayContainer(low));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final long bitIdx) {
+        checkIndex(bitIdx);
+        final int pos = findKey(bitIdx >>> CHUNK_BITS);
+        if (pos >= 0) {
+            final Container c = m_containers[pos].remove((int)(bitIdx & (CHUNK_SIZE - 1)));
+            if (c.cardinality() == 0) {
+                removeAt(pos);
+            } else {
+                m_containers[pos] = c;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean get(final long bitIdx) {
+        checkIndex(bitIdx);
+        final int pos = findKey(bitIdx >>> CHUNK_BITS);
+        return pos >= 0 && m_containers[pos].contains((int)(bitIdx & (CHUNK_SIZE - 1)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long nextSetBit(final long startIdx) {
+        if (startIdx < 0) {
+            throw new ArrayIndexOutOfBoundsException("Index must not be negative");
+        }
+        if (startIdx >= m_length) {
+            return -1;
+        }
+        final long key = startIdx >>> CHUNK_BITS;
+        int pos = findKey(key);
+        if (pos >= 0) {
+            final int next = m_containers[pos].nextSetBit((int)(startIdx & (CHUNK_SIZE - 1)));
+            if (next >= 0) {
+                return (key << CHUNK_BITS) | next;
+            }
+            pos++;
+        } else {
+            pos = -pos - 1;
+        }
+        if (pos < m_size) {
+            return (m_keys[pos] << CHUNK_BITS) | m_containers[pos].nextSetBit(0);
+        }
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long nextClearBit(final long startIdx) {
+        if (startIdx < 0) {
+            throw new ArrayIndexOutOfBoundsException("Index must not be negative");
+        }
+        long idx = startIdx;
+        while (idx < m_length) {
+            final long key = idx >>> CHUNK_BITS;
+            final int pos = findKey(key);
+            if (pos < 0) {
+                return idx;
+            }
+            final int next = m_containers[pos].nextClearBit((int)(idx & (CHUNK_SIZE - 1)));
+            if (next < CHUNK_SIZE) {
+                final long result = (key << CHUNK_BITS) | next;
+                return result < m_length ? result : -1;
+            }
+            idx = (key + 1) << CHUNK_BITS;
+        }
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long cardinality() {
+        long result = 0;
+        for (int i = 0; i < m_size; i++) {
+            result += m_containers[i].cardinality();
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /**
+     * Converts chunks to run-length encoding where this is more compact than their current representation. This is
+     * called on the vectors stored in {@link CompressedBitVectorCell}s; subsequent modifications may undo it.
+     */
+    public void runOptimize() {
+        for (int i = 0; i < m_size; i++) {
+            m_containers[i] = m_containers[i].runOptimize();
+        }
+    }
+
+    /**
+     * Returns the approximate number of bytes needed to store this vector (as in its serialized form).
+     *
+     * @return the size in bytes
+     */
+    public long getSizeInBytes() {
+        long result = 12;
+        for (int i = 0; i < m_size; i++) {
+            result += 8 + m_containers[i].sizeInBytes();
+        }
+        return result;
+    }
+
+    /**
+     * Computes the result of an AND operation. The length of the result is the maximum of the lengths of both vectors.
+     *
+     * @param bv the second operand
+     * @return a new vector with the result
+     */
+    public CompressedBitVector and(final CompressedBitVector bv) {
+        final CompressedBitVector result = new CompressedBitVector(Math.max(m_length, bv.m_length));
+        int i = 0;
+        int j = 0;
+        while (i < m_size && j < bv.m_size) {
+            if (m_keys[i] < bv.m_keys[j]) {
+                i++;
+            } else if (m_keys[i] > bv.m_keys[j]) {
+                j++;
+            } else {
+                final Container c = Container.and(m_containers[i], bv.m_containers[j]);
+                if (c != null) {
+                    result.append(m_keys[i], c);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the result of an OR operation. The length of the result is the maximum of the lengths of both vectors.
+     *
+     * @param bv the second operand
+     * @return a new vector with the result
+     */
+    public CompressedBitVector or(final CompressedBitVector bv) {
+        return merge(bv, false);
+    }
+
+    /**
+     * Computes the result of an XOR operation. The length of the result is the maximum of the lengths of both vectors.
+     *
+     * @param bv the second operand
+     * @return a new vector with the result
+     */
+    public CompressedBitVector xor(final CompressedBitVector bv) {
+        return merge(bv, true);
+    }
+
+    private CompressedBitVector merge(final CompressedBitVector bv, final boolean xor) {
+        final CompressedBitVector result = new CompressedBitVector(Math.max(m_length, bv.m_length));
+        int i = 0;
+        int j = 0;
+        while (i < m_size || j < bv.m_size) {
+            if (j >= bv.m_size || (i < m_size && m_keys[i] < bv.m_keys[j])) {
+                result.append(m_keys[i], m_containers[i].copy());
+                i++;
+            } else if (i >= m_size || m_keys[i] > bv.m_keys[j]) {
+                result.append(bv.m_keys[j], bv.m_containers[j].copy());
+                j++;
+            } else {
+                final Container c = xor ? Container.xor(m_containers[i], bv.m_containers[j])
+                    : Container.or(m_containers[i], bv.m_containers[j]);
+                if (c != null) {
+                    result.append(m_keys[i], c);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the cardinality of the intersection with the given bitVector.
+     *
+     * @see BitVectorUtil#cardinalityOfIntersection(BitVectorValue, BitVectorValue)
+     * @param bitVector the other operand for the AND operator
+     * @return the cardinality of the intersection
+     */
+    long cardinalityOfIntersection(final CompressedBitVector bitVector) {
+        long result = 0;
+        int i = 0;
+        int j = 0;
+        while (i < m_size && j < bitVector.m_size) {
+            if (m_keys[i] < bitVector.m_keys[j]) {
+                i++;
+            } else if (m_keys[i] > bitVector.m_keys[j]) {
+                j++;
+            } else {
+                result += Container.andCardinality(m_containers[i], bitVector.m_containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the cardinality of the complement relative to the given bitVector.
+     *
+     * @see BitVectorUtil#cardinalityOfRelativeComplement(BitVectorValue, BitVectorValue)
+     * @param bitVector the other operand
+     * @return the number of ones in this vector that are not set in the argument
+     */
+    long cardinalityOfRelativeComplement(final CompressedBitVector bitVector) {
+        return cardinality() - cardinalityOfIntersection(bitVector);
+    }
+
+    /**
+     * Converts this vector into a {@link DenseBitVector}.
+     *
+     * @return a new dense vector with the same length and bits
+     * @throws IllegalStateException if the vector is too long for a dense vector
+     */
+    public DenseBitVector toDenseBitVector() {
+        final long numWords = m_length == 0 ? 0 : ((m_length - 1) >>> 6) + 1;
+        if (numWords >= Integer.MAX_VALUE) {
+            throw new IllegalStateException("Vector too long to be converted into a dense vector: " + m_length);
+        }
+        final long[] words = new long[(int)numWords];
+        for (int i = 0; i < m_size; i++) {
+            final long offset = m_keys[i] * BITMAP_WORDS;
+            final int count = (int)Math.min(BITMAP_WORDS, numWords - offset);
+            System.arraycopy(m_containers[i].toWords(), 0, words, (int)offset, count);
+        }
+        return new DenseBitVector(words, m_length);
+    }
+
+    /**
+     * Converts this vector into a {@link SparseBitVector}.
+     *
+     * @return a new sparse vector with the same length and bits
+     * @throws IllegalStateException if the vector has too many ones for a sparse vector
+     */
+    public SparseBitVector toSparseBitVector() {
+        final long cardinality = cardinality();
+        if (cardinality >= Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many ones for a sparse vector: " + cardinality);
+        }
+        final long[] idx = new long[(int)cardinality];
+        int n = 0;
+        for (long i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+            idx[n++] = i;
+        }
+        return new SparseBitVector(m_length, idx);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        // same as the other bit vector implementations
+        long hash = 0;
+        for (long i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+            hash = hash * 524287 + (i + 1);
+        }
+        return (int)(hash ^ (hash >> 32));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof CompressedBitVector)) {
+            return false;
+        }
+        final CompressedBitVector other = (CompressedBitVector)obj;
+        if (m_length != other.m_length || m_size != other.m_size) {
+            return false;
+        }
+        for (int i = 0; i < m_size; i++) {
+            if (m_keys[i] != other.m_keys[i]
+                || !Container.contentEquals(m_containers[i], other.m_containers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final long ones = cardinality();
+        final int use = (int)Math.min(ones, BitVectorValue.MAX_DISPLAY_BITS);
+        final StringBuilder result = new StringBuilder(use * 7);
+        result.append("{length=").append(m_length).append(", set bits=");
+        int count = 0;
+        for (long i = nextSetBit(0); i >= 0 && count < use; i = nextSetBit(i + 1)) {
+            result.append(i).append(", ");
+            count++;
+        }
+        if (use < ones) {
+            result.append("... ");
+        } else if (result.length() > 2) {
+            result.delete(result.length() - 2, result.length());
+        }
+        result.append('}');
+        return result.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toHexString() {
+        final String hex = displayVector().toHexString();
+        return m_length > BitVectorValue.MAX_DISPLAY_BITS ? "..." + hex : hex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toBinaryString() {
+        final String binary = displayVector().toBinaryString();
+        return m_length > BitVectorValue.MAX_DISPLAY_BITS ? binary + "..." : binary;
+    }
+
+    /**
+     * @return a dense vector with the bits that are displayed in string representations (the lowest
+     *         {@link BitVectorValue#MAX_DISPLAY_BITS}), which makes them identical to the ones of {@link DenseBitVector}
+     */
+    private DenseBitVector displayVector() {
+        final long max = Math.min(m_length, BitVectorValue.MAX_DISPLAY_BITS);
+        final long[] words = new long[(int)(max == 0 ? 0 : ((max - 1) >>> 6) + 1)];
+        for (long i = nextSetBit(0); i >= 0 && i < max; i = nextSetBit(i + 1)) {
+            words[(int)(i >>> 6)] |= 1L << i;
+        }
+        return new DenseBitVector(words, max);
+    }
+
+    /**
+     * Writes this vector in a compact binary form.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    void writeTo(final DataOutput out) throws IOException {
+        out.writeLong(m_length);
+        out.writeInt(m_size);
+        for (int i = 0; i < m_size; i++) {
+            out.writeLong(m_keys[i]);
+            m_containers[i].writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a vector written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input to read from
+     * @return the vector
+     * @throws IOException if reading fails or the data is corrupt
+     */
+    static CompressedBitVector readFrom(final DataInput in) throws IOException {
+        final CompressedBitVector result = new CompressedBitVector(in.readLong());
+        final int size = in.readInt();
+        result.m_keys = new long[Math.max(4, size)];
+        result.m_containers = new Container[result.m_keys.length];
+        for (int i = 0; i < size; i++) {
+            final long key = in.readLong();
+            if (i > 0 && key <= result.m_keys[i - 1]) {
+                throw new IOException("Corrupt compressed bit vector, chunk keys not ascending");
+            }
+            result.m_keys[i] = key;
+            result.m_containers[i] = Container.readFrom(in);
+        }
+        result.m_size = size;
+        return result;
+    }
+
+    /**
+     * A chunk of 2<sup>16</sup> bits. Modifying methods return the container that holds the result, which is either
+     * this one or a container of a different type.
+     */
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        abstract Container add(int low);
+
+        abstract Container remove(int low);
+
+        /** @return the next set bit on or after the argument, -1 if none */
+        abstract int nextSetBit(int from);
+
+        /** @return the next clear bit on or after the argument, {@link CompressedBitVector#CHUNK_SIZE} if none */
+        abstract int nextClearBit(int from);
+
+        /** @return the bits of the container as bitmap; may be the internal array (must not be modified) */
+        abstract long[] toWords();
+
+        abstract Container copy();
+
+        abstract int sizeInBytes();
+
+        abstract void writeTo(DataOutput out) throws IOException;
+
+        /** @return the bits of the container as a new bitmap, which may be modified by the caller */
+        long[] toWordsCopy() {
+            return toWords();
+        }
+
+        /** Sets the bits of this container in the argument. */
+        abstract void orInto(long[] words);
+
+        /** Flips the bits of this container in the argument. */
+        abstract void xorInto(long[] words);
+
+        /** Clears the bits in the argument that are not set in this container. */
+        void andInto(final long[] words) {
+            final long[] own = toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] &= own[i];
+            }
+        }
+
+        /** @return the smallest representation of this container's content */
+        abstract Container runOptimize();
+
+        /**
+         * @param words the bits, a resulting bitmap container uses the array directly
+         * @return the container in its default (array or bitmap) representation, null if empty
+         */
+        static Container fromWords(final long[] words) {
+            int cardinality = 0;
+            for (long w : words) {
+                cardinality += Long.bitCount(w);
+            }
+            if (cardinality == 0) {
+                return null;
+            }
+            if (cardinality <= MAX_ARRAY_CARDINALITY) {
+                final char[] values = new char[cardinality];
+                int n = 0;
+                for (int i = 0; i < words.length; i++) {
+                    for (long bits = words[i]; bits != 0; bits &= bits - 1) {
+                        values[n++] = (char)((i << 6) + Long.numberOfTrailingZeros(bits));
+                    }
+                }
+                return new ArrayContainer(values, cardinality);
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+
+        static Container and(final Container a, final Container b) {
+            if (a instanceof ArrayContainer || b instanceof ArrayContainer) {
+                final ArrayContainer array = (ArrayContainer)(a instanceof ArrayContainer ? a : b);
+                final Container other = array == a ? b : a;
+                final char[] values = new char[array.m_cardinality];
+                int n = 0;
+                for (int i = 0; i < array.m_cardinality; i++) {
+                    if (other.contains(array.m_values[i])) {
+                        values[n++] = array.m_values[i];
+                    }
+                }
+                return n == 0 ? null : new ArrayContainer(values, n);
+            }
+            // start from a copy of the bitmap (if any), which is the cheapest to obtain
+            final Container base = a instanceof BitmapContainer ? a : b;
+            final long[] result = base.toWordsCopy();
+            (base == a ? b : a).andInto(result);
+            return fromWords(result);
+        }
+
+        static Container or(final Container a, final Container b) {
+            if (a instanceof ArrayContainer && b instanceof ArrayContainer
+                && a.cardinality() + b.cardinality() <= MAX_ARRAY_CARDINALITY) {
+                return ArrayContainer.merge((ArrayContainer)a, (ArrayContainer)b, false);
+            }
+            final Container base = b instanceof BitmapContainer ? b : a;
+            final long[] result = base.toWordsCopy();
+            (base == a ? b : a).orInto(result);
+            return fromWords(result);
+        }
+
+        static Container xor(final Container a, final Container b) {
+            if (a instanceof ArrayContainer && b instanceof ArrayContainer
+                && a.cardinality() + b.cardinality() <= MAX_ARRAY_CARDINALITY) {
+                return ArrayContainer.merge((ArrayContainer)a, (ArrayContainer)b, true);
+            }
+            final Container base = b instanceof BitmapContainer ? b : a;
+            final long[] result = base.toWordsCopy();
+            (base == a ? b : a).xorInto(result);
+            return fromWords(result);
+        }
+
+        static int andCardinality(final Container a, final Container b) {
+            if (a instanceof ArrayContainer || b instanceof ArrayContainer) {
+                final ArrayContainer array = (ArrayContainer)(a instanceof ArrayContainer ? a : b);
+                final Container other = array == a ? b : a;
+                int result = 0;
+                for (int i = 0; i < array.m_cardinality; i++) {
+                    if (other.contains(array.m_values[i])) {
+                        result++;
+                    }
+                }
+                return result;
+            }
+            final long[] wa = a.toWords();
+            final long[] wb = b.toWords();
+            int result = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result += Long.bitCount(wa[i] & wb[i]);
+            }
+            return result;
+        }
+
+        static boolean contentEquals(final Container a, final Container b) {
+            if (a.cardinality() != b.cardinality()) {
+                return false;
+            }
+            if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+                final ArrayContainer aa = (ArrayContainer)a;
+                final ArrayContainer ba = (ArrayContainer)b;
+                for (int i = 0; i < aa.m_cardinality; i++) {
+                    if (aa.m_values[i] != ba.m_values[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return Arrays.equals(a.toWords(), b.toWords());
+        }
+
+        static Container readFrom(final DataInput in) throws IOException {
+            final byte type = in.readByte();
+            switch (type) {
+                case ARRAY_CONTAINER: {
+                    final int cardinality = in.readChar() + 1;
+                    final char[] values = new char[cardinality];
+                    for (int i = 0; i < cardinality; i++) {
+                        values[i] = in.readChar();
+                    }
+                    return new ArrayContainer(values, cardinality);
+                }
+                case BITMAP_CONTAINER: {
+                    final long[] words = new long[BITMAP_WORDS];
+                    int cardinality = 0;
+                    for (int i = 0; i < BITMAP_WORDS; i++) {
+                        words[i] = in.readLong();
+                        cardinality += Long.bitCount(words[i]);
+                    }
+                    return new BitmapContainer(words, cardinality);
+                }
+                case RUN_CONTAINER: {
+                    final int numRuns = in.readChar() + 1;
+                    final char[] runs = new char[2 * numRuns];
+                    for (int i = 0; i < runs.length; i++) {
+                        runs[i] = in.readChar();
+                    }
+                    return new RunContainer(runs, numRuns);
+                }
+                default:
+                    throw new IOException("Corrupt compressed bit vector, unknown container type " + type);
+            }
+        }
+    }
+
+    /** Sorted array of the offsets of the ones, at most {@link #MAX_ARRAY_CARDINALITY} of them. */
+    private static final class ArrayContainer extends Container {
+        private char[] m_values;
+
+        private int m_cardinality;
+
+        ArrayContainer(final int low) {
+            m_values = new char[4];
+            m_values[0] = (char)low;
+            m_cardinality = 1;
+        }
+
+        ArrayContainer(final char[] values, final int cardinality) {
+            m_values = values;
+            m_cardinality = cardinality;
+        }
+
+        static ArrayContainer merge(final ArrayContainer a, final ArrayContainer b, final boolean xor) {
+            final char[] values = new char[a.m_cardinality + b.m_cardinality];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.m_cardinality && j < b.m_cardinality) {
+                if (a.m_values[i] < b.m_values[j]) {
+                    values[n++] = a.m_values[i++];
+                } else if (a.m_values[i] > b.m_values[j]) {
+                    values[n++] = b.m_values[j++];
+                } else {
+                    if (!xor) {
+                        values[n++] = a.m_values[i];
+                    }
+                    i++;
+                    j++;
+                }
+            }
+            while (i < a.m_cardinality) {
+                values[n++] = a.m_values[i++];
+            }
+            while (j < b.m_cardinality) {
+                values[n++] = b.m_values[j++];
+            }
+            return n == 0 ? null : new ArrayContainer(values, n);
+        }
+
+        @Override
+        int cardinality() {
+            return m_cardinality;
+        }
+
+        private int find(final int low) {
+            if (m_cardinality > 0 && m_values[m_cardinality - 1] < low) {
+                return -m_cardinality - 1;
+            }
+            return Arrays.binarySearch(m_values, 0, m_cardinality, (char)low);
+        }
+
+        @Override
+        boolean contains(final int low) {
+            return find(low) >= 0;
+        }
+
+        @Override
+        Container add(final int low) {
+            int pos = find(low);
+            if (pos >= 0) {
+                return this;
+            }
+            if (m_cardinality >= MAX_ARRAY_CARDINALITY) {
+                return BitmapContainer.of(this).add(low);
+            }
+            pos = -pos - 1;
+            if (m_cardinality == m_values.length) {
+                m_values = Arrays.copyOf(m_values, Math.min(MAX_ARRAY_CARDINALITY, m_values.length * 2));
+            }
+            System.arraycopy(m_values, pos, m_values, pos + 1, m_cardinality - pos);
+            m_values[pos] = (char)low;
+            m_cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(final int low) {
+            final int pos = find(low);
+            if (pos >= 0) {
+                System.arraycopy(m_values, pos + 1, m_values, pos, m_cardinality - pos - 1);
+                m_cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        int nextSetBit(final int from) {
+            int pos = find(from);
+            if (pos < 0) {
+                pos = -pos - 1;
+            }
+            return pos < m_cardinality ? m_values[pos] : -1;
+        }
+
+        @Override
+        int nextClearBit(final int from) {
+            int pos = find(from);
+            if (pos < 0) {
+                return from;
+            }
+            int result = from;
+            while (pos < m_cardinality && m_values[pos] == result) {
+                pos++;
+                result++;
+            }
+            return result;
+        }
+
+        @Override
+        long[] toWords() {
+            final long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < m_cardinality; i++) {
+                words[m_values[i] >>> 6] |= 1L << m_values[i];
+            }
+            return words;
+        }
+
+        @Override
+        void orInto(final long[] words) {
+            for (int i = 0; i < m_cardinality; i++) {
+                words[m_values[i] >>> 6] |= 1L << m_values[i];
+            }
+        }
+
+        @Override
+        void xorInto(final long[] words) {
+            for (int i = 0; i < m_cardinality; i++) {
+                words[m_values[i] >>> 6] ^= 1L << m_values[i];
+            }
+        }
+
+        @Override
+        Container runOptimize() {
+            // a new run starts wherever an offset does not follow its predecessor
+            int runs = 1;
+            for (int i = 1; i < m_cardinality; i++) {
+                if (m_values[i] != m_values[i - 1] + 1) {
+                    runs++;
+                }
+            }
+            return 3 + 4 * runs < sizeInBytes() ? RunContainer.fromArray(this, runs) : this;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(m_values, Math.max(1, m_cardinality)), m_cardinality);
+        }
+
+        @Override
+        int sizeInBytes() {
+            return 3 + 2 * m_cardinality;
+        }
+
+        @Override
+        void writeTo(final DataOutput out) throws IOException {
+            out.writeByte(ARRAY_CONTAINER);
+            out.writeChar(m_cardinality - 1);
+            for (int i = 0; i < m_cardinality; i++) {
+                out.writeChar(m_values[i]);
+            }
+        }
+    }
+
+    /** Plain bitmap of 2<sup>16</sup> bits. */
+    private static final class BitmapContainer extends Container {
+        private final long[] m_words;
+
+        private int m_cardinality;
+
+        BitmapContainer(final long[] words, final int cardinality) {
+            m_words = words;
+            m_cardinality = cardinality;
+        }
+
+        static BitmapContainer of(final Container c) {
+            return new BitmapContainer(c.toWords().clone(), c.cardinality());
+        }
+
+        @Override
+        int cardinality() {
+            return m_cardinality;
+        }
+
+        @Override
+        boolean contains(final int low) {
+            return (m_words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(final int low) {
+            final long before = m_words[low >>> 6];
+            final long after = before | (1L << low);
+            m_words[low >>> 6] = after;
+            if (before != after) {
+                m_cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(final int low) {
+            final long before = m_words[low >>> 6];
+            final long after = before & ~(1L << low);
+            if (before != after) {
+                m_words[low >>> 6] = after;
+                m_cardinality--;
+                if (m_cardinality <= MAX_ARRAY_CARDINALITY) {
+                    return fromWords(m_words);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        int nextSetBit(final int from) {
+            int w = from >>> 6;
+            long bits = m_words[w] & (-1L << from);
+            while (true) {
+                if (bits != 0) {
+                    return (w << 6) + Long.numberOfTrailingZeros(bits);
+                }
+                if (++w == BITMAP_WORDS) {
+                    return -1;
+                }
+                bits = m_words[w];
+            }
+        }
+
+        @Override
+        int nextClearBit(final int from) {
+            int w = from >>> 6;
+            long bits = ~m_words[w] & (-1L << from);
+            while (true) {
+                if (bits != 0) {
+                    return (w << 6) + Long.numberOfTrailingZeros(bits);
+                }
+                if (++w == BITMAP_WORDS) {
+                    return CHUNK_SIZE;
+                }
+                bits = ~m_words[w];
+            }
+        }
+
+        @Override
+        long[] toWords() {
+            return m_words;
+        }
+
+        @Override
+        long[] toWordsCopy() {
+            return m_words.clone();
+        }
+
+        @Override
+        void orInto(final long[] words) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] |= m_words[i];
+            }
+        }
+
+        @Override
+        void xorInto(final long[] words) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] ^= m_words[i];
+            }
+        }
+
+        @Override
+        Container runOptimize() {
+            int runs = 0;
+            long previous = 0;
+            for (long w : m_words) {
+                // count bits that are set but whose predecessor is not, i.e. the starts of runs
+                runs += Long.bitCount(w & ~((w << 1) | (previous >>> 63)));
+                previous = w;
+            }
+            return 3 + 4 * runs < sizeInBytes() ? RunContainer.fromBitmap(this, runs) : this;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(m_words.clone(), m_cardinality);
+        }
+
+        @Override
+        int sizeInBytes() {
+            return 1 + 8 * BITMAP_WORDS;
+        }
+
+        @Override
+        void writeTo(final DataOutput out) throws IOException {
+            out.writeByte(BITMAP_CONTAINER);
+            for (long w : m_words) {
+                out.writeLong(w);
+            }
+        }
+    }
+
+    /** Runs of consecutive ones, stored as pairs of (start, length - 1). Immutable. */
+    private static final class RunContainer extends Container {
+        private final char[] m_runs;
+
+        private final int m_numRuns;
+
+        private final int m_cardinality;
+
+        RunContainer(final char[] runs, final int numRuns) {
+            m_runs = runs;
+            m_numRuns = numRuns;
+            int cardinality = 0;
+            for (int i = 0; i < numRuns; i++) {
+                cardinality += m_runs[2 * i + 1] + 1;
+            }
+            m_cardinality = cardinality;
+        }
+
+        static RunContainer fromArray(final ArrayContainer array, final int numRuns) {
+            final char[] values = array.m_values;
+            final char[] runs = new char[2 * numRuns];
+            int n = 0;
+            int start = values[0];
+            for (int i = 1; i <= array.m_cardinality; i++) {
+                if (i == array.m_cardinality || values[i] != values[i - 1] + 1) {
+                    runs[n++] = (char)start;
+                    runs[n++] = (char)(values[i - 1] - start);
+                    if (i < array.m_cardinality) {
+                        start = values[i];
+                    }
+                }
+            }
+            return new RunContainer(runs, numRuns);
+        }
+
+        static RunContainer fromBitmap(final BitmapContainer bitmap, final int numRuns) {
+            final char[] runs = new char[2 * numRuns];
+            int n = 0;
+            for (int start = bitmap.nextSetBit(0); start >= 0;) {
+                final int end = bitmap.nextClearBit(start);
+                runs[n++] = (char)start;
+                runs[n++] = (char)(end - 1 - start);
+                start = end < CHUNK_SIZE ? bitmap.nextSetBit(end) : -1;
+            }
+            return new RunContainer(runs, numRuns);
+        }
+
+        /** @return the content as array or bitmap container */
+        private Container toDefault() {
+            if (m_cardinality > MAX_ARRAY_CARDINALITY) {
+                return new BitmapContainer(toWords(), m_cardinality);
+            }
+            final char[] values = new char[m_cardinality];
+            int n = 0;
+            for (int i = 0; i < m_numRuns; i++) {
+                final int start = m_runs[2 * i];
+                final int end = start + m_runs[2 * i + 1];
+                for (int v = start; v <= end; v++) {
+                    values[n++] = (char)v;
+                }
+            }
+            return new ArrayContainer(values, m_cardinality);
+        }
+
+        /** @return index of the run containing or following the argument (m_numRuns if none) */
+        private int findRun(final int low) {
+            int lo = 0;
+            int hi = m_numRuns - 1;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                final int start = m_runs[2 * mid];
+                if (low < start) {
+                    hi = mid - 1;
+                } else if (low > start + m_runs[2 * mid + 1]) {
+                    lo = mid + 1;
+                } else {
+                    return mid;
+                }
+            }
+            return lo;
+        }
+
+        @Override
+        int cardinality() {
+            return m_cardinality;
+        }
+
+        @Override
+        boolean contains(final int low) {
+            final int run = findRun(low);
+            return run < m_numRuns && m_runs[2 * run] <= low;
+        }
+
+        @Override
+        Container add(final int low) {
+            return contains(low) ? this : toDefault().add(low);
+        }
+
+        @Override
+        Container remove(final int low) {
+            return contains(low) ? toDefault().remove(low) : this;
+        }
+
+        @Override
+        int nextSetBit(final int from) {
+            final int run = findRun(from);
+            if (run >= m_numRuns) {
+                return -1;
+            }
+            return Math.max(from, m_runs[2 * run]);
+        }
+
+        @Override
+        int nextClearBit(final int from) {
+            final int run = findRun(from);
+            if (run < m_numRuns && m_runs[2 * run] <= from) {
+                // runs are never adjacent, hence the bit after the run is clear
+                return m_runs[2 * run] + m_runs[2 * run + 1] + 1;
+            }
+            return from;
+        }
+
+        @Override
+        long[] toWords() {
+            final long[] words = new long[BITMAP_WORDS];
+            orInto(words);
+            return words;
+        }
+
+        @Override
+        void orInto(final long[] words) {
+            for (int i = 0; i < m_numRuns; i++) {
+                final int start = m_runs[2 * i];
+                applyRange(words, start, start + m_runs[2 * i + 1], (w, mask) -> w | mask);
+            }
+        }
+
+        @Override
+        void xorInto(final long[] words) {
+            for (int i = 0; i < m_numRuns; i++) {
+                final int start = m_runs[2 * i];
+                applyRange(words, start, start + m_runs[2 * i + 1], (w, mask) -> w ^ mask);
+            }
+        }
+
+        @Override
+        void andInto(final long[] words) {
+            // clear the gaps between the runs
+            int gapStart = 0;
+            for (int i = 0; i < m_numRuns; i++) {
+                final int start = m_runs[2 * i];
+                if (start > gapStart) {
+                    applyRange(words, gapStart, start - 1, (w, mask) -> w & ~mask);
+                }
+                gapStart = start + m_runs[2 * i + 1] + 1;
+            }
+            if (gapStart < CHUNK_SIZE) {
+                applyRange(words, gapStart, CHUNK_SIZE - 1, (w, mask) -> w & ~mask);
+            }
+        }
+
+        /** Combines the words covering the bits from start to end (inclusive) with the mask of these bits. */
+        private static void applyRange(final long[] words, final int start, final int end,
+            final LongBinaryOperator op) {
+            final int startWord = start >>> 6;
+            final int endWord = end >>> 6;
+            final long startMask = -1L << start;
+            final long endMask = -1L >>> (63 - (end & 63));
+            if (startWord == endWord) {
+                words[startWord] = op.applyAsLong(words[startWord], startMask & endMask);
+            } else {
+                words[startWord] = op.applyAsLong(words[startWord], startMask);
+                for (int w = startWord + 1; w < endWord; w++) {
+                    words[w] = op.applyAsLong(words[w], -1L);
+                }
+                words[endWord] = op.applyAsLong(words[endWord], endMask);
+            }
+        }
+
+        @Override
+        Container runOptimize() {
+            final int defaultBytes =
+                m_cardinality <= MAX_ARRAY_CARDINALITY ? 3 + 2 * m_cardinality : 1 + 8 * BITMAP_WORDS;
+            return sizeInBytes() < defaultBytes ? this : toDefault();
+        }
+
+        @Override
+        Container copy() {
+            // immutable
+            return this;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return 3 + 4 * m_numRuns;
+        }
+
+        @Override
+        void writeTo(final DataOutput out) throws IOException {
+            out.writeByte(RUN_CONTAINER);
+            out.writeChar(m_numRuns - 1);
+            for (int i = 0; i < 2 * m_numRuns; i++) {
+                out.writeChar(m_runs[i]);
+            }
+        }
+    }
+}
@@ -1220,6 +1220,17 @@ public long[] getAllBits() {
         return m_storage.clone();
     }
 
+    /**
+     * Copies the internal storage into the argument array (same layout as {@link #getAllBits()}) without allocating
+     * an intermediate array.
+     *
+     * @param dest the destination array
+     * @param destPos start position in the destination array
+     */
+    void copyAllBits(final long[] dest, final int destPos) {
+        System.arraycopy(m_storage, 0, dest, destPos, m_storage.length);
+    }
+
     /**
      * Returns a multi-line dump of the internal storage.
      *
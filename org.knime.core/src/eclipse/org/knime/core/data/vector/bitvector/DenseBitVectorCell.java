@@ -225,6 +225,15 @@ long cardinalityOfRelativeComplement(final DenseBitVectorCell bitVectorCell) {
         return m_bitVector.cardinalityOfRelativeComplement(bitVectorCell.m_bitVector);
     }
 
+    /**
+     * @see DenseBitVector#getAllBits()
+     * @param dest the array to copy the bits to
+     * @param destPos start position in the destination array
+     */
+    void copyAllBits(final long[] dest, final int destPos) {
+        m_bitVector.copyAllBits(dest, destPos);
+    }
+
     /**
      * Factory for {@link DenseBitVectorCell}s.
      *
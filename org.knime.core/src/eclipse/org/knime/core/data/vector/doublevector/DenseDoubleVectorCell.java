@@ -48,6 +48,8 @@
 package org.knime.core.data.vector.doublevector;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.stream.IntStream;
@@ -100,6 +102,28 @@ public double getValue(final int index) {
         return m_doubleVector[index];
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public double[] copyTo(final double[] dest, final int destPos) {
+        System.arraycopy(m_doubleVector, 0, dest, destPos, m_doubleVector.length);
+        return dest;
+    }
+
+    /**
+     * Returns a read-only view on the values, which doesn't copy the underlying array.
+     *
+     * @return a new read-only buffer, positioned at the first value
+     * @since 4.2
+     */
+    public DoubleBuffer asDoubleBuffer() {
+        return DoubleBuffer.wrap(m_doubleVector).asReadOnlyBuffer();
+    }
+
+    /** @return the underlying array, not copied (used by {@link DoubleVectorUtil}). */
+    double[] getVector() {
+        return m_doubleVector;
+    }
+
     /* ########################
      * CollectionDataValue
      * ######################## */
@@ -168,19 +192,23 @@ public static final class DenseDoubleVectorSerializer implements DataCellSeriali
         public void serialize(final DenseDoubleVectorCell cell, final DataCellDataOutput out) throws IOException {
             double[] cnts = cell.m_doubleVector;
             out.writeInt(cnts.length);
-            for (int i = 0; i < cnts.length; i++) {
-                out.writeDouble(cnts[i]);
-            }
+            // same byte layout as writing one value after the other with writeDouble (big endian)
+            ByteBuffer buffer = ByteBuffer.allocate(cnts.length * Double.BYTES);
+            buffer.asDoubleBuffer().put(cnts);
+            out.write(buffer.array());
         }
 
         /** {@inheritDoc} */
         @Override
         public DenseDoubleVectorCell deserialize(final DataCellDataInput input) throws IOException {
             int arrayLength = input.readInt();
-            double[] vector = new double[arrayLength];
-            for (int i = 0; i < arrayLength; i++) {
-                vector[i] = input.readDouble();
+            if (arrayLength < 0) {
+                throw new IOException("Invalid vector length: " + arrayLength);
             }
+            byte[] bytes = new byte[arrayLength * Double.BYTES];
+            input.readFully(bytes);
+            double[] vector = new double[arrayLength];
+            ByteBuffer.wrap(bytes).asDoubleBuffer().get(vector);
             return new DenseDoubleVectorCell(vector);
         }
     }
@@ -0,0 +1,248 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.vector.doublevector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataCellDataInput;
+import org.knime.core.data.DataCellDataOutput;
+import org.knime.core.data.DataCellSerializer;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DataValue;
+import org.knime.core.data.collection.CollectionDataValue;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.util.CheckUtils;
+import org.knime.core.node.util.ConvenienceMethods;
+
+/**
+ * {@link DoubleVectorValue} as dense representation, backed by a float[]. Uses half the memory of a
+ * {@link DenseDoubleVectorCell}, e.g. for embeddings that don't need double precision. Values are widened to double
+ * when accessed via the {@link DoubleVectorValue} interface; a float vector is equal to a double vector with the
+ * same (widened) values.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public class DenseFloatVectorCell extends DataCell implements DoubleVectorValue, CollectionDataValue {
+
+    private static final long serialVersionUID = 4402337286512985617L;
+
+    private final float[] m_floatVector;
+
+    /**
+     * Use the {@link DoubleVectorCellFactory} to create instances of this cell.
+     * @param floatVector underlying vector.
+     */
+    DenseFloatVectorCell(final float[] floatVector) {
+        m_floatVector = CheckUtils.checkArgumentNotNull(floatVector);
+    }
+
+    /* ########################
+     * DoubleVectorValue
+     * ######################## */
+
+    /** {@inheritDoc} */
+    @Override
+    public int getLength() {
+        return m_floatVector.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getValue(final int index) {
+        return m_floatVector[index];
+    }
+
+    /** The value at a given index without widening it to double.
+     * @param index The requested index.
+     * @return The value at index
+     * @throws IndexOutOfBoundsException if index is invalid
+     */
+    public float getFloatValue(final int index) {
+        return m_floatVector[index];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double[] copyTo(final double[] dest, final int destPos) {
+        if (destPos < 0 || destPos > dest.length - m_floatVector.length) {
+            throw new IndexOutOfBoundsException("Can't copy " + m_floatVector.length + " values to position "
+                + destPos + " of an array of length " + dest.length);
+        }
+        for (int i = 0; i < m_floatVector.length; i++) {
+            dest[destPos + i] = m_floatVector[i];
+        }
+        return dest;
+    }
+
+    /** Copies all values into the given array.
+     * @param dest The array to copy to.
+     * @param destPos The position of the first value in <code>dest</code>.
+     * @return <code>dest</code> for convenience.
+     * @throws IndexOutOfBoundsException if <code>dest</code> is too short
+     */
+    public float[] copyTo(final float[] dest, final int destPos) {
+        System.arraycopy(m_floatVector, 0, dest, destPos, m_floatVector.length);
+        return dest;
+    }
+
+    /**
+     * Returns a read-only view on the values, which doesn't copy the underlying array.
+     *
+     * @return a new read-only buffer, positioned at the first value
+     */
+    public FloatBuffer asFloatBuffer() {
+        return FloatBuffer.wrap(m_floatVector).asReadOnlyBuffer();
+    }
+
+    /** @return the underlying array, not copied (used by {@link DoubleVectorUtil}). */
+    float[] getVector() {
+        return m_floatVector;
+    }
+
+    /* ########################
+     * CollectionDataValue
+     * ######################## */
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return getLength();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataType getElementType() {
+        return DoubleCell.TYPE;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsBlobWrapperCells() {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterator<DataCell> iterator() {
+        return IntStream.range(0, m_floatVector.length).mapToObj(i -> (DataCell)new DoubleCell(m_floatVector[i]))
+            .iterator();
+    }
+
+    /** Same as the hash code of a {@link DenseDoubleVectorCell} with the widened values. */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (float f : m_floatVector) {
+            long bits = Double.doubleToLongBits(f);
+            result = 31 * result + (int)(bits ^ (bits >>> 32));
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean equalContent(final DataValue otherValue) {
+        DoubleVectorValue other = (DoubleVectorValue)otherValue;
+        if (other.getLength() != getLength()) {
+            return false;
+        }
+        return IntStream.range(0, m_floatVector.length).allMatch(i -> getValue(i) == other.getValue(i));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean equalsDataCell(final DataCell dc) {
+        DenseFloatVectorCell o = (DenseFloatVectorCell)dc;
+        return Arrays.equals(m_floatVector, o.m_floatVector);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return ConvenienceMethods.getShortStringFrom(
+            IntStream.range(0, m_floatVector.length).mapToObj(i -> m_floatVector[i]).iterator(),
+            m_floatVector.length, 3);
+    }
+
+    /**
+     * Serializer {@link DenseFloatVectorCell}s. The values are written as one raw little endian block, which is the
+     * native byte order of common platforms and hence converted without per-element byte swapping.
+     *
+     * @noreference This class is not intended to be referenced by clients.
+     */
+    public static final class DenseFloatVectorSerializer implements DataCellSerializer<DenseFloatVectorCell> {
+        /** {@inheritDoc} */
+        @Override
+        public void serialize(final DenseFloatVectorCell cell, final DataCellDataOutput out) throws IOException {
+            float[] vector = cell.m_floatVector;
+            out.writeInt(vector.length);
+            ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asFloatBuffer().put(vector);
+            out.write(buffer.array());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public DenseFloatVectorCell deserialize(final DataCellDataInput input) throws IOException {
+            int arrayLength = input.readInt();
+            if (arrayLength < 0) {
+                throw new IOException("Invalid vector length: " + arrayLength);
+            }
+            byte[] bytes = new byte[arrayLength * Float.BYTES];
+            input.readFully(bytes);
+            float[] vector = new float[arrayLength];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+            return new DenseFloatVectorCell(vector);
+        }
+    }
+}
@@ -66,6 +66,14 @@ public class DoubleVectorCellFactory implements DataCellFactory {
      */
     public static final DataType TYPE = DataType.getType(DenseDoubleVectorCell.class, DoubleCell.TYPE);
 
+    /**
+     * Convenience access member for <code>DataType.getType(DenseFloatVectorCell.class)</code>.
+     *
+     * @see DataType#getType(Class)
+     * @since 4.2
+     */
+    public static final DataType FLOAT_TYPE = DataType.getType(DenseFloatVectorCell.class, DoubleCell.TYPE);
+
 
     /** Create cell wrapping argument array - array reference is used (so do not modify aftwards!)
      * @param vector The non-null vector to use.
@@ -75,6 +83,15 @@ public static <T extends DataCell, DoubleVectorValue> T createCell(final double[
         return (T)new DenseDoubleVectorCell(vector);
     }
 
+    /** Create a float vector cell wrapping argument array - array reference is used (so do not modify afterwards!)
+     * @param vector The non-null vector to use.
+     * @return a cell
+     * @since 4.2
+     */
+    public static DenseFloatVectorCell createCell(final float[] vector) {
+        return new DenseFloatVectorCell(vector);
+    }
+
 
     /** {@inheritDoc} */
     @Override
@@ -0,0 +1,202 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.vector.doublevector;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.node.util.CheckUtils;
+
+/**
+ * A utility class providing arithmetic on {@link DoubleVectorValue}s, such as dot products, norms, addition and
+ * scaling. The operations work directly on the arrays of {@link DenseDoubleVectorCell}s and
+ * {@link DenseFloatVectorCell}s in tight loops the JIT compiler can unroll and vectorize; all other implementations
+ * are copied to a double[] first.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class DoubleVectorUtil {
+
+    private DoubleVectorUtil() { /*empty*/
+    }
+
+    /**
+     * Computes the dot product of two vectors of the same length. Float vectors are multiplied and summed up in double
+     * precision. The summation order differs from a naive loop, so the result may differ in the last bits.
+     *
+     * @param v1 the first vector
+     * @param v2 the second vector
+     * @return the dot product
+     * @throws IllegalArgumentException if the lengths differ
+     * @throws NullPointerException if an argument is null
+     */
+    public static double dot(final DoubleVectorValue v1, final DoubleVectorValue v2) {
+        checkSameLength(v1, v2);
+        if (v1 instanceof DenseDoubleVectorCell && v2 instanceof DenseDoubleVectorCell) {
+            return dot(((DenseDoubleVectorCell)v1).getVector(), ((DenseDoubleVectorCell)v2).getVector());
+        }
+        if (v1 instanceof DenseFloatVectorCell && v2 instanceof DenseFloatVectorCell) {
+            return dot(((DenseFloatVectorCell)v1).getVector(), ((DenseFloatVectorCell)v2).getVector());
+        }
+        return dot(toArray(v1), toArray(v2));
+    }
+
+    /**
+     * Computes the euclidean norm of a vector.
+     *
+     * @param v the vector
+     * @return the square root of the dot product of the vector with itself
+     * @throws NullPointerException if the argument is null
+     */
+    public static double norm(final DoubleVectorValue v) {
+        return Math.sqrt(dot(v, v));
+    }
+
+    /**
+     * Adds two vectors of the same length. The result is a {@link DenseFloatVectorCell} if both arguments are
+     * {@link DenseFloatVectorCell}s and a {@link DenseDoubleVectorCell} otherwise.
+     *
+     * @param v1 the first vector
+     * @param v2 the second vector
+     * @return a new cell containing the element-wise sum
+     * @throws IllegalArgumentException if the lengths differ
+     * @throws NullPointerException if an argument is null
+     */
+    public static DataCell add(final DoubleVectorValue v1, final DoubleVectorValue v2) {
+        checkSameLength(v1, v2);
+        if (v1 instanceof DenseFloatVectorCell && v2 instanceof DenseFloatVectorCell) {
+            final float[] a = ((DenseFloatVectorCell)v1).getVector();
+            final float[] b = ((DenseFloatVectorCell)v2).getVector();
+            final float[] result = new float[a.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = a[i] + b[i];
+            }
+            return new DenseFloatVectorCell(result);
+        }
+        final double[] a = v1 instanceof DenseDoubleVectorCell ? ((DenseDoubleVectorCell)v1).getVector() : toArray(v1);
+        final double[] b = v2 instanceof DenseDoubleVectorCell ? ((DenseDoubleVectorCell)v2).getVector() : toArray(v2);
+        final double[] result = new double[a.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return new DenseDoubleVectorCell(result);
+    }
+
+    /**
+     * Multiplies all values of a vector with a factor. The result is a {@link DenseFloatVectorCell} (with values
+     * rounded to float) if the argument is a {@link DenseFloatVectorCell} and a {@link DenseDoubleVectorCell}
+     * otherwise.
+     *
+     * @param v the vector
+     * @param factor the factor
+     * @return a new cell containing the scaled values
+     * @throws NullPointerException if the vector is null
+     */
+    public static DataCell scale(final DoubleVectorValue v, final double factor) {
+        if (v instanceof DenseFloatVectorCell) {
+            final float[] a = ((DenseFloatVectorCell)v).getVector();
+            final float[] result = new float[a.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (float)(a[i] * factor);
+            }
+            return new DenseFloatVectorCell(result);
+        }
+        final double[] a = v instanceof DenseDoubleVectorCell ? ((DenseDoubleVectorCell)v).getVector() : toArray(v);
+        final double[] result = new double[a.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] * factor;
+        }
+        return new DenseDoubleVectorCell(result);
+    }
+
+    private static void checkSameLength(final DoubleVectorValue v1, final DoubleVectorValue v2) {
+        CheckUtils.checkArgument(v1.getLength() == v2.getLength(), "Vectors must have the same length: %d vs. %d",
+            v1.getLength(), v2.getLength());
+    }
+
+    private static double[] toArray(final DoubleVectorValue v) {
+        return v.copyTo(new double[v.getLength()], 0);
+    }
+
+    /* The dot products use four independent sums, which removes the dependency of each addition on the previous
+     * one and allows the CPU to pipeline the multiplications. */
+
+    private static double dot(final double[] a, final double[] b) {
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        final int unrolledEnd = a.length & ~3;
+        int i = 0;
+        for (; i < unrolledEnd; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double dot(final float[] a, final float[] b) {
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        final int unrolledEnd = a.length & ~3;
+        int i = 0;
+        for (; i < unrolledEnd; i += 4) {
+            s0 += (double)a[i] * b[i];
+            s1 += (double)a[i + 1] * b[i + 1];
+            s2 += (double)a[i + 2] * b[i + 2];
+            s3 += (double)a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += (double)a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
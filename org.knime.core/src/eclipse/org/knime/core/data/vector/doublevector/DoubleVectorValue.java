@@ -79,6 +79,26 @@ public interface DoubleVectorValue extends DataValue {
      */
     public double getValue(final int index);
 
+    /** Copies all values into the given array. Implementations backed by an array override this method to copy
+     * in bulk.
+     * @param dest The array to copy to.
+     * @param destPos The position of the first value in <code>dest</code>.
+     * @return <code>dest</code> for convenience.
+     * @throws IndexOutOfBoundsException if <code>dest</code> is too short
+     * @since 4.2
+     */
+    public default double[] copyTo(final double[] dest, final int destPos) {
+        final int length = getLength();
+        if (destPos < 0 || destPos > dest.length - length) {
+            throw new IndexOutOfBoundsException("Can't copy " + length + " values to position " + destPos
+                + " of an array of length " + dest.length);
+        }
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = getValue(i);
+        }
+        return dest;
+    }
+
     /** Implementations of the meta information of this value class. */
     class DoubleVectorUtilityFactory extends ExtensibleUtilityFactory {
         /** Singleton icon to be used to display this cell type. */
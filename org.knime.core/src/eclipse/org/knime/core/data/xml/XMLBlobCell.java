@@ -50,6 +50,8 @@
 import java.io.IOException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataCellDataInput;
@@ -60,6 +62,8 @@
 import org.knime.core.data.StringValue;
 import org.knime.core.data.container.BlobDataCell;
 import org.knime.core.data.util.LockedSupplier;
+import org.knime.core.data.xml.io.LimitedXPathMatcher;
+import org.knime.core.data.xml.io.XMLCellReader;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
@@ -193,4 +197,31 @@ public LockedSupplier<Document> getDocumentSupplier() {
         return m_content.getDocumentSupplier();
     }
 
+    /**
+     * Creates a StAX reader on the content, which gives streaming access without parsing the document into a DOM.
+     *
+     * @return a new reader, which must be closed by the caller
+     * @throws XMLStreamException if the reader can't be created
+     * @see XMLCellContent#createXMLStreamReader()
+     * @since 4.2
+     */
+    public XMLStreamReader createXMLStreamReader() throws XMLStreamException {
+        return m_content.createXMLStreamReader();
+    }
+
+    /**
+     * Creates a reader returning the nodes that match a limited XPath, without parsing the whole document into a DOM.
+     *
+     * @param xpathMatcher a new matcher for the limited XPath
+     * @return a new reader, which must be closed by the caller
+     * @throws ParserConfigurationException if the factory object for DOMs could not be created
+     * @throws XMLStreamException if the stream parser could not be created
+     * @see XMLCellContent#createXPathReader(LimitedXPathMatcher)
+     * @since 4.2
+     */
+    public XMLCellReader createXPathReader(final LimitedXPathMatcher xpathMatcher)
+        throws ParserConfigurationException, XMLStreamException {
+        return m_content.createXPathReader(xpathMatcher);
+    }
+
 }
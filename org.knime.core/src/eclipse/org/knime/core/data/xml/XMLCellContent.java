@@ -52,13 +52,17 @@
 import java.io.InputStream;
 import java.io.StringReader;
 import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.knime.core.data.util.LockedSupplier;
+import org.knime.core.data.xml.io.LimitedXPathMatcher;
+import org.knime.core.data.xml.io.XMLCellReader;
 import org.knime.core.data.xml.io.XMLCellReaderFactory;
 import org.knime.core.data.xml.io.XMLCellWriter;
 import org.knime.core.data.xml.io.XMLCellWriterFactory;
@@ -70,6 +74,11 @@
 /**
  * This class encapsulates a {@link Document}. It is the common content of a
  * {@link XMLCell} and a {@link XMLBlobCell}.
+ * <p>
+ * The content is kept as (normalized) XML string. The parsed document is held in the {@link XMLDocumentCache} and
+ * via a soft reference; it is only parsed again if it was evicted from both. Clients that only need to scan the
+ * document can use {@link #createXMLStreamReader()} or {@link #createXPathReader(LimitedXPathMatcher)}, which don't
+ * build a DOM of the whole document.
  *
  * @author Heiko Hofer
  */
@@ -77,8 +86,13 @@ public class XMLCellContent implements XMLValue<Document> {
     private static final NodeLogger LOGGER = NodeLogger
             .getLogger(XMLCellContent.class);
 
+    private static final AtomicLong ID_COUNTER = new AtomicLong();
+
     private final String m_xmlString;
 
+    /** Identifies this content in the {@link XMLDocumentCache}. */
+    private final long m_id = ID_COUNTER.incrementAndGet();
+
     private SoftReference<Document> m_content;
 
     private final ReentrantLock m_lock = new ReentrantLock();
@@ -103,7 +117,7 @@ public class XMLCellContent implements XMLValue<Document> {
                 Document doc = parse(xmlString);
                 // store the normalized string as cell content
                 m_xmlString = serialize(doc);
-                m_content = new SoftReference<Document>(doc);
+                cacheDocument(doc);
             } catch (IOException ex) {
                 Throwable cause = ex;
                 while ((cause.getCause() != cause) && (cause.getCause() != null)) {
@@ -135,8 +149,8 @@ public class XMLCellContent implements XMLValue<Document> {
             ParserConfigurationException, SAXException, XMLStreamException {
         try {
             Document doc = parse(is);
-            m_content = new SoftReference<Document>(doc);
             m_xmlString = serialize(doc);
+            cacheDocument(doc);
         } catch (IOException ex) {
             Throwable cause = ex;
             while ((cause.getCause() != cause) && (cause.getCause() != null)) {
@@ -171,6 +185,9 @@ public class XMLCellContent implements XMLValue<Document> {
             // should not happen
         }
         m_xmlString = s;
+        if (s != null) {
+            XMLDocumentCache.getInstance().put(m_id, this, doc, XMLDocumentCache.weightOf(s));
+        }
     }
 
     /**
@@ -214,18 +231,59 @@ public XMLCellContent(final LockedSupplier<Document> documentSupplier) {
     @Deprecated
     @Override
     public Document getDocument() {
-        Document doc = m_content.get();
+        // look into the cache first, which also marks the document as recently used
+        Document doc = XMLDocumentCache.getInstance().get(m_id);
+        if (doc != null) {
+            return doc;
+        }
+        doc = m_content.get();
         if (doc == null) {
             try {
                 doc = parse(m_xmlString);
-                m_content = new SoftReference<Document>(doc);
             } catch (Exception ex) {
                 LOGGER.error("Error while parsing XML in XML Cell", ex);
+                return null;
             }
+            m_content = new SoftReference<Document>(doc);
         }
+        XMLDocumentCache.getInstance().put(m_id, this, doc, XMLDocumentCache.weightOf(m_xmlString));
         return doc;
     }
 
+    /** Keeps the document in the shared cache and the soft reference, called once the XML string is assigned. */
+    private void cacheDocument(final Document doc) {
+        m_content = new SoftReference<Document>(doc);
+        XMLDocumentCache.getInstance().put(m_id, this, doc, XMLDocumentCache.weightOf(m_xmlString));
+    }
+
+    /**
+     * Creates a StAX reader on the XML string, which gives streaming access to the content without building a DOM.
+     * The caller must close the reader.
+     *
+     * @return a new reader positioned at the start of the document
+     * @throws XMLStreamException if the reader can't be created
+     * @since 4.2
+     */
+    public XMLStreamReader createXMLStreamReader() throws XMLStreamException {
+        return XMLCellReaderFactory.createXMLStreamReader(new StringReader(m_xmlString));
+    }
+
+    /**
+     * Creates a reader that returns the nodes matching the given limited XPath, one document per node. The content is
+     * scanned with a stream parser; only the matching nodes are built as DOM. As the matcher keeps state while
+     * scanning, a new matcher must be used for every reader.
+     *
+     * @param xpathMatcher a new matcher for the limited XPath
+     * @return a new reader, which must be closed by the caller
+     * @throws ParserConfigurationException if the factory object for DOMs could not be created
+     * @throws XMLStreamException if the stream parser could not be created
+     * @since 4.2
+     */
+    public XMLCellReader createXPathReader(final LimitedXPathMatcher xpathMatcher)
+        throws ParserConfigurationException, XMLStreamException {
+        return XMLCellReaderFactory.createXPathXMLCellReader(new StringReader(m_xmlString), xpathMatcher);
+    }
+
     /**
      * Returns the XML Document as a string.
      *
@@ -0,0 +1,244 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.data.xml;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.knime.core.data.util.memory.MemoryAlert;
+import org.knime.core.data.util.memory.MemoryAlertListener;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+import org.w3c.dom.Document;
+
+/**
+ * A cache for parsed documents of {@link XMLCellContent}s, shared by all XML cells. It complements the soft reference
+ * each content holds to its document: soft references tend to be cleared all at once on garbage collection, after
+ * which every access to an XML cell (including {@link XMLCellContent#hashCode()} and
+ * {@link XMLCellContent#equals(Object)}) parses the document again.
+ * <p>
+ * Entries are hard-referenced in an access ordered map and weighted by an estimate of the DOM size, which is derived
+ * from the length of the serialized document. Least recently used entries are evicted once the byte budget is exceeded;
+ * documents larger than the budget are not cached. The entire cache is cleared when memory becomes scarce (see
+ * {@link MemoryAlertSystem}). Each entry only weakly references the content it belongs to; entries of contents that
+ * have been garbage collected are removed on the next {@link #put(long, Object, Document, long)}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class XMLDocumentCache {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(XMLDocumentCache.class);
+
+    /** See {@link KNIMEConstants#PROPERTY_XML_DOCUMENT_CACHE_SIZE}. */
+    static final String PROPERTY_XML_DOCUMENT_CACHE_SIZE = KNIMEConstants.PROPERTY_XML_DOCUMENT_CACHE_SIZE;
+
+    /** Default budget: 5% of the heap, but no more than 256MB. */
+    static final long DEF_XML_DOCUMENT_CACHE_SIZE = Math.min(Runtime.getRuntime().maxMemory() / 20, 256L << 20);
+
+    /** Estimated size of a DOM in bytes per character of its serialized form (nodes, strings, name tables). */
+    private static final long BYTES_PER_CHAR = 10;
+
+    /** Size overhead assumed for each entry (map entry, document object). */
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private static final class InstanceHolder {
+        private static final XMLDocumentCache INSTANCE = createInstance();
+    }
+
+    private final Map<Long, Entry> m_map = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Receives the entries whose owner has been garbage collected. */
+    private final ReferenceQueue<Object> m_collectedOwners = new ReferenceQueue<>();
+
+    private final long m_budget;
+
+    private long m_weight;
+
+    /**
+     * Creates a cache, not registered with the memory alert system.
+     *
+     * @param budget the maximum total weight of cached documents in bytes, 0 to disable caching
+     */
+    XMLDocumentCache(final long budget) {
+        m_budget = Math.max(0L, budget);
+    }
+
+    /** @return the shared instance, with the budget as per {@link #PROPERTY_XML_DOCUMENT_CACHE_SIZE} */
+    static XMLDocumentCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    private static XMLDocumentCache createInstance() {
+        final XMLDocumentCache cache = new XMLDocumentCache(readBudgetFromProperty());
+        MemoryAlertSystem.getInstanceUncollected().addListener(new MemoryAlertListener() {
+            @Override
+            protected boolean memoryAlert(final MemoryAlert alert) {
+                LOGGER.debug("Clearing XML document cache in order to free memory.");
+                cache.clear();
+                return false;
+            }
+        });
+        return cache;
+    }
+
+    private static long readBudgetFromProperty() {
+        final String value = System.getProperty(PROPERTY_XML_DOCUMENT_CACHE_SIZE);
+        if (value != null) {
+            try {
+                final long sizeInMB = Long.parseLong(value.trim());
+                if (sizeInMB >= 0) {
+                    return sizeInMB << 20;
+                }
+            } catch (NumberFormatException nfe) {
+                // handled below
+            }
+            LOGGER.warn("Invalid setting for XML document cache size (\"" + PROPERTY_XML_DOCUMENT_CACHE_SIZE + "\"): "
+                + value + ". Using default: " + (DEF_XML_DOCUMENT_CACHE_SIZE >> 20) + "MB.");
+        }
+        return DEF_XML_DOCUMENT_CACHE_SIZE;
+    }
+
+    /**
+     * Estimates the size of the DOM of a document.
+     *
+     * @param xmlString the serialized document
+     * @return the estimated size in bytes
+     */
+    static long weightOf(final String xmlString) {
+        return ENTRY_OVERHEAD + BYTES_PER_CHAR * xmlString.length();
+    }
+
+    /**
+     * @param id the unique ID of the XML content
+     * @return the cached document or null
+     */
+    synchronized Document get(final long id) {
+        final Entry entry = m_map.get(id);
+        return entry == null ? null : entry.m_document;
+    }
+
+    /**
+     * Adds a document to the cache, evicting least recently used entries if needed. Documents heavier than the entire
+     * budget are ignored.
+     *
+     * @param id the unique ID of the XML content
+     * @param owner the XML content, the entry is removed once it is garbage collected
+     * @param document the parsed document
+     * @param weight the estimated size of the document, see {@link #weightOf(String)}
+     */
+    synchronized void put(final long id, final Object owner, final Document document, final long weight) {
+        removeCollected();
+        if (weight > m_budget) {
+            return;
+        }
+        final Entry old = m_map.put(id, new Entry(id, owner, document, weight, m_collectedOwners));
+        if (old != null) {
+            discard(old);
+        }
+        m_weight += weight;
+        for (Iterator<Entry> it = m_map.values().iterator(); m_weight > m_budget && it.hasNext();) {
+            discard(it.next());
+            it.remove();
+        }
+    }
+
+    /** Removes the entries whose owner has been garbage collected. */
+    private void removeCollected() {
+        for (Reference<?> ref; (ref = m_collectedOwners.poll()) != null;) {
+            final Entry entry = (Entry)ref;
+            // the entry may have been replaced or evicted in the meantime
+            if (m_map.remove(entry.m_id, entry)) {
+                m_weight -= entry.m_weight;
+            }
+        }
+    }
+
+    private void discard(final Entry entry) {
+        m_weight -= entry.m_weight;
+        // no need to enqueue it anymore
+        entry.clear();
+    }
+
+    /** Removes all entries from the cache. */
+    synchronized void clear() {
+        m_map.values().forEach(Entry::clear);
+        m_map.clear();
+        m_weight = 0L;
+    }
+
+    /** @return the total weight of all cached documents */
+    synchronized long getWeight() {
+        removeCollected();
+        return m_weight;
+    }
+
+    /** @return the number of cached documents */
+    synchronized int size() {
+        removeCollected();
+        return m_map.size();
+    }
+
+    private static final class Entry extends WeakReference<Object> {
+
+        private final long m_id;
+
+        private final Document m_document;
+
+        private final long m_weight;
+
+        Entry(final long id, final Object owner, final Document document, final long weight,
+            final ReferenceQueue<Object> queue) {
+            super(owner, queue);
+            m_id = id;
+            m_document = document;
+            m_weight = weight;
+        }
+    }
+}
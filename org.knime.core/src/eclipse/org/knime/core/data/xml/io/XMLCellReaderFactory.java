@@ -51,7 +51,11 @@
 import java.io.Reader;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.knime.core.node.KNIMEConstants;
 
 /**
  * Factory class for {@link XMLCellReader}.
@@ -109,4 +113,53 @@ public static XMLCellReader createXPathXMLCellReader(final InputStream is,
 			throws ParserConfigurationException, XMLStreamException {
 		return new XMLXpathCellReader(is, xpathMatcher);
 	}
+
+	/**
+	 * Creates a {@link XMLCellReader} to read nodes matching the given limited
+	 * XPath from a {@link Reader}, see
+	 * {@link #createXPathXMLCellReader(InputStream, LimitedXPathMatcher)}.
+	 *
+	 * @param reader a reader for the xml document
+	 * @param xpathMatcher Only nodes that match are read
+	 * @return {@link XMLCellReader} to read nodes matching the given limited
+	 * XPath. Every node is read in a single DataCell.
+	 * @throws ParserConfigurationException when the factory object for
+	 * DOMs could not be created.
+	 * @throws XMLStreamException when parser could not be configured
+	 * @since 4.2
+	 */
+	public static XMLCellReader createXPathXMLCellReader(final Reader reader,
+			final LimitedXPathMatcher xpathMatcher)
+			throws ParserConfigurationException, XMLStreamException {
+		return new XMLXpathCellReader(reader, xpathMatcher);
+	}
+
+	/**
+	 * Creates a coalescing StAX stream reader, which resolves external
+	 * entities unless disabled via
+	 * {@link KNIMEConstants#PROPERTY_XML_DISABLE_EXT_ENTITIES}.
+	 *
+	 * @param reader a reader for the xml document
+	 * @return a new stream reader
+	 * @throws XMLStreamException when parser could not be configured
+	 * @since 4.2
+	 */
+	public static XMLStreamReader createXMLStreamReader(final Reader reader)
+			throws XMLStreamException {
+		return createXMLInputFactory().createXMLStreamReader(reader);
+	}
+
+	/**
+	 * Creates the factory for stream readers as used by the readers in this
+	 * package.
+	 */
+	static XMLInputFactory createXMLInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.TRUE);
+		if (Boolean.getBoolean(KNIMEConstants.PROPERTY_XML_DISABLE_EXT_ENTITIES)) { // see AP-6752
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		}
+		return factory;
+	}
 }
@@ -47,8 +47,10 @@
  */
 package org.knime.core.data.xml.io;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -60,14 +62,12 @@
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 import org.knime.core.data.xml.XMLCellFactory;
 import org.knime.core.data.xml.XMLValue;
-import org.knime.core.node.KNIMEConstants;
 import org.knime.core.util.Pair;
 import org.w3c.dom.Comment;
 import org.w3c.dom.Document;
@@ -85,8 +85,8 @@
  * @author Heiko Hofer
  */
 public class XMLXpathCellReader implements XMLCellReader {
-	private final InputStream m_in;
-	private XMLStreamReader m_parser;
+	private final Closeable m_in;
+	private final XMLStreamReader m_parser;
 	private final DocumentBuilder m_builder;
 	private final LimitedXPathMatcher m_xpathMatcher;
 	private final List<Document> m_docs;
@@ -108,7 +108,29 @@ public class XMLXpathCellReader implements XMLCellReader {
 	public XMLXpathCellReader(final InputStream is,
 			final LimitedXPathMatcher xpathMatcher)
 			throws ParserConfigurationException, XMLStreamException {
-		this.m_in = is;
+		this(is, xpathMatcher, XMLCellReaderFactory.createXMLInputFactory().createXMLStreamReader(is));
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param reader the xml source
+	 * @param xpathMatcher nodes of the input that match will be read, only
+	 * @throws ParserConfigurationException
+	 * @throws XMLStreamException
+	 * @since 4.2
+	 */
+	public XMLXpathCellReader(final Reader reader,
+			final LimitedXPathMatcher xpathMatcher)
+			throws ParserConfigurationException, XMLStreamException {
+		this(reader, xpathMatcher, XMLCellReaderFactory.createXMLStreamReader(reader));
+	}
+
+	private XMLXpathCellReader(final Closeable in,
+			final LimitedXPathMatcher xpathMatcher, final XMLStreamReader parser)
+			throws ParserConfigurationException {
+		this.m_in = in;
+		this.m_parser = parser;
 
 		DocumentBuilderFactory domFactory = DocumentBuilderFactory
 				.newInstance();
@@ -126,19 +148,6 @@ public XMLXpathCellReader(final InputStream is,
 		m_base = new LinkedList<String>();
 		m_space = new LinkedList<String>();
 		m_lang = new LinkedList<String>();
-		initStreamParser();
-	}
-
-	/** Initialize the stream parser object. */
-	private void initStreamParser() throws XMLStreamException {
-		XMLInputFactory factory = XMLInputFactory.newInstance();
-		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
-		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.TRUE);
-        if (Boolean.getBoolean(KNIMEConstants.PROPERTY_XML_DISABLE_EXT_ENTITIES)) { // see AP-6752
-            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
-        }
-
-		m_parser = factory.createXMLStreamReader(m_in);
 	}
 
 	private void pushNamespaceContext() {
@@ -0,0 +1,323 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.apache.log4j.helpers.LogLog;
+
+/**
+ * Hands log events from the logging threads over to a single dispatcher thread that passes them in batches to a sink
+ * (the log4j appenders, see {@link NodeLogger}). The events are kept in a bounded, lock-free ring buffer, which
+ * can be written to by any number of threads. If the buffer is full the logging threads wait until the dispatcher
+ * has caught up, i.e. events are never dropped and the order of the events of each thread is retained. After
+ * {@link #shutdown(long)} the events are passed to the sink by the logging threads.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @param <E> the type of the events
+ */
+final class AsyncLogDispatcher<E> {
+
+    /** The maximum number of events taken from the buffer at once. */
+    private static final int BATCH_SIZE = 256;
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int m_capacity;
+
+    private final int m_mask;
+
+    private final AtomicReferenceArray<E> m_events;
+
+    /** The sequence number of each slot, determines whether the slot can be written or read (Vyukov's queue). */
+    private final AtomicLongArray m_sequences;
+
+    /** The position of the next slot to be claimed by a logging thread. */
+    private final AtomicLong m_tail = new AtomicLong();
+
+    /** The position of the next slot to be read, only accessed by the dispatcher thread. */
+    private long m_head;
+
+    /** The number of events passed to the sink. */
+    private volatile long m_dispatched;
+
+    private volatile boolean m_isWaiting;
+
+    private volatile boolean m_isShutdown;
+
+    private final Consumer<List<E>> m_sink;
+
+    private final Thread m_thread;
+
+    /**
+     * Creates a new dispatcher and starts its (daemon) thread.
+     *
+     * @param name the name of the dispatcher thread
+     * @param capacity the minimum capacity of the buffer, rounded up to the next power of two (at least 2)
+     * @param sink receives the events in batches, called by the dispatcher thread until the dispatcher is shut down
+     */
+    AsyncLogDispatcher(final String name, final int capacity, final Consumer<List<E>> sink) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid buffer capacity: " + capacity);
+        }
+        // a single slot cannot be distinguished between written and read
+        int powerOfTwo = 2;
+        while (powerOfTwo < capacity) {
+            powerOfTwo <<= 1;
+        }
+        m_capacity = powerOfTwo;
+        m_mask = m_capacity - 1;
+        m_events = new AtomicReferenceArray<>(m_capacity);
+        m_sequences = new AtomicLongArray(m_capacity);
+        for (int i = 0; i < m_capacity; i++) {
+            m_sequences.set(i, i);
+        }
+        m_sink = sink;
+        m_thread = new Thread(this::run, name);
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * @return the capacity of the buffer
+     */
+    int getCapacity() {
+        return m_capacity;
+    }
+
+    /**
+     * Adds an event to the buffer. Waits if the buffer is full, unless called by the dispatcher thread itself (e.g. if
+     * an appender logs), in which case the event is passed to the sink directly.
+     *
+     * @param event the event, not <code>null</code>
+     */
+    void dispatch(final E event) {
+        if (m_isShutdown) {
+            // events of this thread that are still in the buffer go first
+            drainAfterShutdown();
+            deliver(Collections.singletonList(event));
+            return;
+        }
+        if (!offer(event)) {
+            if (Thread.currentThread() == m_thread) {
+                deliver(Collections.singletonList(event));
+                return;
+            }
+            do {
+                if (m_isShutdown) {
+                    drainAfterShutdown();
+                } else {
+                    LockSupport.unpark(m_thread);
+                    Thread.yield();
+                }
+            } while (!offer(event));
+        }
+        if (m_isShutdown) {
+            // the dispatcher thread might have terminated before the event was added
+            drainAfterShutdown();
+        } else if (m_isWaiting) {
+            LockSupport.unpark(m_thread);
+        }
+    }
+
+    /**
+     * Waits until all events that were added before this call have been passed to the sink. Returns immediately if
+     * called by the dispatcher thread.
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return <code>true</code> if all events have been dispatched, <code>false</code> if the timeout elapsed
+     */
+    boolean flush(final long timeout) {
+        if (Thread.currentThread() == m_thread) {
+            return true;
+        }
+        if (m_isShutdown) {
+            drainAfterShutdown();
+            return true;
+        }
+        final long target = m_tail.get();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (m_dispatched < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.unpark(m_thread);
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * Stops the dispatcher thread after it has passed the events in the buffer to the sink. Events that are added
+     * afterwards are passed to the sink by the logging threads directly.
+     *
+     * @param timeout the maximum time to wait for the dispatcher thread in milliseconds
+     * @return <code>true</code> if the dispatcher thread has terminated, <code>false</code> if the timeout elapsed
+     */
+    boolean shutdown(final long timeout) {
+        m_isShutdown = true;
+        LockSupport.unpark(m_thread);
+        if (Thread.currentThread() == m_thread) {
+            // terminates once the buffer is empty
+            return false;
+        }
+        try {
+            m_thread.join(timeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (m_thread.isAlive()) {
+            return false;
+        }
+        drainAfterShutdown();
+        return true;
+    }
+
+    /**
+     * Passes the events that are left in the buffer to the sink once the dispatcher thread has terminated. Not called
+     * by the dispatcher thread, which empties the buffer before it terminates.
+     */
+    private void drainAfterShutdown() {
+        if (Thread.currentThread() == m_thread) {
+            return;
+        }
+        try {
+            m_thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized (this) {
+            final List<E> batch = new ArrayList<>();
+            E event;
+            while ((event = poll()) != null) {
+                batch.add(event);
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch);
+            }
+            m_dispatched = m_head;
+        }
+    }
+
+    private boolean offer(final E event) {
+        long pos = m_tail.get();
+        while (true) {
+            final int index = (int)(pos & m_mask);
+            final long diff = m_sequences.get(index) - pos;
+            if (diff == 0) {
+                if (m_tail.compareAndSet(pos, pos + 1)) {
+                    m_events.set(index, event);
+                    // publishes the event to the dispatcher thread
+                    m_sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = m_tail.get();
+            } else if (diff < 0) {
+                // the slot has not been read yet, i.e. the buffer is full
+                return false;
+            } else {
+                // another thread claimed the slot
+                pos = m_tail.get();
+            }
+        }
+    }
+
+    /** Only called by the dispatcher thread, or after it has terminated while holding the monitor of this object. */
+    private E poll() {
+        final int index = (int)(m_head & m_mask);
+        if (m_sequences.get(index) != m_head + 1) {
+            return null;
+        }
+        final E event = m_events.get(index);
+        m_events.set(index, null);
+        m_sequences.set(index, m_head + m_capacity);
+        m_head++;
+        return event;
+    }
+
+    private void run() {
+        final List<E> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            E event;
+            while (batch.size() < BATCH_SIZE && (event = poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                if (m_isShutdown) {
+                    return;
+                }
+                m_isWaiting = true;
+                // check again, a logging thread might have missed the flag
+                if (m_sequences.get((int)(m_head & m_mask)) != m_head + 1) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                m_isWaiting = false;
+            } else {
+                deliver(batch);
+                batch.clear();
+                m_dispatched = m_head;
+            }
+        }
+    }
+
+    private void deliver(final List<E> batch) {
+        try {
+            m_sink.accept(batch);
+        } catch (RuntimeException ex) {
+            // must not kill the dispatcher thread
+            LogLog.error("Could not dispatch log events: " + ex.getMessage(), ex);
+        }
+    }
+}
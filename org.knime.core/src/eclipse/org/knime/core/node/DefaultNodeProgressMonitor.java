@@ -52,6 +52,10 @@
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Supplier;
 
 import org.apache.commons.lang3.StringUtils;
@@ -68,6 +72,10 @@
  * <p>
  * This progress monitor uses a static timer task looking every 250 milliseconds if progress information has changed.
  * The <code>ProgressEvent</code> is fired if either the value or message has changed only.
+ * <p>
+ * Progress and messages can be set concurrently by multiple threads without locking. The progress is kept in a single
+ * atomic value, to which the progress reported by {@linkplain NodeProgressMonitor sub progress monitors} is added by
+ * compare-and-set, and message suppliers are only evaluated by the timer task.
  *
  * @author Thomas Gabriel, University of Konstanz
  */
@@ -78,16 +86,52 @@ public class DefaultNodeProgressMonitor implements NodeProgressMonitor {
     private static final Supplier<String> NULL_SUPPLIER = () -> null;
 
     /** The cancel requested flag. */
-    private boolean m_cancelExecute;
+    private volatile boolean m_cancelExecute;
+
+    /**
+     * The progress set by {@link #setProgress(double)} plus the increments reported by SubNodeProgressMonitors. Setting
+     * or resetting the progress replaces the whole object, so readers never see the new value combined with the
+     * increments to the old one.
+     */
+    private static final class Progress {
+
+        /** The progress set explicitly, NaN if none. */
+        private final double m_value;
+
+        /** Striped, so that many threads can add sub progress without contending for the same memory. */
+        private final DoubleAdder m_increments = new DoubleAdder();
+
+        private volatile boolean m_hasIncrements;
+
+        Progress(final double value) {
+            m_value = value;
+        }
+
+        /** @return the progress capped at 1, NaN if neither set nor incremented */
+        double get() {
+            if (!m_hasIncrements) {
+                return m_value;
+            }
+            // show 0% even if only increments are reported; the sum never decreases as increments are not negative
+            return Math.min(1.0, (Double.isNaN(m_value) ? 0.0 : m_value) + m_increments.sum());
+        }
 
-    /** Progress of the execution between 0 and 1, or null if not available. */
-    private Double m_progress;
+        void add(final double increment) {
+            m_increments.add(increment);
+            if (!m_hasIncrements) {
+                m_hasIncrements = true;
+            }
+        }
+    }
+
+    /** The progress of the execution between 0 and 1, see {@link Progress}. */
+    private final AtomicReference<Progress> m_progress = new AtomicReference<>(new Progress(Double.NaN));
 
     /** Lazy setter of new message - generation may be skipped if new messages come in faster than processed. */
-    private Supplier<String> m_messageSupplier;
+    private volatile Supplier<String> m_messageSupplier;
 
     /** Lazy setter of new append message - used by SubNodeProgressMonitor. */
-    private Supplier<String> m_appendSupplier;
+    private volatile Supplier<String> m_appendSupplier;
 
     /** A set of progress listeners. */
     private final CopyOnWriteArrayList<NodeProgressListener> m_listeners;
@@ -102,7 +146,7 @@ public class DefaultNodeProgressMonitor implements NodeProgressMonitor {
     private static final List<WeakReference<DefaultNodeProgressMonitor>> PROGMONS = new CopyOnWriteArrayList<>();
 
     /** If progress has changed. */
-    private boolean m_changed = false;
+    private volatile boolean m_changed = false;
 
     private static final ScheduledExecutorService NOTIFICATION_SERVICE =
             Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "KNIME Progress Updater"));
@@ -166,12 +210,12 @@ public DefaultNodeProgressMonitor(final NodeProgressListener l) {
      * NOTE: No notification is send to listeners! {@inheritDoc}
      */
     @Override
-    public synchronized void reset() {
-        if ((m_progress != null) || (m_messageSupplier.get() != null)) {
+    public void reset() {
+        if ((getProgress() != null) || (m_messageSupplier.get() != null)) {
             m_changed = true;
         }
         m_cancelExecute = false;
-        m_progress = null;
+        m_progress.set(new Progress(Double.NaN));
         m_appendSupplier = NULL_SUPPLIER;
         m_messageSupplier = NULL_SUPPLIER;
     }
@@ -213,7 +257,7 @@ public void setExecuteCanceled() {
      * @param message The text message shown in the progress monitor.
      */
     @Override
-    public synchronized void setProgress(final double progress, final String message) {
+    public void setProgress(final double progress, final String message) {
         setProgressIntern(progress);
         setMessageIntern(() -> message, NULL_SUPPLIER);
         m_changed = true;
@@ -222,7 +266,7 @@ public synchronized void setProgress(final double progress, final String message
     /** {@inheritDoc}
      * @since 3.2 */
     @Override
-    public synchronized void setProgress(final double progress, final Supplier<String> message) {
+    public void setProgress(final double progress, final Supplier<String> message) {
         setProgressIntern(progress);
         m_messageSupplier = CheckUtils.checkArgumentNotNull(message);
         m_changed = true;
@@ -234,7 +278,7 @@ public synchronized void setProgress(final double progress, final Supplier<Strin
      * @param progress The value between 0 and 1.
      */
     @Override
-    public synchronized void setProgress(final double progress) {
+    public void setProgress(final double progress) {
         if (setProgressIntern(progress)) {
             m_changed = true;
         }
@@ -242,14 +286,14 @@ public synchronized void setProgress(final double progress) {
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void setMessage(final String message) {
+    public void setMessage(final String message) {
         setProgress(message);
     }
 
     /** {@inheritDoc}
      * @since 3.2 */
     @Override
-    public synchronized void setMessage(final Supplier<String> message) {
+    public void setMessage(final Supplier<String> message) {
         m_messageSupplier = CheckUtils.checkArgumentNotNull(message);
         m_changed = true;
     }
@@ -260,12 +304,12 @@ public synchronized void setMessage(final Supplier<String> message) {
      * @param message The text message shown in the progress monitor.
      */
     @Override
-    public synchronized void setProgress(final String message) {
+    public void setProgress(final String message) {
         setMessageIntern(() -> message, NULL_SUPPLIER);
         m_changed = true;
     }
 
-    private synchronized void appendMessage(final Supplier<String> appendSupplier) {
+    private void appendMessage(final Supplier<String> appendSupplier) {
         setMessageIntern(m_messageSupplier, appendSupplier);
         m_changed = true;
     }
@@ -274,17 +318,29 @@ private synchronized void appendMessage(final Supplier<String> appendSupplier) {
      * Sets progress internally, returns <code>true</code> if old value has changed.
      */
     private boolean setProgressIntern(final double progress) {
-        final Double oldProgress = m_progress;
+        final Double oldProgress = getProgress();
         if (progress >= 0.0 && progress <= 1.0) {
-            m_progress = progress;
+            m_progress.set(new Progress(progress));
         }
         boolean changed = oldProgress == null || oldProgress.doubleValue() != progress;
         return changed;
     }
 
+    /**
+     * Adds progress reported by a {@link SubNodeProgressMonitor}. Doesn't lock, i.e. can be called by many threads
+     * concurrently.
+     *
+     * @param increment the progress to add, not negative
+     */
+    void addProgress(final double increment) {
+        m_progress.get().add(Math.max(0.0, increment));
+        if (!m_changed) {
+            m_changed = true;
+        }
+    }
+
     /** Sets message internally. */
     private void setMessageIntern(final Supplier<String> messageSupplier, final Supplier<String> appendSupplier) {
-        assert Thread.holdsLock(this);
         m_messageSupplier = messageSupplier;
         m_appendSupplier = appendSupplier;
     }
@@ -293,15 +349,16 @@ private void setMessageIntern(final Supplier<String> messageSupplier, final Supp
      * @return The current progress value, or <code>null</code> if not yet set.
      */
     @Override
-    public synchronized Double getProgress() {
-        return m_progress;
+    public Double getProgress() {
+        final double progress = m_progress.get().get();
+        return Double.isNaN(progress) ? null : progress;
     }
 
     /**
      * @return The current progress message.
      */
     @Override
-    public synchronized String getMessage() {
+    public String getMessage() {
         return m_messageSupplier.get();
     }
 
@@ -372,11 +429,12 @@ static class SubNodeProgressMonitor implements NodeProgressMonitor {
 
         private final double m_maxProg;
 
-        private double m_lastProg;
+        /** The last progress reported to the parent, the raw long bits of the double value. */
+        private final AtomicLong m_lastProg = new AtomicLong(Double.doubleToRawLongBits(0.0));
 
-        private Supplier<String> m_innerMessageSupplier;
+        private volatile Supplier<String> m_innerMessageSupplier;
 
-        private Supplier<String> m_innerAppendSupplier;
+        private volatile Supplier<String> m_innerAppendSupplier;
 
         /**
          * Creates new sub progress monitor.
@@ -420,7 +478,7 @@ public String getMessage() {
          */
         @Override
         public Double getProgress() {
-            return m_lastProg;
+            return Double.longBitsToDouble(m_lastProg.get());
         }
 
         /** {@inheritDoc} */
@@ -493,10 +551,8 @@ public void setProgress(final double progress, final String message) {
         /** {@inheritDoc} */
         @Override
         public void setProgress(final double progress, final Supplier<String> messageSupplier) {
-            synchronized (m_parent) {
-                this.setProgress(progress);
-                this.setMessage(messageSupplier);
-            }
+            this.setProgress(progress);
+            this.setMessage(messageSupplier);
         }
 
         /**
@@ -506,19 +562,17 @@ public void setProgress(final double progress, final Supplier<String> messageSup
          * @param append whether to append
          */
         void setProgress(final Supplier<String> messageSupplier, final boolean append) {
-            synchronized (m_parent) {
-                m_innerMessageSupplier = CheckUtils.checkArgumentNotNull(messageSupplier);
-                if (append) {
-                    m_innerAppendSupplier = NULL_SUPPLIER;
-                }
-                Supplier<String> createSupplier = () -> createMessage(m_innerMessageSupplier, m_innerAppendSupplier);
-                if (m_parent instanceof DefaultNodeProgressMonitor) {
-                    ((DefaultNodeProgressMonitor)m_parent).appendMessage(createSupplier);
-                } else if (m_parent instanceof SubNodeProgressMonitor) {
-                    ((SubNodeProgressMonitor)m_parent).appendMessage(createSupplier);
-                } else {
-                    m_parent.setMessage(createSupplier);
-                }
+            m_innerMessageSupplier = CheckUtils.checkArgumentNotNull(messageSupplier);
+            if (append) {
+                m_innerAppendSupplier = NULL_SUPPLIER;
+            }
+            Supplier<String> createSupplier = () -> createMessage(m_innerMessageSupplier, m_innerAppendSupplier);
+            if (m_parent instanceof DefaultNodeProgressMonitor) {
+                ((DefaultNodeProgressMonitor)m_parent).appendMessage(createSupplier);
+            } else if (m_parent instanceof SubNodeProgressMonitor) {
+                ((SubNodeProgressMonitor)m_parent).appendMessage(createSupplier);
+            } else {
+                m_parent.setMessage(createSupplier);
             }
         }
 
@@ -534,6 +588,11 @@ public void setProgress(final double progress) {
             if (m_maxProg <= 0.0) { // don't report 0-progress ("unknown")
                 return;
             }
+            if (m_parent instanceof DefaultNodeProgressMonitor || m_parent instanceof SubNodeProgressMonitor) {
+                final double boundedProgress = Math.max(0.0, Math.min(progress, 1.0));
+                updateProgress(lastProg -> boundedProgress);
+                return;
+            }
             // synchronization is imported here: multiple sub progresses may
             // report to the parent. "getOldProgress" and "setNewProgress" must
             // be an atomic operation
@@ -541,7 +600,7 @@ public void setProgress(final double progress) {
                 Double progressOfParent = m_parent.getProgress();
                 double boundedProgress = Math.max(0.0, Math.min(progress, 1.0));
                 // diff to the last progress update
-                double diff = Math.max(0.0, boundedProgress - m_lastProg);
+                double diff = Math.max(0.0, boundedProgress - getProgress());
                 double subProgress = Math.min(m_maxProg, diff * m_maxProg);
                 if (progressOfParent != null) {
                     subProgress += progressOfParent;
@@ -568,11 +627,53 @@ public void setProgress(final double progress) {
                 if (newProgressOfParent != null) {
                     if (progressOfParent == null
                         || progressOfParent.doubleValue() != newProgressOfParent.doubleValue()) {
-                        m_lastProg = boundedProgress;
+                        m_lastProg.set(Double.doubleToRawLongBits(boundedProgress));
                     }
                 }
             }
         }
+
+        /**
+         * Adds progress reported by a sub progress monitor of this monitor.
+         *
+         * @param increment the progress to add, not negative
+         */
+        void addProgress(final double increment) {
+            if (m_maxProg > 0.0) {
+                updateProgress(lastProg -> Math.min(1.0, lastProg + increment));
+            }
+        }
+
+        /**
+         * Updates the progress without locking (the parent must be a {@link DefaultNodeProgressMonitor} or a
+         * {@link SubNodeProgressMonitor}) and passes the increment on to the parent. Progress never decreases.
+         */
+        private void updateProgress(final DoubleUnaryOperator update) {
+            long lastBits;
+            double lastProg;
+            double newProg;
+            do {
+                lastBits = m_lastProg.get();
+                lastProg = Double.longBitsToDouble(lastBits);
+                newProg = update.applyAsDouble(lastProg);
+                if (newProg <= lastProg) {
+                    if (lastProg == 0.0) {
+                        // no progress so far, still the parent is supposed to show 0%
+                        addProgressToParent(0.0);
+                    }
+                    return;
+                }
+            } while (!m_lastProg.compareAndSet(lastBits, Double.doubleToRawLongBits(newProg)));
+            addProgressToParent(Math.min(m_maxProg, (newProg - lastProg) * m_maxProg));
+        }
+
+        private void addProgressToParent(final double increment) {
+            if (m_parent instanceof DefaultNodeProgressMonitor) {
+                ((DefaultNodeProgressMonitor)m_parent).addProgress(increment);
+            } else {
+                ((SubNodeProgressMonitor)m_parent).addProgress(increment);
+            }
+        }
     }
 
     /**
@@ -215,6 +215,32 @@ public final class KNIMEConstants {
      */
     public static final String PROPERTY_TABLE_COMPRESSION = "knime.compress.io";
 
+    /**
+     * Java property to specify the size (in MB) of the cache for blob cells (e.g. images) read from disk. The cache is
+     * shared by all tables; 0 disables caching. If not specified, 5% of the available heap (up to 512MB) is used.
+     *
+     * @since 4.2
+     */
+    public static final String PROPERTY_BLOB_CACHE_SIZE = "knime.blob.cache.size";
+
+    /**
+     * Java property to specify the size (in MB) of the cache for decoded (and downscaled) PNG images, which is used by
+     * renderers and views showing images of PNG cells; 0 disables caching. If not specified, 5% of the available heap
+     * (up to 256MB) is used.
+     *
+     * @since 4.2
+     */
+    public static final String PROPERTY_PNG_IMAGE_CACHE_SIZE = "knime.pngimage.cache.size";
+
+    /**
+     * Java property to specify the maximum number of distinct cells per column that are interned when tables are read
+     * from disk, i.e. equal cells (strings and numbers) share the same instance, which reduces the memory footprint of
+     * tables held in memory; 0 disables interning. If not specified, 256 cells per column are interned.
+     *
+     * @since 4.2
+     */
+    public static final String PROPERTY_TABLE_INTERN_SIZE = "knime.table.intern.size";
+
     /**
      * @see #PROPERTY_TABLE_COMPRESSION
      * @deprecated replaced by {@link #PROPERTY_TABLE_COMPRESSION}
@@ -263,6 +289,14 @@ public final class KNIMEConstants {
     // see AP-6752
     public static final String PROPERTY_XML_DISABLE_EXT_ENTITIES = "knime.xml.disable_external_entities";
 
+    /**
+     * Java property to specify the size (in MB) of the cache for parsed documents of XML cells. The cache is shared by
+     * all XML cells; 0 disables caching. If not specified, 5% of the available heap (up to 256MB) is used.
+     *
+     * @since 4.2
+     */
+    public static final String PROPERTY_XML_DOCUMENT_CACHE_SIZE = "knime.xml.documentcache.size";
+
     /** For KNIME's R extension: Run the R process in debug mode and print debug messages to the logging facilities.
      * Value is true or false (default).
      * @since 3.2*/
@@ -320,6 +354,31 @@ public final class KNIMEConstants {
      * @since 2.8 */
     public static final String PROPERTY_DATABASE_CONCURRENCY = "knime.database.enable.concurrency";
 
+    /** Java property to set the maximum number of connections to the same database (URL and user), which is also the
+     * maximum number of statements executed concurrently against the database. Only applies if
+     * {@link #PROPERTY_DATABASE_CONCURRENCY} is enabled. Default is 1, i.e. all accesses are synchronized.
+     * @since 4.2 */
+    public static final String PROPERTY_DATABASE_MAX_CONNECTIONS = "knime.database.max_connections";
+
+    /** Java property to set the time in seconds after which idle connections to a database are closed (if there are
+     * more than one, see {@link #PROPERTY_DATABASE_MAX_CONNECTIONS}). Default is 600 seconds.
+     * @since 4.2 */
+    public static final String PROPERTY_DATABASE_CONNECTION_IDLE_TIMEOUT = "knime.database.connection_idle_timeout";
+
+    /** Java property to set the time in seconds for which the results of database queries are cached locally and
+     * reused when the same query is executed again on the same database, see
+     * {@link org.knime.core.node.port.database.reader.QueryResultCache}. Cached results are discarded when rows are
+     * written to the database by the database writer nodes, but changes made otherwise (by other applications or SQL
+     * statements) are not detected, so results may be stale for up to this time. Default is 0, i.e. no results are
+     * cached.
+     * @since 4.2 */
+    public static final String PROPERTY_DATABASE_CACHE_TTL = "knime.database.cache_ttl";
+
+    /** Java property to set the maximum size in MB of the query results cached on disk (see
+     * {@link #PROPERTY_DATABASE_CACHE_TTL}). Default is 1024 MB.
+     * @since 4.2 */
+    public static final String PROPERTY_DATABASE_CACHE_SIZE = "knime.database.cache_size";
+
     /** @deprecated Use #PROPERTY_DATABASE_FETCHSIZE instead. */
     @Deprecated
     // obsolete as of v2.3
@@ -358,6 +417,18 @@ public final class KNIMEConstants {
    public static final String PROPERTY_DISABLE_LOG4J_CONFIG =
        "knime.log4j.config.disabled";
 
+    /** Java property to enable asynchronous logging, i.e. log messages are passed to the log4j appenders by a
+     * separate thread instead of the logging thread (see {@link NodeLogger}). The value should be <code>true</code>
+     * or <code>false</code> (which is the default).
+     * @since 4.2 */
+    public static final String PROPERTY_ASYNC_LOGGING = "knime.logging.async";
+
+    /** Java property to set the number of log messages that are buffered if asynchronous logging is enabled (see
+     * {@link #PROPERTY_ASYNC_LOGGING}). If the buffer is full, logging threads wait until messages have been written.
+     * Default is 8192.
+     * @since 4.2 */
+    public static final String PROPERTY_ASYNC_LOGGING_BUFFER_SIZE = "knime.logging.async.buffer_size";
+
    /**
     * Java property for doing all dialog operations automatically in the
     * AWT event dispatch thread.
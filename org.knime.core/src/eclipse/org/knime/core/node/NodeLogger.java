@@ -64,6 +64,7 @@
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Appender;
@@ -308,6 +309,12 @@ public void workflowChanged(final WorkflowEvent event) {
      * 'knime' logger. List is amended by 'NodeLogger' from other packages (e.g. partner extensions), see AP-12238 */
     private static List<String> knownLoggerPrefixes = new ArrayList<>(Arrays.asList("com.knime", "org.knime"));
 
+    /** Passes the log events to the appenders if asynchronous logging is enabled, <code>null</code> otherwise. */
+    private static final AsyncLogDispatcher<LoggingEvent> ASYNC_DISPATCHER = createAsyncDispatcher();
+
+    /** The maximum time in milliseconds to wait for pending log events on shutdown or when removing appenders. */
+    private static final long ASYNC_FLUSH_TIMEOUT = 5000;
+
     /**
      * Inits Log4J logger and appends <code>System.out</code>,
      * <code>System.err</code>, and <i>knime.log</i> to it.
@@ -337,6 +344,33 @@ public void workflowChanged(final WorkflowEvent event) {
     }
 
 
+    private static AsyncLogDispatcher<LoggingEvent> createAsyncDispatcher() {
+        if (!Boolean.getBoolean(KNIMEConstants.PROPERTY_ASYNC_LOGGING)) {
+            return null;
+        }
+        final int bufferSize = Integer.getInteger(KNIMEConstants.PROPERTY_ASYNC_LOGGING_BUFFER_SIZE, 8192);
+        final AsyncLogDispatcher<LoggingEvent> dispatcher =
+            new AsyncLogDispatcher<>("KNIME-Log-Dispatcher", Math.max(1, bufferSize), events -> {
+                for (LoggingEvent event : events) {
+                    event.getLogger().callAppenders(event);
+                }
+            });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            dispatcher.flush(ASYNC_FLUSH_TIMEOUT);
+            dispatcher.shutdown(ASYNC_FLUSH_TIMEOUT);
+        }, "KNIME-Log-Flush"));
+        return dispatcher;
+    }
+
+    /**
+     * Waits until all pending log events have been passed to the appenders if asynchronous logging is enabled.
+     */
+    private static void flushAsyncEvents() {
+        if (ASYNC_DISPATCHER != null) {
+            ASYNC_DISPATCHER.flush(ASYNC_FLUSH_TIMEOUT);
+        }
+    }
+
     private static void initLog4J() throws IOException {
         final String file = System.getProperty("log4j.configuration");
         if (file == null) {
@@ -629,7 +663,7 @@ public static NodeLogger getLogger(final String s) {
      * @param o The object to print.
      */
     public void warn(final Object o) {
-        getLoggerInternal().warn(getLogObject(o));
+        log(Level.WARN, o, null);
     }
 
     /**
@@ -638,7 +672,56 @@ public void warn(final Object o) {
      * @param o The object to print.
      */
     public void debug(final Object o) {
-        getLoggerInternal().debug(getLogObject(o));
+        log(Level.DEBUG, o, null);
+    }
+
+    /**
+     * Write warning message into this logger. The message is only created if warning messages are logged.
+     *
+     * @param messageSupplier supplies the object to print
+     * @since 4.2
+     */
+    public void warn(final Supplier<?> messageSupplier) {
+        if (isEnabledFor(LEVEL.WARN)) {
+            warn(messageSupplier == null ? null : messageSupplier.get());
+        }
+    }
+
+    /**
+     * Write debugging message into this logger. The message is only created if debugging messages are logged, i.e. it
+     * can be used in tight loops without the costs of building messages that are discarded anyway.
+     *
+     * @param messageSupplier supplies the object to print
+     * @since 4.2
+     */
+    public void debug(final Supplier<?> messageSupplier) {
+        if (isDebugEnabled()) {
+            debug(messageSupplier == null ? null : messageSupplier.get());
+        }
+    }
+
+    /**
+     * Write info message into this logger. The message is only created if info messages are logged.
+     *
+     * @param messageSupplier supplies the object to print
+     * @since 4.2
+     */
+    public void info(final Supplier<?> messageSupplier) {
+        if (isInfoEnabled()) {
+            info(messageSupplier == null ? null : messageSupplier.get());
+        }
+    }
+
+    /**
+     * Write error message into this logger. The message is only created if error messages are logged.
+     *
+     * @param messageSupplier supplies the object to print
+     * @since 4.2
+     */
+    public void error(final Supplier<?> messageSupplier) {
+        if (isEnabledFor(LEVEL.ERROR)) {
+            error(messageSupplier == null ? null : messageSupplier.get());
+        }
     }
 
 
@@ -650,7 +733,31 @@ public void debug(final Object o) {
      * @since 3.1
      */
     public void debugWithoutContext(final Object o) {
-        m_logger.debug(o);
+        log(m_logger, Level.DEBUG, o, null);
+    }
+
+    /**
+     * Logs the message (and the information about the workflow and node it belongs to) either directly or, if
+     * asynchronous logging is enabled, via the {@link #ASYNC_DISPATCHER}.
+     */
+    private void log(final Level level, final Object o, final Throwable t) {
+        log(getLoggerInternal(), level, getLogObject(o), t);
+    }
+
+    private static void log(final Logger logger, final Level level, final Object msg, final Throwable t) {
+        if (ASYNC_DISPATCHER == null) {
+            logger.log(level, msg, t);
+        } else if (logger.isEnabledFor(level)) {
+            final LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, level, msg, t);
+            // the thread related information must be retrieved in the logging thread, the message is rendered
+            // right away since it might be changed afterwards
+            event.getThreadName();
+            event.getNDC();
+            event.getMDCCopy();
+            event.getRenderedMessage();
+            event.getThrowableStrRep();
+            ASYNC_DISPATCHER.dispatch(event);
+        }
     }
 
 
@@ -816,6 +923,8 @@ private void removeWorkflowDirAppender(final File workflowDir) {
         }
         final String workflowDirPath = workflowDir.getPath();
         if (workflowDirPath != null) {
+            // pending events might still have to be written to the appender
+            flushAsyncEvents();
             synchronized (WF_APPENDER) {
                 final Appender appender = WF_APPENDER.remove(workflowDirPath);
                 if (appender != null) {
@@ -837,7 +946,7 @@ private void removeWorkflowDirAppender(final File workflowDir) {
      * @param o The object to print.
      */
     public void info(final Object o) {
-        getLoggerInternal().info(getLogObject(o));
+        log(Level.INFO, o, null);
     }
 
     /**
@@ -846,7 +955,7 @@ public void info(final Object o) {
      * @param o The object to print.
      */
     public void error(final Object o) {
-        getLoggerInternal().error(getLogObject(o));
+        log(Level.ERROR, o, null);
     }
 
     /**
@@ -855,7 +964,7 @@ public void error(final Object o) {
      * @param o The object to print.
      */
     public void fatal(final Object o) {
-        getLoggerInternal().fatal(getLogObject(o));
+        log(Level.FATAL, o, null);
     }
 
     /**
@@ -865,7 +974,7 @@ public void fatal(final Object o) {
      * @param t The exception to log at debug level, including its stack trace.
      */
     public void warn(final Object o, final Throwable t) {
-        getLoggerInternal().warn(getLogObject(o), t);
+        log(Level.WARN, o, t);
     }
 
     /**
@@ -875,7 +984,7 @@ public void warn(final Object o, final Throwable t) {
      * @param t The exception to log, including its stack trace.
      */
     public void debug(final Object o, final Throwable t) {
-        getLoggerInternal().debug(getLogObject(o), t);
+        log(Level.DEBUG, o, t);
     }
 
     /**
@@ -885,7 +994,7 @@ public void debug(final Object o, final Throwable t) {
      * @param t The exception to log at debug level, including its stack trace.
      */
     public void info(final Object o, final Throwable t) {
-        getLoggerInternal().info(getLogObject(o), t);
+        log(Level.INFO, o, t);
     }
 
     /**
@@ -895,7 +1004,7 @@ public void info(final Object o, final Throwable t) {
      * @param t The exception to log at debug level, including its stack trace.
      */
     public void error(final Object o, final Throwable t) {
-        getLoggerInternal().error(getLogObject(o), t);
+        log(Level.ERROR, o, t);
     }
 
     /**
@@ -906,7 +1015,7 @@ public void error(final Object o, final Throwable t) {
      */
     public void assertLog(final boolean b, final String m) {
         if (KNIMEConstants.ASSERTIONS_ENABLED && !b) {
-            getLoggerInternal().error("ASSERT " + m, new AssertionError(m));
+            log(getLoggerInternal(), Level.ERROR, "ASSERT " + m, new AssertionError(m));
         }
     }
 
@@ -923,7 +1032,7 @@ public void assertLog(final boolean b, final String m,
             getLoggerInternal().assertLog(b, "ASSERT " + m);
             // for stacktrace
             if (!b & e != null) {
-                getLoggerInternal().debug("ASSERT\t " + m, e);
+                log(getLoggerInternal(), Level.DEBUG, "ASSERT\t " + m, e);
             }
         }
     }
@@ -936,7 +1045,7 @@ public void assertLog(final boolean b, final String m,
      */
     public void coding(final Object o) {
         if (KNIMEConstants.ASSERTIONS_ENABLED || EclipseUtil.isRunFromSDK()) {
-            getLoggerInternal().error(getLogObject("CODING PROBLEM\t" + o));
+            log(Level.ERROR, "CODING PROBLEM\t" + o, null);
         }
     }
 
@@ -949,7 +1058,7 @@ public void coding(final Object o) {
      */
     public void coding(final Object o, final Throwable t) {
         if (KNIMEConstants.ASSERTIONS_ENABLED || EclipseUtil.isRunFromSDK()) {
-            getLoggerInternal().error(getLogObject("CODING PROBLEM\t" + o), t);
+            log(Level.ERROR, "CODING PROBLEM\t" + o, t);
         }
     }
 
@@ -960,7 +1069,7 @@ public void coding(final Object o, final Throwable t) {
      * @param t The exception to log at debug level, including its stack trace.
      */
     public void fatal(final Object o, final Throwable t) {
-        getLoggerInternal().fatal(getLogObject(o), t);
+        log(Level.FATAL, o, t);
     }
 
     /**
@@ -1146,6 +1255,7 @@ public static void addWriter(final Writer writer, final Layout layout,
      * @param writer The Writer to remove.
      */
     public static void removeWriter(final Writer writer) {
+        flushAsyncEvents();
         synchronized (WRITER) {
             Appender o = WRITER.get(writer);
             if (o != null) {
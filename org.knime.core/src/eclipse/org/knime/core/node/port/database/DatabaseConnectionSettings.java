@@ -68,6 +68,8 @@
 import org.knime.core.node.config.ConfigWO;
 import org.knime.core.node.port.database.connection.CachedConnectionFactory;
 import org.knime.core.node.port.database.connection.CachedConnectionFactory.ConnectionKey;
+import org.knime.core.node.port.database.connection.DBConnectionFactory;
+import org.knime.core.node.port.database.connection.PooledConnection;
 import org.knime.core.node.util.CheckUtils;
 import org.knime.core.node.util.StringHistory;
 import org.knime.core.node.workflow.CredentialsProvider;
@@ -215,6 +217,80 @@ private static boolean initSQLConcurrency() {
         return concurrency;
     }
 
+    private static int maxConnectionsPerDatabase =
+        initPositiveIntProperty(KNIMEConstants.PROPERTY_DATABASE_MAX_CONNECTIONS, 1);
+
+    private static int connectionIdleTimeout =
+        initPositiveIntProperty(KNIMEConstants.PROPERTY_DATABASE_CONNECTION_IDLE_TIMEOUT, 600);
+
+    private static int initPositiveIntProperty(final String property, final int defaultValue) {
+        final String value = System.getProperty(property);
+        if (value != null) {
+            try {
+                final int i = Integer.parseInt(value.trim());
+                if (i > 0) {
+                    LOGGER.debug("Database property " + property + "=" + i + ".");
+                    return i;
+                }
+            } catch (NumberFormatException nfe) {
+                // handled below
+            }
+            LOGGER.warn("Database property " + property + " not valid '" + value + "', using " + defaultValue
+                + " as default.");
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the maximum number of connections to the same database (URL and user) used by
+     * {@link #execute(CredentialsProvider, ExecuteStatement)}, which is also the maximum number of statements that are
+     * executed concurrently against the database (unless the synchronization is switched off, see
+     * {@link KNIMEConstants#PROPERTY_DATABASE_CONCURRENCY}). It's initialized from
+     * {@link KNIMEConstants#PROPERTY_DATABASE_MAX_CONNECTIONS}.
+     *
+     * @return the maximum number of connections per database, at least 1
+     * @since 4.2
+     */
+    public static int getMaxConnectionsPerDatabase() {
+        return maxConnectionsPerDatabase;
+    }
+
+    /**
+     * Sets the maximum number of connections to the same database, see {@link #getMaxConnectionsPerDatabase()}.
+     * Existing connections are closed once they become idle for a while.
+     *
+     * @param maxConnections the maximum number of connections, at least 1
+     * @since 4.2
+     */
+    public static void setMaxConnectionsPerDatabase(final int maxConnections) {
+        CheckUtils.checkArgument(maxConnections > 0, "Maximum number of connections must be positive: %d",
+            maxConnections);
+        maxConnectionsPerDatabase = maxConnections;
+        LOGGER.debug("Settings maximum number of connections per database to " + maxConnections);
+    }
+
+    /**
+     * Returns the time in seconds after which idle connections are closed if there is more than one connection to a
+     * database. It's initialized from {@link KNIMEConstants#PROPERTY_DATABASE_CONNECTION_IDLE_TIMEOUT}.
+     *
+     * @return the idle timeout in seconds
+     * @since 4.2
+     */
+    public static int getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    /**
+     * Sets the time in seconds after which idle connections are closed, see {@link #getConnectionIdleTimeout()}.
+     *
+     * @param seconds the idle timeout in seconds, at least 1
+     * @since 4.2
+     */
+    public static void setConnectionIdleTimeout(final int seconds) {
+        CheckUtils.checkArgument(seconds > 0, "Idle timeout must be positive: %d", seconds);
+        connectionIdleTimeout = seconds;
+    }
+
     /** {@link DriverManager} fetch size to chunk specified number of rows while reading from database. */
     public static final Integer FETCH_SIZE = initFetchSize();
     private static Integer initFetchSize() {
@@ -662,6 +738,25 @@ private boolean loadConnection(final ConfigRO settings,
      */
     @SuppressWarnings("resource")
     public <T> T execute(final CredentialsProvider cp, final ExecuteStatement<T> stmt) throws SQLException {
+        final DBConnectionFactory connectionFactory = getUtility().getConnectionFactory();
+        if (SQL_CONCURRENCY && connectionFactory instanceof CachedConnectionFactory) {
+            // the pool limits the number of concurrent statements per database and validates the connections;
+            // nested calls on the same thread get the same connection
+            try (PooledConnection pooledConn = ((CachedConnectionFactory)connectionFactory).borrowConnection(cp, this)) {
+                try {
+                    return stmt.apply(pooledConn.getConnection());
+                } catch (SQLException ex) {
+                    if (pooledConn.getConnection().isClosed()) {
+                        pooledConn.invalidate();
+                    }
+                    throw ex;
+                }
+            } catch (SQLException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new SQLException(ex);
+            }
+        }
         try {
             for (int i = 1; i <= MAX_CONNECTION_TRIES; i++) {
                 final Connection conn = createConnection(cp);
@@ -129,6 +129,15 @@ public void setFetchSize(final Statement statement, final int fetchSize) throws
             }
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getMaxRowsPerInsert(final int nrParameters) {
+            // prepared statements support at most 65535 parameters
+            return getMaxRowsPerInsert(nrParameters, 65535, 1000);
+        }
+
         // pattern that matches all(?) SQL queries for which we must NOT append a LIMIT without wrapping the query first
         private static final Pattern UNSAVE_LIMIT_PATTERN = Pattern.compile(
             "(?i)(?:LIMIT\\s+\\d+|PROCEDURE\\s+\\S+|INTO\\s+\\S+|FOR\\s+UPDATE|LOCK\\s+IN\\s+SHARE\\s+MODE)");
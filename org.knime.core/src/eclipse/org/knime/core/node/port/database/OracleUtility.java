@@ -86,8 +86,10 @@
 import org.knime.core.node.port.database.aggregation.function.oracle.StatsWsrTestDBAggregationFunction;
 import org.knime.core.node.port.database.aggregation.function.oracle.StdDevDBAggregationFunction;
 import org.knime.core.node.port.database.aggregation.function.oracle.VarianceDBAggregationFunction;
+import org.knime.core.node.port.database.binning.PercentileBinningStatementGenerator;
 import org.knime.core.node.port.database.connection.DBConnectionFactory;
 import org.knime.core.node.port.database.connection.DBDriverFactory;
+import org.knime.core.node.port.database.pivoting.CasePivotStatementGenerator;
 import org.knime.core.node.port.database.tablecreator.DBTableCreator;
 
 
@@ -105,7 +107,7 @@ private static class OracleStatementManipulator extends StatementManipulator {
          * Constructor of class {@link OracleStatementManipulator}.
          */
        public OracleStatementManipulator() {
-           super(true);
+           super(CasePivotStatementGenerator.getINSTANCE(), PercentileBinningStatementGenerator.getINSTANCE());
        }
 
 
@@ -76,6 +76,8 @@
 import org.knime.core.node.port.database.aggregation.function.VarPopDBAggregationFunction;
 import org.knime.core.node.port.database.aggregation.function.VarSampDBAggregationFunction;
 import org.knime.core.node.port.database.aggregation.function.postgresql.ArrayAggDBAggregationFunction;
+import org.knime.core.node.port.database.binning.PercentileBinningStatementGenerator;
+import org.knime.core.node.port.database.pivoting.CasePivotStatementGenerator;
 
 /**
  * Database utility for PostgreSQL.
@@ -92,7 +94,7 @@ private static class PostgreSQLStatementManipulator extends StatementManipulator
          * Constructor of class {@link PostgreSQLStatementManipulator}.
          */
         public PostgreSQLStatementManipulator() {
-            super(true);
+            super(CasePivotStatementGenerator.getINSTANCE(), PercentileBinningStatementGenerator.getINSTANCE());
         }
         /**
          * {@inheritDoc}
@@ -121,6 +123,15 @@ public String randomRows(final String sql, final long count) {
             return limitRows(tmp, count);
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getMaxRowsPerInsert(final int nrParameters) {
+            // the protocol allows at most 32767 parameters per statement
+            return getMaxRowsPerInsert(nrParameters, 32767, 1000);
+        }
+
     }
 
 
@@ -85,6 +85,15 @@ public String randomRows(final String sql, final long count) {
             return "SELECT TOP " + count + " * FROM (" + sql + ") " + getTempTableName() + " ORDER BY NEWID()";
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getMaxRowsPerInsert(final int nrParameters) {
+            // at most 2100 parameters per statement (including internal ones) and 1000 rows per VALUES clause
+            return getMaxRowsPerInsert(nrParameters, 2000, 1000);
+        }
+
         /**
          * {@inheritDoc}
          */
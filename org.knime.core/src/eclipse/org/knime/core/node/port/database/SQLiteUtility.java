@@ -103,6 +103,15 @@ public String randomRows(final String sql, final long count) {
             return limitRows(tmp, count);
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getMaxRowsPerInsert(final int nrParameters) {
+            // default of SQLITE_MAX_VARIABLE_NUMBER (before 3.32) and SQLITE_MAX_COMPOUND_SELECT
+            return getMaxRowsPerInsert(nrParameters, 999, 500);
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -162,6 +162,51 @@ public String forMetadataOnly(final String sql) {
         return "SELECT * FROM (" + sql + ") " + getTempTableName() + " WHERE (1 = 0)";
     }
 
+    /**
+     * Returns the maximum number of rows that can be inserted with a single statement (see
+     * {@link #forMultiRowInsert(String, int)}). The default implementation returns 1, i.e. multi-row inserts are not
+     * used.
+     *
+     * @param nrParameters the number of parameters (values) per row
+     * @return the maximum number of rows per INSERT statement, 1 if multi-row inserts are not supported
+     * @since 4.2
+     */
+    public int getMaxRowsPerInsert(final int nrParameters) {
+        return 1;
+    }
+
+    /**
+     * Creates a statement that inserts multiple rows from a statement that inserts a single row, by repeating its
+     * VALUES list. Only used if {@link #getMaxRowsPerInsert(int)} returns a value larger than 1.
+     *
+     * @param insertStatement an INSERT statement ending with a single VALUES list, e.g.
+     *            <code>INSERT INTO t (a, b) VALUES (?, ?)</code>
+     * @param nrRows the number of rows
+     * @return an SQL statement
+     * @since 4.2
+     */
+    public String forMultiRowInsert(final String insertStatement, final int nrRows) {
+        final String valuesList = insertStatement.substring(insertStatement.lastIndexOf(" VALUES ") + 8).trim();
+        final StringBuilder buf = new StringBuilder(insertStatement);
+        for (int i = 1; i < nrRows; i++) {
+            buf.append(", ").append(valuesList);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Returns the maximum number of rows per INSERT statement given limits of the database.
+     *
+     * @param nrParameters the number of parameters per row
+     * @param maxParameters the maximum number of parameters per statement
+     * @param maxRows the maximum number of rows per statement
+     * @return the maximum number of rows, at least 1
+     * @since 4.2
+     */
+    protected static int getMaxRowsPerInsert(final int nrParameters, final int maxParameters, final int maxRows) {
+        return Math.max(1, Math.min(maxRows, maxParameters / Math.max(1, nrParameters)));
+    }
+
     /**
      * @param tableName the name of the table to create
      * @param query the select statement
@@ -326,4 +371,19 @@ public String getBinnerStatement(final String query, final String[] includeCols,
         return m_binning.getBinnerStatement(this, query, includeCols, excludeCols, boundariesMap, boundariesOpenMap,
             namingMap, appendMap);
     }
+
+    /**
+     * Returns a SQL statement computing quantiles of a numerical column, see
+     * {@link BinningStatementGenerator#getQuantileStatement(StatementManipulator, String, String, double[])}.
+     *
+     * @param query The input query
+     * @param column Name of the column the quantiles are computed for
+     * @param quantiles The quantiles to compute, each between 0 and 1
+     * @return a SQL statement returning a single row with the quantiles or <code>null</code> if the database does not
+     *         support computing quantiles
+     * @since 4.2
+     */
+    public String getQuantileStatement(final String query, final String column, final double[] quantiles) {
+        return m_binning.getQuantileStatement(this, query, column, quantiles);
+    }
 }
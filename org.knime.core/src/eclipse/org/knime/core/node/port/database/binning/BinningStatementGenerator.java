@@ -76,4 +76,23 @@ public String getBinnerStatement(StatementManipulator statementManipulator, Stri
         String[] additionalCols, Map<String, List<Pair<Double, Double>>> boundariesMap,
         Map<String, List<Pair<Boolean, Boolean>>> boundariesOpenMap, Map<String, List<String>> namingMap,
         Map<String, String> appendMap);
+
+    /**
+     * Returns a SQL statement that computes quantiles of a numerical column inside the database, e.g. to determine the
+     * edges of equal-frequency bins without reading the whole table. The statement returns a single row with one column
+     * per quantile, in the order of the given quantiles. The quantile <i>p</i> is the smallest value whose cumulative
+     * distribution is at least <i>p</i>, missing values are ignored.
+     *
+     * @param statementManipulator The {@link StatementManipulator} to use
+     * @param query The input query
+     * @param column Name of the column the quantiles are computed for
+     * @param quantiles The quantiles to compute, each between 0 and 1
+     * @return a SQL statement computing the quantiles or <code>null</code> if the database does not support it, in
+     *         which case the quantiles have to be estimated from a sample
+     * @since 4.2
+     */
+    public default String getQuantileStatement(final StatementManipulator statementManipulator, final String query,
+        final String column, final double[] quantiles) {
+        return null;
+    }
 }
@@ -48,6 +48,7 @@
  */
 package org.knime.core.node.port.database.binning;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
@@ -144,4 +145,27 @@ public String getBinnerStatement(final StatementManipulator sm, final String que
         return selectQuery.toString();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The quantiles are determined with the window functions ROW_NUMBER and COUNT, the quantile <i>p</i> is the value
+     * of the first row whose row number is at least <i>p</i> times the number of non-missing values.
+     */
+    @Override
+    public String getQuantileStatement(final StatementManipulator sm, final String query, final String column,
+        final double[] quantiles) {
+        final String col = sm.quoteIdentifier(column);
+        final StringBuilder quantileQuery = new StringBuilder("SELECT ");
+        for (int i = 0; i < quantiles.length; i++) {
+            if (i > 0) {
+                quantileQuery.append(", ");
+            }
+            quantileQuery.append("MIN(CASE WHEN rn >= " + BigDecimal.valueOf(quantiles[i]).toPlainString()
+                + " * cnt THEN " + col + " END) q" + i);
+        }
+        quantileQuery.append(" FROM (SELECT " + col + ", ROW_NUMBER() OVER (ORDER BY " + col
+            + ") rn, COUNT(*) OVER () cnt FROM (" + query + ") T WHERE " + col + " IS NOT NULL) T2");
+        return quantileQuery.toString();
+    }
+
 }
@@ -0,0 +1,214 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.binning;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.port.database.DatabaseUtility;
+import org.knime.core.node.port.database.StatementManipulator;
+import org.knime.core.node.workflow.CredentialsProvider;
+
+/**
+ * Computes quantiles of numerical columns inside the database, e.g. the edges of equal-frequency or sample quantile
+ * bins. Only the quantiles are transferred if the database supports the statement generated by
+ * {@link StatementManipulator#getQuantileStatement(String, String, double[])}. Otherwise the quantiles are estimated
+ * from a (random, if supported) sample of the column values.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class DBQuantileCalculator {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(DBQuantileCalculator.class);
+
+    /** The default number of rows the quantiles are estimated from if the database cannot compute them. */
+    public static final int DEFAULT_SAMPLE_SIZE = 100000;
+
+    private DBQuantileCalculator() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Computes the quantiles of the given columns of the query, using {@link #DEFAULT_SAMPLE_SIZE} rows if the
+     * quantiles have to be estimated from a sample.
+     *
+     * @param settings the settings holding the query and the connection
+     * @param cp the {@link CredentialsProvider}
+     * @param exec the {@link ExecutionMonitor} for progress and cancellation
+     * @param columns the numerical columns
+     * @param quantiles the quantiles to compute, each between 0 and 1
+     * @return a map from column name to the quantiles of the column, an empty array if the column has no values
+     * @throws SQLException if the statements cannot be executed
+     * @throws CanceledExecutionException if the execution has been canceled
+     */
+    public static Map<String, double[]> computeQuantiles(final DatabaseQueryConnectionSettings settings,
+        final CredentialsProvider cp, final ExecutionMonitor exec, final String[] columns, final double[] quantiles)
+        throws SQLException, CanceledExecutionException {
+        return computeQuantiles(settings, cp, exec, columns, quantiles, DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * Computes the quantiles of the given columns of the query.
+     *
+     * @param settings the settings holding the query and the connection
+     * @param cp the {@link CredentialsProvider}
+     * @param exec the {@link ExecutionMonitor} for progress and cancellation
+     * @param columns the numerical columns
+     * @param quantiles the quantiles to compute, each between 0 and 1
+     * @param sampleSize the number of rows the quantiles are estimated from if the database cannot compute them
+     * @return a map from column name to the quantiles of the column, an empty array if the column has no values
+     * @throws SQLException if the statements cannot be executed
+     * @throws CanceledExecutionException if the execution has been canceled
+     */
+    public static Map<String, double[]> computeQuantiles(final DatabaseQueryConnectionSettings settings,
+        final CredentialsProvider cp, final ExecutionMonitor exec, final String[] columns, final double[] quantiles,
+        final int sampleSize) throws SQLException, CanceledExecutionException {
+        final DatabaseUtility utility = settings.getUtility();
+        final StatementManipulator sm = utility.getStatementManipulator();
+        final String query = settings.getQuery();
+        final Map<String, double[]> quantilesMap = new LinkedHashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            exec.checkCanceled();
+            exec.setProgress(i / (double)columns.length, "Computing quantiles of column \"" + columns[i] + "\"");
+            final String column = columns[i];
+            final String quantileQuery = sm.getQuantileStatement(query, column, quantiles);
+            double[] values = null;
+            if (quantileQuery != null) {
+                values = settings.execute(cp, conn -> {
+                    try (Statement stmt = conn.createStatement()) {
+                        LOGGER.debug("Executing SQL statement as executeQuery: " + quantileQuery);
+                        try (ResultSet rs = stmt.executeQuery(quantileQuery)) {
+                            return readQuantiles(rs, quantiles.length);
+                        }
+                    } catch (SQLException ex) {
+                        LOGGER.debug("Database could not compute quantiles of column \"" + column
+                            + "\", estimating them from a sample: " + ex.getMessage(), ex);
+                        return null;
+                    }
+                });
+            }
+            if (values == null) {
+                final String col = sm.quoteIdentifier(column);
+                final String sampleQuery = sm.getSamplingStatement(
+                    "SELECT " + col + " FROM (" + query + ") T WHERE " + col + " IS NOT NULL", sampleSize,
+                    utility.supportsRandomSampling());
+                final double[] sample = settings.execute(cp, conn -> {
+                    try (Statement stmt = conn.createStatement()) {
+                        LOGGER.debug("Executing SQL statement as executeQuery: " + sampleQuery);
+                        try (ResultSet rs = stmt.executeQuery(sampleQuery)) {
+                            return readSample(rs, exec);
+                        }
+                    }
+                });
+                Arrays.sort(sample);
+                values = quantiles(sample, quantiles);
+            }
+            quantilesMap.put(column, values);
+        }
+        exec.setProgress(1);
+        return quantilesMap;
+    }
+
+    /** Reads the single row of a quantile statement, returns an empty array if the column has no values. */
+    private static double[] readQuantiles(final ResultSet rs, final int nrQuantiles) throws SQLException {
+        final double[] values = new double[nrQuantiles];
+        if (!rs.next()) {
+            return new double[0];
+        }
+        for (int i = 0; i < nrQuantiles; i++) {
+            values[i] = rs.getDouble(i + 1);
+            if (rs.wasNull()) {
+                return new double[0];
+            }
+        }
+        return values;
+    }
+
+    private static double[] readSample(final ResultSet rs, final ExecutionMonitor exec)
+        throws SQLException, CanceledExecutionException {
+        double[] sample = new double[1024];
+        int size = 0;
+        while (rs.next()) {
+            final double value = rs.getDouble(1);
+            if (!rs.wasNull()) {
+                if (size == sample.length) {
+                    exec.checkCanceled();
+                    sample = Arrays.copyOf(sample, 2 * size);
+                }
+                sample[size++] = value;
+            }
+        }
+        return Arrays.copyOf(sample, size);
+    }
+
+    /**
+     * Computes the quantiles of the sorted values the same way as the database statements do, i.e. the quantile
+     * <i>p</i> is the smallest value whose cumulative distribution is at least <i>p</i>.
+     *
+     * @param sortedValues the values in ascending order
+     * @param quantiles the quantiles, each between 0 and 1
+     * @return the quantiles of the values, an empty array if there are no values
+     */
+    static double[] quantiles(final double[] sortedValues, final double[] quantiles) {
+        if (sortedValues.length == 0) {
+            return new double[0];
+        }
+        final double[] values = new double[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            final int index = (int)Math.ceil(quantiles[i] * sortedValues.length) - 1;
+            values[i] = sortedValues[Math.max(0, Math.min(sortedValues.length - 1, index))];
+        }
+        return values;
+    }
+}
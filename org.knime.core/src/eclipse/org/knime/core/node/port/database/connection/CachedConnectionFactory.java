@@ -62,6 +62,7 @@
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -87,6 +88,13 @@ public class CachedConnectionFactory implements DBConnectionFactory {
      * process. */
     private static final Map<ConnectionKey, ConnectionKey> CONNECTION_KEYS = new HashMap<ConnectionKey, ConnectionKey>();
     private static final ExecutorService CONNECTION_CREATOR_EXECUTOR = ThreadUtils.executorServiceWithContext(Executors.newCachedThreadPool());
+    /** The connection pools used by {@link #borrowConnection(CredentialsProvider, DatabaseConnectionSettings)}. */
+    private static final Map<ConnectionKey, ConnectionPool> CONNECTION_POOLS = new HashMap<>();
+    /** Interval of the housekeeping of the pools (closing idle connections, reporting leaks) in seconds. */
+    private static final long POOL_HOUSEKEEPING_INTERVAL = 60;
+    /** Time in ms after which borrowed connections are reported as potential leaks. */
+    private static final long POOL_LEAK_THRESHOLD = TimeUnit.MINUTES.toMillis(30);
+    private static ScheduledExecutorService poolHousekeeper;
     private DBDriverFactory m_driverFactory;
 
     /**
@@ -205,43 +213,147 @@ public Connection getConnection(final CredentialsProvider cp, final DatabaseConn
                 CONNECTION_MAP.remove(databaseConnKey);
             }
             LOGGER.debug("Create new connection for key: " + databaseConnKey);
-            final Driver d;
-            try {
-                d = getDriverFactory().getDriver(settings);
-            } catch (Exception ex1) {
-                throw new InvalidSettingsException(ex1);
+            conn = openConnection(settings, jdbcUrl, user, pass, kerberos);
+            LOGGER.debug("Add connection to map for key: " + databaseConnKey);
+            CONNECTION_MAP.put(databaseConnKey, conn);
+            return conn;
+        }
+    }
+
+    /**
+     * Opens a new connection that is not cached (and not shared with other callers), e.g. for reading data from the
+     * database in parallel. The connection needs to be closed by the caller.
+     *
+     * @param cp {@link CredentialsProvider}
+     * @param settings {@link DatabaseConnectionSettings}
+     * @return a new {@link Connection}, which needs to be closed after usage
+     * @throws InvalidSettingsException if the driver is not available or doesn't accept the JDBC URL
+     * @throws SQLException if the connection can't be opened
+     * @throws IOException if opening the connection timed out
+     * @since 4.2
+     */
+    public Connection openConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings)
+        throws InvalidSettingsException, SQLException, IOException {
+        return openConnection(settings, settings.getJDBCUrl(), settings.getUserName(cp), settings.getPassword(cp),
+            settings.useKerberos());
+    }
+
+    private Connection openConnection(final DatabaseConnectionSettings settings, final String jdbcUrl,
+        final String user, final String pass, final boolean kerberos)
+        throws InvalidSettingsException, SQLException, IOException {
+        final Driver d;
+        try {
+            d = getDriverFactory().getDriver(settings);
+        } catch (Exception ex1) {
+            throw new InvalidSettingsException(ex1);
+        }
+        if (!d.acceptsURL(jdbcUrl)) {
+            throw new InvalidSettingsException("Driver \"" + d + "\" does not accept URL: " + jdbcUrl);
+        }
+        // if a connection is not available
+        Callable<Connection> callable = new Callable<Connection>() {
+            /** {@inheritDoc} */
+            @Override
+            public Connection call() throws Exception {
+                LOGGER.debug("Opening database connection to \"" + jdbcUrl + "\"...");
+                return createConnection(settings, jdbcUrl, user, pass, kerberos, d);
             }
-            if (!d.acceptsURL(jdbcUrl)) {
-                throw new InvalidSettingsException("Driver \"" + d + "\" does not accept URL: " + jdbcUrl);
+        };
+        //TODO:this has to be more robust e.g. the thread should terminate when KNIME terminates and should be
+        //cancelable if the user presses cancel. If no credentials are present for Phoenix the thread keeps KNIME
+        //alive for ages
+        Future<Connection> task = CONNECTION_CREATOR_EXECUTOR.submit(callable);
+        try {
+            return task.get(DatabaseConnectionSettings.getDatabaseTimeout() + 1, TimeUnit.SECONDS);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof SQLException) {
+                throw (SQLException) ee.getCause();
+            } else {
+                throw new SQLException(ee.getCause());
             }
-            // if a connection is not available
-            Callable<Connection> callable = new Callable<Connection>() {
-                /** {@inheritDoc} */
-                @Override
-                public Connection call() throws Exception {
-                    LOGGER.debug("Opening database connection to \"" + jdbcUrl + "\"...");
-                    return createConnection(settings, jdbcUrl, user, pass, kerberos, d);
-                }
-            };
-            //TODO:this has to be more robust e.g. the thread should terminate when KNIME terminates and should be
-            //cancelable if the user presses cancel. If no credentials are present for Phoenix the thread keeps KNIME
-            //alive for ages
-            Future<Connection> task = CONNECTION_CREATOR_EXECUTOR.submit(callable);
+        } catch (InterruptedException ex) {
+            throw new SQLException("Thread was interrupted while waiting for database to respond");
+        } catch (TimeoutException ex) {
+            throw new IOException("Connection to database '" + jdbcUrl + "' timed out");
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool of connections to the database (URL and user), blocking until a connection is
+     * available. The pool holds at most {@link DatabaseConnectionSettings#getMaxConnectionsPerDatabase()} connections,
+     * each of which is used by a single thread at a time; a thread that borrows again before returning its connection
+     * gets the same connection. The connection must be returned to the pool by closing the returned object (but not
+     * the connection itself). The first connection of the pool is the one returned by
+     * {@link #getConnection(CredentialsProvider, DatabaseConnectionSettings)}, so that a pool of size one uses the same
+     * session as the cached connection.
+     *
+     * @param cp {@link CredentialsProvider}
+     * @param settings {@link DatabaseConnectionSettings}
+     * @return the borrowed, valid connection
+     * @throws SQLException if a new connection can't be opened or the thread is interrupted while waiting
+     * @since 4.2
+     */
+    public PooledConnection borrowConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings)
+        throws SQLException {
+        return borrowConnection(cp, settings, true);
+    }
+
+    /**
+     * Borrows a connection from the pool of connections to the database like
+     * {@link #borrowConnection(CredentialsProvider, DatabaseConnectionSettings)}, but doesn't wait if all connections
+     * of the pool are in use. Used to acquire additional connections while holding one, which could otherwise
+     * deadlock.
+     *
+     * @param cp {@link CredentialsProvider}
+     * @param settings {@link DatabaseConnectionSettings}
+     * @return the borrowed, valid connection or <code>null</code> if the pool is full
+     * @throws SQLException if a new connection can't be opened
+     * @since 4.2
+     */
+    public PooledConnection tryBorrowConnection(final CredentialsProvider cp,
+        final DatabaseConnectionSettings settings) throws SQLException {
+        return borrowConnection(cp, settings, false);
+    }
+
+    private PooledConnection borrowConnection(final CredentialsProvider cp, final DatabaseConnectionSettings settings,
+        final boolean isWaiting) throws SQLException {
+        final String jdbcUrl = settings.getJDBCUrl();
+        final String user = settings.getUserName(cp);
+        final String pass = settings.getPassword(cp);
+        final boolean kerberos = settings.useKerberos();
+        final ConnectionKey databaseConnKey = createConnectionKey(cp, settings);
+        final ConnectionPool pool;
+        synchronized (CONNECTION_POOLS) {
+            pool = CONNECTION_POOLS.computeIfAbsent(databaseConnKey, ConnectionPool::new);
+            if (poolHousekeeper == null) {
+                poolHousekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    final Thread t = new Thread(r, "KNIME-Database-Connection-Pool-Housekeeper");
+                    t.setDaemon(true);
+                    return t;
+                });
+                poolHousekeeper.scheduleWithFixedDelay(CachedConnectionFactory::housekeeping,
+                    POOL_HOUSEKEEPING_INTERVAL, POOL_HOUSEKEEPING_INTERVAL, TimeUnit.SECONDS);
+            }
+        }
+        final int maxSize = DatabaseConnectionSettings.getMaxConnectionsPerDatabase();
+        final ConnectionPool.ConnectionOpener sharedOpener = () -> getConnection(cp, settings);
+        final ConnectionPool.ConnectionOpener opener = () -> openConnection(settings, jdbcUrl, user, pass, kerberos);
+        final ConnectionPool.ConnectionValidator validator = conn -> settings.getUtility().isValid(conn);
+        return isWaiting ? pool.borrow(maxSize, sharedOpener, opener, validator)
+            : pool.tryBorrow(maxSize, sharedOpener, opener, validator);
+    }
+
+    private static void housekeeping() {
+        final ConnectionPool[] pools;
+        synchronized (CONNECTION_POOLS) {
+            pools = CONNECTION_POOLS.values().toArray(new ConnectionPool[0]);
+        }
+        final long idleTimeout = TimeUnit.SECONDS.toMillis(DatabaseConnectionSettings.getConnectionIdleTimeout());
+        for (ConnectionPool pool : pools) {
             try {
-                conn = task.get(DatabaseConnectionSettings.getDatabaseTimeout() + 1, TimeUnit.SECONDS);
-                LOGGER.debug("Add connection to map for key: " + databaseConnKey);
-                CONNECTION_MAP.put(databaseConnKey, conn);
-                return conn;
-            } catch (ExecutionException ee) {
-                if (ee.getCause() instanceof SQLException) {
-                    throw (SQLException) ee.getCause();
-                } else {
-                    throw new SQLException(ee.getCause());
-                }
-            } catch (InterruptedException ex) {
-                throw new SQLException("Thread was interrupted while waiting for database to respond");
-            } catch (TimeoutException ex) {
-                throw new IOException("Connection to database '" + jdbcUrl + "' timed out");
+                pool.housekeeping(idleTimeout, POOL_LEAK_THRESHOLD);
+            } catch (Exception ex) {
+                LOGGER.debug("Error during housekeeping of connection pool: " + ex.getMessage(), ex);
             }
         }
     }
@@ -0,0 +1,374 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.port.database.connection.CachedConnectionFactory.ConnectionKey;
+
+/**
+ * The bounded pool of connections to a database with a given {@link ConnectionKey} (URL and user). Each connection is
+ * used by at most one thread at a time, so the maximum pool size also limits the number of statements that are
+ * concurrently executed against the database. Borrowing is reentrant: a thread that borrows again while it holds a
+ * connection gets the same connection, so nested borrowing doesn't wait for (or deadlock on) a full pool. The pool may
+ * have a shared connection, which is also used outside of the pool (the cached connection of the
+ * {@link CachedConnectionFactory}); it is the first connection opened and is never closed because of idleness. Idle
+ * connections are validated before they are handed out and closed after a timeout (if there is more than one
+ * connection); connections that are borrowed for a long time are reported (once) together with the stack trace of the
+ * borrower to track down leaks.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ConnectionPool {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(ConnectionPool.class);
+
+    /** Opens a new connection. */
+    @FunctionalInterface
+    interface ConnectionOpener {
+        Connection open() throws Exception;
+    }
+
+    /** Validates a connection before it is handed out. */
+    @FunctionalInterface
+    interface ConnectionValidator {
+        boolean isValid(Connection conn) throws Exception;
+    }
+
+    /** A connection in the pool. */
+    static final class Entry {
+
+        private final Connection m_connection;
+
+        private final boolean m_isShared;
+
+        /** Time the connection was last returned (if idle) or borrowed (if in use). */
+        private long m_timestamp;
+
+        /** Stack trace of the current borrower, for leak tracking. */
+        private Throwable m_borrower;
+
+        private boolean m_isLeakReported;
+
+        /** The thread that borrowed the connection and the number of its (nested) borrowings. */
+        private Thread m_owner;
+
+        private int m_holdCount;
+
+        /** Whether one of the (nested) borrowers invalidated the connection. */
+        private boolean m_isInvalid;
+
+        Entry(final Connection connection, final boolean isShared) {
+            m_connection = connection;
+            m_isShared = isShared;
+        }
+
+        Connection getConnection() {
+            return m_connection;
+        }
+    }
+
+    private final ConnectionKey m_key;
+
+    /** Idle connections, the most recently used first. */
+    private final Deque<Entry> m_idle = new ArrayDeque<>();
+
+    private final Set<Entry> m_borrowed = new HashSet<>();
+
+    /** Number of connections, including the ones currently being opened. */
+    private int m_size;
+
+    /** Whether the shared connection is part of the pool (or currently being opened). */
+    private boolean m_hasShared;
+
+    ConnectionPool(final ConnectionKey key) {
+        m_key = key;
+    }
+
+    /**
+     * Borrows a valid connection, see {@link #borrow(int, ConnectionOpener, ConnectionOpener, ConnectionValidator)};
+     * the pool has no shared connection.
+     *
+     * @param maxSize the maximum number of connections
+     * @param opener opens new connections
+     * @param validator validates idle connections
+     * @return the connection, to be returned by closing it
+     * @throws SQLException if opening a new connection fails or the thread is interrupted while waiting
+     */
+    PooledConnection borrow(final int maxSize, final ConnectionOpener opener, final ConnectionValidator validator)
+        throws SQLException {
+        return borrow(maxSize, null, opener, validator);
+    }
+
+    /**
+     * Borrows a valid connection, which is the connection the current thread already holds, an idle connection or a
+     * new one if the pool is not full. Blocks until a connection is returned otherwise.
+     *
+     * @param maxSize the maximum number of connections
+     * @param sharedOpener returns the shared connection, which is used whenever the pool doesn't contain it; null if
+     *            the pool has no shared connection
+     * @param opener opens new connections
+     * @param validator validates idle connections
+     * @return the connection, to be returned by closing it
+     * @throws SQLException if opening a new connection fails or the thread is interrupted while waiting
+     */
+    PooledConnection borrow(final int maxSize, final ConnectionOpener sharedOpener, final ConnectionOpener opener,
+        final ConnectionValidator validator) throws SQLException {
+        return borrow(maxSize, sharedOpener, opener, validator, true);
+    }
+
+    /**
+     * Borrows a valid connection like {@link #borrow(int, ConnectionOpener, ConnectionOpener, ConnectionValidator)},
+     * but doesn't wait if the pool is full.
+     *
+     * @param maxSize the maximum number of connections
+     * @param sharedOpener returns the shared connection, null if the pool has no shared connection
+     * @param opener opens new connections
+     * @param validator validates idle connections
+     * @return the connection, to be returned by closing it, or null if the pool is full
+     * @throws SQLException if opening a new connection fails
+     */
+    PooledConnection tryBorrow(final int maxSize, final ConnectionOpener sharedOpener, final ConnectionOpener opener,
+        final ConnectionValidator validator) throws SQLException {
+        return borrow(maxSize, sharedOpener, opener, validator, false);
+    }
+
+    private PooledConnection borrow(final int maxSize, final ConnectionOpener sharedOpener,
+        final ConnectionOpener opener, final ConnectionValidator validator, final boolean isWaiting)
+        throws SQLException {
+        while (true) {
+            Entry entry = null;
+            boolean isShared = false;
+            synchronized (this) {
+                for (Entry borrowed : m_borrowed) {
+                    if (borrowed.m_owner == Thread.currentThread()) {
+                        // nested borrowing
+                        borrowed.m_holdCount++;
+                        return new PooledConnection(this, borrowed);
+                    }
+                }
+                if (!isWaiting && m_idle.isEmpty() && m_size >= maxSize) {
+                    return null;
+                }
+                while (m_idle.isEmpty() && m_size >= maxSize) {
+                    LOGGER.debug("Waiting for free connection for key: " + m_key);
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Thread was interrupted while waiting for a free database connection");
+                    }
+                }
+                if (!m_idle.isEmpty()) {
+                    entry = m_idle.pollFirst();
+                    markBorrowed(entry);
+                } else {
+                    // reserve the slot for the new connection
+                    m_size++;
+                    isShared = sharedOpener != null && !m_hasShared;
+                    m_hasShared |= isShared;
+                }
+            }
+            if (entry == null) {
+                return new PooledConnection(this, open(isShared ? sharedOpener : opener, isShared));
+            }
+            if (isValid(entry, validator)) {
+                return new PooledConnection(this, entry);
+            }
+            LOGGER.debug("Closing invalid connection for key: " + m_key);
+            release(entry, false);
+        }
+    }
+
+    private Entry open(final ConnectionOpener opener, final boolean isShared) throws SQLException {
+        boolean isOpened = false;
+        try {
+            final Connection conn = opener.open();
+            if (conn == null) {
+                throw new SQLException("No connection opened for key: " + m_key);
+            }
+            final Entry entry = new Entry(conn, isShared);
+            synchronized (this) {
+                markBorrowed(entry);
+            }
+            isOpened = true;
+            LOGGER.debug("Opened new connection for key: " + m_key + " (" + m_size + " connections)");
+            return entry;
+        } catch (SQLException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new SQLException(ex);
+        } finally {
+            if (!isOpened) {
+                synchronized (this) {
+                    m_size--;
+                    m_hasShared &= !isShared;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private boolean isValid(final Entry entry, final ConnectionValidator validator) {
+        try {
+            if (!entry.m_connection.isClosed() && validator.isValid(entry.m_connection)) {
+                entry.m_connection.clearWarnings();
+                return true;
+            }
+        } catch (Exception ex) {
+            LOGGER.debug("Exception: " + ex.getMessage() + " during validation of connection with key: " + m_key, ex);
+        }
+        return false;
+    }
+
+    private void markBorrowed(final Entry entry) {
+        entry.m_timestamp = System.currentTimeMillis();
+        entry.m_borrower = new Throwable("Connection borrowed by thread \"" + Thread.currentThread().getName() + "\"");
+        entry.m_isLeakReported = false;
+        entry.m_owner = Thread.currentThread();
+        entry.m_holdCount = 1;
+        entry.m_isInvalid = false;
+        m_borrowed.add(entry);
+    }
+
+    /**
+     * Returns a connection to the pool or closes it if it's not valid. A connection that has been borrowed more than
+     * once by the same thread is only returned by the last release.
+     *
+     * @param entry the borrowed connection
+     * @param isValid whether the connection can be reused
+     */
+    void release(final Entry entry, final boolean isValid) {
+        final boolean isClosing;
+        synchronized (this) {
+            if (!m_borrowed.contains(entry)) {
+                return;
+            }
+            entry.m_isInvalid |= !isValid;
+            if (--entry.m_holdCount > 0) {
+                return;
+            }
+            m_borrowed.remove(entry);
+            entry.m_borrower = null;
+            entry.m_owner = null;
+            isClosing = entry.m_isInvalid;
+            if (isClosing) {
+                m_size--;
+                m_hasShared &= !entry.m_isShared;
+            } else {
+                entry.m_timestamp = System.currentTimeMillis();
+                m_idle.addFirst(entry);
+            }
+            notifyAll();
+        }
+        if (isClosing) {
+            closeSafely(entry);
+        }
+    }
+
+    /**
+     * Closes idle connections that haven't been used for the given time (except for one) and reports connections that
+     * have been borrowed for more than the given time.
+     *
+     * @param idleTimeout timeout in ms after which idle connections are closed
+     * @param leakThreshold time in ms after which borrowed connections are reported
+     */
+    void housekeeping(final long idleTimeout, final long leakThreshold) {
+        final long now = System.currentTimeMillis();
+        final List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            // the least recently used first; one connection is kept (as the session may have state, e.g. temp tables),
+            // which is the shared connection if there is one
+            for (Iterator<Entry> it = m_idle.descendingIterator(); it.hasNext() && m_size > 1;) {
+                final Entry entry = it.next();
+                if (!entry.m_isShared && now - entry.m_timestamp > idleTimeout) {
+                    it.remove();
+                    m_size--;
+                    evicted.add(entry);
+                }
+            }
+            for (Entry entry : m_borrowed) {
+                if (!entry.m_isLeakReported && now - entry.m_timestamp > leakThreshold) {
+                    entry.m_isLeakReported = true;
+                    LOGGER.info("Database connection for key " + m_key + " has been borrowed for more than "
+                        + (leakThreshold / 1000) + "s, it may have been leaked", entry.m_borrower);
+                }
+            }
+        }
+        for (Entry entry : evicted) {
+            LOGGER.debug("Closing idle connection for key: " + m_key);
+            closeSafely(entry);
+        }
+    }
+
+    /** @return the number of connections (idle and borrowed) */
+    synchronized int size() {
+        return m_size;
+    }
+
+    /** @return the number of idle connections */
+    synchronized int idleCount() {
+        return m_idle.size();
+    }
+
+    private void closeSafely(final Entry entry) {
+        try {
+            if (!entry.m_connection.isClosed()) {
+                entry.m_connection.close();
+            }
+        } catch (Exception ex) {
+            LOGGER.debug("Error closing connection:" + ex.getMessage(), ex);
+        }
+    }
+}
@@ -59,7 +59,12 @@
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
 import org.knime.core.node.streamable.BufferedDataTableRowOutput;
+import org.knime.core.node.streamable.DataTableRowInput;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortOutput;
 import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
 import org.knime.core.node.workflow.CredentialsProvider;
 
 /**
@@ -137,6 +142,26 @@ default BufferedDataTable createTable(final ExecutionContext exec, final Credent
         return createTable(exec, cp, useDbRowId, -1);
     }
 
+    /**
+     * Read data from database, splitting the query into ranges of the values of a numeric column that are read
+     * concurrently, each on its own connection. The row ids are generated, i.e. not based on the row id returned by the
+     * database, and the rows are not necessarily in the order of the query result. As the partitions are read by
+     * separate queries, possibly in separate transactions, the result is not a consistent snapshot of the data if it
+     * is modified while it is read. Implementations that don't support partitioned reads execute a single query.
+     * @param exec used for progress info
+     * @param cp {@link CredentialsProvider} providing user/password
+     * @param partitionColumn the name of the numeric column whose values are used to split the query
+     * @param nrPartitions the (maximum) number of partitions, 1 to execute a single query
+     * @return buffered data table read from database
+     * @throws CanceledExecutionException if canceled in between
+     * @throws SQLException if the connection could not be opened
+     * @since 4.2
+     */
+    default BufferedDataTable createPartitionedTable(final ExecutionContext exec, final CredentialsProvider cp,
+        final String partitionColumn, final int nrPartitions) throws CanceledExecutionException, SQLException {
+        return createTable(exec, cp, false);
+    }
+
     /**
      * Read data from database.
      * @param exec used for progress info
@@ -155,6 +180,63 @@ default BufferedDataTable createTable(final ExecutionContext exec, final Credent
         return exec.createBufferedDataTable(table, exec);
     }
 
+    /**
+     * Read data from database and push the rows into the given output, e.g. of a streamed node, while they are read.
+     * Reading blocks while downstream nodes are still processing previous rows and stops (closing the result set) as
+     * soon as no downstream node needs more rows. The output is closed afterwards.
+     * @param exec used for progress info
+     * @param cp {@link CredentialsProvider} providing user/password
+     * @param output the output to push the rows into
+     * @param useDbRowId <code>true</code> if the row id returned by the database should be used to generate the
+     * KNIME row id
+     * @throws CanceledExecutionException if canceled in between
+     * @throws SQLException if the connection could not be opened
+     * @throws InterruptedException if interrupted while waiting for downstream nodes
+     * @since 4.2
+     */
+    default void streamTable(final ExecutionContext exec, final CredentialsProvider cp, final RowOutput output,
+        final boolean useDbRowId) throws CanceledExecutionException, SQLException, InterruptedException {
+        output.setFully(createTable(exec, cp, useDbRowId));
+    }
+
+    /**
+     * Read data from database as a {@link RowInput}, e.g. to feed a streamed chain of operations directly. Rows are
+     * read when they are polled; closing the input before all rows are polled stops reading. The input must be closed
+     * after use to release the database resources.
+     * @param exec used for progress info
+     * @param cp {@link CredentialsProvider} providing user/password
+     * @param useDbRowId <code>true</code> if the row id returned by the database should be used to generate the
+     * KNIME row id
+     * @return the rows read from database
+     * @throws CanceledExecutionException if canceled in between
+     * @throws SQLException if the connection could not be opened
+     * @since 4.2
+     */
+    default RowInput createRowInput(final ExecutionContext exec, final CredentialsProvider cp,
+        final boolean useDbRowId) throws CanceledExecutionException, SQLException {
+        return new DataTableRowInput(createTable(exec, cp, useDbRowId));
+    }
+
+    /**
+     * Creates a {@link StreamableOperator} for streamed reader nodes that pushes the rows read from database into the
+     * first output (a {@link RowOutput}), see {@link #streamTable(ExecutionContext, CredentialsProvider, RowOutput,
+     * boolean)}.
+     * @param cp {@link CredentialsProvider} providing user/password
+     * @param useDbRowId <code>true</code> if the row id returned by the database should be used to generate the
+     * KNIME row id
+     * @return the operator
+     * @since 4.2
+     */
+    default StreamableOperator createStreamableOperator(final CredentialsProvider cp, final boolean useDbRowId) {
+        return new StreamableOperator() {
+            @Override
+            public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+                throws Exception {
+                streamTable(exec, cp, (RowOutput)outputs[0], useDbRowId);
+            }
+        };
+    }
+
     /**
      * Read data from database.
      * @param exec used for progress info
@@ -44,14 +44,26 @@
  */
 package org.knime.core.node.port.database.reader;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.knime.core.data.DataCell;
@@ -60,6 +72,7 @@
 import org.knime.core.data.DataTable;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
 import org.knime.core.data.RowIterator;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.append.AppendedColumnRow;
@@ -73,13 +86,21 @@
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.KNIMEConstants;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.node.port.database.DatabaseConnectionSettings;
 import org.knime.core.node.port.database.DatabaseHelper;
 import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.port.database.connection.CachedConnectionFactory;
+import org.knime.core.node.port.database.connection.DBConnectionFactory;
+import org.knime.core.node.port.database.connection.PooledConnection;
 import org.knime.core.node.streamable.BufferedDataTableRowOutput;
 import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.RowOutput.OutputClosedException;
 import org.knime.core.node.workflow.CredentialsProvider;
+import org.knime.core.util.ThreadPool;
 import org.knime.core.util.UniqueNameGenerator;
 
 /**
@@ -93,6 +114,9 @@ public class DBReaderImpl extends DatabaseHelper implements DBReader {
     static final NodeLogger LOGGER =
             NodeLogger.getLogger(DBReaderImpl.class);
 
+    /** Matches queries whose row order would be lost by partitioned reads. */
+    private static final Pattern ORDER_BY = Pattern.compile("\\bORDER\\s+BY\\b", Pattern.CASE_INSENSITIVE);
+
     DataTableSpec m_spec;
 
     private BufferedDataContainer m_errorContainer;
@@ -163,6 +187,7 @@ private Statement initStatement(final CredentialsProvider cp, final Connection c
     /**
      * Returns a data table spec that reflects the meta data form the database
      * result set.
+     * The spec is taken from the {@link QueryResultCache} if it is enabled.
      * @param cp {@link CredentialsProvider} providing user/password
      * @return data table spec
      * @throws SQLException if the connection to the database could not be
@@ -174,6 +199,15 @@ public DataTableSpec getDataTableSpec(final CredentialsProvider cp)
         if (m_spec != null) {
             return m_spec;
         }
+        final QueryResultCache cache = QueryResultCache.getInstance();
+        final String cacheKey = cache.createKey(getQueryConnection(), cp, false);
+        if (cacheKey != null) {
+            final DataTableSpec cachedSpec = cache.getSpec(cacheKey);
+            if (cachedSpec != null) {
+                m_spec = cachedSpec;
+                return m_spec;
+            }
+        }
         // retrieve connection
 //        final Connection conn = initConnection(cp);
 
@@ -214,6 +248,9 @@ public DataTableSpec getDataTableSpec(final CredentialsProvider cp)
                 }
             }
         });
+        if (cacheKey != null) {
+            cache.putSpec(cacheKey, m_spec);
+        }
         return m_spec;
     }
 
@@ -221,7 +258,8 @@ public DataTableSpec getDataTableSpec(final CredentialsProvider cp)
     BinaryObjectCellFactory m_blobFactory = null;
 
     /**
-     * Read data from database.
+     * Read data from database. The result is taken from the {@link QueryResultCache} if it is enabled and holds a
+     * result of the same query.
      * @param exec used for progress info
      * @param cp {@link CredentialsProvider} providing user/password
      * @param useDbRowId <code>true</code> if the row id returned by the database should be used to generate the
@@ -236,7 +274,16 @@ public BufferedDataTable createTable(final ExecutionContext exec, final Credenti
         final boolean useDbRowId) throws CanceledExecutionException, SQLException {
 //        final Connection conn = initConnection(cp);
 //        synchronized (getQueryConnection().syncConnection(conn)) {
-        return getQueryConnection().execute(cp, conn -> {
+        final QueryResultCache cache = QueryResultCache.getInstance();
+        final String cacheKey = cache.createKey(getQueryConnection(), cp, useDbRowId);
+        if (cacheKey != null) {
+            final BufferedDataTable cachedTable = cache.getTable(cacheKey, exec);
+            if (cachedTable != null) {
+                m_spec = cachedTable.getDataTableSpec();
+                return cachedTable;
+            }
+        }
+        final BufferedDataTable table = getQueryConnection().execute(cp, conn -> {
             try (DBRowIterator ric = createRowIteratorConnection(conn, exec, cp, useDbRowId)) {
                 return exec.createBufferedDataTable(new DataTable() {
                     /** {@inheritDoc} */
@@ -254,9 +301,341 @@ public RowIterator iterator() {
                 }, exec);
             }
         });
+        if (cacheKey != null) {
+            cache.putTable(cacheKey, table, exec.createSilentSubProgress(0));
+        }
+        return table;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rows are pushed while the result set is read. If the output is closed because no downstream node needs
+     * more rows, reading stops and the result set is closed. The rows are read on a new connection (see
+     * {@link CachedConnectionFactory#openConnection(CredentialsProvider, DatabaseConnectionSettings)}), which is
+     * closed afterwards, so that downstream nodes can access the same database while this method waits for them.
+     *
+     * @since 4.2
+     */
+    @Override
+    public void streamTable(final ExecutionContext exec, final CredentialsProvider cp, final RowOutput output,
+        final boolean useDbRowId) throws CanceledExecutionException, SQLException, InterruptedException {
+        final DatabaseQueryConnectionSettings dbConn = getQueryConnection();
+        final DBConnectionFactory connectionFactory = dbConn.getUtility().getConnectionFactory();
+        if (connectionFactory instanceof CachedConnectionFactory) {
+            final Connection conn;
+            try {
+                conn = ((CachedConnectionFactory)connectionFactory).openConnection(cp, dbConn);
+            } catch (InvalidSettingsException | IOException ex) {
+                throw new SQLException(ex.getMessage(), ex);
+            }
+            try {
+                pushRows(conn, exec, cp, output, useDbRowId);
+            } finally {
+                conn.close();
+            }
+            return;
+        }
+        try {
+            dbConn.execute(cp, conn -> {
+                pushRows(conn, exec, cp, output, useDbRowId);
+                return null;
+            });
+        } catch (SQLException ex) {
+            // the connection wraps all other exceptions
+            final Throwable cause = ex.getCause();
+            if (cause instanceof CanceledExecutionException) {
+                throw (CanceledExecutionException)cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException)cause;
+            }
+            throw ex;
+        }
+    }
+
+    /** Reads the rows on the connection and pushes them into the output, which is closed afterwards. */
+    private void pushRows(final Connection conn, final ExecutionContext exec, final CredentialsProvider cp,
+        final RowOutput output, final boolean useDbRowId)
+        throws CanceledExecutionException, SQLException, InterruptedException {
+        try (DBRowIterator ric = createRowIteratorConnection(conn, exec, cp, useDbRowId)) {
+            final RowIterator it = ric.iterator();
+            long cnt = 0;
+            while (it.hasNext()) {
+                exec.checkCanceled();
+                // blocks while downstream nodes are busy
+                output.push(it.next());
+                final long rowIndex = ++cnt;
+                if (rowIndex % 1000 == 0) {
+                    exec.setMessage(() -> "Reading row " + rowIndex + " from database...");
+                }
+            }
+        } catch (OutputClosedException ex) {
+            LOGGER.debug("Downstream nodes need no more rows, stop reading from database");
+        }
+        output.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rows are read on a new connection (see
+     * {@link CachedConnectionFactory#openConnection(CredentialsProvider, DatabaseConnectionSettings)}), which is
+     * closed together with the input. If the connection factory doesn't support new connections, the rows are read
+     * into a table first.
+     *
+     * @since 4.2
+     */
+    @SuppressWarnings("resource")
+    @Override
+    public RowInput createRowInput(final ExecutionContext exec, final CredentialsProvider cp,
+        final boolean useDbRowId) throws CanceledExecutionException, SQLException {
+        final DatabaseQueryConnectionSettings dbConn = getQueryConnection();
+        final DBConnectionFactory connectionFactory = dbConn.getUtility().getConnectionFactory();
+        if (!(connectionFactory instanceof CachedConnectionFactory)) {
+            return DBReader.super.createRowInput(exec, cp, useDbRowId);
+        }
+        final Connection conn;
+        try {
+            conn = ((CachedConnectionFactory)connectionFactory).openConnection(cp, dbConn);
+        } catch (InvalidSettingsException | IOException ex) {
+            throw new SQLException(ex.getMessage(), ex);
+        }
+        try {
+            return new DBRowInput(conn, createRowIteratorConnection(conn, exec, cp, useDbRowId));
+        } catch (SQLException | RuntimeException ex) {
+            conn.close();
+            throw ex;
+        }
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The bounds of the ranges are determined by querying the minimum and maximum of the column; missing values are
+     * read with the first range. Each range is read into its own table on a connection borrowed from the pool of the
+     * database (see {@link CachedConnectionFactory#borrowConnection(CredentialsProvider, DatabaseConnectionSettings)}),
+     * hence at most {@link DatabaseConnectionSettings#getMaxConnectionsPerDatabase()} ranges are read concurrently.
+     * The tables are concatenated in the order of the ranges. Hence the rows are not in the order of the query
+     * result, and the row ids are unique but not necessarily in ascending order. The ranges are read by separate
+     * queries, which don't share a transaction, so the result is not a consistent snapshot of the data if it is
+     * modified concurrently; rows whose partition column is updated may be read twice or not at all. A single query
+     * is executed if the query consists of multiple statements or has an ORDER BY clause (whose order would be lost),
+     * if the connection factory doesn't support a connection pool or if the column has no values. If reading a
+     * partition fails, the tables of all partitions are cleared.
+     *
+     * @throws IllegalArgumentException if the number of partitions is smaller than 1 or the column is not a numeric
+     *             column of the query result
+     * @since 4.2
+     */
+    @Override
+    public BufferedDataTable createPartitionedTable(final ExecutionContext exec, final CredentialsProvider cp,
+        final String partitionColumn, final int nrPartitions) throws CanceledExecutionException, SQLException {
+        if (nrPartitions < 1) {
+            throw new IllegalArgumentException("Invalid number of partitions: " + nrPartitions);
+        }
+        final DatabaseQueryConnectionSettings dbConn = getQueryConnection();
+        final DBConnectionFactory connectionFactory = dbConn.getUtility().getConnectionFactory();
+        String query = dbConn.getQuery().trim();
+        if (nrPartitions == 1 || query.contains(SQL_QUERY_SEPARATOR) || ORDER_BY.matcher(query).find()
+            || !(connectionFactory instanceof CachedConnectionFactory)) {
+            LOGGER.debug("Reading data from database with a single query");
+            return createTable(exec, cp, false);
+        }
+        if (query.endsWith(";")) {
+            query = query.substring(0, query.length() - 1);
+        }
+        final DataTableSpec spec = getDataTableSpec(cp);
+        final DataColumnSpec colSpec = spec.getColumnSpec(partitionColumn);
+        if (colSpec == null || !colSpec.getType().isCompatible(DoubleValue.class)) {
+            throw new IllegalArgumentException(
+                "Partition column \"" + partitionColumn + "\" is not a numeric column of the query result");
+        }
+        final String tableAlias = "table_" + System.identityHashCode(this);
+        final String[] conditions = createPartitionConditions(cp, query, tableAlias, partitionColumn, nrPartitions);
+        if (conditions.length <= 1) {
+            LOGGER.debug("Column \"" + partitionColumn + "\" has no values to partition by, reading data from "
+                + "database with a single query");
+            return createTable(exec, cp, false);
+        }
+        if (m_blobFactory == null) {
+            m_blobFactory = new BinaryObjectCellFactory(exec);
+        }
+        exec.setMessage("Start reading rows from database in " + conditions.length + " partitions...");
+        final AtomicLong rowCounter = new AtomicLong();
+        final AtomicBoolean isAborted = new AtomicBoolean();
+        // no more threads than connections, the other partitions are read when a connection is returned
+        final ThreadPool executor = KNIMEConstants.GLOBAL_THREAD_POOL
+            .createSubPool(Math.min(conditions.length, DatabaseConnectionSettings.getMaxConnectionsPerDatabase()));
+        final List<Future<BufferedDataTable>> futures = new ArrayList<>(conditions.length);
+        for (final String condition : conditions) {
+            final String partitionQuery = "SELECT * FROM (" + query + ") " + tableAlias + " WHERE " + condition;
+            futures.add(executor.enqueue(new Callable<BufferedDataTable>() {
+                @Override
+                public BufferedDataTable call() throws Exception {
+                    return readPartition(exec, cp, (CachedConnectionFactory)connectionFactory, spec, partitionQuery,
+                        rowCounter, isAborted);
+                }
+            }));
+        }
+        final BufferedDataTable[] tables = new BufferedDataTable[conditions.length];
+        boolean success = false;
+        try {
+            for (int i = 0; i < tables.length; i++) {
+                tables[i] = futures.get(i).get();
+            }
+            success = true;
+        } catch (InterruptedException ex) {
+            throw new CanceledExecutionException("Interrupted while reading from database");
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException)cause;
+            } else if (cause instanceof CanceledExecutionException) {
+                throw (CanceledExecutionException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new SQLException(cause);
+        } finally {
+            if (!success) {
+                isAborted.set(true);
+                clearPartitions(exec, futures, tables);
+            }
+        }
+        return exec.createConcatenateTable(exec, Optional.empty(), false, tables);
     }
 
+    /**
+     * Waits for the remaining partitions, which stop reading as the read is aborted, and clears the tables of all
+     * partitions that completed. Partitions that fail clear their own container.
+     */
+    private static void clearPartitions(final ExecutionContext exec, final List<Future<BufferedDataTable>> futures,
+        final BufferedDataTable[] tables) {
+        for (int i = 0; i < tables.length; i++) {
+            BufferedDataTable table = tables[i];
+            if (table == null) {
+                try {
+                    table = futures.get(i).get();
+                } catch (InterruptedException ex) {
+                    // the partitions still abort, but their tables can't be cleared anymore
+                    Thread.currentThread().interrupt();
+                    LOGGER.debug("Interrupted while waiting for the partitions to abort", ex);
+                    return;
+                } catch (ExecutionException ex) {
+                    // failed or aborted, the container has been cleared
+                    LOGGER.debug("Reading of partition " + i + " aborted", ex.getCause());
+                }
+            }
+            if (table != null) {
+                exec.clearTable(table);
+            }
+        }
+    }
 
+    /**
+     * Determines the conditions (WHERE clauses) of the partitions from the minimum and maximum of the column.
+     *
+     * @return the conditions, an empty array if the column has no values
+     */
+    private String[] createPartitionConditions(final CredentialsProvider cp, final String query,
+        final String tableAlias, final String column, final int nrPartitions) throws SQLException {
+        final DatabaseQueryConnectionSettings dbConn = getQueryConnection();
+        final String quotedColumn = dbConn.getUtility().getStatementManipulator().quoteIdentifier(column);
+        final String boundsQuery = "SELECT MIN(" + quotedColumn + "), MAX(" + quotedColumn + ") FROM (" + query + ") "
+            + tableAlias;
+        final BigDecimal[] bounds = dbConn.execute(cp, conn -> {
+            final Statement stmt = initStatement(cp, conn);
+            try {
+                LOGGER.debug("Executing SQL statement as executeQuery: " + boundsQuery);
+                try (ResultSet result = stmt.executeQuery(boundsQuery)) {
+                    return result.next() ? new BigDecimal[]{result.getBigDecimal(1), result.getBigDecimal(2)}
+                        : new BigDecimal[2];
+                }
+            } finally {
+                stmt.close();
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+            }
+        });
+        if (bounds[0] == null || bounds[1] == null) {
+            return new String[0];
+        }
+        final BigDecimal min = bounds[0];
+        final BigDecimal range = bounds[1].subtract(min);
+        final int scale = Math.max(0, Math.max(min.scale(), bounds[1].scale()));
+        // split points, strictly ascending and larger than the minimum
+        final List<BigDecimal> splits = new ArrayList<>();
+        for (int i = 1; i < nrPartitions; i++) {
+            final BigDecimal split = min.add(range.multiply(BigDecimal.valueOf(i))
+                .divide(BigDecimal.valueOf(nrPartitions), scale, RoundingMode.FLOOR));
+            final BigDecimal previous = splits.isEmpty() ? min : splits.get(splits.size() - 1);
+            if (split.compareTo(previous) > 0) {
+                splits.add(split);
+            }
+        }
+        final String[] conditions = new String[splits.size() + 1];
+        for (int i = 0; i < conditions.length; i++) {
+            final String lower = i == 0 ? null : quotedColumn + " >= " + splits.get(i - 1).toPlainString();
+            final String upper = i == splits.size() ? null : quotedColumn + " < " + splits.get(i).toPlainString();
+            if (lower == null) {
+                conditions[i] = upper == null ? "1 = 1" : "(" + upper + " OR " + quotedColumn + " IS NULL)";
+            } else {
+                conditions[i] = upper == null ? lower : lower + " AND " + upper;
+            }
+        }
+        return conditions;
+    }
+
+    /** Reads the result of the query (a partition) on a connection borrowed from the pool into a table. */
+    private BufferedDataTable readPartition(final ExecutionContext exec, final CredentialsProvider cp,
+        final CachedConnectionFactory connectionFactory, final DataTableSpec spec, final String query,
+        final AtomicLong rowCounter, final AtomicBoolean isAborted) throws Exception {
+        final DatabaseQueryConnectionSettings dbConn = getQueryConnection();
+        final BufferedDataContainer container = exec.createDataContainer(spec);
+        boolean success = false;
+        try (PooledConnection pooledConn = connectionFactory.borrowConnection(cp, dbConn)) {
+            final Connection conn = pooledConn.getConnection();
+            try (Statement stmt = conn.createStatement()) {
+                final int fetchsize =
+                    (DatabaseConnectionSettings.FETCH_SIZE != null) ? DatabaseConnectionSettings.FETCH_SIZE : -1;
+                dbConn.getUtility().getStatementManipulator().setFetchSize(stmt, fetchsize);
+                LOGGER.debug("Executing SQL statement as executeQuery: " + query);
+                try (ResultSet result = stmt.executeQuery(query)) {
+                    final RowIterator it = createDBRowIterator(spec, dbConn, m_blobFactory, false, result, 0);
+                    while (it.hasNext()) {
+                        exec.checkCanceled();
+                        if (isAborted.get()) {
+                            throw new CanceledExecutionException("Reading of other partition failed");
+                        }
+                        final DataRow row = it.next();
+                        final long rowIndex = rowCounter.getAndIncrement();
+                        container.addRowToTable(new DefaultRow(RowKey.createRowKey(rowIndex), row));
+                        if (rowIndex % 1000 == 0) {
+                            exec.setMessage(() -> "Reading row " + rowIndex + " from database...");
+                        }
+                    }
+                }
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+            } catch (SQLException ex) {
+                if (conn.isClosed()) {
+                    pooledConn.invalidate();
+                }
+                throw ex;
+            }
+            success = true;
+        } finally {
+            container.close();
+            if (!success) {
+                exec.clearTable(container.getTable());
+            }
+        }
+        return container.getTable();
+    }
 
     /**
      * {@inheritDoc}
@@ -277,7 +656,7 @@ public DataTable getTable(final ExecutionMonitor exec, final CredentialsProvider
      * @return an object that represents the open database connection. The individual entries are accessible by means of a {@link RowIterator}.
      * @throws SQLException if the connection could not be opened
      */
-    private DBRowIterator createRowIteratorConnection(final Connection conn, final ExecutionContext exec,
+    private RowIteratorConnection createRowIteratorConnection(final Connection conn, final ExecutionContext exec,
         final CredentialsProvider cp, final boolean useDbRowId) throws SQLException {
         if (m_blobFactory == null) {
             m_blobFactory = new BinaryObjectCellFactory(exec);
@@ -0,0 +1,124 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.reader;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowIterator;
+import org.knime.core.node.streamable.RowInput;
+
+/**
+ * A {@link RowInput} that reads the rows from an open database result set when they are polled. It owns the
+ * connection, which is closed together with the result set once all rows are read or the input is closed.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class DBRowInput extends RowInput {
+
+    private final Connection m_conn;
+
+    private final RowIteratorConnection m_rows;
+
+    private final RowIterator m_iterator;
+
+    private boolean m_isClosed;
+
+    /**
+     * @param conn the connection, closed when the input is closed
+     * @param rows the rows of the result set
+     */
+    DBRowInput(final Connection conn, final RowIteratorConnection rows) {
+        m_conn = conn;
+        m_rows = rows;
+        m_iterator = rows.iterator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataTableSpec getDataTableSpec() {
+        return m_rows.getDataTableSpec();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized DataRow poll() throws InterruptedException {
+        if (m_isClosed) {
+            return null;
+        }
+        if (m_iterator.hasNext()) {
+            return m_iterator.next();
+        }
+        release();
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() {
+        if (!m_isClosed) {
+            // not all rows have been read
+            m_rows.cancel();
+            release();
+        }
+    }
+
+    private void release() {
+        m_isClosed = true;
+        try {
+            m_rows.close();
+        } catch (SQLException ex) {
+            DBReaderImpl.LOGGER.debug("Could not close result set: " + ex.getMessage(), ex);
+        } finally {
+            try {
+                m_conn.close();
+            } catch (SQLException ex) {
+                DBReaderImpl.LOGGER.debug("Could not close connection: " + ex.getMessage(), ex);
+            }
+        }
+    }
+}
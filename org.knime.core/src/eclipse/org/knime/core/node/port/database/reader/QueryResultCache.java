@@ -0,0 +1,564 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.container.DataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.port.database.DatabaseConnectionSettings;
+import org.knime.core.node.port.database.DatabaseQueryConnectionSettings;
+import org.knime.core.node.workflow.CredentialsProvider;
+import org.knime.core.util.FileUtil;
+
+/**
+ * Local cache for the results of database queries, used by {@link DBReaderImpl} to avoid executing the same query
+ * against the same database repeatedly, e.g. during exploratory work or when nodes are configured again. The table
+ * specs (meta data probes) are kept in memory, the tables are written to disk. Entries are identified by the
+ * normalized query, the JDBC URL, the user and the time zone of the connection; they are used for the configured
+ * time to live (see {@link #setTimeToLive(long)}) and evicted in least-recently-used order once the maximum size is
+ * exceeded. Only queries consisting of a single SELECT (or WITH) statement are cached. The cached results of a
+ * database are removed when rows are written with a {@link org.knime.core.node.port.database.writer.DBWriterImpl};
+ * other changes of the data (e.g. by other applications or SQL statements) are only seen once the results expired.
+ *
+ * <p>
+ * The cache is disabled unless a time to live is set, either via {@link #setTimeToLive(long)} or the system property
+ * {@link KNIMEConstants#PROPERTY_DATABASE_CACHE_TTL}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class QueryResultCache {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(QueryResultCache.class);
+
+    /** Maximum number of table specs kept in memory. */
+    private static final int MAX_SPECS = 1000;
+
+    private static final QueryResultCache INSTANCE = new QueryResultCache();
+
+    /**
+     * @return the cache instance
+     */
+    public static QueryResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    /** The statistics of the cache. */
+    public static final class Statistics {
+
+        private final long m_hits;
+
+        private final long m_misses;
+
+        private final long m_evictions;
+
+        private final int m_tableCount;
+
+        private final long m_diskSize;
+
+        private Statistics(final long hits, final long misses, final long evictions, final int tableCount,
+            final long diskSize) {
+            m_hits = hits;
+            m_misses = misses;
+            m_evictions = evictions;
+            m_tableCount = tableCount;
+            m_diskSize = diskSize;
+        }
+
+        /**
+         * @return the number of queries whose result (table or spec) has been taken from the cache
+         */
+        public long getHits() {
+            return m_hits;
+        }
+
+        /**
+         * @return the number of cacheable queries that have been executed against the database
+         */
+        public long getMisses() {
+            return m_misses;
+        }
+
+        /**
+         * @return the number of tables removed because they expired or the maximum size has been exceeded
+         */
+        public long getEvictions() {
+            return m_evictions;
+        }
+
+        /**
+         * @return the number of tables currently in the cache
+         */
+        public int getTableCount() {
+            return m_tableCount;
+        }
+
+        /**
+         * @return the size in bytes of the tables currently in the cache
+         */
+        public long getDiskSize() {
+            return m_diskSize;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "hits: " + m_hits + ", misses: " + m_misses + ", evictions: " + m_evictions + ", tables: "
+                + m_tableCount + " (" + m_diskSize / (1024 * 1024) + " MB)";
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final T m_value;
+
+        private final long m_created = System.currentTimeMillis();
+
+        private final long m_size;
+
+        /** The number of threads copying the cached table, which is deleted once removed and no longer copied. */
+        private int m_pinCount;
+
+        private boolean m_isRemoved;
+
+        Entry(final T value, final long size) {
+            m_value = value;
+            m_size = size;
+        }
+    }
+
+    private final Map<String, Entry<DataTableSpec>> m_specs = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The cached tables; the map, its entries and {@link #m_diskSize} are guarded by the map. */
+    private final Map<String, Entry<File>> m_tables = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong m_hits = new AtomicLong();
+
+    private final AtomicLong m_misses = new AtomicLong();
+
+    private final AtomicLong m_evictions = new AtomicLong();
+
+    private long m_diskSize;
+
+    private File m_cacheDir;
+
+    private volatile long m_timeToLive = initLongProperty(KNIMEConstants.PROPERTY_DATABASE_CACHE_TTL, 0);
+
+    private volatile long m_maxDiskSize =
+        initLongProperty(KNIMEConstants.PROPERTY_DATABASE_CACHE_SIZE, 1024) * 1024 * 1024;
+
+    private QueryResultCache() {
+    }
+
+    private static long initLongProperty(final String property, final long defaultValue) {
+        final String value = System.getProperty(property);
+        if (value != null) {
+            try {
+                final long l = Long.parseLong(value.trim());
+                if (l >= 0) {
+                    LOGGER.debug("Database property " + property + "=" + l + ".");
+                    return l;
+                }
+            } catch (NumberFormatException nfe) {
+                // handled below
+            }
+            LOGGER.warn("Database property " + property + " not valid '" + value + "', using " + defaultValue
+                + " as default.");
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return the time in seconds for which cached results are used, 0 if the cache is disabled
+     */
+    public long getTimeToLive() {
+        return m_timeToLive;
+    }
+
+    /**
+     * Sets the time in seconds for which cached results are used. The time also applies to the results cached so
+     * far. Setting it to 0 disables the cache and removes all cached results.
+     *
+     * @param seconds the time to live in seconds, 0 to disable the cache
+     */
+    public void setTimeToLive(final long seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Time to live must not be negative: " + seconds);
+        }
+        m_timeToLive = seconds;
+        if (seconds == 0) {
+            clear();
+        }
+    }
+
+    /**
+     * @return the maximum size in bytes of the tables cached on disk
+     */
+    public long getMaxDiskSize() {
+        return m_maxDiskSize;
+    }
+
+    /**
+     * Sets the maximum size in bytes of the tables cached on disk. Least recently used tables are removed once the
+     * size is exceeded.
+     *
+     * @param bytes the maximum size in bytes
+     */
+    public void setMaxDiskSize(final long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Maximum cache size must not be negative: " + bytes);
+        }
+        m_maxDiskSize = bytes;
+        synchronized (m_tables) {
+            evict(0);
+        }
+    }
+
+    /**
+     * @return whether query results are cached
+     */
+    public boolean isEnabled() {
+        return m_timeToLive > 0;
+    }
+
+    /**
+     * @return the current statistics of the cache
+     */
+    public Statistics getStatistics() {
+        synchronized (m_tables) {
+            return new Statistics(m_hits.get(), m_misses.get(), m_evictions.get(), m_tables.size(), m_diskSize);
+        }
+    }
+
+    /**
+     * Removes all cached results, e.g. if the data in the database is known to have changed.
+     */
+    public void clear() {
+        synchronized (m_specs) {
+            m_specs.clear();
+        }
+        synchronized (m_tables) {
+            for (Entry<File> entry : m_tables.values()) {
+                release(entry);
+            }
+            m_tables.clear();
+            m_diskSize = 0;
+        }
+    }
+
+    /**
+     * Removes the cached results of all queries against the database of the given settings, called after the data of
+     * the database has been changed.
+     *
+     * @param settings the settings of the connection to the database
+     */
+    public void clear(final DatabaseConnectionSettings settings) {
+        final String prefix = settings.getJDBCUrl() + '\0';
+        synchronized (m_specs) {
+            m_specs.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        synchronized (m_tables) {
+            final Iterator<Map.Entry<String, Entry<File>>> it = m_tables.entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<String, Entry<File>> e = it.next();
+                if (e.getKey().startsWith(prefix)) {
+                    it.remove();
+                    m_diskSize -= e.getValue().m_size;
+                    release(e.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the key of the query of the given settings.
+     *
+     * @param settings the settings holding the query and the connection
+     * @param cp {@link CredentialsProvider} providing the user
+     * @param useDbRowId whether the row ids are based on the row id returned by the database
+     * @return the key or <code>null</code> if the cache is disabled or the query can't be cached
+     */
+    String createKey(final DatabaseQueryConnectionSettings settings, final CredentialsProvider cp,
+        final boolean useDbRowId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        final String query = settings.getQuery();
+        if (query == null || query.contains(DBReader.SQL_QUERY_SEPARATOR)) {
+            return null;
+        }
+        final String normalized = normalize(query);
+        final String start = normalized.substring(0, Math.min(normalized.length(), 7)).toUpperCase();
+        if (!start.startsWith("SELECT ") && !start.startsWith("WITH ")) {
+            return null;
+        }
+        return settings.getJDBCUrl() + '\0' + settings.getUserName(cp) + '\0' + settings.getTimeZone().getID()
+            + '\0' + useDbRowId + '\0' + normalized;
+    }
+
+    /**
+     * Normalizes a query by removing a trailing semicolon and replacing all sequences of whitespace characters outside
+     * of quotes by a single space.
+     *
+     * @param query the query
+     * @return the normalized query
+     */
+    static String normalize(final String query) {
+        final String trimmed = query.trim();
+        final StringBuilder normalized = new StringBuilder(trimmed.length());
+        char quote = 0;
+        boolean isWhitespace = false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            final char c = trimmed.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                normalized.append(c);
+            } else if (Character.isWhitespace(c)) {
+                isWhitespace = true;
+            } else {
+                if (isWhitespace) {
+                    normalized.append(' ');
+                    isWhitespace = false;
+                }
+                if (c == '\'' || c == '"' || c == '`') {
+                    quote = c;
+                }
+                normalized.append(c);
+            }
+        }
+        if (quote == 0 && normalized.length() > 0 && normalized.charAt(normalized.length() - 1) == ';') {
+            normalized.setLength(normalized.length() - 1);
+            return normalized.toString().trim();
+        }
+        return normalized.toString();
+    }
+
+    private boolean isExpired(final Entry<?> entry) {
+        return System.currentTimeMillis() - entry.m_created > m_timeToLive * 1000;
+    }
+
+    /**
+     * @param key the key of the query
+     * @return the cached spec or <code>null</code>
+     */
+    DataTableSpec getSpec(final String key) {
+        synchronized (m_specs) {
+            final Entry<DataTableSpec> entry = m_specs.get(key);
+            if (entry == null || isExpired(entry)) {
+                m_specs.remove(key);
+                m_misses.incrementAndGet();
+                return null;
+            }
+            m_hits.incrementAndGet();
+            return entry.m_value;
+        }
+    }
+
+    /**
+     * @param key the key of the query
+     * @param spec the spec of the query result
+     */
+    void putSpec(final String key, final DataTableSpec spec) {
+        synchronized (m_specs) {
+            m_specs.put(key, new Entry<>(spec, 0));
+            if (m_specs.size() > MAX_SPECS) {
+                final Iterator<String> it = m_specs.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Copies the cached table into a new table of the given execution context.
+     *
+     * @param key the key of the query
+     * @param exec the context to create the table with
+     * @return the table or <code>null</code> if there is no valid cached table
+     * @throws CanceledExecutionException if canceled while copying the table
+     */
+    BufferedDataTable getTable(final String key, final ExecutionContext exec) throws CanceledExecutionException {
+        final Entry<File> entry;
+        synchronized (m_tables) {
+            entry = m_tables.get(key);
+            if (entry == null || isExpired(entry)) {
+                if (entry != null) {
+                    remove(key);
+                    m_evictions.incrementAndGet();
+                }
+                m_misses.incrementAndGet();
+                return null;
+            }
+            // keeps the file while it's copied without the lock
+            entry.m_pinCount++;
+        }
+        try {
+            final ContainerTable table = DataContainer.readFromZip(entry.m_value);
+            try {
+                final BufferedDataTable result = exec.createBufferedDataTable(table, exec);
+                m_hits.incrementAndGet();
+                LOGGER.debug("Using cached result of database query");
+                return result;
+            } finally {
+                table.clear();
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Could not read cached result of database query: " + ex.getMessage(), ex);
+            synchronized (m_tables) {
+                if (m_tables.get(key) == entry) {
+                    remove(key);
+                    m_evictions.incrementAndGet();
+                }
+            }
+            m_misses.incrementAndGet();
+            return null;
+        } finally {
+            synchronized (m_tables) {
+                entry.m_pinCount--;
+                if (entry.m_isRemoved && entry.m_pinCount == 0) {
+                    deleteFile(entry.m_value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the table to disk and adds it to the cache, unless it exceeds the maximum size.
+     *
+     * @param key the key of the query
+     * @param table the query result
+     * @param exec the context for progress and cancellation
+     * @throws CanceledExecutionException if canceled while writing the table
+     */
+    void putTable(final String key, final BufferedDataTable table, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        File file = null;
+        try {
+            file = File.createTempFile("query", ".zip", getCacheDir());
+            DataContainer.writeToZip(table, file, exec);
+        } catch (IOException ex) {
+            LOGGER.warn("Could not cache result of database query: " + ex.getMessage(), ex);
+            deleteFile(file);
+            return;
+        } catch (CanceledExecutionException ex) {
+            deleteFile(file);
+            throw ex;
+        }
+        final long size = file.length();
+        if (size > m_maxDiskSize) {
+            LOGGER.debug("Result of database query is too large to be cached (" + size + " bytes)");
+            deleteFile(file);
+            return;
+        }
+        synchronized (m_tables) {
+            remove(key);
+            m_tables.put(key, new Entry<>(file, size));
+            m_diskSize += size;
+            evict(size);
+        }
+    }
+
+    private synchronized File getCacheDir() throws IOException {
+        if (m_cacheDir == null || !m_cacheDir.isDirectory()) {
+            m_cacheDir = FileUtil.createTempDir("knime_db_cache", new File(KNIMEConstants.getKNIMETempDir()));
+        }
+        return m_cacheDir;
+    }
+
+    /** Removes expired tables and the least recently used tables that exceed the maximum size; needs the lock. */
+    private void evict(final long lastSize) {
+        final Iterator<Entry<File>> it = m_tables.values().iterator();
+        while (it.hasNext()) {
+            final Entry<File> entry = it.next();
+            final boolean isLast = !it.hasNext() && lastSize > 0;
+            if (isExpired(entry) || (m_diskSize > m_maxDiskSize && !isLast)) {
+                it.remove();
+                m_diskSize -= entry.m_size;
+                release(entry);
+                m_evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /** Removes the table of the key (if any); needs the lock. */
+    private void remove(final String key) {
+        final Entry<File> entry = m_tables.remove(key);
+        if (entry != null) {
+            m_diskSize -= entry.m_size;
+            release(entry);
+        }
+    }
+
+    /** Deletes the file of a removed table, or lets the last thread copying it delete it; needs the lock. */
+    private static void release(final Entry<File> entry) {
+        entry.m_isRemoved = true;
+        if (entry.m_pinCount == 0) {
+            deleteFile(entry.m_value);
+        }
+    }
+
+    private static void deleteFile(final File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            LOGGER.debug("Could not delete cached database query result " + file.getAbsolutePath());
+        }
+    }
+}
@@ -54,6 +54,7 @@
 
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.RowIterator;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.port.database.DatabaseConnectionSettings;
 
 /**
@@ -106,6 +107,23 @@ public DataTableSpec getDataTableSpec() {
         return m_spec2;
     }
 
+    /**
+     * Cancels the statement if not all rows are read, so that the database stops sending the remaining rows. Not all
+     * drivers support canceling statements.
+     *
+     * @since 4.2
+     */
+    public void cancel() {
+        if (m_stmt != null) {
+            try {
+                m_stmt.cancel();
+            } catch (SQLException ex) {
+                NodeLogger.getLogger(RowIteratorConnection.class).debug(
+                    "Could not cancel statement: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
     /**
      * Closes the database connection.
      *
@@ -44,6 +44,7 @@
  */
 package org.knime.core.node.port.database.writer;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -51,9 +52,12 @@
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.knime.core.data.BooleanValue;
 import org.knime.core.data.DataCell;
@@ -66,12 +70,20 @@
 import org.knime.core.data.LongValue;
 import org.knime.core.data.RowIterator;
 import org.knime.core.data.blob.BinaryObjectDataValue;
+import org.knime.core.data.container.CloseableRowIterator;
 import org.knime.core.data.date.DateAndTimeValue;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.node.port.database.DatabaseConnectionSettings;
 import org.knime.core.node.port.database.DatabaseHelper;
+import org.knime.core.node.port.database.ExecuteStatement;
+import org.knime.core.node.port.database.StatementManipulator;
+import org.knime.core.node.port.database.connection.CachedConnectionFactory;
+import org.knime.core.node.port.database.connection.PooledConnection;
+import org.knime.core.node.port.database.reader.QueryResultCache;
+import org.knime.core.node.port.database.writer.ParallelBatchWriter.ConnectionProvider;
+import org.knime.core.node.port.database.writer.ParallelBatchWriter.RowSupplier;
 import org.knime.core.node.streamable.RowInput;
 import org.knime.core.node.workflow.CredentialsProvider;
 
@@ -87,6 +99,10 @@ public class DBWriterImpl extends DatabaseHelper implements DBWriter {
 
     private static final NodeLogger LOGGER = NodeLogger.getLogger(DBWriterImpl.class);
 
+    private int m_writeConnections = 1;
+
+    private boolean m_commitEachBatch;
+
     /**
      * @param conn {@link DatabaseConnectionSettings}
      */
@@ -94,6 +110,130 @@ public DBWriterImpl(final DatabaseConnectionSettings conn) {
         super(conn);
     }
 
+    /**
+     * Sets the number of connections used to write the rows concurrently when inserting, updating or deleting rows in
+     * batch mode (batch size &gt; 1). With more than one connection, the rows are read and grouped into batches by the
+     * calling thread while the batches are executed on the statement's connection and on connections borrowed from the
+     * connection pool of the database, as far as they are free (see
+     * {@link DatabaseConnectionSettings#getMaxConnectionsPerDatabase()}). Each connection uses its own transaction, so
+     * rows may be written in a different order and writing is not atomic: if committing one of the connections fails,
+     * the changes already committed on the others are kept. For inserts, databases that support it insert the rows of a
+     * batch with multi-row INSERT statements.
+     *
+     * @param nrConnections the number of connections, 1 (the default) to write on a single connection
+     * @since 4.2
+     */
+    public void setWriteConnections(final int nrConnections) {
+        if (nrConnections < 1) {
+            throw new IllegalArgumentException("Invalid number of connections: " + nrConnections);
+        }
+        m_writeConnections = nrConnections;
+    }
+
+    /**
+     * Sets whether each batch is committed separately when writing with multiple connections (see
+     * {@link #setWriteConnections(int)}), which keeps the transactions small. Otherwise all changes are committed once
+     * all rows are written (and rolled back if writing fails on errors).
+     *
+     * @param commitEachBatch <code>true</code> to commit after each batch
+     * @since 4.2
+     */
+    public void setCommitEachBatch(final boolean commitEachBatch) {
+        m_commitEachBatch = commitEachBatch;
+    }
+
+    /**
+     * Executes a statement that changes the data in the database and removes the cached query results of the database
+     * afterwards (see {@link QueryResultCache#clear(DatabaseConnectionSettings)}), also if the statement fails.
+     */
+    private <T> T executeWrite(final CredentialsProvider cp, final ExecuteStatement<T> stmt) throws SQLException {
+        final DatabaseConnectionSettings conSettings = getDatabaseConnectionSettings();
+        try {
+            return conSettings.execute(cp, stmt);
+        } finally {
+            QueryResultCache.getInstance().clear(conSettings);
+        }
+    }
+
+    /** @return whether rows are written with multiple connections */
+    private boolean isParallelWrite(final int batchSize) {
+        return m_writeConnections > 1 && batchSize > 1
+            && getDatabaseConnectionSettings().getUtility().getConnectionFactory() instanceof CachedConnectionFactory;
+    }
+
+    /**
+     * Writes the rows with multiple connections, see {@link #setWriteConnections(int)}. The rows are closed once
+     * writing is finished, failed or canceled.
+     *
+     * @param conn the connection of the statement, used by one of the writers
+     */
+    private long writeParallel(final ParallelBatchWriter writer, final ExecutionMonitor exec,
+        final RowSupplier rows, final long rowCount, final CredentialsProvider cp, final Connection conn)
+        throws Exception {
+        try (RowSupplier r = rows) {
+            exec.setMessage("Start writing rows in database using up to " + m_writeConnections + " connections...");
+            return writer.write(exec, r, rowCount, connectionsOf(conn, cp));
+        }
+    }
+
+    /**
+     * @return provides the given connection to the first writer and connections borrowed from the pool to the others,
+     *         without waiting for connections in use, since the caller already holds one
+     */
+    private ConnectionProvider connectionsOf(final Connection conn, final CredentialsProvider cp) {
+        final DatabaseConnectionSettings conSettings = getDatabaseConnectionSettings();
+        final CachedConnectionFactory connectionFactory =
+            (CachedConnectionFactory)conSettings.getUtility().getConnectionFactory();
+        final AtomicBoolean isConnUsed = new AtomicBoolean();
+        final Map<Connection, PooledConnection> borrowed = new ConcurrentHashMap<>();
+        return new ConnectionProvider() {
+            @Override
+            public Connection acquire() throws SQLException {
+                if (isConnUsed.compareAndSet(false, true)) {
+                    return conn;
+                }
+                final PooledConnection pooledConn = connectionFactory.tryBorrowConnection(cp, conSettings);
+                if (pooledConn == null) {
+                    return null;
+                }
+                if (pooledConn.getConnection() == conn) {
+                    // the shared connection is already used if statements aren't executed on pooled connections
+                    pooledConn.close();
+                    return null;
+                }
+                borrowed.put(pooledConn.getConnection(), pooledConn);
+                return pooledConn.getConnection();
+            }
+
+            @Override
+            public void release(final Connection c, final boolean isBroken) {
+                final PooledConnection pooledConn = borrowed.remove(c);
+                if (pooledConn != null) {
+                    if (isBroken) {
+                        pooledConn.invalidate();
+                    }
+                    pooledConn.close();
+                }
+            }
+        };
+    }
+
+    /** @return a supplier of the rows of the table, closing the iterator when the supplier is closed */
+    private static RowSupplier rowsOf(final BufferedDataTable data) {
+        final CloseableRowIterator it = data.iterator();
+        return new RowSupplier() {
+            @Override
+            public DataRow next() {
+                return it.hasNext() ? it.next() : null;
+            }
+
+            @Override
+            public void close() {
+                it.close();
+            }
+        };
+    }
+
     /**
      * {@inheritDoc}
      * @deprecated
@@ -105,7 +245,7 @@ public String writeData(final String table, final RowInput input, final long row
         final int batchSize, final boolean insertNullForMissingCols, final boolean failOnError) throws Exception {
         final DatabaseConnectionSettings conSettings = getDatabaseConnectionSettings();
 //        final Connection conn = conSettings.createConnection(cp);
-        return conSettings.execute(cp, conn -> {
+        return executeWrite(cp, conn -> {
         exec.setMessage("Waiting for free database connection...");
         final StringBuilder columnNamesForInsertStatement = new StringBuilder("(");
 //        synchronized (conSettings.syncConnection(conn)) {
@@ -311,6 +451,46 @@ public String writeData(final String table, final RowInput input, final long row
             final String insertStamtement =
                     createInsertStatment(table, columnNamesForInsertStatement.toString(), mapping, insertNullForMissingCols);
 
+            if (isParallelWrite(batchSize)) {
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+                final TimeZone timezone = conSettings.getTimeZone();
+                final Map<Integer, Integer> types = columnTypes;
+                final ParallelBatchWriter writer = new ParallelBatchWriter(insertStamtement, (stmt, firstIdx, row) -> {
+                    int dbIdx = firstIdx;
+                    for (int i = 0; i < mapping.length; i++) {
+                        if (mapping[i] < 0) {
+                            if (insertNullForMissingCols) {
+                                //insert only null if the insert null for missing col option is enabled
+                                stmt.setNull(dbIdx++, Types.NULL);
+                            }
+                        } else {
+                            fillStatement(stmt, dbIdx++, spec.getColumnSpec(mapping[i]), row.getCell(mapping[i]),
+                                timezone, types);
+                        }
+                    }
+                }, "adding", batchSize, m_writeConnections).withTransactions(failOnError, m_commitEachBatch);
+                final StatementManipulator manipulator = conSettings.getUtility().getStatementManipulator();
+                final int nrParameters = (int)Arrays.stream(mapping).filter(m -> m >= 0 || insertNullForMissingCols)
+                    .count();
+                final int maxRowsPerInsert = manipulator.getMaxRowsPerInsert(nrParameters);
+                // the column types are looked up by parameter index, which only works for single rows
+                if (maxRowsPerInsert > 1 && types == null) {
+                    writer.withMultiRowStatement(n -> manipulator.forMultiRowInsert(insertStamtement, n),
+                        maxRowsPerInsert, nrParameters);
+                }
+                final long[] cnt = new long[1];
+                final long allErrors = writeParallel(writer, exec, () -> {
+                    final DataRow row = input.poll();
+                    if (row != null) {
+                        cnt[0]++;
+                    }
+                    return row;
+                }, rowCount, cp, conn);
+                return allErrors == 0 ? null : "Errors \"" + allErrors + "\" writing " + cnt[0] + " rows.";
+            }
+
             // problems writing more than 13 columns. the prepare statement
             // ensures that we can set the columns directly row-by-row, the
             // database will handle the commit
@@ -464,10 +644,29 @@ public final String updateTable(final String schema,
 //        final Connection conn = conSettings.createConnection(cp);
 //        exec.setMessage("Waiting for free database connection...");
 //        synchronized (conSettings.syncConnection(conn)) {
-        return conSettings.execute(cp, conn -> {
+        return executeWrite(cp, conn -> {
             exec.setMessage("Start updating rows in database...");
             final DataTableSpec spec = data.getDataTableSpec();
             final String updateStmt = createUpdateStatement(table, setColumns, whereColumns);
+            if (isParallelWrite(batchSize)) {
+                final TimeZone timezone = conSettings.getTimeZone();
+                final int[] setIndices = spec.columnsToIndices(setColumns);
+                final int[] whereIndices = spec.columnsToIndices(whereColumns);
+                final ParallelBatchWriter writer = new ParallelBatchWriter(updateStmt, (stmt, firstIdx, row) -> {
+                    int dbIdx = firstIdx;
+                    for (int columnIndex : setIndices) {
+                        fillStatement(stmt, dbIdx++, spec.getColumnSpec(columnIndex), row.getCell(columnIndex),
+                            timezone, null);
+                    }
+                    for (int columnIndex : whereIndices) {
+                        fillStatement(stmt, dbIdx++, spec.getColumnSpec(columnIndex), row.getCell(columnIndex),
+                            timezone, null);
+                    }
+                }, "updating", batchSize, m_writeConnections).withStatus(updateStatus)
+                    .withTransactions(false, m_commitEachBatch);
+                final long allErrors = writeParallel(writer, exec, rowsOf(data), data.size(), cp, conn);
+                return allErrors == 0 ? null : "Errors \"" + allErrors + "\" updating " + data.size() + " rows.";
+            }
             // problems writing more than 13 columns. the prepare statement
             // ensures that we can set the columns directly row-by-row, the
             // database will handle the commit
@@ -603,7 +802,7 @@ public final String deleteRows(final String schema,
 //        final Connection conn = conSettings.createConnection(cp);
 //        exec.setMessage("Waiting for free database connection...");
 //        synchronized (conSettings.syncConnection(conn)) {
-        return conSettings.execute(cp, conn -> {
+        return executeWrite(cp, conn -> {
             exec.setMessage("Start deleting rows from database...");
             final DataTableSpec spec = data.getDataTableSpec();
 
@@ -632,6 +831,20 @@ public final String deleteRows(final String schema,
             // selected timezone
             final TimeZone timezone = conSettings.getTimeZone();
 
+            if (isParallelWrite(batchSize)) {
+                final int[] whereIndices = spec.columnsToIndices(whereColumns);
+                final ParallelBatchWriter writer = new ParallelBatchWriter(query.toString(), (stmt, firstIdx, row) -> {
+                    int dbIdx = firstIdx;
+                    for (int columnIndex : whereIndices) {
+                        fillStatement(stmt, dbIdx++, spec.getColumnSpec(columnIndex), row.getCell(columnIndex),
+                            timezone, null);
+                    }
+                }, "deleting", batchSize, m_writeConnections).withStatus(deleteStatus)
+                    .withTransactions(false, m_commitEachBatch);
+                final long errors = writeParallel(writer, exec, rowsOf(data), rowCount, cp, conn);
+                return errors == 0 ? null : "Errors \"" + errors + "\" deleting " + rowCount + " rows.";
+            }
+
             LOGGER.debug("Executing SQL statement as prepareStatement: " + query);
             final PreparedStatement stmt = conn.prepareStatement(query.toString());
             // remember auto-commit flag
@@ -0,0 +1,548 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.database.writer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.port.database.DatabaseConnectionSettings;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Writes rows into a database using multiple connections concurrently. The calling thread reads the rows and groups
+ * them into batches, which are bound to the (prepared) statement and executed by one thread per connection. While a
+ * batch is executed, the next batches are read and bound, so that reading the input, converting the values and the
+ * round trips to the database overlap.
+ * <p>
+ * Errors are collected per batch and reported in the order of the rows. Each connection uses its own transaction,
+ * which is committed once all rows are written, or after each batch if configured; if writing should fail on errors,
+ * all uncommitted changes are rolled back. Writing is therefore not atomic: the transactions are committed one after
+ * the other, so if a commit fails, the changes of the connections committed before are kept while the changes of the
+ * remaining connections are rolled back. For inserts, databases that support it insert multiple rows with a single
+ * statement (see {@link org.knime.core.node.port.database.StatementManipulator#getMaxRowsPerInsert(int)}).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ParallelBatchWriter {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(ParallelBatchWriter.class);
+
+    /** Time in ms the threads wait for the queue before checking whether writing is finished or aborted. */
+    private static final long POLL_INTERVAL = 100;
+
+    /** Binds the values of a row to the parameters of a statement. */
+    @FunctionalInterface
+    interface RowBinder {
+        /**
+         * @param stmt the statement
+         * @param firstParameterIndex the index of the first parameter of the row (1 for single row statements)
+         * @param row the row
+         * @throws SQLException if a value can't be set
+         */
+        void bind(PreparedStatement stmt, int firstParameterIndex, DataRow row) throws SQLException;
+    }
+
+    /** Supplies the rows to write. */
+    @FunctionalInterface
+    interface RowSupplier extends AutoCloseable {
+        /** @return the next row or null if there are no more rows */
+        DataRow next() throws Exception;
+
+        /** Releases the resources of the supplier, also if not all rows have been read. */
+        @Override
+        default void close() {
+        }
+    }
+
+    /** Provides the connections of the writers. */
+    @FunctionalInterface
+    interface ConnectionProvider {
+        /**
+         * @return the connection of a writer or null if none is available without waiting, in which case the writer
+         *         doesn't take part in writing
+         */
+        Connection acquire() throws Exception;
+
+        /**
+         * Returns a connection after writing, its changes are committed or rolled back and its auto-commit mode is
+         * restored. Closes the connection by default.
+         *
+         * @param conn the connection
+         * @param isBroken whether the connection failed and must not be used anymore
+         */
+        default void release(final Connection conn, final boolean isBroken) throws SQLException {
+            conn.close();
+        }
+    }
+
+    /** A batch of consecutive rows. */
+    private static final class Batch {
+        /** 1-based number of the first row. */
+        private final long m_firstRow;
+
+        private final List<DataRow> m_rows;
+
+        Batch(final long firstRow, final List<DataRow> rows) {
+            m_firstRow = firstRow;
+            m_rows = rows;
+        }
+
+        long getLastRow() {
+            return m_firstRow + m_rows.size() - 1;
+        }
+    }
+
+    private final String m_statement;
+
+    private final RowBinder m_binder;
+
+    private final String m_operation;
+
+    private final int m_batchSize;
+
+    private final int m_nrConnections;
+
+    private IntFunction<String> m_multiRowStatement;
+
+    private int m_maxRowsPerStatement = 1;
+
+    private int m_nrParameters;
+
+    private int[] m_status;
+
+    private boolean m_failOnError;
+
+    private boolean m_commitEachBatch;
+
+    // state of a write, accessed by all threads
+    private final BlockingQueue<Batch> m_queue;
+
+    private final AtomicBoolean m_isReadingDone = new AtomicBoolean();
+
+    private final AtomicBoolean m_isAborted = new AtomicBoolean();
+
+    /** Error messages by first row of the failed batch. */
+    private final Map<Long, String> m_errors = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, Throwable> m_errorCauses = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param statement the statement for a single row
+     * @param binder binds the values of a row to the statement
+     * @param operation the operation used in error messages, e.g. "adding"
+     * @param batchSize the number of rows per batch, at least 2
+     * @param nrConnections the number of connections, at least 2
+     */
+    ParallelBatchWriter(final String statement, final RowBinder binder, final String operation,
+        final int batchSize, final int nrConnections) {
+        m_statement = statement;
+        m_binder = binder;
+        m_operation = operation;
+        m_batchSize = batchSize;
+        m_nrConnections = nrConnections;
+        m_queue = new ArrayBlockingQueue<>(2 * nrConnections);
+    }
+
+    /**
+     * Inserts multiple rows with a single statement instead of using JDBC batches.
+     *
+     * @param multiRowStatement creates the statement for the given number of rows
+     * @param maxRowsPerStatement the maximum number of rows per statement
+     * @param nrParameters the number of parameters per row
+     * @return this
+     */
+    ParallelBatchWriter withMultiRowStatement(final IntFunction<String> multiRowStatement,
+        final int maxRowsPerStatement, final int nrParameters) {
+        m_multiRowStatement = multiRowStatement;
+        m_maxRowsPerStatement = maxRowsPerStatement;
+        m_nrParameters = nrParameters;
+        return this;
+    }
+
+    /**
+     * @param status array that is filled with the update counts of the rows (only if JDBC batches are used)
+     * @return this
+     */
+    ParallelBatchWriter withStatus(final int[] status) {
+        m_status = status;
+        return this;
+    }
+
+    /**
+     * @param failOnError whether to stop writing and roll back all uncommitted changes if a batch fails
+     * @param commitEachBatch whether to commit after each batch
+     * @return this
+     */
+    ParallelBatchWriter withTransactions(final boolean failOnError, final boolean commitEachBatch) {
+        m_failOnError = failOnError;
+        m_commitEachBatch = commitEachBatch;
+        return this;
+    }
+
+    /**
+     * Writes the rows.
+     *
+     * @param exec for progress and cancellation
+     * @param rows the rows to write
+     * @param rowCount the number of rows if known, otherwise a value &lt;= 0
+     * @param connections provides the connections, which are released after writing; at least one of the writers
+     *            must get a connection
+     * @return the number of failed batches
+     * @throws Exception if writing is canceled, no connection is available or can be opened or, if writing should fail
+     *             on errors, a batch fails
+     */
+    long write(final ExecutionMonitor exec, final RowSupplier rows, final long rowCount,
+        final ConnectionProvider connections) throws Exception {
+        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(m_nrConnections);
+        final List<Future<?>> futures = new ArrayList<>(m_nrConnections);
+        final List<Writer> writers = new ArrayList<>(m_nrConnections);
+        boolean isSuccess = false;
+        try {
+            for (int i = 0; i < m_nrConnections; i++) {
+                final Writer writer = new Writer(connections);
+                writers.add(writer);
+                futures.add(pool.enqueue(writer));
+            }
+            readBatches(exec, rows, rowCount, futures);
+            m_isReadingDone.set(true);
+            for (Future<?> future : futures) {
+                waitFor(future);
+            }
+            if (m_failOnError && !m_errors.isEmpty()) {
+                final Long firstRow = m_errors.keySet().iterator().next();
+                throw new Exception(m_errors.get(firstRow), m_errorCauses.get(firstRow));
+            }
+            for (Writer writer : writers) {
+                writer.commit();
+            }
+            isSuccess = true;
+        } finally {
+            m_isAborted.set(!isSuccess);
+            m_isReadingDone.set(true);
+            for (Future<?> future : futures) {
+                try {
+                    waitFor(future);
+                } catch (Exception ex) {
+                    // already reported
+                }
+            }
+            for (Writer writer : writers) {
+                writer.close(!isSuccess);
+            }
+        }
+        reportErrors(exec);
+        return m_errors.size();
+    }
+
+    private static void waitFor(final Future<?> future) throws Exception {
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            throw new CanceledExecutionException("Interrupted while writing to database");
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception)cause;
+            }
+            throw ex;
+        }
+    }
+
+    /** Reads the rows into batches and queues them, until all rows are read or writing is aborted. */
+    private void readBatches(final ExecutionMonitor exec, final RowSupplier rows, final long rowCount,
+        final List<Future<?>> futures) throws Exception {
+        long cnt = 0;
+        List<DataRow> batch = new ArrayList<>(m_batchSize);
+        DataRow row;
+        while ((row = rows.next()) != null) {
+            exec.checkCanceled();
+            cnt++;
+            if (rowCount > 0) {
+                exec.setProgress(1.0 * cnt / rowCount, "Row " + "#" + cnt);
+            } else {
+                exec.setProgress("Writing Row#" + cnt);
+            }
+            batch.add(row);
+            if (batch.size() == m_batchSize) {
+                if (!enqueue(new Batch(cnt - batch.size() + 1, batch), futures)) {
+                    return;
+                }
+                batch = new ArrayList<>(m_batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            enqueue(new Batch(cnt - batch.size() + 1, batch), futures);
+        }
+    }
+
+    /**
+     * @return false if writing was aborted (or all writers failed) before the batch could be queued
+     * @throws SQLException if none of the writers got a connection
+     */
+    private boolean enqueue(final Batch batch, final List<Future<?>> futures)
+        throws InterruptedException, SQLException {
+        while (!m_queue.offer(batch, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+            if (m_isAborted.get()) {
+                return false;
+            }
+            if (futures.stream().allMatch(Future::isDone)) {
+                // writers only finish early if they fail, which aborts writing, or don't get a connection
+                if (m_isAborted.get()) {
+                    return false;
+                }
+                throw new SQLException("No database connection available for writing");
+            }
+        }
+        return true;
+    }
+
+    private void reportErrors(final ExecutionMonitor exec) {
+        int errorCnt = 0;
+        for (Map.Entry<Long, String> e : m_errors.entrySet()) {
+            final String errorMsg = e.getValue();
+            exec.setMessage(errorMsg);
+            if (errorCnt++ < 10) {
+                LOGGER.warn(errorMsg);
+            } else {
+                LOGGER.warn(errorMsg + " - more errors...", m_errorCauses.get(e.getKey()));
+                break;
+            }
+        }
+    }
+
+    /** Executes the queued batches on its own connection. */
+    private final class Writer implements Callable<Void> {
+
+        private final ConnectionProvider m_connections;
+
+        private Connection m_conn;
+
+        private boolean m_autoCommit;
+
+        /** Whether the connection failed and must not be used anymore. */
+        private boolean m_isBroken;
+
+        private PreparedStatement m_stmt;
+
+        /** Statement for {@link #m_maxRowsPerStatement} rows, lazily created. */
+        private PreparedStatement m_multiRowStmt;
+
+        Writer(final ConnectionProvider connections) {
+            m_connections = connections;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                final Connection conn = m_connections.acquire();
+                if (conn == null) {
+                    LOGGER.debug("No free connection available, writing with fewer connections");
+                    return null;
+                }
+                synchronized (this) {
+                    m_conn = conn;
+                }
+                m_autoCommit = conn.getAutoCommit();
+                DatabaseConnectionSettings.setAutoCommit(conn, false);
+                LOGGER.debug("Executing SQL statement as prepareStatement: " + m_statement);
+                m_stmt = conn.prepareStatement(m_statement);
+                while (!m_isAborted.get()) {
+                    final Batch batch = m_queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (batch != null) {
+                        execute(batch);
+                    } else if (m_isReadingDone.get()) {
+                        break;
+                    }
+                }
+                return null;
+            } catch (Exception ex) {
+                m_isAborted.set(true);
+                throw ex;
+            }
+        }
+
+        private void execute(final Batch batch) throws SQLException {
+            try {
+                if (m_multiRowStatement != null) {
+                    executeMultiRow(batch.m_rows);
+                } else {
+                    for (DataRow row : batch.m_rows) {
+                        m_binder.bind(m_stmt, 1, row);
+                        m_stmt.addBatch();
+                    }
+                    final int[] status = m_stmt.executeBatch();
+                    if (m_status != null) {
+                        System.arraycopy(status, 0, m_status, (int)(batch.m_firstRow - 1),
+                            Math.min(status.length, batch.m_rows.size()));
+                    }
+                }
+                if (m_commitEachBatch) {
+                    m_conn.commit();
+                }
+            } catch (Throwable t) {
+                m_errors.put(batch.m_firstRow, "Error while " + m_operation + " rows #" + batch.m_firstRow + " - #"
+                    + batch.getLastRow() + ", reason: " + t.getMessage());
+                m_errorCauses.put(batch.m_firstRow, t);
+                if (m_failOnError) {
+                    m_isAborted.set(true);
+                } else {
+                    // Postgres will refuse any more commands in this transaction after errors
+                    // Therefore we commit the changes that were possible.
+                    try {
+                        m_conn.commit();
+                    } catch (SQLException commitEx) {
+                        // the connection can't be used anymore, stop all writers and report the batch's failure
+                        t.addSuppressed(commitEx);
+                        m_isBroken = true;
+                        m_isAborted.set(true);
+                        if (t instanceof SQLException) {
+                            throw (SQLException)t;
+                        }
+                        throw new SQLException(t.getMessage(), t);
+                    }
+                }
+            } finally {
+                if (m_multiRowStatement == null) {
+                    m_stmt.clearBatch();
+                }
+            }
+        }
+
+        private void executeMultiRow(final List<DataRow> rows) throws SQLException {
+            for (int start = 0; start < rows.size(); start += m_maxRowsPerStatement) {
+                final int nrRows = Math.min(m_maxRowsPerStatement, rows.size() - start);
+                final PreparedStatement stmt;
+                if (nrRows == 1) {
+                    stmt = m_stmt;
+                } else if (nrRows == m_maxRowsPerStatement) {
+                    if (m_multiRowStmt == null) {
+                        m_multiRowStmt = m_conn.prepareStatement(m_multiRowStatement.apply(nrRows));
+                    }
+                    stmt = m_multiRowStmt;
+                } else {
+                    stmt = m_conn.prepareStatement(m_multiRowStatement.apply(nrRows));
+                }
+                try {
+                    for (int i = 0; i < nrRows; i++) {
+                        m_binder.bind(stmt, 1 + i * m_nrParameters, rows.get(start + i));
+                    }
+                    stmt.executeUpdate();
+                } finally {
+                    if (stmt != m_stmt && stmt != m_multiRowStmt) {
+                        stmt.close();
+                    }
+                }
+            }
+        }
+
+        /** Commits the changes, called by the reading thread after all batches have been executed. */
+        synchronized void commit() throws SQLException {
+            if (m_conn != null && !m_conn.getAutoCommit()) {
+                try {
+                    m_conn.commit();
+                } catch (SQLException ex) {
+                    m_isBroken = true;
+                    throw ex;
+                }
+            }
+        }
+
+        /**
+         * Rolls back uncommitted changes (if requested), restores the auto-commit mode and releases the connection.
+         */
+        synchronized void close(final boolean rollback) {
+            if (m_conn == null) {
+                return;
+            }
+            try {
+                if (rollback && !m_conn.getAutoCommit()) {
+                    m_conn.rollback();
+                    LOGGER.debug("Rollback transaction with auto commit=" + m_autoCommit);
+                }
+            } catch (Throwable ex) {
+                m_isBroken = true;
+                LOGGER.info("Failed rollback after db exception with auto commit=" + m_autoCommit
+                    + ". Rollback error: " + ex.getMessage(), ex);
+            }
+            try {
+                if (m_multiRowStmt != null) {
+                    m_multiRowStmt.close();
+                }
+                if (m_stmt != null) {
+                    m_stmt.close();
+                }
+                if (!m_isBroken) {
+                    DatabaseConnectionSettings.setAutoCommit(m_conn, m_autoCommit);
+                }
+            } catch (Throwable ex) {
+                m_isBroken = true;
+                LOGGER.debug("Error closing statements: " + ex.getMessage(), ex);
+            }
+            try {
+                m_connections.release(m_conn, m_isBroken);
+            } catch (Throwable ex) {
+                LOGGER.debug("Error closing connection: " + ex.getMessage(), ex);
+            }
+        }
+    }
+}
@@ -44,6 +44,7 @@
  */
 package org.knime.core.node.port.pmml;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -61,6 +62,7 @@
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.xmlbeans.SchemaType;
 import org.apache.xmlbeans.XmlCursor;
 import org.apache.xmlbeans.XmlException;
@@ -92,20 +94,20 @@
 import org.dmg.pmml.TransformationDictionaryDocument.TransformationDictionary;
 import org.dmg.pmml.TreeModelDocument.TreeModel;
 import org.knime.core.data.DataTableSpec;
-import org.knime.core.data.util.LockedSupplier;
 import org.knime.core.data.util.NonClosableInputStream;
 import org.knime.core.data.xml.PMMLCellFactory;
 import org.knime.core.data.xml.PMMLValue;
+import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortType;
 import org.knime.core.node.port.PortTypeRegistry;
+import org.knime.core.node.port.pmml.evaluation.PMMLEvaluator;
 import org.knime.core.node.port.pmml.preproc.DerivedFieldMapper;
 import org.knime.core.pmml.PMMLFormatter;
 import org.knime.core.pmml.PMMLModelType;
 import org.knime.core.pmml.PMMLUtils;
 import org.knime.core.pmml.PMMLValidator;
-import org.w3c.dom.Document;
 import org.w3c.dom.DocumentFragment;
 import org.xml.sax.SAXException;
 
@@ -200,10 +202,17 @@ public final class PMMLPortObject implements PortObject {
     /* ------------------------------------------------------ */
 
 
+    /** The document owned (and modifiable) by this object, <code>null</code> if {@link #m_sharedDoc} is used. */
     private PMMLDocument m_pmmlDoc;
 
+    /** The document shared with other port objects, copied on first modification; see {@link #getDocument()}. */
+    private SharedPMMLDocument m_sharedDoc;
+
     private PMMLPortObjectSpec m_spec;
 
+    /** Compiled on first access of an owned document, reset whenever the document is modified. */
+    private PMMLEvaluator m_evaluator;
+
     /**
      * Default constructor necessary for loading. Derived classes also
      * <em>must</em> provide a default constructor, otherwise loading will fail.
@@ -257,7 +266,8 @@ public PMMLPortObject(final PMMLPortObjectSpec spec,
     /**
      * Creates a new PMML port based on the {@link PMMLPortObjectSpec} and the
      * {@link PMMLPortObject}. If port is null the inData is
-     * used for initialization, otherwise inData is ignored.
+     * used for initialization, otherwise inData is ignored. The document of
+     * the port is not copied but shared until one of the objects is modified.
      *
      * @param spec the referring {@link PMMLPortObjectSpec}
      * @param port the existing PMML port
@@ -268,9 +278,8 @@ public PMMLPortObject(final PMMLPortObjectSpec spec,
             final PMMLPortObject port, final DataTableSpec inData) {
         m_spec = spec;
         if (port != null) {
-            try (LockedSupplier<Document> supplier = port.getPMMLValue().getDocumentSupplier()) {
-                parse(supplier.get());
-            }
+            // no copy, the document is shared until one of the port objects is modified
+            m_sharedDoc = port.share();
         } else if (inData != null) {
             initializePMMLDocument(inData);
         } else {
@@ -279,16 +288,43 @@ public PMMLPortObject(final PMMLPortObjectSpec spec,
     }
 
     /**
-     * @param doc
+     * Turns the owned document into a shared one so that it can be referenced by a derived port object.
+     *
+     * @return the shared document
      */
-    private void parse(final Document doc) {
-        try {
-            m_pmmlDoc = PMMLDocument.Factory.parse(doc);
-            // no validation needed here as the input is already validated
-        } catch (XmlException e) {
-            throw new IllegalArgumentException("An error occurred while "
-                    + "parsing the PMML document.", e);
+    private synchronized SharedPMMLDocument share() {
+        if (m_pmmlDoc != null) {
+            m_sharedDoc = new SharedPMMLDocument(m_pmmlDoc, m_evaluator);
+            m_pmmlDoc = null;
+            m_evaluator = null;
+        }
+        return m_sharedDoc;
+    }
+
+    /** @return whether the document has been set (it is not for objects that are created for loading) */
+    private synchronized boolean hasDocument() {
+        return m_pmmlDoc != null || m_sharedDoc != null;
+    }
+
+    /**
+     * @return the document for read access, which may be shared with other port objects and must not be modified
+     */
+    private synchronized PMMLDocument getDocument() {
+        return m_pmmlDoc != null ? m_pmmlDoc : m_sharedDoc.get();
+    }
+
+    /**
+     * Ensures that this object owns its document, copying a shared one, before it is modified.
+     *
+     * @return the document, which is also assigned to {@link #m_pmmlDoc}
+     */
+    private synchronized PMMLDocument getModifiableDocument() {
+        if (m_pmmlDoc == null) {
+            m_pmmlDoc = (PMMLDocument)m_sharedDoc.get().copy();
+            m_sharedDoc = null;
         }
+        m_evaluator = null;
+        return m_pmmlDoc;
     }
 
     /* Just added temporary for models still using SAX. Will be removed soon.*/
@@ -331,7 +367,7 @@ public void addPMMLModelFromHandler(final PMMLContentHandler handler)
         } finally {
             current.setContextClassLoader(oldLoader);
         }
-        PMML pmmlXml = m_pmmlDoc.getPMML();
+        PMML pmmlXml = getModifiableDocument().getPMML();
         XmlCursor pmmlCursor = pmmlXml.newCursor();
         pmmlCursor.toEndToken();
         XmlCursor modelCursor = model.newCursor();
@@ -350,7 +386,18 @@ public void addPMMLModelFromHandler(final PMMLContentHandler handler)
      * @throws IOException if the file cannot be written to the stream
      */
     public final void save(final OutputStream out) throws IOException {
-        PMMLFormatter.save(m_pmmlDoc, out);
+        final PMMLDocument ownDoc;
+        final SharedPMMLDocument sharedDoc;
+        synchronized (this) {
+            ownDoc = m_pmmlDoc;
+            sharedDoc = m_sharedDoc;
+        }
+        if (ownDoc != null) {
+            PMMLFormatter.save(ownDoc, out);
+        } else {
+            // writes the loaded bytes unless the document has been parsed in the meantime
+            sharedDoc.save(out);
+        }
     }
 
    /**
@@ -373,7 +420,7 @@ private void initializePMMLDocument(final DataTableSpec inData) {
      * @param translator the model translator to be initialized
      */
     public void initializeModelTranslator(final PMMLTranslator translator) {
-        translator.initializeFrom(m_pmmlDoc);
+        translator.initializeFrom(getDocument());
     }
 
     /**
@@ -382,7 +429,7 @@ public void initializeModelTranslator(final PMMLTranslator translator) {
      *      added
      */
     public void addModelTranslater(final PMMLTranslator modelTranslator) {
-        SchemaType type = modelTranslator.exportTo(m_pmmlDoc, m_spec);
+        SchemaType type = modelTranslator.exportTo(getModifiableDocument(), m_spec);
         LocalTransformations localTransformations = moveDerivedFields(type);
 
         /* Remove mining fields from mining schema that where created as a
@@ -454,14 +501,15 @@ public void addModelTranslater(final PMMLTranslator modelTranslator) {
     /** Moves the content of the transformation dictionary to local
      * transformations of the model if a model exists. */
     public void moveGlobalTransformationsToModel() {
-        PMML pmml = m_pmmlDoc.getPMML();
         TransformationDictionary transDict
-                = pmml.getTransformationDictionary();
+                = getDocument().getPMML().getTransformationDictionary();
         if (transDict == null || transDict.getDerivedFieldArray() == null
                 || transDict.getDerivedFieldArray().length == 0) {
-            // nothing to be moved
+            // nothing to be moved, don't copy a shared document
             return;
         }
+        PMML pmml = getModifiableDocument().getPMML();
+        transDict = pmml.getTransformationDictionary();
         DerivedField[] globalDerivedFields = transDict.getDerivedFieldArray();
         LocalTransformations localTrans = null;
         if (pmml.getTreeModelArray().length > 0) {
@@ -606,11 +654,12 @@ private LocalTransformations moveDerivedFields(final SchemaType type) {
     public String getSummary() {
         StringBuffer sb = new StringBuffer();
         sb.append("PMML document with version ");
-        sb.append(m_pmmlDoc.getPMML().getVersion());
+        PMMLDocument pmmlDoc = getDocument();
+        sb.append(pmmlDoc.getPMML().getVersion());
         sb.append(" and models: ");
         boolean first = true;
         for (PMMLModelType modelType
-                : PMMLUtils.getNumberOfModels(m_pmmlDoc).keySet()) {
+                : PMMLUtils.getNumberOfModels(pmmlDoc).keySet()) {
             if (!first) {
                 sb.append(",");
             } else {
@@ -657,20 +706,37 @@ public void loadFrom(final PMMLPortObjectSpec spec, final InputStream is)
         // the argument input stream is a NonClosableZipInput, which delegates
         // close to closeEntry(), we have to make sure that close is only
         // called once.
-        // TODO: The document is read twice here. Could we "probe" into the file to check the version?
+        byte[] bytes;
+        try (NonClosableInputStream nonClosableIn = new NonClosableInputStream(is)) {
+            bytes = IOUtils.toByteArray(nonClosableIn);
+        } finally {
+            is.close(); // call only once (see above)
+        }
+        if (SharedPMMLDocument.isCurrentVersion(bytes)) {
+            /* Parsed on first access, port objects that are only loaded and
+             * passed on (or saved again) never parse the document. */
+            synchronized (this) {
+                m_pmmlDoc = null;
+                m_sharedDoc = new SharedPMMLDocument(bytes);
+                m_evaluator = null;
+            }
+            m_spec = spec;
+            return;
+        }
 
         XmlObject xmlDoc = null;
         Thread current = Thread.currentThread();
         ClassLoader oldLoader = current.getContextClassLoader();
         current.setContextClassLoader(PMMLDocument.class.getClassLoader());
-        try (NonClosableInputStream nonClosableIn = new NonClosableInputStream(is)) {
-            xmlDoc = XmlObject.Factory.parse(nonClosableIn);
+        try {
+            xmlDoc = XmlObject.Factory.parse(new ByteArrayInputStream(bytes));
         } finally {
             current.setContextClassLoader(oldLoader);
-            is.close(); // call only once (see above)
         }
+        bytes = null;
+        PMMLDocument pmmlDoc;
         if (xmlDoc instanceof PMMLDocument) {
-            m_pmmlDoc = (PMMLDocument)xmlDoc;
+            pmmlDoc = (PMMLDocument)xmlDoc;
         } else {
             /* Try to recover when reading a PMML 3.x/4.0 document that
              * was produced by KNIME by just replacing the PMML version and
@@ -681,7 +747,7 @@ public void loadFrom(final PMMLPortObjectSpec spec, final InputStream is)
                             = PMMLUtils.getUpdatedVersionAndNamespace(xmlDoc);
                     /* Parse the modified document and assign it to a
                      * PMMLDocument.*/
-                    m_pmmlDoc = PMMLDocument.Factory.parse(updatedPMML);
+                    pmmlDoc = PMMLDocument.Factory.parse(updatedPMML);
                 } catch (Exception e) {
                     throw new RuntimeException(
                             "Parsing of PMML v 3.x/4.0 document failed.", e);
@@ -693,6 +759,11 @@ public void loadFrom(final PMMLPortObjectSpec spec, final InputStream is)
                         "Parsing of PMML v 3.x/4.0 document failed.");
             }
         }
+        synchronized (this) {
+            m_pmmlDoc = pmmlDoc;
+            m_sharedDoc = null;
+            m_evaluator = null;
+        }
         m_spec = spec;
     }
 
@@ -731,6 +802,7 @@ public void addGlobalTransformations(
                     + "supported so far. Only derived fields are allowed.");
         }
 
+        getModifiableDocument();
         TransformationDictionary dict
             = m_pmmlDoc.getPMML().getTransformationDictionary();
         if (dict == null) {
@@ -873,7 +945,31 @@ private void fixAttributeAtPath(final PMML pmml, final String xpath,
      *          are defined.
      */
     public DerivedField[] getDerivedFields() {
-        return DerivedFieldMapper.getDerivedFields(m_pmmlDoc.getPMML());
+        return DerivedFieldMapper.getDerivedFields(getDocument().getPMML());
+    }
+
+    /**
+     * Returns an evaluator that scores rows with the (first) model of this port object. The document is compiled on
+     * first access and the evaluator is cached until the document is modified, so that nodes applying the same model
+     * to many rows or in many streaming partitions share one compiled instance. Port objects sharing a document (see
+     * {@link #PMMLPortObject(PMMLPortObjectSpec, PMMLPortObject)}) also share the evaluator. Use
+     * {@link PMMLEvaluator#createStreamableFunction(DataTableSpec)} or
+     * {@link PMMLEvaluator#createColumnRearranger(DataTableSpec)} to apply it to a table.
+     *
+     * @return the compiled evaluator, never <code>null</code>
+     * @throws InvalidSettingsException if the model or one of its preprocessing steps is not supported by the
+     *             compiled evaluator
+     * @since 4.2
+     */
+    public synchronized PMMLEvaluator getEvaluator() throws InvalidSettingsException {
+        if (m_sharedDoc != null) {
+            // shared by all port objects referencing the same document
+            return m_sharedDoc.getEvaluator();
+        }
+        if (m_evaluator == null) {
+            m_evaluator = PMMLEvaluator.compile(m_pmmlDoc);
+        }
+        return m_evaluator;
     }
 
     /**
@@ -883,7 +979,7 @@ public DerivedField[] getDerivedFields() {
      */
     public PMMLValue getPMMLValue() {
         try {
-            return (PMMLValue)PMMLCellFactory.create(PMMLFormatter.xmlText(m_pmmlDoc));
+            return (PMMLValue)PMMLCellFactory.create(PMMLFormatter.xmlText(getDocument()));
         } catch (Exception e) {
             throw new RuntimeException("Could not create PMML value.", e);
         }
@@ -895,7 +991,7 @@ public PMMLValue getPMMLValue() {
      *      valid PMML document
      */
     public void validate() throws IllegalStateException {
-        Map<String, String> errors = PMMLValidator.validatePMML(m_pmmlDoc);
+        Map<String, String> errors = PMMLValidator.validatePMML(getDocument());
         if (!errors.isEmpty()) {
             StringBuffer sb = new StringBuffer("Invalid PMML document found. "
                     + "Errors: ");
@@ -978,11 +1074,13 @@ public boolean equals(final Object obj) {
             return false;
         }
         PMMLPortObject other = (PMMLPortObject)obj;
-        if (m_pmmlDoc == null) {
-            if (other.m_pmmlDoc != null) {
+        PMMLDocument pmmlDoc = hasDocument() ? getDocument() : null;
+        PMMLDocument otherDoc = other.hasDocument() ? other.getDocument() : null;
+        if (pmmlDoc == null) {
+            if (otherDoc != null) {
                 return false;
             }
-        } else if (!m_pmmlDoc.valueEquals(other.m_pmmlDoc)) {
+        } else if (pmmlDoc != otherDoc && !pmmlDoc.valueEquals(otherDoc)) {
             return false;
         }
         if (m_spec == null) {
@@ -1003,7 +1101,7 @@ public int hashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result
-                + ((m_pmmlDoc == null) ? 0 : m_pmmlDoc.hashCode());
+                + (hasDocument() ? getDocument().hashCode() : 0);
         result = prime * result + ((m_spec == null) ? 0 : m_spec.hashCode());
         return result;
     }
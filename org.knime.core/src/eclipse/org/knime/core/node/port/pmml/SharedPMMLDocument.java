@@ -0,0 +1,167 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.xmlbeans.XmlException;
+import org.dmg.pmml.PMMLDocument;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.port.pmml.evaluation.PMMLEvaluator;
+import org.knime.core.pmml.PMMLFormatter;
+import org.knime.core.pmml.PMMLUtils;
+
+/**
+ * A PMML document that is shared (read-only) between {@link PMMLPortObject}s. Port objects derived from another one
+ * (see {@link PMMLPortObject#PMMLPortObject(PMMLPortObjectSpec, PMMLPortObject)}) reference the same instance and
+ * only copy the document when they are modified (copy-on-write).
+ * <p>
+ * A document loaded from a stream is kept in its serialized form and only parsed on first access; saving a document
+ * that has not been accessed writes the original bytes. The compiled {@link PMMLEvaluator} is cached here as well so
+ * that all port objects sharing the document also share the evaluator.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class SharedPMMLDocument {
+
+    /** Number of leading bytes searched for the namespace of the current PMML version. */
+    private static final int PROBE_LENGTH = 4096;
+
+    /** The serialized document, <code>null</code> once parsed. */
+    private byte[] m_bytes;
+
+    /** The parsed document, <code>null</code> until first access of a lazily loaded document. */
+    private PMMLDocument m_pmmlDoc;
+
+    private PMMLEvaluator m_evaluator;
+
+    /**
+     * Shares a document that is already in memory. It must not be modified afterwards.
+     *
+     * @param pmmlDoc the document
+     * @param evaluator the evaluator compiled from the document, <code>null</code> if not compiled yet
+     */
+    SharedPMMLDocument(final PMMLDocument pmmlDoc, final PMMLEvaluator evaluator) {
+        m_pmmlDoc = pmmlDoc;
+        m_evaluator = evaluator;
+    }
+
+    /**
+     * Creates a lazily parsed document.
+     *
+     * @param bytes the serialized document in the current PMML version (see {@link #isCurrentVersion(byte[])})
+     */
+    SharedPMMLDocument(final byte[] bytes) {
+        m_bytes = bytes;
+    }
+
+    /**
+     * Probes the beginning of a serialized document for the namespace of the current PMML version. Documents in other
+     * versions need to be converted when loaded and can't be parsed lazily.
+     *
+     * @param bytes the serialized document
+     * @return whether the document declares the namespace of the current PMML version
+     */
+    static boolean isCurrentVersion(final byte[] bytes) {
+        final String head = new String(bytes, 0, Math.min(bytes.length, PROBE_LENGTH), StandardCharsets.ISO_8859_1);
+        return head.contains("\"" + PMMLUtils.getPMMLCurrentVersionNamespace() + "\"");
+    }
+
+    /**
+     * @return the document, parsed on first access; callers must not modify it
+     * @throws IllegalStateException if the lazily loaded document cannot be parsed
+     */
+    synchronized PMMLDocument get() {
+        if (m_pmmlDoc == null) {
+            final Thread current = Thread.currentThread();
+            final ClassLoader oldLoader = current.getContextClassLoader();
+            current.setContextClassLoader(PMMLDocument.class.getClassLoader());
+            try {
+                m_pmmlDoc = PMMLDocument.Factory.parse(new ByteArrayInputStream(m_bytes));
+            } catch (XmlException | IOException e) {
+                throw new IllegalStateException("Could not parse PMML document: " + e.getMessage(), e);
+            } finally {
+                current.setContextClassLoader(oldLoader);
+            }
+            // the parsed document replaces the bytes, keeping both would double the footprint
+            m_bytes = null;
+        }
+        return m_pmmlDoc;
+    }
+
+    /**
+     * Writes the document, the original bytes if it has not been parsed yet.
+     *
+     * @param out the stream to write to, not closed
+     * @throws IOException if writing fails
+     */
+    void save(final OutputStream out) throws IOException {
+        final byte[] bytes;
+        final PMMLDocument pmmlDoc;
+        synchronized (this) {
+            bytes = m_bytes;
+            pmmlDoc = m_pmmlDoc;
+        }
+        if (pmmlDoc == null) {
+            out.write(bytes);
+        } else {
+            PMMLFormatter.save(pmmlDoc, out);
+        }
+    }
+
+    /**
+     * @return the compiled evaluator of the document, compiled on first access
+     * @throws InvalidSettingsException if the document can't be compiled
+     */
+    synchronized PMMLEvaluator getEvaluator() throws InvalidSettingsException {
+        if (m_evaluator == null) {
+            m_evaluator = PMMLEvaluator.compile(get());
+        }
+        return m_evaluator;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State shared by all scopes while a PMML document is compiled: the slots allocated for fields and the dictionary of
+ * class labels. Classification models report their prediction as an index into this dictionary so that ensembles can
+ * count votes in a plain array.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class CompileContext {
+
+    private final List<Boolean> m_numericSlots = new ArrayList<>();
+
+    private final Map<String, Integer> m_labels = new LinkedHashMap<>();
+
+    /**
+     * @param numeric whether the slot holds a numeric or a string value
+     * @return the index of the newly allocated slot
+     */
+    int newSlot(final boolean numeric) {
+        m_numericSlots.add(numeric);
+        return m_numericSlots.size() - 1;
+    }
+
+    /**
+     * @param slot a slot index
+     * @return whether the slot holds a numeric value
+     */
+    boolean isNumeric(final int slot) {
+        return m_numericSlots.get(slot);
+    }
+
+    /** @return the number of slots allocated so far */
+    int getSlotCount() {
+        return m_numericSlots.size();
+    }
+
+    /**
+     * @param label a class label
+     * @return the index of the label, it is added to the dictionary if not yet present
+     */
+    int getLabelIndex(final String label) {
+        Integer index = m_labels.get(label);
+        if (index == null) {
+            index = m_labels.size();
+            m_labels.put(label, index);
+        }
+        return index;
+    }
+
+    /** @return the number of labels in the dictionary */
+    int getLabelCount() {
+        return m_labels.size();
+    }
+
+    /** @return all labels, indexed as returned by {@link #getLabelIndex(String)} */
+    String[] getLabels() {
+        return m_labels.keySet().toArray(new String[0]);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.xmlbeans.XmlObject;
+import org.dmg.pmml.MULTIPLEMODELMETHOD;
+import org.dmg.pmml.MiningModelDocument.MiningModel;
+import org.dmg.pmml.SegmentDocument.Segment;
+import org.dmg.pmml.SegmentationDocument.Segmentation;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.port.pmml.evaluation.Predicates.Predicate;
+
+/**
+ * An ensemble of compiled segment models. Supported multiple model methods are <code>majorityVote</code>,
+ * <code>weightedMajorityVote</code> and <code>selectFirst</code> for classification and <code>average</code>,
+ * <code>weightedAverage</code>, <code>median</code>, <code>max</code>, <code>sum</code> and
+ * <code>selectFirst</code> for regression. Votes are counted in an array indexed by the label indices of the segment
+ * predictions, segments with a missing prediction do not vote.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class CompiledMiningModel extends CompiledModel {
+
+    private final Predicate[] m_predicates;
+
+    private final CompiledModel[] m_models;
+
+    private final double[] m_weights;
+
+    private final int m_method;
+
+    private final int m_labelCount;
+
+    private CompiledMiningModel(final FieldWriter[] localTransformations, final boolean classification,
+        final Predicate[] predicates, final CompiledModel[] models, final double[] weights, final int method,
+        final int labelCount) {
+        super(localTransformations, classification);
+        m_predicates = predicates;
+        m_models = models;
+        m_weights = weights;
+        m_method = method;
+        m_labelCount = labelCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    double score(final double[] num, final String[] str) {
+        switch (m_method) {
+            case MULTIPLEMODELMETHOD.INT_SELECT_FIRST:
+                for (int i = 0; i < m_models.length; i++) {
+                    if (m_predicates[i].test(num, str) == Predicates.TRUE) {
+                        return m_models[i].evaluate(num, str);
+                    }
+                }
+                return Double.NaN;
+            case MULTIPLEMODELMETHOD.INT_MAJORITY_VOTE:
+            case MULTIPLEMODELMETHOD.INT_WEIGHTED_MAJORITY_VOTE:
+                return vote(num, str, m_method == MULTIPLEMODELMETHOD.INT_WEIGHTED_MAJORITY_VOTE);
+            case MULTIPLEMODELMETHOD.INT_MEDIAN:
+                return median(num, str);
+            default:
+                return aggregate(num, str);
+        }
+    }
+
+    private double vote(final double[] num, final String[] str, final boolean weighted) {
+        final double[] votes = new double[m_labelCount];
+        int best = -1;
+        for (int i = 0; i < m_models.length; i++) {
+            if (m_predicates[i].test(num, str) != Predicates.TRUE) {
+                continue;
+            }
+            final double label = m_models[i].evaluate(num, str);
+            if (Double.isNaN(label)) {
+                continue;
+            }
+            final int l = (int)label;
+            votes[l] += weighted ? m_weights[i] : 1.0;
+            if (best < 0 || votes[l] > votes[best] || (votes[l] == votes[best] && l < best)) {
+                best = l;
+            }
+        }
+        return best < 0 ? Double.NaN : best;
+    }
+
+    private double median(final double[] num, final String[] str) {
+        final double[] values = new double[m_models.length];
+        int count = 0;
+        for (int i = 0; i < m_models.length; i++) {
+            if (m_predicates[i].test(num, str) == Predicates.TRUE) {
+                values[count++] = m_models[i].evaluate(num, str);
+            }
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(values, 0, count);
+        return count % 2 == 1 ? values[count / 2] : (values[count / 2 - 1] + values[count / 2]) / 2;
+    }
+
+    private double aggregate(final double[] num, final String[] str) {
+        double sum = 0;
+        double weights = 0;
+        double max = Double.NEGATIVE_INFINITY;
+        int count = 0;
+        for (int i = 0; i < m_models.length; i++) {
+            if (m_predicates[i].test(num, str) != Predicates.TRUE) {
+                continue;
+            }
+            final double value = m_models[i].evaluate(num, str);
+            final double weight = m_method == MULTIPLEMODELMETHOD.INT_WEIGHTED_AVERAGE ? m_weights[i] : 1.0;
+            sum += weight * value;
+            weights += weight;
+            max = Math.max(max, value);
+            count++;
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        switch (m_method) {
+            case MULTIPLEMODELMETHOD.INT_SUM:
+                return sum;
+            case MULTIPLEMODELMETHOD.INT_MAX:
+                return max;
+            default:
+                return sum / weights;
+        }
+    }
+
+    /**
+     * @param model the mining model
+     * @param localTransformations the compiled local transformations of the model
+     * @param classification whether the model predicts class labels
+     * @param scope the scope of the model
+     * @return the compiled model
+     * @throws InvalidSettingsException if the model or one of its segments uses unsupported features
+     */
+    static CompiledMiningModel compile(final MiningModel model, final FieldWriter[] localTransformations,
+        final boolean classification, final FieldScope scope) throws InvalidSettingsException {
+        final Segmentation segmentation = model.getSegmentation();
+        if (segmentation == null) {
+            throw new InvalidSettingsException("Mining models without segmentation are not supported.");
+        }
+        final MULTIPLEMODELMETHOD.Enum method = segmentation.getMultipleModelMethod();
+        final int m = method.intValue();
+        final boolean supported;
+        switch (m) {
+            case MULTIPLEMODELMETHOD.INT_SELECT_FIRST:
+                supported = true;
+                break;
+            case MULTIPLEMODELMETHOD.INT_MAJORITY_VOTE:
+            case MULTIPLEMODELMETHOD.INT_WEIGHTED_MAJORITY_VOTE:
+                supported = classification;
+                break;
+            case MULTIPLEMODELMETHOD.INT_AVERAGE:
+            case MULTIPLEMODELMETHOD.INT_WEIGHTED_AVERAGE:
+            case MULTIPLEMODELMETHOD.INT_MEDIAN:
+            case MULTIPLEMODELMETHOD.INT_MAX:
+            case MULTIPLEMODELMETHOD.INT_SUM:
+                supported = !classification;
+                break;
+            default:
+                supported = false;
+        }
+        if (!supported) {
+            throw new InvalidSettingsException("Multiple model method \"" + method + "\" is not supported by the "
+                + "compiled evaluator for " + (classification ? "classification." : "regression."));
+        }
+        final List<Segment> segments = segmentation.getSegmentList();
+        final Predicate[] predicates = new Predicate[segments.size()];
+        final CompiledModel[] models = new CompiledModel[segments.size()];
+        final double[] weights = new double[segments.size()];
+        for (int i = 0; i < models.length; i++) {
+            final Segment segment = segments.get(i);
+            predicates[i] = Predicates.compileChildOf(segment, scope);
+            models[i] = CompiledModel.compile(getSegmentModel(segment), scope);
+            if (models[i].isClassification() != classification) {
+                throw new InvalidSettingsException("Segment models must have the same mining function as the "
+                    + "enclosing mining model.");
+            }
+            weights[i] = segment.getWeight();
+        }
+        return new CompiledMiningModel(localTransformations, classification, predicates, models, weights, m,
+            scope.getContext().getLabelCount());
+    }
+
+    private static XmlObject getSegmentModel(final Segment segment) throws InvalidSettingsException {
+        if (segment.getTreeModel() != null) {
+            return segment.getTreeModel();
+        } else if (segment.getRegressionModel() != null) {
+            return segment.getRegressionModel();
+        } else if (segment.getMiningModel() != null) {
+            return segment.getMiningModel();
+        }
+        throw new InvalidSettingsException("Segment \"" + segment.getId() + "\" contains a model that is not "
+            + "supported by the compiled evaluator.");
+    }
+}
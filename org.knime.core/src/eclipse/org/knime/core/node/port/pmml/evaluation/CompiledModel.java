@@ -0,0 +1,150 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import org.apache.xmlbeans.XmlObject;
+import org.dmg.pmml.LocalTransformationsDocument.LocalTransformations;
+import org.dmg.pmml.MININGFUNCTION;
+import org.dmg.pmml.MiningModelDocument.MiningModel;
+import org.dmg.pmml.RegressionModelDocument.RegressionModel;
+import org.dmg.pmml.TreeModelDocument.TreeModel;
+import org.knime.core.node.InvalidSettingsException;
+
+/**
+ * Base class of compiled models. A model first evaluates its local transformations and then computes its prediction,
+ * which is a number for regression models and the index of the predicted class label (see
+ * {@link CompileContext#getLabelIndex(String)}) for classification models. {@link Double#NaN} denotes a missing
+ * prediction.
+ * <p>
+ * Compiled models are immutable and can be used by multiple threads concurrently, all per-row state lives in the
+ * slot arrays passed to {@link #evaluate(double[], String[])}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+abstract class CompiledModel {
+
+    private final FieldWriter[] m_localTransformations;
+
+    private final boolean m_classification;
+
+    /**
+     * @param localTransformations the compiled local transformations, evaluated before the model
+     * @param classification whether the model predicts class labels
+     */
+    CompiledModel(final FieldWriter[] localTransformations, final boolean classification) {
+        m_localTransformations = localTransformations;
+        m_classification = classification;
+    }
+
+    /** @return whether the model predicts class labels (rather than numbers) */
+    final boolean isClassification() {
+        return m_classification;
+    }
+
+    /**
+     * @param num the numeric slots of the current row
+     * @param str the string slots of the current row
+     * @return the prediction, see class description
+     */
+    final double evaluate(final double[] num, final String[] str) {
+        for (FieldWriter t : m_localTransformations) {
+            t.apply(num, str);
+        }
+        return score(num, str);
+    }
+
+    /**
+     * Computes the prediction after the local transformations have been evaluated.
+     *
+     * @param num the numeric slots of the current row
+     * @param str the string slots of the current row
+     * @return the prediction, see class description
+     */
+    abstract double score(double[] num, String[] str);
+
+    /**
+     * Compiles a model element.
+     *
+     * @param model a <code>TreeModel</code>, <code>RegressionModel</code> or <code>MiningModel</code>
+     * @param scope the enclosing scope, a child scope is created for the local transformations of the model
+     * @return the compiled model
+     * @throws InvalidSettingsException if the model or parts of it are not supported
+     */
+    static CompiledModel compile(final XmlObject model, final FieldScope scope) throws InvalidSettingsException {
+        final FieldScope modelScope = scope.createChild();
+        if (model instanceof TreeModel) {
+            final TreeModel tree = (TreeModel)model;
+            return CompiledTreeModel.compile(tree, compileLocalTransformations(tree.getLocalTransformations(),
+                modelScope), isClassification(tree.getFunctionName()), modelScope);
+        } else if (model instanceof RegressionModel) {
+            final RegressionModel regression = (RegressionModel)model;
+            return CompiledRegressionModel.compile(regression, compileLocalTransformations(
+                regression.getLocalTransformations(), modelScope), isClassification(regression.getFunctionName()),
+                modelScope);
+        } else if (model instanceof MiningModel) {
+            final MiningModel mining = (MiningModel)model;
+            return CompiledMiningModel.compile(mining, compileLocalTransformations(mining.getLocalTransformations(),
+                modelScope), isClassification(mining.getFunctionName()), modelScope);
+        }
+        throw new InvalidSettingsException("Models of type \"" + model.getDomNode().getLocalName()
+            + "\" are not supported by the compiled evaluator.");
+    }
+
+    private static FieldWriter[] compileLocalTransformations(final LocalTransformations localTransformations,
+        final FieldScope scope) throws InvalidSettingsException {
+        return localTransformations == null ? new FieldWriter[0]
+            : DerivedFields.compile(localTransformations.getDerivedFieldArray(), scope);
+    }
+
+    private static boolean isClassification(final MININGFUNCTION.Enum function) throws InvalidSettingsException {
+        if (MININGFUNCTION.CLASSIFICATION.equals(function)) {
+            return true;
+        } else if (MININGFUNCTION.REGRESSION.equals(function)) {
+            return false;
+        }
+        throw new InvalidSettingsException("Mining function \"" + function
+            + "\" is not supported by the compiled evaluator.");
+    }
+}
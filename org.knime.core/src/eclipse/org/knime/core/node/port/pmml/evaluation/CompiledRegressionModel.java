@@ -0,0 +1,259 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import java.math.BigInteger;
+
+import org.dmg.pmml.CategoricalPredictorDocument.CategoricalPredictor;
+import org.dmg.pmml.NumericPredictorDocument.NumericPredictor;
+import org.dmg.pmml.REGRESSIONNORMALIZATIONMETHOD;
+import org.dmg.pmml.RegressionModelDocument.RegressionModel;
+import org.dmg.pmml.RegressionTableDocument.RegressionTable;
+import org.knime.core.node.InvalidSettingsException;
+
+/**
+ * A regression model compiled into coefficient arrays, one table per target category for classification. Supports
+ * numeric predictors (with exponents) and categorical predictors; <code>PredictorTerm</code>s are not supported.
+ * Supported normalization methods are <code>none</code>, <code>softmax</code>, <code>logit</code>,
+ * <code>exp</code> and, for classification, <code>simplemax</code>.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class CompiledRegressionModel extends CompiledModel {
+
+    /** The coefficients of one regression table. */
+    private static final class Table {
+        private final double m_intercept;
+
+        private final int[] m_numericSlots;
+
+        private final int[] m_exponents;
+
+        private final double[] m_numericCoefficients;
+
+        private final int[] m_categoricalSlots;
+
+        private final boolean[] m_categoricalOnNumber;
+
+        private final String[] m_categories;
+
+        private final double[] m_numericCategories;
+
+        private final double[] m_categoricalCoefficients;
+
+        private Table(final RegressionTable table, final FieldScope scope) throws InvalidSettingsException {
+            if (table.getPredictorTermArray().length > 0) {
+                throw new InvalidSettingsException("Predictor terms are not supported by the compiled evaluator.");
+            }
+            m_intercept = table.getIntercept();
+            final NumericPredictor[] numeric = table.getNumericPredictorArray();
+            m_numericSlots = new int[numeric.length];
+            m_exponents = new int[numeric.length];
+            m_numericCoefficients = new double[numeric.length];
+            for (int i = 0; i < numeric.length; i++) {
+                m_numericSlots[i] = scope.resolve(numeric[i].getName());
+                if (!scope.isNumeric(m_numericSlots[i])) {
+                    throw new InvalidSettingsException("Numeric predictor \"" + numeric[i].getName()
+                        + "\" refers to a non-numeric field.");
+                }
+                final BigInteger exponent = numeric[i].getExponent();
+                m_exponents[i] = exponent == null ? 1 : exponent.intValue();
+                m_numericCoefficients[i] = numeric[i].getCoefficient();
+            }
+            final CategoricalPredictor[] categorical = table.getCategoricalPredictorArray();
+            m_categoricalSlots = new int[categorical.length];
+            m_categoricalOnNumber = new boolean[categorical.length];
+            m_categories = new String[categorical.length];
+            m_numericCategories = new double[categorical.length];
+            m_categoricalCoefficients = new double[categorical.length];
+            for (int i = 0; i < categorical.length; i++) {
+                m_categoricalSlots[i] = scope.resolve(categorical[i].getName());
+                m_categoricalOnNumber[i] = scope.isNumeric(m_categoricalSlots[i]);
+                m_categories[i] = categorical[i].getValue();
+                m_numericCategories[i] = Values.toDouble(categorical[i].getValue());
+                m_categoricalCoefficients[i] = categorical[i].getCoefficient();
+            }
+        }
+
+        private double evaluate(final double[] num, final String[] str) {
+            double result = m_intercept;
+            for (int i = 0; i < m_numericSlots.length; i++) {
+                final double x = num[m_numericSlots[i]];
+                result += m_numericCoefficients[i] * (m_exponents[i] == 1 ? x : Math.pow(x, m_exponents[i]));
+            }
+            for (int i = 0; i < m_categoricalSlots.length; i++) {
+                final int slot = m_categoricalSlots[i];
+                if (m_categoricalOnNumber[i]) {
+                    if (Double.isNaN(num[slot])) {
+                        return Double.NaN;
+                    } else if (num[slot] == m_numericCategories[i]) {
+                        result += m_categoricalCoefficients[i];
+                    }
+                } else {
+                    if (str[slot] == null) {
+                        return Double.NaN;
+                    } else if (str[slot].equals(m_categories[i])) {
+                        result += m_categoricalCoefficients[i];
+                    }
+                }
+            }
+            // NaN if a numeric predictor is missing
+            return result;
+        }
+    }
+
+    private final Table[] m_tables;
+
+    /** label index per table, only used for classification */
+    private final int[] m_labels;
+
+    private final int m_normalization;
+
+    private CompiledRegressionModel(final FieldWriter[] localTransformations, final boolean classification,
+        final Table[] tables, final int[] labels, final int normalization) {
+        super(localTransformations, classification);
+        m_tables = tables;
+        m_labels = labels;
+        m_normalization = normalization;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    double score(final double[] num, final String[] str) {
+        if (!isClassification()) {
+            final double y = m_tables[0].evaluate(num, str);
+            switch (m_normalization) {
+                case REGRESSIONNORMALIZATIONMETHOD.INT_SOFTMAX:
+                case REGRESSIONNORMALIZATIONMETHOD.INT_LOGIT:
+                    return 1.0 / (1.0 + Math.exp(-y));
+                case REGRESSIONNORMALIZATIONMETHOD.INT_EXP:
+                    return Math.exp(y);
+                default:
+                    return y;
+            }
+        }
+        final double[] y = new double[m_tables.length];
+        double sum = 0;
+        for (int i = 0; i < y.length; i++) {
+            y[i] = m_tables[i].evaluate(num, str);
+            if (Double.isNaN(y[i])) {
+                return Double.NaN;
+            }
+            sum += y[i];
+        }
+        switch (m_normalization) {
+            case REGRESSIONNORMALIZATIONMETHOD.INT_LOGIT:
+                if (y.length == 2) {
+                    // binary case: the second probability is the complement of the first
+                    final double p = 1.0 / (1.0 + Math.exp(-y[0]));
+                    return m_labels[p >= 0.5 ? 0 : 1];
+                }
+                break;
+            case REGRESSIONNORMALIZATIONMETHOD.INT_SIMPLEMAX:
+                if (sum < 0) {
+                    // y / sum flips the order
+                    for (int i = 0; i < y.length; i++) {
+                        y[i] = -y[i];
+                    }
+                }
+                break;
+            default:
+                // softmax and exp are monotonic, the largest value wins
+        }
+        int best = 0;
+        for (int i = 1; i < y.length; i++) {
+            if (y[i] > y[best]) {
+                best = i;
+            }
+        }
+        return m_labels[best];
+    }
+
+    /**
+     * @param model the regression model
+     * @param localTransformations the compiled local transformations of the model
+     * @param classification whether the model predicts class labels
+     * @param scope the scope of the model
+     * @return the compiled model
+     * @throws InvalidSettingsException if the model uses unsupported features
+     */
+    static CompiledRegressionModel compile(final RegressionModel model, final FieldWriter[] localTransformations,
+        final boolean classification, final FieldScope scope) throws InvalidSettingsException {
+        final RegressionTable[] xmlTables = model.getRegressionTableArray();
+        if (xmlTables.length == 0 || (!classification && xmlTables.length > 1)) {
+            throw new InvalidSettingsException("Invalid number of regression tables: " + xmlTables.length);
+        }
+        final REGRESSIONNORMALIZATIONMETHOD.Enum method = model.getNormalizationMethod();
+        final int normalization = method == null ? REGRESSIONNORMALIZATIONMETHOD.INT_NONE : method.intValue();
+        switch (normalization) {
+            case REGRESSIONNORMALIZATIONMETHOD.INT_NONE:
+            case REGRESSIONNORMALIZATIONMETHOD.INT_SOFTMAX:
+            case REGRESSIONNORMALIZATIONMETHOD.INT_LOGIT:
+            case REGRESSIONNORMALIZATIONMETHOD.INT_EXP:
+                break;
+            case REGRESSIONNORMALIZATIONMETHOD.INT_SIMPLEMAX:
+                if (classification) {
+                    break;
+                }
+                // fall through
+            default:
+                throw new InvalidSettingsException("Normalization method \"" + method
+                    + "\" is not supported by the compiled evaluator.");
+        }
+        final Table[] tables = new Table[xmlTables.length];
+        final int[] labels = new int[xmlTables.length];
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = new Table(xmlTables[i], scope);
+            if (classification) {
+                final String category = xmlTables[i].getTargetCategory();
+                if (category == null) {
+                    throw new InvalidSettingsException("Regression table without target category.");
+                }
+                labels[i] = scope.getContext().getLabelIndex(category);
+            }
+        }
+        return new CompiledRegressionModel(localTransformations, classification, tables, labels, normalization);
+    }
+}
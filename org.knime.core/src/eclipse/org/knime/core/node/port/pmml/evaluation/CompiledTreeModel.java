@@ -0,0 +1,242 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dmg.pmml.MISSINGVALUESTRATEGY;
+import org.dmg.pmml.NOTRUECHILDSTRATEGY;
+import org.dmg.pmml.NodeDocument.Node;
+import org.dmg.pmml.TreeModelDocument.TreeModel;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.port.pmml.evaluation.Predicates.Predicate;
+
+/**
+ * A decision tree flattened into arrays. Nodes are numbered in pre-order, the children of a node are linked via
+ * {@link #m_firstChild} and {@link #m_nextSibling} so that scoring a row is a loop over primitive arrays without any
+ * access to the XML object tree.
+ * <p>
+ * Supported missing value strategies are <code>none</code>, <code>lastPrediction</code>,
+ * <code>nullPrediction</code> and <code>defaultChild</code>; both no true child strategies are supported.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class CompiledTreeModel extends CompiledModel {
+
+    private final Predicate[] m_predicates;
+
+    private final int[] m_firstChild;
+
+    private final int[] m_nextSibling;
+
+    private final int[] m_defaultChild;
+
+    /** label index or numeric score, NaN if the node has no score */
+    private final double[] m_scores;
+
+    private final int m_missingValueStrategy;
+
+    private final boolean m_returnLastPrediction;
+
+    private CompiledTreeModel(final FieldWriter[] localTransformations, final boolean classification,
+        final List<Predicate> predicates, final int[] firstChild, final int[] nextSibling, final int[] defaultChild,
+        final double[] scores, final int missingValueStrategy, final boolean returnLastPrediction) {
+        super(localTransformations, classification);
+        m_predicates = predicates.toArray(new Predicate[0]);
+        m_firstChild = firstChild;
+        m_nextSibling = nextSibling;
+        m_defaultChild = defaultChild;
+        m_scores = scores;
+        m_missingValueStrategy = missingValueStrategy;
+        m_returnLastPrediction = returnLastPrediction;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    double score(final double[] num, final String[] str) {
+        if (m_predicates[0].test(num, str) != Predicates.TRUE) {
+            return Double.NaN;
+        }
+        int node = 0;
+        while (m_firstChild[node] >= 0) {
+            int next = -1;
+            for (int child = m_firstChild[node]; child >= 0 && next < 0; child = m_nextSibling[child]) {
+                final int result = m_predicates[child].test(num, str);
+                if (result == Predicates.TRUE) {
+                    next = child;
+                } else if (result == Predicates.UNKNOWN) {
+                    switch (m_missingValueStrategy) {
+                        case MISSINGVALUESTRATEGY.INT_LAST_PREDICTION:
+                            return m_scores[node];
+                        case MISSINGVALUESTRATEGY.INT_NULL_PREDICTION:
+                            return Double.NaN;
+                        case MISSINGVALUESTRATEGY.INT_DEFAULT_CHILD:
+                            if (m_defaultChild[node] < 0) {
+                                return m_scores[node];
+                            }
+                            next = m_defaultChild[node];
+                            break;
+                        default:
+                            // "none": a comparison with a missing value is false
+                    }
+                }
+            }
+            if (next < 0) {
+                return m_returnLastPrediction ? m_scores[node] : Double.NaN;
+            }
+            node = next;
+        }
+        return m_scores[node];
+    }
+
+    /**
+     * @param tree the tree model
+     * @param localTransformations the compiled local transformations of the model
+     * @param classification whether the tree predicts class labels
+     * @param scope the scope of the model
+     * @return the compiled tree
+     * @throws InvalidSettingsException if the tree uses unsupported features
+     */
+    static CompiledTreeModel compile(final TreeModel tree, final FieldWriter[] localTransformations,
+        final boolean classification, final FieldScope scope) throws InvalidSettingsException {
+        final MISSINGVALUESTRATEGY.Enum strategy = tree.getMissingValueStrategy();
+        final int missingValueStrategy = strategy == null ? MISSINGVALUESTRATEGY.INT_NONE : strategy.intValue();
+        switch (missingValueStrategy) {
+            case MISSINGVALUESTRATEGY.INT_NONE:
+            case MISSINGVALUESTRATEGY.INT_LAST_PREDICTION:
+            case MISSINGVALUESTRATEGY.INT_NULL_PREDICTION:
+            case MISSINGVALUESTRATEGY.INT_DEFAULT_CHILD:
+                break;
+            default:
+                throw new InvalidSettingsException("Missing value strategy \"" + strategy
+                    + "\" is not supported by the compiled evaluator.");
+        }
+        final boolean returnLastPrediction =
+            NOTRUECHILDSTRATEGY.RETURN_LAST_PREDICTION.equals(tree.getNoTrueChildStrategy());
+        if (tree.getNode() == null) {
+            throw new InvalidSettingsException("Tree model without root node.");
+        }
+
+        final List<Node> nodes = new ArrayList<>();
+        final List<Integer> parents = new ArrayList<>();
+        flatten(tree.getNode(), -1, nodes, parents);
+        final int size = nodes.size();
+        final List<Predicate> predicates = new ArrayList<>(size);
+        final int[] firstChild = new int[size];
+        final int[] nextSibling = new int[size];
+        final int[] lastChild = new int[size];
+        final int[] defaultChild = new int[size];
+        final double[] scores = new double[size];
+        final Map<String, Integer> ids = new HashMap<>();
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        Arrays.fill(defaultChild, -1);
+        for (int i = 0; i < size; i++) {
+            final Node node = nodes.get(i);
+            predicates.add(Predicates.compileChildOf(node, scope));
+            final String score = node.getScore();
+            if (score == null) {
+                scores[i] = Double.NaN;
+            } else if (classification) {
+                scores[i] = scope.getContext().getLabelIndex(score);
+            } else {
+                scores[i] = Values.toDouble(score);
+                if (Double.isNaN(scores[i])) {
+                    throw new InvalidSettingsException("Score \"" + score + "\" of a regression tree node is not "
+                        + "a number.");
+                }
+            }
+            if (node.getId() != null) {
+                ids.put(node.getId(), i);
+            }
+            final int parent = parents.get(i);
+            if (parent >= 0) {
+                if (firstChild[parent] < 0) {
+                    firstChild[parent] = i;
+                } else {
+                    nextSibling[lastChild[parent]] = i;
+                }
+                lastChild[parent] = i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            final String id = nodes.get(i).getDefaultChild();
+            if (id != null) {
+                final Integer child = ids.get(id);
+                if (child == null) {
+                    throw new InvalidSettingsException("Default child \"" + id + "\" does not exist.");
+                }
+                defaultChild[i] = child;
+            }
+        }
+        return new CompiledTreeModel(localTransformations, classification, predicates, firstChild, nextSibling,
+            defaultChild, scores, missingValueStrategy, returnLastPrediction);
+    }
+
+    /** Collects the nodes in pre-order; iterative to cope with deep trees. */
+    private static void flatten(final Node root, final int rootParent, final List<Node> nodes,
+        final List<Integer> parents) {
+        final List<Node> stack = new ArrayList<>();
+        final List<Integer> stackParents = new ArrayList<>();
+        stack.add(root);
+        stackParents.add(rootParent);
+        while (!stack.isEmpty()) {
+            final Node node = stack.remove(stack.size() - 1);
+            final int parent = stackParents.remove(stackParents.size() - 1);
+            final int index = nodes.size();
+            nodes.add(node);
+            parents.add(parent);
+            final Node[] children = node.getNodeArray();
+            for (int i = children.length - 1; i >= 0; i--) {
+                stack.add(children[i]);
+                stackParents.add(index);
+            }
+        }
+    }
+}
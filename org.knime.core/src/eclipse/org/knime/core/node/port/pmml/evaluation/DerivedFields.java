@@ -0,0 +1,374 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dmg.pmml.ConstantDocument.Constant;
+import org.dmg.pmml.DATATYPE;
+import org.dmg.pmml.DerivedFieldDocument.DerivedField;
+import org.dmg.pmml.DiscretizeBinDocument.DiscretizeBin;
+import org.dmg.pmml.DiscretizeDocument.Discretize;
+import org.dmg.pmml.FieldColumnPairDocument.FieldColumnPair;
+import org.dmg.pmml.FieldRefDocument.FieldRef;
+import org.dmg.pmml.InlineTableDocument.InlineTable;
+import org.dmg.pmml.IntervalDocument.Interval;
+import org.dmg.pmml.LinearNormDocument.LinearNorm;
+import org.dmg.pmml.MapValuesDocument.MapValues;
+import org.dmg.pmml.NormContinuousDocument.NormContinuous;
+import org.dmg.pmml.NormDiscreteDocument.NormDiscrete;
+import org.dmg.pmml.OUTLIERTREATMENTMETHOD;
+import org.dmg.pmml.RowDocument.Row;
+import org.knime.core.node.InvalidSettingsException;
+import org.w3c.dom.Node;
+
+/**
+ * Compiles PMML <code>DerivedField</code>s into {@link FieldWriter}s. Supported expressions are
+ * <code>FieldRef</code>, <code>Constant</code>, <code>NormContinuous</code>, <code>NormDiscrete</code>,
+ * <code>Discretize</code> and <code>MapValues</code> with an inline table, which covers the transformations written
+ * by the KNIME preprocessing nodes (see {@link org.knime.core.node.port.pmml.preproc.PMMLPreprocTranslator}).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class DerivedFields {
+
+    private DerivedFields() {
+    }
+
+    /** An expression of a derived field. Subclasses implement the method matching their natural result type. */
+    private abstract static class Expression {
+        double getDouble(final double[] num, final String[] str) {
+            return Values.toDouble(getString(num, str));
+        }
+
+        String getString(final double[] num, final String[] str) {
+            return Values.toString(getDouble(num, str));
+        }
+    }
+
+    /**
+     * @param dataType a PMML data type, may be <code>null</code>
+     * @return whether values of this type are kept in the numeric slots
+     */
+    static boolean isNumeric(final DATATYPE.Enum dataType) {
+        if (dataType == null) {
+            return false;
+        }
+        switch (dataType.intValue()) {
+            case DATATYPE.INT_DOUBLE:
+            case DATATYPE.INT_FLOAT:
+            case DATATYPE.INT_INTEGER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Compiles the derived fields in document order and defines them in the argument scope. A derived field can only
+     * refer to fields defined before it.
+     *
+     * @param fields the derived fields, may be <code>null</code>
+     * @param scope the scope to define the fields in
+     * @return the compiled fields, in evaluation order
+     * @throws InvalidSettingsException if an expression is not supported or refers to an unknown field
+     */
+    static FieldWriter[] compile(final DerivedField[] fields, final FieldScope scope)
+        throws InvalidSettingsException {
+        if (fields == null) {
+            return new FieldWriter[0];
+        }
+        final List<FieldWriter> result = new ArrayList<>(fields.length);
+        for (DerivedField field : fields) {
+            result.add(compile(field, scope));
+        }
+        return result.toArray(new FieldWriter[0]);
+    }
+
+    private static FieldWriter compile(final DerivedField field, final FieldScope scope)
+        throws InvalidSettingsException {
+        final Expression expr;
+        if (field.getFieldRef() != null) {
+            expr = compileFieldRef(field.getFieldRef(), scope);
+        } else if (field.getConstant() != null) {
+            expr = compileConstant(field.getConstant());
+        } else if (field.getNormContinuous() != null) {
+            expr = compileNormContinuous(field.getNormContinuous(), scope);
+        } else if (field.getNormDiscrete() != null) {
+            expr = compileNormDiscrete(field.getNormDiscrete(), scope);
+        } else if (field.getDiscretize() != null) {
+            expr = compileDiscretize(field.getDiscretize(), scope);
+        } else if (field.getMapValues() != null) {
+            expr = compileMapValues(field.getMapValues(), scope);
+        } else {
+            throw new InvalidSettingsException("The expression of derived field \"" + field.getName()
+                + "\" is not supported by the compiled evaluator.");
+        }
+        // defined after compiling the expression, a field cannot refer to itself
+        final int slot = scope.define(field.getName(), isNumeric(field.getDataType()));
+        if (scope.isNumeric(slot)) {
+            return (num, str) -> num[slot] = expr.getDouble(num, str);
+        }
+        return (num, str) -> str[slot] = expr.getString(num, str);
+    }
+
+    private static Expression compileFieldRef(final FieldRef ref, final FieldScope scope)
+        throws InvalidSettingsException {
+        final int slot = scope.resolve(ref.getField());
+        final String mapMissingTo = ref.isSetMapMissingTo() ? ref.getMapMissingTo() : null;
+        if (scope.isNumeric(slot)) {
+            final double missing = Values.toDouble(mapMissingTo);
+            return new Expression() {
+                @Override
+                double getDouble(final double[] num, final String[] str) {
+                    return Double.isNaN(num[slot]) ? missing : num[slot];
+                }
+            };
+        }
+        return new Expression() {
+            @Override
+            String getString(final double[] num, final String[] str) {
+                return str[slot] == null ? mapMissingTo : str[slot];
+            }
+        };
+    }
+
+    private static Expression compileConstant(final Constant constant) {
+        final String value = constant.getStringValue();
+        final double number = Values.toDouble(value);
+        return new Expression() {
+            @Override
+            double getDouble(final double[] num, final String[] str) {
+                return number;
+            }
+
+            @Override
+            String getString(final double[] num, final String[] str) {
+                return value;
+            }
+        };
+    }
+
+    private static Expression compileNormContinuous(final NormContinuous norm, final FieldScope scope)
+        throws InvalidSettingsException {
+        final Expression input = numericInput(norm.getField(), scope);
+        final LinearNorm[] points = norm.getLinearNormArray().clone();
+        if (points.length < 2) {
+            throw new InvalidSettingsException("NormContinuous on field \"" + norm.getField()
+                + "\" needs at least two LinearNorm elements.");
+        }
+        Arrays.sort(points, Comparator.comparingDouble(LinearNorm::getOrig));
+        final double[] orig = new double[points.length];
+        final double[] normalized = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            orig[i] = points[i].getOrig();
+            normalized[i] = points[i].getNorm();
+        }
+        final double missing = norm.isSetMapMissingTo() ? norm.getMapMissingTo() : Double.NaN;
+        final int outliers = norm.getOutliers() == null ? OUTLIERTREATMENTMETHOD.INT_AS_IS
+            : norm.getOutliers().intValue();
+        final int last = orig.length - 1;
+        return new Expression() {
+            @Override
+            double getDouble(final double[] num, final String[] str) {
+                final double x = input.getDouble(num, str);
+                if (Double.isNaN(x)) {
+                    return missing;
+                }
+                if (x < orig[0] || x > orig[last]) {
+                    if (outliers == OUTLIERTREATMENTMETHOD.INT_AS_MISSING_VALUES) {
+                        return missing;
+                    } else if (outliers == OUTLIERTREATMENTMETHOD.INT_AS_EXTREME_VALUES) {
+                        return x < orig[0] ? normalized[0] : normalized[last];
+                    }
+                }
+                // index of the segment [orig[i], orig[i + 1]], extrapolating with the outer segments
+                int i = Arrays.binarySearch(orig, x);
+                if (i < 0) {
+                    i = -i - 2;
+                }
+                i = Math.max(0, Math.min(i, last - 1));
+                return normalized[i] + (x - orig[i]) / (orig[i + 1] - orig[i]) * (normalized[i + 1] - normalized[i]);
+            }
+        };
+    }
+
+    private static Expression compileNormDiscrete(final NormDiscrete norm, final FieldScope scope)
+        throws InvalidSettingsException {
+        final int slot = scope.resolve(norm.getField());
+        final double missing = norm.isSetMapMissingTo() ? norm.getMapMissingTo() : Double.NaN;
+        if (scope.isNumeric(slot)) {
+            final double value = Values.toDouble(norm.getValue());
+            return new Expression() {
+                @Override
+                double getDouble(final double[] num, final String[] str) {
+                    return Double.isNaN(num[slot]) ? missing : num[slot] == value ? 1.0 : 0.0;
+                }
+            };
+        }
+        final String value = norm.getValue();
+        return new Expression() {
+            @Override
+            double getDouble(final double[] num, final String[] str) {
+                return str[slot] == null ? missing : str[slot].equals(value) ? 1.0 : 0.0;
+            }
+        };
+    }
+
+    private static Expression compileDiscretize(final Discretize discretize, final FieldScope scope)
+        throws InvalidSettingsException {
+        final Expression input = numericInput(discretize.getField(), scope);
+        final DiscretizeBin[] bins = discretize.getDiscretizeBinArray();
+        final String[] binValues = new String[bins.length];
+        final double[] left = new double[bins.length];
+        final double[] right = new double[bins.length];
+        final boolean[] leftClosed = new boolean[bins.length];
+        final boolean[] rightClosed = new boolean[bins.length];
+        for (int i = 0; i < bins.length; i++) {
+            final Interval interval = bins[i].getInterval();
+            binValues[i] = bins[i].getBinValue();
+            left[i] = interval.isSetLeftMargin() ? interval.getLeftMargin() : Double.NEGATIVE_INFINITY;
+            right[i] = interval.isSetRightMargin() ? interval.getRightMargin() : Double.POSITIVE_INFINITY;
+            final int closure = interval.getClosure().intValue();
+            leftClosed[i] = closure == Interval.Closure.INT_CLOSED_OPEN || closure == Interval.Closure.INT_CLOSED_CLOSED;
+            rightClosed[i] = closure == Interval.Closure.INT_OPEN_CLOSED || closure == Interval.Closure.INT_CLOSED_CLOSED;
+        }
+        final String missing = discretize.isSetMapMissingTo() ? discretize.getMapMissingTo() : null;
+        final String defaultValue = discretize.isSetDefaultValue() ? discretize.getDefaultValue() : null;
+        return new Expression() {
+            @Override
+            String getString(final double[] num, final String[] str) {
+                final double x = input.getDouble(num, str);
+                if (Double.isNaN(x)) {
+                    return missing;
+                }
+                for (int i = 0; i < binValues.length; i++) {
+                    if ((x > left[i] || (leftClosed[i] && x == left[i]))
+                        && (x < right[i] || (rightClosed[i] && x == right[i]))) {
+                        return binValues[i];
+                    }
+                }
+                return defaultValue;
+            }
+        };
+    }
+
+    private static Expression compileMapValues(final MapValues mapValues, final FieldScope scope)
+        throws InvalidSettingsException {
+        final InlineTable table = mapValues.getInlineTable();
+        if (table == null) {
+            throw new InvalidSettingsException("Only MapValues with an InlineTable are supported.");
+        }
+        final FieldColumnPair[] pairs = mapValues.getFieldColumnPairArray();
+        final int[] slots = new int[pairs.length];
+        final boolean[] numeric = new boolean[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            slots[i] = scope.resolve(pairs[i].getField());
+            numeric[i] = scope.isNumeric(slots[i]);
+        }
+        final Map<String, String> lookup = new HashMap<>();
+        for (Row row : table.getRowArray()) {
+            final Map<String, String> cells = readRow(row);
+            final String[] key = new String[pairs.length];
+            for (int i = 0; i < pairs.length; i++) {
+                final String value = cells.get(pairs[i].getColumn());
+                key[i] = numeric[i] ? Values.normalizeNumber(value) : value;
+            }
+            // first matching row wins
+            lookup.putIfAbsent(String.join("\u0000", key), cells.get(mapValues.getOutputColumn()));
+        }
+        final String missing = mapValues.isSetMapMissingTo() ? mapValues.getMapMissingTo() : null;
+        final String defaultValue = mapValues.isSetDefaultValue() ? mapValues.getDefaultValue() : null;
+        return new Expression() {
+            @Override
+            String getString(final double[] num, final String[] str) {
+                final String[] key = new String[slots.length];
+                for (int i = 0; i < slots.length; i++) {
+                    key[i] = numeric[i] ? Values.toString(num[slots[i]]) : str[slots[i]];
+                    if (key[i] == null) {
+                        return missing;
+                    }
+                }
+                final String result = lookup.get(key.length == 1 ? key[0] : String.join("\u0000", key));
+                return result == null ? defaultValue : result;
+            }
+        };
+    }
+
+    private static Map<String, String> readRow(final Row row) {
+        final Map<String, String> cells = new HashMap<>();
+        for (Node child = row.getDomNode().getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                final String name = child.getLocalName() != null ? child.getLocalName() : child.getNodeName();
+                cells.put(name, child.getTextContent());
+            }
+        }
+        return cells;
+    }
+
+    private static Expression numericInput(final String field, final FieldScope scope)
+        throws InvalidSettingsException {
+        final int slot = scope.resolve(field);
+        if (scope.isNumeric(slot)) {
+            return new Expression() {
+                @Override
+                double getDouble(final double[] num, final String[] str) {
+                    return num[slot];
+                }
+            };
+        }
+        return new Expression() {
+            @Override
+            String getString(final double[] num, final String[] str) {
+                return str[slot];
+            }
+        };
+    }
+}
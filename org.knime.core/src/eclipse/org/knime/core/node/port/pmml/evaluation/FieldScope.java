@@ -0,0 +1,131 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.knime.core.node.InvalidSettingsException;
+
+/**
+ * Resolves field names to slots. The data dictionary and the transformation dictionary populate the root scope, each
+ * model gets a child scope for its local transformations so that equally named local fields of different segments of
+ * an ensemble do not collide.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class FieldScope {
+
+    private final CompileContext m_context;
+
+    private final FieldScope m_parent;
+
+    private final Map<String, Integer> m_fields = new HashMap<>();
+
+    /**
+     * Creates a root scope.
+     *
+     * @param context the shared compile context
+     */
+    FieldScope(final CompileContext context) {
+        this(context, null);
+    }
+
+    private FieldScope(final CompileContext context, final FieldScope parent) {
+        m_context = context;
+        m_parent = parent;
+    }
+
+    /** @return a new scope that resolves names in this scope unless they are defined in the child itself */
+    FieldScope createChild() {
+        return new FieldScope(m_context, this);
+    }
+
+    /** @return the shared compile context */
+    CompileContext getContext() {
+        return m_context;
+    }
+
+    /**
+     * Allocates a slot for a new field.
+     *
+     * @param name the field name
+     * @param numeric whether the field is numeric
+     * @return the slot index
+     * @throws InvalidSettingsException if the name is already defined in this scope
+     */
+    int define(final String name, final boolean numeric) throws InvalidSettingsException {
+        if (m_fields.containsKey(name)) {
+            throw new InvalidSettingsException("Field \"" + name + "\" is defined more than once.");
+        }
+        final int slot = m_context.newSlot(numeric);
+        m_fields.put(name, slot);
+        return slot;
+    }
+
+    /**
+     * @param name the field name
+     * @return the slot of the field
+     * @throws InvalidSettingsException if the field is not defined in this or any enclosing scope
+     */
+    int resolve(final String name) throws InvalidSettingsException {
+        for (FieldScope scope = this; scope != null; scope = scope.m_parent) {
+            final Integer slot = scope.m_fields.get(name);
+            if (slot != null) {
+                return slot;
+            }
+        }
+        throw new InvalidSettingsException("Field \"" + name
+            + "\" is neither a data field nor a previously defined derived field.");
+    }
+
+    /**
+     * @param slot a slot index
+     * @return whether the slot holds a numeric value
+     */
+    boolean isNumeric(final int slot) {
+        return m_context.isNumeric(slot);
+    }
+}
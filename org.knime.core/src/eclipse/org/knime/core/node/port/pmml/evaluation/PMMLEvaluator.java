@@ -0,0 +1,339 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.dmg.pmml.DataDictionaryDocument.DataDictionary;
+import org.dmg.pmml.DataFieldDocument.DataField;
+import org.dmg.pmml.FIELDUSAGETYPE;
+import org.dmg.pmml.MiningFieldDocument.MiningField;
+import org.dmg.pmml.MiningSchemaDocument.MiningSchema;
+import org.dmg.pmml.PMMLDocument;
+import org.dmg.pmml.PMMLDocument.PMML;
+import org.dmg.pmml.TransformationDictionaryDocument.TransformationDictionary;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnDomainCreator;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.container.AbstractCellFactory;
+import org.knime.core.data.container.CellFactory;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.port.pmml.PMMLPortObject;
+import org.knime.core.node.streamable.StreamableFunction;
+import org.knime.core.pmml.PMMLModelType;
+import org.knime.core.pmml.PMMLUtils;
+
+/**
+ * A PMML document compiled into an immutable in-memory representation that scores rows without accessing the XML
+ * object tree: decision trees are flattened into arrays, regression tables into coefficient arrays and derived fields
+ * (e.g. those written by the preprocessing nodes) into closures over a per-row slot array. An evaluator is thread-safe
+ * and is best obtained via {@link PMMLPortObject#getEvaluator()}, which compiles the document only once.
+ * <p>
+ * The first model of the document is evaluated. Supported are <code>TreeModel</code>, <code>RegressionModel</code>
+ * and <code>MiningModel</code>s with a segmentation of those, for classification and regression. Compiling a
+ * document that uses other models or unsupported PMML constructs fails with an {@link InvalidSettingsException};
+ * callers can then fall back to a generic PMML evaluation.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class PMMLEvaluator {
+
+    private final FieldWriter[] m_transformations;
+
+    private final CompiledModel m_model;
+
+    private final String[] m_dataFieldNames;
+
+    private final int[] m_dataFieldSlots;
+
+    private final boolean[] m_numericDataFields;
+
+    private final String[] m_activeFieldNames;
+
+    private final String m_targetName;
+
+    private final String[] m_labels;
+
+    /** all numeric slots are initially missing */
+    private final double[] m_numericTemplate;
+
+    private final int m_slotCount;
+
+    private PMMLEvaluator(final FieldWriter[] transformations, final CompiledModel model,
+        final List<String> dataFieldNames, final List<Integer> dataFieldSlots, final String[] activeFieldNames,
+        final String targetName, final CompileContext context) {
+        m_transformations = transformations;
+        m_model = model;
+        m_dataFieldNames = dataFieldNames.toArray(new String[0]);
+        m_dataFieldSlots = new int[m_dataFieldNames.length];
+        m_numericDataFields = new boolean[m_dataFieldNames.length];
+        for (int i = 0; i < m_dataFieldSlots.length; i++) {
+            m_dataFieldSlots[i] = dataFieldSlots.get(i);
+            m_numericDataFields[i] = context.isNumeric(m_dataFieldSlots[i]);
+        }
+        m_activeFieldNames = activeFieldNames;
+        m_targetName = targetName;
+        m_labels = context.getLabels();
+        m_slotCount = context.getSlotCount();
+        m_numericTemplate = new double[m_slotCount];
+        Arrays.fill(m_numericTemplate, Double.NaN);
+    }
+
+    /**
+     * Compiles the first model of the argument document.
+     *
+     * @param pmmlDoc the PMML document, it is not referenced by the returned evaluator
+     * @return a new evaluator
+     * @throws InvalidSettingsException if the document contains no model or uses constructs that are not supported
+     *             by the compiled evaluator
+     */
+    public static PMMLEvaluator compile(final PMMLDocument pmmlDoc) throws InvalidSettingsException {
+        final PMML pmml = pmmlDoc.getPMML();
+        final CompileContext context = new CompileContext();
+        final FieldScope scope = new FieldScope(context);
+        final List<String> dataFieldNames = new ArrayList<>();
+        final List<Integer> dataFieldSlots = new ArrayList<>();
+        final DataDictionary dataDictionary = pmml.getDataDictionary();
+        if (dataDictionary != null) {
+            for (DataField field : dataDictionary.getDataFieldArray()) {
+                dataFieldNames.add(field.getName());
+                dataFieldSlots.add(scope.define(field.getName(), DerivedFields.isNumeric(field.getDataType())));
+            }
+        }
+        final TransformationDictionary transformationDictionary = pmml.getTransformationDictionary();
+        final FieldWriter[] transformations = transformationDictionary == null ? new FieldWriter[0]
+            : DerivedFields.compile(transformationDictionary.getDerivedFieldArray(), scope);
+
+        final XmlObject modelXml = getFirstModel(pmml);
+        final CompiledModel model = CompiledModel.compile(modelXml, scope);
+
+        final List<String> activeFields = new ArrayList<>();
+        String targetName = null;
+        final MiningSchema miningSchema = PMMLUtils.getFirstMiningSchema(pmmlDoc, modelXml.schemaType());
+        if (miningSchema != null) {
+            for (MiningField field : miningSchema.getMiningFieldArray()) {
+                final FIELDUSAGETYPE.Enum usage = field.getUsageType();
+                if (usage == null || FIELDUSAGETYPE.ACTIVE.equals(usage)) {
+                    if (dataFieldNames.contains(field.getName())) {
+                        activeFields.add(field.getName());
+                    }
+                } else if (targetName == null
+                    && (FIELDUSAGETYPE.PREDICTED.equals(usage) || FIELDUSAGETYPE.TARGET.equals(usage))) {
+                    targetName = field.getName();
+                }
+            }
+        }
+        return new PMMLEvaluator(transformations, model, dataFieldNames, dataFieldSlots,
+            activeFields.toArray(new String[0]), targetName, context);
+    }
+
+    private static XmlObject getFirstModel(final PMML pmml) throws InvalidSettingsException {
+        final XmlCursor cursor = pmml.newCursor();
+        try {
+            if (cursor.toFirstChild()) {
+                do {
+                    final XmlObject child = cursor.getObject();
+                    if (PMMLModelType.getType(child.schemaType()) != null) {
+                        return child;
+                    }
+                } while (cursor.toNextSibling());
+            }
+        } finally {
+            cursor.dispose();
+        }
+        throw new InvalidSettingsException("The PMML document does not contain a model.");
+    }
+
+    /** @return whether the model predicts class labels (string cells) rather than numbers (double cells) */
+    public boolean isClassification() {
+        return m_model.isClassification();
+    }
+
+    /** @return the name of the predicted field according to the mining schema, or <code>null</code> if unknown */
+    public String getTargetName() {
+        return m_targetName;
+    }
+
+    /**
+     * @return the spec of the prediction column appended by {@link #createColumnRearranger(DataTableSpec)}, named
+     *         "Prediction (&lt;target&gt;)"; for classification its domain lists all class labels
+     */
+    public DataColumnSpec getPredictionColumnSpec() {
+        final String name = m_targetName == null ? "Prediction" : "Prediction (" + m_targetName + ")";
+        if (!isClassification()) {
+            return new DataColumnSpecCreator(name, DoubleCell.TYPE).createSpec();
+        }
+        final DataColumnSpecCreator creator = new DataColumnSpecCreator(name, StringCell.TYPE);
+        final DataCell[] values = new DataCell[m_labels.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new StringCell(m_labels[i]);
+        }
+        creator.setDomain(new DataColumnDomainCreator(values).createDomain());
+        return creator.createSpec();
+    }
+
+    /**
+     * Creates a cell factory that computes the prediction for rows of the argument table. Data fields are matched to
+     * columns by name; fields that are not in the table are treated as missing.
+     *
+     * @param spec the spec of the table to score
+     * @return a new cell factory producing a single cell with the prediction, which is missing if the model makes no
+     *         prediction; it may process rows concurrently
+     * @throws InvalidSettingsException if an active field of the model is not a column of the table
+     */
+    public CellFactory createCellFactory(final DataTableSpec spec) throws InvalidSettingsException {
+        for (String active : m_activeFieldNames) {
+            if (!spec.containsName(active)) {
+                throw new InvalidSettingsException("Column \"" + active
+                    + "\" required by the PMML model is not contained in the input table.");
+            }
+        }
+        final int[] columns = new int[m_dataFieldNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = spec.findColumnIndex(m_dataFieldNames[i]);
+        }
+        DataColumnSpec outSpec = getPredictionColumnSpec();
+        if (spec.containsName(outSpec.getName())) {
+            final DataColumnSpecCreator creator = new DataColumnSpecCreator(outSpec);
+            creator.setName(DataTableSpec.getUniqueColumnName(spec, outSpec.getName()));
+            outSpec = creator.createSpec();
+        }
+        return new PredictionCellFactory(this, columns, outSpec);
+    }
+
+    /**
+     * @param spec the spec of the table to score
+     * @return a rearranger appending the prediction column to the table
+     * @throws InvalidSettingsException if an active field of the model is not a column of the table
+     * @see #createCellFactory(DataTableSpec)
+     */
+    public ColumnRearranger createColumnRearranger(final DataTableSpec spec) throws InvalidSettingsException {
+        final ColumnRearranger rearranger = new ColumnRearranger(spec);
+        rearranger.append(createCellFactory(spec));
+        return rearranger;
+    }
+
+    /**
+     * @param spec the spec of the table to score
+     * @return a streamable function appending the prediction column to each row
+     * @throws InvalidSettingsException if an active field of the model is not a column of the table
+     * @see #createCellFactory(DataTableSpec)
+     */
+    public StreamableFunction createStreamableFunction(final DataTableSpec spec) throws InvalidSettingsException {
+        return createColumnRearranger(spec).createStreamableFunction();
+    }
+
+    /**
+     * Evaluates the document for a row whose data fields have been written into the slots.
+     *
+     * @param num the numeric slots
+     * @param str the string slots
+     * @return the prediction cell
+     */
+    private DataCell evaluate(final double[] num, final String[] str) {
+        for (FieldWriter t : m_transformations) {
+            t.apply(num, str);
+        }
+        final double prediction = m_model.evaluate(num, str);
+        if (Double.isNaN(prediction)) {
+            return DataType.getMissingCell();
+        }
+        return isClassification() ? new StringCell(m_labels[(int)prediction]) : new DoubleCell(prediction);
+    }
+
+    /** Reads the data fields from a row and scores it. */
+    private static final class PredictionCellFactory extends AbstractCellFactory {
+
+        private final PMMLEvaluator m_evaluator;
+
+        /** column index per data field, -1 if not in the table */
+        private final int[] m_columns;
+
+        PredictionCellFactory(final PMMLEvaluator evaluator, final int[] columns, final DataColumnSpec outSpec) {
+            super(true, outSpec);
+            m_evaluator = evaluator;
+            m_columns = columns;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public DataCell[] getCells(final DataRow row) {
+            final PMMLEvaluator e = m_evaluator;
+            final double[] num = e.m_numericTemplate.clone();
+            final String[] str = new String[e.m_slotCount];
+            for (int i = 0; i < m_columns.length; i++) {
+                if (m_columns[i] < 0) {
+                    continue;
+                }
+                final DataCell cell = row.getCell(m_columns[i]);
+                if (cell.isMissing()) {
+                    continue;
+                }
+                final int slot = e.m_dataFieldSlots[i];
+                if (e.m_numericDataFields[i]) {
+                    num[slot] = cell instanceof DoubleValue ? ((DoubleValue)cell).getDoubleValue()
+                        : Values.toDouble(cell.toString());
+                } else {
+                    str[slot] = cell instanceof StringValue ? ((StringValue)cell).getStringValue() : cell.toString();
+                }
+            }
+            return new DataCell[]{e.evaluate(num, str)};
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.dmg.pmml.ArrayType;
+import org.dmg.pmml.CompoundPredicateDocument.CompoundPredicate;
+import org.dmg.pmml.FalseDocument.False;
+import org.dmg.pmml.SimplePredicateDocument.SimplePredicate;
+import org.dmg.pmml.SimpleSetPredicateDocument.SimpleSetPredicate;
+import org.dmg.pmml.TrueDocument.True;
+import org.knime.core.node.InvalidSettingsException;
+
+/**
+ * Compiles PMML predicates (<code>SimplePredicate</code>, <code>CompoundPredicate</code>,
+ * <code>SimpleSetPredicate</code>, <code>True</code> and <code>False</code>) into {@link Predicate} objects that
+ * implement the three-valued logic of the PMML specification.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class Predicates {
+
+    /** Result of a predicate that does not hold. */
+    static final int FALSE = 0;
+
+    /** Result of a predicate that holds. */
+    static final int TRUE = 1;
+
+    /** Result of a predicate that cannot be decided because an input is missing. */
+    static final int UNKNOWN = 2;
+
+    /** A compiled predicate. */
+    @FunctionalInterface
+    interface Predicate {
+        /**
+         * @param num the numeric slots of the current row
+         * @param str the string slots of the current row
+         * @return one of {@link Predicates#TRUE}, {@link Predicates#FALSE} or {@link Predicates#UNKNOWN}
+         */
+        int test(double[] num, String[] str);
+    }
+
+    private static final Predicate ALWAYS_TRUE = (num, str) -> TRUE;
+
+    private static final Predicate ALWAYS_FALSE = (num, str) -> FALSE;
+
+    private Predicates() {
+    }
+
+    /**
+     * Compiles the predicate that is a direct child of the argument element, e.g. of a <code>Node</code> or a
+     * <code>Segment</code>.
+     *
+     * @param parent the element containing the predicate
+     * @param scope to resolve field names
+     * @return the compiled predicate
+     * @throws InvalidSettingsException if there is no predicate or it is not supported
+     */
+    static Predicate compileChildOf(final XmlObject parent, final FieldScope scope) throws InvalidSettingsException {
+        final List<Predicate> predicates = compileChildren(parent, scope);
+        if (predicates.isEmpty()) {
+            throw new InvalidSettingsException("No predicate found in element \""
+                + parent.getDomNode().getLocalName() + "\".");
+        }
+        return predicates.get(0);
+    }
+
+    private static List<Predicate> compileChildren(final XmlObject parent, final FieldScope scope)
+        throws InvalidSettingsException {
+        final List<Predicate> result = new ArrayList<>();
+        final XmlCursor cursor = parent.newCursor();
+        try {
+            if (cursor.toFirstChild()) {
+                do {
+                    final Predicate p = compile(cursor.getObject(), scope);
+                    if (p != null) {
+                        result.add(p);
+                    }
+                } while (cursor.toNextSibling());
+            }
+        } finally {
+            cursor.dispose();
+        }
+        return result;
+    }
+
+    /** Returns null if the argument is no predicate element. */
+    private static Predicate compile(final XmlObject xml, final FieldScope scope) throws InvalidSettingsException {
+        if (xml instanceof True) {
+            return ALWAYS_TRUE;
+        } else if (xml instanceof False) {
+            return ALWAYS_FALSE;
+        } else if (xml instanceof SimplePredicate) {
+            return compileSimple((SimplePredicate)xml, scope);
+        } else if (xml instanceof SimpleSetPredicate) {
+            return compileSimpleSet((SimpleSetPredicate)xml, scope);
+        } else if (xml instanceof CompoundPredicate) {
+            return compileCompound((CompoundPredicate)xml, scope);
+        }
+        return null;
+    }
+
+    private static Predicate compileSimple(final SimplePredicate sp, final FieldScope scope)
+        throws InvalidSettingsException {
+        final int slot = scope.resolve(sp.getField());
+        final boolean numeric = scope.isNumeric(slot);
+        final int op = sp.getOperator().intValue();
+        if (op == SimplePredicate.Operator.INT_IS_MISSING) {
+            return numeric ? (num, str) -> Double.isNaN(num[slot]) ? TRUE : FALSE
+                : (num, str) -> str[slot] == null ? TRUE : FALSE;
+        } else if (op == SimplePredicate.Operator.INT_IS_NOT_MISSING) {
+            return numeric ? (num, str) -> Double.isNaN(num[slot]) ? FALSE : TRUE
+                : (num, str) -> str[slot] == null ? FALSE : TRUE;
+        }
+        if (numeric) {
+            final double value = Values.toDouble(sp.getValue());
+            if (Double.isNaN(value)) {
+                throw new InvalidSettingsException("Value \"" + sp.getValue() + "\" of the predicate on field \""
+                    + sp.getField() + "\" is not a number.");
+            }
+            switch (op) {
+                case SimplePredicate.Operator.INT_EQUAL:
+                    return (num, str) -> Double.isNaN(num[slot]) ? UNKNOWN : num[slot] == value ? TRUE : FALSE;
+                case SimplePredicate.Operator.INT_NOT_EQUAL:
+                    return (num, str) -> Double.isNaN(num[slot]) ? UNKNOWN : num[slot] != value ? TRUE : FALSE;
+                case SimplePredicate.Operator.INT_LESS_THAN:
+                    return (num, str) -> Double.isNaN(num[slot]) ? UNKNOWN : num[slot] < value ? TRUE : FALSE;
+                case SimplePredicate.Operator.INT_LESS_OR_EQUAL:
+                    return (num, str) -> Double.isNaN(num[slot]) ? UNKNOWN : num[slot] <= value ? TRUE : FALSE;
+                case SimplePredicate.Operator.INT_GREATER_THAN:
+                    return (num, str) -> Double.isNaN(num[slot]) ? UNKNOWN : num[slot] > value ? TRUE : FALSE;
+                case SimplePredicate.Operator.INT_GREATER_OR_EQUAL:
+                    return (num, str) -> Double.isNaN(num[slot]) ? UNKNOWN : num[slot] >= value ? TRUE : FALSE;
+                default:
+                    throw new InvalidSettingsException("Unsupported operator \"" + sp.getOperator() + "\".");
+            }
+        }
+        final String value = sp.getValue();
+        switch (op) {
+            case SimplePredicate.Operator.INT_EQUAL:
+                return (num, str) -> str[slot] == null ? UNKNOWN : str[slot].equals(value) ? TRUE : FALSE;
+            case SimplePredicate.Operator.INT_NOT_EQUAL:
+                return (num, str) -> str[slot] == null ? UNKNOWN : str[slot].equals(value) ? FALSE : TRUE;
+            case SimplePredicate.Operator.INT_LESS_THAN:
+                return (num, str) -> str[slot] == null ? UNKNOWN : str[slot].compareTo(value) < 0 ? TRUE : FALSE;
+            case SimplePredicate.Operator.INT_LESS_OR_EQUAL:
+                return (num, str) -> str[slot] == null ? UNKNOWN : str[slot].compareTo(value) <= 0 ? TRUE : FALSE;
+            case SimplePredicate.Operator.INT_GREATER_THAN:
+                return (num, str) -> str[slot] == null ? UNKNOWN : str[slot].compareTo(value) > 0 ? TRUE : FALSE;
+            case SimplePredicate.Operator.INT_GREATER_OR_EQUAL:
+                return (num, str) -> str[slot] == null ? UNKNOWN : str[slot].compareTo(value) >= 0 ? TRUE : FALSE;
+            default:
+                throw new InvalidSettingsException("Unsupported operator \"" + sp.getOperator() + "\".");
+        }
+    }
+
+    private static Predicate compileSimpleSet(final SimpleSetPredicate ssp, final FieldScope scope)
+        throws InvalidSettingsException {
+        final int slot = scope.resolve(ssp.getField());
+        final boolean isIn = ssp.getBooleanOperator().intValue() == SimpleSetPredicate.BooleanOperator.INT_IS_IN;
+        final int match = isIn ? TRUE : FALSE;
+        final int noMatch = isIn ? FALSE : TRUE;
+        final List<String> entries = readArray(ssp.getArray());
+        if (scope.isNumeric(slot)) {
+            final double[] values = new double[entries.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Values.toDouble(entries.get(i));
+                if (Double.isNaN(values[i])) {
+                    throw new InvalidSettingsException("Value \"" + entries.get(i) + "\" of the set predicate on "
+                        + "field \"" + ssp.getField() + "\" is not a number.");
+                }
+            }
+            Arrays.sort(values);
+            return (num, str) -> Double.isNaN(num[slot]) ? UNKNOWN
+                : Arrays.binarySearch(values, num[slot]) >= 0 ? match : noMatch;
+        }
+        final Set<String> values = new HashSet<>(entries);
+        return (num, str) -> str[slot] == null ? UNKNOWN : values.contains(str[slot]) ? match : noMatch;
+    }
+
+    private static Predicate compileCompound(final CompoundPredicate cp, final FieldScope scope)
+        throws InvalidSettingsException {
+        final Predicate[] operands = compileChildren(cp, scope).toArray(new Predicate[0]);
+        switch (cp.getBooleanOperator().intValue()) {
+            case CompoundPredicate.BooleanOperator.INT_AND:
+                return (num, str) -> {
+                    int result = TRUE;
+                    for (Predicate p : operands) {
+                        final int r = p.test(num, str);
+                        if (r == FALSE) {
+                            return FALSE;
+                        } else if (r == UNKNOWN) {
+                            result = UNKNOWN;
+                        }
+                    }
+                    return result;
+                };
+            case CompoundPredicate.BooleanOperator.INT_OR:
+                return (num, str) -> {
+                    int result = FALSE;
+                    for (Predicate p : operands) {
+                        final int r = p.test(num, str);
+                        if (r == TRUE) {
+                            return TRUE;
+                        } else if (r == UNKNOWN) {
+                            result = UNKNOWN;
+                        }
+                    }
+                    return result;
+                };
+            case CompoundPredicate.BooleanOperator.INT_XOR:
+                return (num, str) -> {
+                    boolean result = false;
+                    for (Predicate p : operands) {
+                        final int r = p.test(num, str);
+                        if (r == UNKNOWN) {
+                            return UNKNOWN;
+                        }
+                        result ^= r == TRUE;
+                    }
+                    return result ? TRUE : FALSE;
+                };
+            case CompoundPredicate.BooleanOperator.INT_SURROGATE:
+                return (num, str) -> {
+                    for (Predicate p : operands) {
+                        final int r = p.test(num, str);
+                        if (r != UNKNOWN) {
+                            return r;
+                        }
+                    }
+                    return UNKNOWN;
+                };
+            default:
+                throw new InvalidSettingsException("Unsupported boolean operator \"" + cp.getBooleanOperator()
+                    + "\".");
+        }
+    }
+
+    private static List<String> readArray(final ArrayType array) {
+        final XmlCursor cursor = array.newCursor();
+        try {
+            return Values.parseArray(cursor.getTextValue());
+        } finally {
+            cursor.dispose();
+        }
+    }
+}
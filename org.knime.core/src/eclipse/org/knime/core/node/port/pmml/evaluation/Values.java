@@ -0,0 +1,141 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.node.port.pmml.evaluation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversions between the numeric and the string representation of field values.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class Values {
+
+    private Values() {
+    }
+
+    /**
+     * @param value a string value, may be <code>null</code>
+     * @return the parsed number or {@link Double#NaN} if the value is missing or not a number
+     */
+    static double toDouble(final String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Formats a number such that integral values have no fractional part (PMML writes <code>1</code> rather than
+     * <code>1.0</code> in categorical contexts).
+     *
+     * @param value a number
+     * @return its string representation or <code>null</code> if the value is {@link Double#NaN}
+     */
+    static String toString(final double value) {
+        if (Double.isNaN(value)) {
+            return null;
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long)value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Normalizes a categorical value of a numeric field so that, for instance, <code>"1"</code> and
+     * <code>"1.0"</code> are considered equal.
+     *
+     * @param value a string value
+     * @return the normalized string or the argument if it is not a number
+     */
+    static String normalizeNumber(final String value) {
+        final double d = toDouble(value);
+        return Double.isNaN(d) ? value : toString(d);
+    }
+
+    /**
+     * Splits the content of a PMML <code>Array</code> element. Entries are separated by white space, entries that
+     * contain white space are enclosed in double quotes in which a double quote is escaped by a backslash.
+     *
+     * @param text the content of the array element
+     * @return the entries
+     */
+    static List<String> parseArray(final String text) {
+        final List<String> result = new ArrayList<>();
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i >= length) {
+                break;
+            }
+            final StringBuilder b = new StringBuilder();
+            if (text.charAt(i) == '"') {
+                i++;
+                while (i < length && text.charAt(i) != '"') {
+                    if (text.charAt(i) == '\\' && i + 1 < length && text.charAt(i + 1) == '"') {
+                        i++;
+                    }
+                    b.append(text.charAt(i++));
+                }
+                i++;
+            } else {
+                while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                    b.append(text.charAt(i++));
+                }
+            }
+            result.add(b.toString());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.util.CheckUtils;
+
+/**
+ * Runs a sequence of tasks on a {@link ThreadPool} ahead of a consumer that takes their results in order. At most a
+ * fixed number of tasks (the window) is submitted but not yet taken; the next task is submitted once the consumer is
+ * done with a result, i.e. when it takes the following one. This bounds the number of results held in memory while
+ * the tasks run concurrently with the consumer.
+ *
+ * <p>
+ * Closing the window cancels the tasks whose results haven't been taken.
+ *
+ * @param <T> the result type of the tasks
+ * @author KNIME AG, Zurich, Switzerland
+ * @noreference This class is not intended to be referenced by clients.
+ * @since 4.2
+ */
+public final class OrderedTaskWindow<T> implements AutoCloseable {
+
+    private final ThreadPool m_pool;
+
+    private final int m_windowSize;
+
+    private final IntFunction<Callable<T>> m_tasks;
+
+    private final String m_description;
+
+    private final List<Future<T>> m_futures;
+
+    private int m_nextIndex;
+
+    /**
+     * Creates the window and submits the first tasks.
+     *
+     * @param pool the pool to run the tasks, usually a sub pool of the global thread pool
+     * @param windowSize the maximum number of tasks submitted but not yet taken, at least 1
+     * @param taskCount the number of tasks
+     * @param tasks creates the task of the given index, or returns <code>null</code> if the task should not be run,
+     *            e.g. because the consumer handles it itself
+     * @param description what the tasks do, used in error messages, e.g. "shuffling temporary bucket"
+     */
+    public OrderedTaskWindow(final ThreadPool pool, final int windowSize, final int taskCount,
+        final IntFunction<Callable<T>> tasks, final String description) {
+        CheckUtils.checkArgument(windowSize >= 1, "Window size must be at least 1: %d", windowSize);
+        m_pool = CheckUtils.checkArgumentNotNull(pool, "Thread pool must not be null.");
+        m_windowSize = windowSize;
+        m_tasks = tasks;
+        m_description = description;
+        m_futures = new ArrayList<>(Collections.nCopies(taskCount, null));
+        for (int i = 0; i < Math.min(windowSize, taskCount); i++) {
+            submit(i);
+        }
+    }
+
+    private void submit(final int index) {
+        final Callable<T> task = m_tasks.apply(index);
+        if (task != null) {
+            m_futures.set(index, m_pool.enqueue(task));
+        }
+    }
+
+    /**
+     * @return whether there are results that haven't been taken
+     */
+    public boolean hasNext() {
+        return m_nextIndex < m_futures.size();
+    }
+
+    /**
+     * Waits for and returns the result of the next task. Submits the next task of the window, as the previous result
+     * has been processed by now.
+     *
+     * @return the result of the task, <code>null</code> if the task has not been run (see constructor)
+     * @throws CanceledExecutionException if the calling thread is interrupted while waiting
+     * @throws IllegalStateException if all results have been taken
+     */
+    public T next() throws CanceledExecutionException {
+        CheckUtils.checkState(hasNext(), "All results have been taken");
+        final int index = m_nextIndex++;
+        if (index > 0 && index - 1 + m_windowSize < m_futures.size()) {
+            submit(index - 1 + m_windowSize);
+        }
+        final Future<T> future = m_futures.set(index, null);
+        return future == null ? null : await(future);
+    }
+
+    private T await(final Future<T> future) throws CanceledExecutionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CanceledExecutionException("Interrupted while " + m_description);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(Character.toUpperCase(m_description.charAt(0)) + m_description.substring(1)
+                + " failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Cancels the tasks whose results haven't been taken.
+     */
+    @Override
+    public void close() {
+        for (Future<T> future : m_futures) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -191,6 +191,52 @@ public static PMMLPreprocDiscretize createPMMLPrepocDiscretize(final AutoBinnerL
         return createDisretizeOp(settings, edgesMap, includeCols);
     }
 
+    /**
+     * This method creates a {@link PMMLPreprocDiscretize} object from precomputed bin edges, e.g. quantiles that have
+     * been computed inside a database.
+     *
+     * @param settings {@link AutoBinnerLearnSettings} object from node model
+     * @param edgesMap the ascending bin edges by the given column name
+     * @param includeCols the include columns from the node model
+     * @return a {@link PMMLPreprocDiscretize} object containing required parameters for binning operation
+     * @since 4.2
+     */
+    public static PMMLPreprocDiscretize createPMMLPrepocDiscretize(final AutoBinnerLearnSettings settings,
+        final Map<String, double[]> edgesMap, final String[] includeCols) {
+        final Map<String, double[]> binEdgesMap = new LinkedHashMap<>();
+        for (Entry<String, double[]> entry : edgesMap.entrySet()) {
+            double[] edges = entry.getValue();
+            if (settings.getIntegerBounds() && edges.length > 0) {
+                edges = toIntegerBoundaries(edges);
+            }
+            binEdgesMap.put(entry.getKey(), edges);
+        }
+        return createDisretizeOp(settings, binEdgesMap, includeCols);
+    }
+
+    /**
+     * Returns the quantiles of the bin edges if the bins are determined by the distribution of the values, i.e. for
+     * {@link BinningMethod#SAMPLE_QUANTILES} and for a fixed number of bins with {@link EqualityMethod#FREQUENCY}.
+     *
+     * @param settings {@link AutoBinnerLearnSettings} object from node model
+     * @return the quantiles of the bin edges in ascending order or <code>null</code> if the bins have equal width
+     * @since 4.2
+     */
+    public static double[] getQuantiles(final AutoBinnerLearnSettings settings) {
+        if (BinningMethod.SAMPLE_QUANTILES == settings.getMethod()) {
+            return settings.getSampleQuantiles();
+        }
+        if (EqualityMethod.FREQUENCY == settings.getEqualityMethod()) {
+            final int binCount = settings.getBinCount();
+            final double[] quantiles = new double[binCount + 1];
+            for (int i = 0; i < quantiles.length; i++) {
+                quantiles[i] = i / (double)binCount;
+            }
+            return quantiles;
+        }
+        return null;
+    }
+
     private static PMMLPreprocDiscretize createDisretizeOp(final AutoBinnerLearnSettings settings,
         final Map<String, double[]> edgesMap, final String[] includeCols) {
         final Map<String, List<PMMLDiscretizeBin>> binMap = createBins(settings, edgesMap, includeCols);
@@ -0,0 +1,743 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ------------------------------------------------------------------------
+ */
+package org.knime.core.util.tokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.knime.core.node.util.CheckUtils;
+
+/**
+ * A tokenizer engine for the common case of single-byte delimiters and quotes
+ * that works on a {@link ByteBuffer} rather than on a character stream. <br>
+ * Instead of building a string per token it only records the offsets of the
+ * current token in the buffer; the token content is decoded on demand (see
+ * {@link #getToken(Charset)}), which allows callers to parse numbers or skip
+ * columns without creating any string objects.
+ * <p>
+ * The buffer is scanned eight bytes at a time: each word is tested for the
+ * delimiter, quote and line feed bytes with branch-free bit arithmetic, so
+ * runs of ordinary characters are skipped in bulk. This requires all special
+ * characters to be single-byte ASCII characters, which also makes the
+ * tokenizer safe for UTF-8 and all ISO-8859 encodings (multi-byte sequences
+ * never contain bytes below 0x80).
+ * <p>
+ * Records (rows) are terminated by a line feed ('\n'); a carriage return
+ * immediately preceding it is ignored. In contrast to the {@link Tokenizer},
+ * new line characters are always record ends and are never returned as
+ * tokens; use {@link #isEndOfRecord()} to detect the end of a row.
+ * <p>
+ * A file can be split into ranges of complete records
+ * ({@link #splitIntoRanges(FileChannel, int)}) that are tokenized
+ * independently, e.g. by different threads. Splitting is only possible if
+ * quoted tokens cannot contain new lines.
+ * <p>
+ * Use {@link #isApplicable(TokenizerSettings)} to find out if settings for the
+ * general {@link Tokenizer} can be handled by this engine.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 4.2
+ */
+public final class ByteTokenizer {
+
+    /** Constant indicating that there is no quote or escape character. */
+    private static final int NONE = -1;
+
+    private static final byte LF = '\n';
+
+    private static final byte CR = '\r';
+
+    /* the maximum character code allowed for special characters */
+    private static final int MAX_SPECIAL_CHAR = 0x7F;
+
+    private static final long ONES = 0x0101010101010101L;
+
+    private static final long HIGHS = 0x8080808080808080L;
+
+    /* number of bytes scanned at read ahead to find the next record start */
+    private static final int SPLIT_SCAN_LENGTH = 8192;
+
+    private final ByteBuffer m_buffer;
+
+    private final int m_limit;
+
+    private final byte m_delimiter;
+
+    private final int m_quote;
+
+    private final int m_escape;
+
+    private final boolean m_keepQuotes;
+
+    private final boolean m_allowLFinQuotes;
+
+    private final boolean[] m_whiteSpaces;
+
+    /* bit patterns of the special characters repeated in all bytes of a long */
+    private final long m_delimPattern;
+
+    private final long m_quotePattern;
+
+    private final long m_escapePattern;
+
+    private final long m_lfPattern = pattern(LF);
+
+    /* the position where scanning resumes */
+    private int m_pos;
+
+    /* raw offsets of the current token (end is exclusive) */
+    private int m_tokenStart;
+
+    private int m_tokenEnd;
+
+    private boolean m_tokenQuoted;
+
+    private boolean m_tokenEscaped;
+
+    private boolean m_endOfRecord;
+
+    /* set after the last token of the buffer was returned */
+    private boolean m_eof;
+
+    private long m_recordNo;
+
+    /**
+     * Creates a new tokenizer reading the bytes between the current position
+     * and the limit of the buffer. The buffer's position is not modified.
+     *
+     * @param buffer the data to tokenize, not modified by the tokenizer
+     * @param delimiter the column delimiter, must be an ASCII character other
+     *            than a new line character
+     * @param quote the character quoting tokens, or a negative value if tokens
+     *            are never quoted. Left and right quote are identical.
+     * @param escape the escape character inside quotes, or a negative value if
+     *            there is none
+     * @param allowLFinQuotes if true, quoted tokens can span multiple lines
+     *            (otherwise a new line inside quotes is an error)
+     * @throws IllegalArgumentException if the special characters are not
+     *             single-byte ASCII characters or conflict (e.g. the escape
+     *             character is identical to the quote)
+     */
+    public ByteTokenizer(final ByteBuffer buffer, final char delimiter, final int quote, final int escape,
+        final boolean allowLFinQuotes) {
+        this(buffer, delimiter, quote, escape, false, allowLFinQuotes, new boolean[MAX_SPECIAL_CHAR + 1]);
+    }
+
+    private ByteTokenizer(final ByteBuffer buffer, final char delimiter, final int quote, final int escape,
+        final boolean keepQuotes, final boolean allowLFinQuotes, final boolean[] whiteSpaces) {
+        if (buffer == null) {
+            throw new NullPointerException("Buffer must not be null");
+        }
+        checkSpecialChar(delimiter, "delimiter");
+        if (delimiter == LF || delimiter == CR) {
+            throw new IllegalArgumentException("New line characters can't be used as column delimiter");
+        }
+        if (quote >= 0) {
+            checkSpecialChar(quote, "quote");
+            if (quote == delimiter || quote == LF) {
+                throw new IllegalArgumentException(
+                    "Quote character must be different from delimiter and new line characters");
+            }
+        }
+        if (escape >= 0) {
+            checkSpecialChar(escape, "escape");
+            CheckUtils.checkArgument(quote < 0 || escape != quote,
+                "Escape character must be different from the quote character");
+        }
+        // slice to make offsets relative to the range we tokenize
+        m_buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        m_limit = m_buffer.limit();
+        m_delimiter = (byte)delimiter;
+        m_quote = quote < 0 ? NONE : quote;
+        m_escape = (escape < 0 || m_quote == NONE) ? NONE : escape;
+        m_keepQuotes = keepQuotes;
+        m_allowLFinQuotes = allowLFinQuotes;
+        m_whiteSpaces = whiteSpaces;
+        m_delimPattern = pattern(m_delimiter);
+        // if there is no quote (or escape) we search for the delimiter again, which never hurts
+        m_quotePattern = m_quote == NONE ? m_delimPattern : pattern((byte)m_quote);
+        m_escapePattern = m_escape == NONE ? m_quotePattern : pattern((byte)m_escape);
+        m_pos = 0;
+        m_tokenStart = 0;
+        m_tokenEnd = 0;
+        m_endOfRecord = true;
+        m_eof = false;
+        m_recordNo = 0;
+    }
+
+    private static void checkSpecialChar(final int c, final String name) {
+        if (c > MAX_SPECIAL_CHAR) {
+            throw new IllegalArgumentException("The " + name + " character must be an ASCII character (got '"
+                + TokenizerSettings.printableStr(String.valueOf((char)c)) + "')");
+        }
+    }
+
+    /**
+     * Checks whether the passed settings can be handled by this tokenizer:
+     * exactly one single character column delimiter (which must not be
+     * returned as or included in the token, nor be combined), optionally the
+     * new line character as additional delimiter, at most one quote pattern
+     * with identical single character left and right quote, single character
+     * white spaces, and no comments, line continuation character, or
+     * combination of delimiters. All special characters must be ASCII
+     * characters.
+     *
+     * @param settings the settings to check
+     * @return true if {@link #create(ByteBuffer, TokenizerSettings)} accepts
+     *         these settings
+     */
+    public static boolean isApplicable(final TokenizerSettings settings) {
+        return getInapplicableReason(settings) == null;
+    }
+
+    /* returns null if the settings are supported, or a message why not */
+    private static String getInapplicableReason(final TokenizerSettings settings) {
+        if (!settings.getAllComments().isEmpty()) {
+            return "comments are not supported";
+        }
+        if (settings.getLineContinuationCharacter() != null) {
+            return "line continuation characters are not supported";
+        }
+        if (settings.getCombineMultipleDelimiters()) {
+            return "combining multiple delimiters is not supported";
+        }
+        Delimiter colDelim = null;
+        Delimiter rowDelim = null;
+        for (Delimiter d : settings.getAllDelimiters()) {
+            if (Tokenizer.LF_STR.equals(d.getDelimiter())) {
+                // records always end at a line feed, the tokenizer only does so if it's returned as token
+                if (!d.returnAsToken() || d.combineConsecutiveDelims() || d.includeInToken()) {
+                    return "the line feed must be returned as token and can't be combined or included";
+                }
+                rowDelim = d;
+                continue;
+            }
+            if (colDelim != null) {
+                return "only one column delimiter is supported";
+            }
+            String pattern = d.getDelimiter();
+            if (pattern.length() != 1 || pattern.charAt(0) > MAX_SPECIAL_CHAR || pattern.charAt(0) == CR) {
+                return "the delimiter must be a single ASCII character";
+            }
+            if (d.combineConsecutiveDelims() || d.includeInToken() || d.returnAsToken()) {
+                return "delimiters can't be combined, included or returned";
+            }
+            colDelim = d;
+        }
+        if (colDelim == null) {
+            return "a column delimiter is required";
+        }
+        if (rowDelim == null) {
+            return "the line feed must be a delimiter";
+        }
+        List<Quote> quotes = settings.getAllQuotes();
+        if (quotes.size() > 1) {
+            return "only one quote pattern is supported";
+        }
+        if (quotes.size() == 1) {
+            Quote q = quotes.get(0);
+            if (q.getLeft().length() != 1 || !q.getLeft().equals(q.getRight())
+                || q.getLeft().charAt(0) > MAX_SPECIAL_CHAR || q.getLeft().equals(colDelim.getDelimiter())) {
+                return "the quote must be a single ASCII character used as left and right quote";
+            }
+            if (q.hasEscapeChar() && q.getEscape() > MAX_SPECIAL_CHAR) {
+                return "the escape character must be an ASCII character";
+            }
+            if (q.hasEscapeChar() && q.getLeft().charAt(0) == q.getEscape()) {
+                return "the escape character must be different from the quote";
+            }
+        }
+        for (String ws : settings.getAllWhiteSpaces()) {
+            if (ws.length() != 1 || ws.charAt(0) > MAX_SPECIAL_CHAR) {
+                return "white spaces must be single ASCII characters";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates a new tokenizer for the passed buffer that is configured from
+     * the passed settings. Lines to skip specified in the settings are not
+     * skipped automatically as the buffer may be a range in the middle of a
+     * file; call {@link #skipRecords(long)} if the buffer starts at the
+     * beginning.
+     *
+     * @param buffer the data to tokenize (between position and limit)
+     * @param settings the tokenizer settings
+     * @return a new tokenizer
+     * @throws IllegalArgumentException if the settings can't be handled by
+     *             this tokenizer (see {@link #isApplicable(TokenizerSettings)})
+     */
+    public static ByteTokenizer create(final ByteBuffer buffer, final TokenizerSettings settings) {
+        String reason = getInapplicableReason(settings);
+        if (reason != null) {
+            throw new IllegalArgumentException("Settings not supported by byte tokenizer: " + reason);
+        }
+        char delimiter = 0;
+        for (Delimiter d : settings.getAllDelimiters()) {
+            if (!Tokenizer.LF_STR.equals(d.getDelimiter())) {
+                delimiter = d.getDelimiter().charAt(0);
+            }
+        }
+        int quote = NONE;
+        int escape = NONE;
+        boolean keepQuotes = false;
+        if (!settings.getAllQuotes().isEmpty()) {
+            Quote q = settings.getAllQuotes().get(0);
+            quote = q.getLeft().charAt(0);
+            escape = q.hasEscapeChar() ? q.getEscape() : NONE;
+            keepQuotes = q.getDontRemoveFlag();
+        }
+        boolean[] whiteSpaces = new boolean[MAX_SPECIAL_CHAR + 1];
+        for (String ws : settings.getAllWhiteSpaces()) {
+            whiteSpaces[ws.charAt(0)] = true;
+        }
+        return new ByteTokenizer(buffer, delimiter, quote, escape, keepQuotes, settings.allowLFinQuotes(),
+            whiteSpaces);
+    }
+
+    /**
+     * Splits the content of the passed file channel into (at most)
+     * <code>numRanges</code> ranges of approximately equal size that each
+     * start at the beginning of a record. Each range can then be mapped with
+     * {@link #mapRange(FileChannel, Range)} and tokenized independently.
+     * <p>
+     * Splitting only looks for line feeds; it must therefore not be used if
+     * quoted tokens can contain new lines.
+     *
+     * @param channel the file to split
+     * @param numRanges the desired number of ranges, at least 1
+     * @return the list of non-empty, consecutive ranges covering the file
+     * @throws IOException if the file can't be read
+     */
+    public static List<Range> splitIntoRanges(final FileChannel channel, final int numRanges) throws IOException {
+        if (numRanges < 1) {
+            throw new IllegalArgumentException("Number of ranges must be positive: " + numRanges);
+        }
+        final long size = channel.size();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<Range> result = new ArrayList<>(numRanges);
+        ByteBuffer scanBuffer = ByteBuffer.allocate(SPLIT_SCAN_LENGTH);
+        long start = 0;
+        for (int i = 1; i < numRanges && start < size; i++) {
+            long candidate = Math.max(start, size / numRanges * i);
+            long end = findNextRecordStart(channel, candidate, size, scanBuffer);
+            if (end > start) {
+                result.add(new Range(start, end));
+                start = end;
+            }
+        }
+        if (start < size) {
+            result.add(new Range(start, size));
+        }
+        return result;
+    }
+
+    /* returns the offset after the next line feed at or after pos, or size */
+    private static long findNextRecordStart(final FileChannel channel, final long pos, final long size,
+        final ByteBuffer scanBuffer) throws IOException {
+        long offset = pos;
+        while (offset < size) {
+            scanBuffer.clear();
+            int read = channel.read(scanBuffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            byte[] array = scanBuffer.array();
+            for (int i = 0; i < read; i++) {
+                if (array[i] == LF) {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Maps the specified range of the file into memory (read only).
+     *
+     * @param channel the file
+     * @param range the range, as returned by
+     *            {@link #splitIntoRanges(FileChannel, int)}
+     * @return a buffer containing the range's bytes
+     * @throws IOException if mapping fails
+     * @throws IllegalArgumentException if the range is larger than 2GB (split
+     *             into more ranges in that case)
+     */
+    public static ByteBuffer mapRange(final FileChannel channel, final Range range) throws IOException {
+        if (range.getLength() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Range too large to be mapped (" + range.getLength()
+                + " bytes), split the file into more ranges");
+        }
+        return channel.map(MapMode.READ_ONLY, range.getStart(), range.getLength());
+    }
+
+    /* the byte b repeated in all eight bytes of a long */
+    private static long pattern(final byte b) {
+        return ONES * (b & 0xFF);
+    }
+
+    /*
+     * Returns a long with the high bit set in every byte that is equal to the
+     * byte of the pattern. Bits may only be wrongly set above the first match,
+     * so the lowest set bit is always exact.
+     */
+    private static long matches(final long word, final long pattern) {
+        long x = word ^ pattern;
+        return (x - ONES) & ~x & HIGHS;
+    }
+
+    /*
+     * Returns the index of the first byte at or after from that is equal to
+     * one of the three patterns, or the limit if there is none.
+     */
+    private int scan(final int from, final long p1, final long p2, final long p3) {
+        int i = from;
+        final int wordLimit = m_limit - Long.BYTES;
+        while (i <= wordLimit) {
+            long word = m_buffer.getLong(i);
+            long mask = matches(word, p1) | matches(word, p2) | matches(word, p3);
+            if (mask != 0) {
+                return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+            }
+            i += Long.BYTES;
+        }
+        final byte b1 = (byte)p1;
+        final byte b2 = (byte)p2;
+        final byte b3 = (byte)p3;
+        for (; i < m_limit; i++) {
+            byte b = m_buffer.get(i);
+            if (b == b1 || b == b2 || b == b3) {
+                return i;
+            }
+        }
+        return m_limit;
+    }
+
+    /**
+     * Moves to the next token.
+     *
+     * @return true if there is another token, false if the end of the buffer
+     *         was reached
+     * @throws TokenizerException if a quoted token contains a new line
+     *             character (and that is not allowed) or is not closed at the
+     *             end of the buffer
+     */
+    public boolean next() throws TokenizerException {
+        if (m_eof) {
+            return false;
+        }
+        if (m_pos >= m_limit && m_endOfRecord) {
+            // the previous token ended at a line feed (or nothing read at all)
+            m_eof = true;
+            return false;
+        }
+        if (m_endOfRecord) {
+            m_recordNo++;
+        }
+        final int start = m_pos;
+        boolean quoted = false;
+        boolean escaped = false;
+        int i = start;
+        while (true) {
+            i = scan(i, m_delimPattern, m_quotePattern, m_lfPattern);
+            if (i >= m_limit) {
+                // last token in buffer, not terminated by a new line
+                m_pos = m_limit;
+                m_endOfRecord = true;
+                setToken(start, m_limit, quoted, escaped);
+                return true;
+            }
+            final byte b = m_buffer.get(i);
+            if (b == m_delimiter) {
+                m_pos = i + 1;
+                m_endOfRecord = false;
+                setToken(start, i, quoted, escaped);
+                return true;
+            } else if (b == LF) {
+                m_pos = i + 1;
+                m_endOfRecord = true;
+                int end = i;
+                if (end > start && m_buffer.get(end - 1) == CR) {
+                    end--;
+                }
+                setToken(start, end, quoted, escaped);
+                return true;
+            }
+            // start of a quoted section, find its end
+            quoted = true;
+            i++;
+            while (true) {
+                i = scan(i, m_quotePattern, m_escapePattern, m_allowLFinQuotes ? m_quotePattern : m_lfPattern);
+                if (i >= m_limit) {
+                    throw new TokenizerException("Missing closing quote (" + (char)m_quote + ") in record "
+                        + m_recordNo);
+                }
+                final byte q = m_buffer.get(i);
+                if (q == m_escape && m_escape != NONE) {
+                    // skip the escaped character, whatever it is
+                    escaped = true;
+                    i += 2;
+                } else if (q == m_quote) {
+                    i++;
+                    break;
+                } else {
+                    throw new TokenizerException("New line in quoted string (or closing quote missing) in record "
+                        + m_recordNo);
+                }
+            }
+        }
+    }
+
+    private void setToken(final int start, final int end, final boolean quoted, final boolean escaped) {
+        int s = start;
+        int e = end;
+        // trim white spaces - they are never quote, delimiter or new line
+        while (s < e && isWhiteSpace(m_buffer.get(s))) {
+            s++;
+        }
+        while (e > s && isWhiteSpace(m_buffer.get(e - 1))) {
+            e--;
+        }
+        m_tokenStart = s;
+        m_tokenEnd = e;
+        m_tokenQuoted = quoted;
+        m_tokenEscaped = escaped;
+    }
+
+    private boolean isWhiteSpace(final byte b) {
+        return b >= 0 && m_whiteSpaces[b];
+    }
+
+    /**
+     * Skips the specified number of records (lines) from the current position,
+     * ignoring any quotes or delimiters in them. This should only be called
+     * before the first token or at the end of a record.
+     *
+     * @param count the number of records to skip
+     * @return the number of records actually skipped (less than count if the
+     *         end of the buffer was reached)
+     */
+    public long skipRecords(final long count) {
+        long skipped = 0;
+        while (skipped < count && m_pos < m_limit) {
+            int i = scan(m_pos, m_lfPattern, m_lfPattern, m_lfPattern);
+            m_pos = Math.min(i + 1, m_limit);
+            skipped++;
+        }
+        m_endOfRecord = true;
+        return skipped;
+    }
+
+    /**
+     * @return the offset of the first byte of the current token, relative to
+     *         the position of the buffer at construction time. Includes any
+     *         quotes (see {@link #isQuoted()}).
+     */
+    public int getTokenStart() {
+        return m_tokenStart;
+    }
+
+    /**
+     * @return the offset after the last byte of the current token (exclusive),
+     *         relative to the position of the buffer at construction time
+     */
+    public int getTokenEnd() {
+        return m_tokenEnd;
+    }
+
+    /**
+     * @return the length of the current token in bytes, including quotes and
+     *         escape characters
+     */
+    public int getTokenLength() {
+        return m_tokenEnd - m_tokenStart;
+    }
+
+    /**
+     * @return true if the current token contained a quoted section. The raw
+     *         offsets then include the quotes, {@link #getToken(Charset)}
+     *         removes them.
+     */
+    public boolean isQuoted() {
+        return m_tokenQuoted;
+    }
+
+    /**
+     * @return true if the current token was the last token of a record
+     */
+    public boolean isEndOfRecord() {
+        return m_endOfRecord;
+    }
+
+    /**
+     * @return the number of the record the current token belongs to (the
+     *         first record in the buffer is 1)
+     */
+    public long getRecordNumber() {
+        return m_recordNo;
+    }
+
+    /**
+     * @return the position in the buffer scanning resumes at, i.e. the number
+     *         of bytes consumed so far
+     */
+    public int getPosition() {
+        return m_pos;
+    }
+
+    /**
+     * Copies the current token into the passed array, removing quotes and
+     * escape characters as the {@link Tokenizer} would do.
+     *
+     * @param dest the destination array, must be at least
+     *            {@link #getTokenLength()} long
+     * @return the number of bytes written
+     */
+    public int copyToken(final byte[] dest) {
+        if (!m_tokenQuoted) {
+            int length = getTokenLength();
+            ByteBuffer dup = m_buffer.duplicate();
+            dup.position(m_tokenStart);
+            dup.get(dest, 0, length);
+            return length;
+        }
+        int length = 0;
+        boolean inQuotes = false;
+        for (int i = m_tokenStart; i < m_tokenEnd; i++) {
+            byte b = m_buffer.get(i);
+            if (inQuotes && b == m_escape && m_escape != NONE && i + 1 < m_tokenEnd) {
+                dest[length++] = m_buffer.get(++i);
+                continue;
+            }
+            if (b == m_quote) {
+                inQuotes = !inQuotes;
+                if (!m_keepQuotes) {
+                    continue;
+                }
+            }
+            dest[length++] = b;
+        }
+        return length;
+    }
+
+    /**
+     * Decodes the current token into a string, removing quotes and escape
+     * characters.
+     *
+     * @param charset the charset of the buffer's content
+     * @return the content of the current token
+     */
+    public String getToken(final Charset charset) {
+        if (!m_tokenQuoted && m_buffer.hasArray()) {
+            return new String(m_buffer.array(), m_buffer.arrayOffset() + m_tokenStart, getTokenLength(), charset);
+        }
+        byte[] bytes = new byte[getTokenLength()];
+        int length = copyToken(bytes);
+        return new String(bytes, 0, length, charset);
+    }
+
+    /**
+     * @return true if the current token was quoted and contained escape
+     *         characters
+     */
+    public boolean hasEscapedChars() {
+        return m_tokenEscaped;
+    }
+
+    /**
+     * A range of bytes in a file (see
+     * {@link ByteTokenizer#splitIntoRanges(FileChannel, int)}).
+     */
+    public static final class Range {
+
+        private final long m_start;
+
+        private final long m_end;
+
+        /**
+         * @param start first byte of the range (inclusive)
+         * @param end end of the range (exclusive)
+         */
+        public Range(final long start, final long end) {
+            if (start < 0 || end < start) {
+                throw new IllegalArgumentException("Invalid range [" + start + ", " + end + ")");
+            }
+            m_start = start;
+            m_end = end;
+        }
+
+        /** @return the first byte of the range */
+        public long getStart() {
+            return m_start;
+        }
+
+        /** @return the end of the range (exclusive) */
+        public long getEnd() {
+            return m_end;
+        }
+
+        /** @return the number of bytes in the range */
+        public long getLength() {
+            return m_end - m_start;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return "[" + m_start + ", " + m_end + ")";
+        }
+    }
+}
@@ -48,7 +48,11 @@
 package org.knime.core.util.workflowsummary;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.UnaryOperator;
 
 import org.knime.core.node.workflow.NodeID;
@@ -72,6 +76,8 @@ public final class WorkflowSummaryConfiguration {
 
     final UnaryOperator<String> m_textEncoder;
 
+    final Set<SummarySection> m_sections;
+
     /**
      * The final format of the workflow summary.
      */
@@ -82,11 +88,31 @@ public enum SummaryFormat {
             JSON;
     }
 
+    /**
+     * Optional sections of the workflow summary. The nodes (id, name, type, state etc.) and the sub-workflows of
+     * metanodes and components are always part of the summary.
+     */
+    public enum SummarySection {
+            /** the model settings of the nodes */
+            NODE_SETTINGS,
+            /** the output ports of the nodes, including table specs and successors */
+            NODE_OUTPUTS,
+            /** the messages (warnings and errors) of the nodes */
+            NODE_MESSAGES,
+            /** the job managers of the nodes */
+            JOB_MANAGERS,
+            /** the node and workflow annotations */
+            ANNOTATIONS,
+            /** the workflow metadata (author, description etc.) */
+            METADATA;
+    }
+
     private WorkflowSummaryConfiguration(final Builder builder) {
         m_format = builder.m_format;
         m_nodesToIgnore = new ArrayList<>(builder.m_nodesToIgnore);
         m_includeExecutionInfo = builder.m_includeExecutionInfo;
         m_textEncoder = builder.m_textEncoder;
+        m_sections = Collections.unmodifiableSet(EnumSet.copyOf(builder.m_sections));
     }
 
     /**
@@ -112,6 +138,8 @@ public static class Builder {
 
         private List<NodeID> m_nodesToIgnore;
 
+        private Set<SummarySection> m_sections = EnumSet.allOf(SummarySection.class);
+
         private Builder(final SummaryFormat format) {
             m_format = format;
             switch (format) {
@@ -147,6 +175,19 @@ public Builder nodesToIgnore(final List<NodeID> nodesToIgnore) {
             return this;
         }
 
+        /**
+         * The optional sections to be included in the summary, all by default. Selecting only few sections (or none)
+         * allows cheap summaries, e.g. for monitoring the node states.
+         *
+         * @param sections the sections to include
+         * @return this builder for chaining
+         */
+        public Builder sections(final SummarySection... sections) {
+            m_sections = EnumSet.noneOf(SummarySection.class);
+            m_sections.addAll(Arrays.asList(sections));
+            return this;
+        }
+
         /**
          * Creates a new workflow summary configuration instance from this builder.
          *
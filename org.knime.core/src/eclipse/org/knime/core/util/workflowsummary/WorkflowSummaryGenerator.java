@@ -113,6 +113,7 @@
 import org.knime.core.node.workflow.metadata.MetaInfoFile;
 import org.knime.core.node.workflow.metadata.MetadataXML;
 import org.knime.core.util.workflowsummary.WorkflowSummaryConfiguration.SummaryFormat;
+import org.knime.core.util.workflowsummary.WorkflowSummaryConfiguration.SummarySection;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.FrameworkUtil;
@@ -156,7 +157,8 @@ private WorkflowSummaryGenerator() {
     }
 
     /**
-     * Generates the summary.
+     * Generates the summary. The summary is written to the stream while the workflow is traversed, i.e. without
+     * building it in memory first.
      *
      * @param wfm the workflow manager to generate the summary for
      * @param out the stream to write the summary to
@@ -174,6 +176,32 @@ public static void generate(final WorkflowManager wfm, final OutputStream out,
         }
     }
 
+    /**
+     * Extracts the model settings of a node.
+     *
+     * @return the settings or <code>null</code> if not available
+     */
+    private static Config extractModelSettings(final SingleNodeContainer snc) {
+        if (snc.getNodeContainerState().isExecuted()) {
+            try {
+                return snc.getModelSettingsUsingFlowObjectStack();
+            } catch (InvalidSettingsException ex) {
+                throw new IllegalStateException("Problem extracting settings of node '" + snc.getNameWithID() + "'",
+                    ex);
+            }
+        } else {
+            NodeSettings nodeSettings = snc.getNodeSettings();
+            if (nodeSettings.containsKey("model")) {
+                try {
+                    return nodeSettings.getConfig("model");
+                } catch (InvalidSettingsException ex) {
+                    //can never happen - checked before
+                }
+            }
+        }
+        return null;
+    }
+
     private static XmlMapper getXmlMapper() {
         if (XML_MAPPER == null) {
             JacksonXmlModule xmlModule = new JacksonXmlModule();
@@ -358,11 +386,17 @@ public List<Node> getNodes() {
 
                 @Override
                 public List<String> getAnnotations() {
+                    if (!config.m_sections.contains(SummarySection.ANNOTATIONS)) {
+                        return null;
+                    }
                     return wfm.getWorkflowAnnotations().stream().map(wa -> wa.getData().getText()).collect(toList());
                 }
 
                 @Override
                 public WorkflowMetadata getMetadata() {
+                    if (!config.m_sections.contains(SummarySection.METADATA)) {
+                        return null;
+                    }
                     return WorkflowMetadata.create(wfm);
                 }
 
@@ -476,27 +510,11 @@ public Integer getGraphDepth() {
 
                 @Override
                 public List<Setting> getSettings() {
-                    if (nc instanceof SingleNodeContainer) {
-                        SingleNodeContainer snc = (SingleNodeContainer)nc;
-                        if (nc.getNodeContainerState().isExecuted()) {
-                            try {
-                                return Setting.create(snc.getModelSettingsUsingFlowObjectStack(), config);
-                            } catch (InvalidSettingsException ex) {
-                                throw new IllegalStateException(
-                                    "Problem extracting settings of node '" + snc.getNameWithID() + "'", ex);
-                            }
-                        } else {
-                            NodeSettings nodeSettings = snc.getNodeSettings();
-                            if (nodeSettings.containsKey("model")) {
-                                try {
-                                    return Setting.create(nodeSettings.getConfig("model"), config);
-                                } catch (InvalidSettingsException ex) {
-                                    //can never happen - checked before
-                                }
-                            }
-                        }
+                    if (!config.m_sections.contains(SummarySection.NODE_SETTINGS)
+                        || !(nc instanceof SingleNodeContainer)) {
+                        return null;
                     }
-                    return null;
+                    return Setting.create(extractModelSettings((SingleNodeContainer)nc), config);
                 }
 
                 @Override
@@ -512,6 +530,9 @@ public Workflow getSubWorkflow() {
 
                 @Override
                 public List<OutputPort> getOutputs() {
+                    if (!config.m_sections.contains(SummarySection.NODE_OUTPUTS)) {
+                        return null;
+                    }
                     return IntStream.range(0, nc.getNrOutPorts()).mapToObj(i -> {
                         return OutputPort.create(i, nc.getOutPort(i), config);
                     }).collect(toList());
@@ -519,7 +540,8 @@ public List<OutputPort> getOutputs() {
 
                 @Override
                 public String getAnnotation() {
-                    if (!nc.getNodeAnnotation().getData().isDefault()) {
+                    if (config.m_sections.contains(SummarySection.ANNOTATIONS)
+                        && !nc.getNodeAnnotation().getData().isDefault()) {
                         return nc.getNodeAnnotation().getText();
                     }
                     return null;
@@ -535,11 +557,17 @@ public ExecutionStatistics getExecutionStatistics() {
 
                 @Override
                 public JobManager getJobManager() {
+                    if (!config.m_sections.contains(SummarySection.JOB_MANAGERS)) {
+                        return null;
+                    }
                     return JobManager.create(nc.getJobManager(), config);
                 }
 
                 @Override
                 public NodeMessage getNodeMessage() {
+                    if (!config.m_sections.contains(SummarySection.NODE_MESSAGES)) {
+                        return null;
+                    }
                     return NodeMessage.create(nc.getNodeMessage());
                 }
 
@@ -1078,7 +1106,14 @@ private interface Setting {
         @JacksonXmlElementWrapper(localName = "settings")
         List<Setting> getSettings();
 
+        /**
+         * @return the settings, whose values are computed when requested, or <code>null</code> if the config is
+         *         <code>null</code>
+         */
         static List<Setting> create(final Config config, final WorkflowSummaryConfiguration summaryConfig) {
+            if (config == null) {
+                return null;
+            }
             Iterator<String> iterator = config.iterator();
             List<Setting> res = new ArrayList<>();
             while (iterator.hasNext()) {